@@ -0,0 +1,341 @@
+package org.jcommons.io.text;
+
+import java.util.*;
+
+/**
+ * A random access list that stores its elements in fixed-size chunks.
+ *
+ * Every chunk is a small ring buffer, and all chunks but the last one are always full. So the chunk and the slot of an
+ * element can be computed directly from its index, which gives constant time for <code>get</code> and <code>set</code>
+ * and amortized constant time for appending. Inserting or removing in the middle only shifts the elements of a single
+ * chunk and then passes one element from chunk to chunk, which is a lot cheaper than moving the whole tail of a large
+ * array or walking a linked list.
+ *
+ * The first chunk starts small and grows up to the chunk size, so that tiny lists do not waste memory.
+ *
+ * @param <E> the type of the elements
+ */
+final class ChunkedList<E>
+  extends AbstractList<E>
+  implements RandomAccess
+{
+  /** the number of elements in a chunk is a power of two to allow fast index computation */
+  static final int CHUNK_SHIFT = 10;
+  static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  /** the initial size of the first chunk */
+  private static final int FIRST_CHUNK_SIZE = 16;
+
+  private static final Object[][] NO_CHUNKS = {};
+
+  /** the allocated chunks, each one is a ring buffer starting at its offset */
+  private Object[][] chunks = NO_CHUNKS;
+  private int[] offsets = new int[0];
+  private int size = 0;
+
+  /** construct an empty list */
+  ChunkedList() {
+  }
+
+  /**
+   * Construct an empty list that can hold the given number of elements without allocating further memory.
+   *
+   * @param capacity the number of expected elements
+   */
+  ChunkedList(final int capacity) {
+    ensureCapacity(capacity);
+  }
+
+  /**
+   * Construct a list holding the elements of the given collection.
+   *
+   * @param elements the elements to copy, never null
+   */
+  ChunkedList(final Collection<? extends E> elements) {
+    ensureCapacity(elements.size());
+    for (E element : elements) {
+      add(element);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public E get(final int index) {
+    checkIndex(index);
+    return element(index);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public E set(final int index, final E element) {
+    checkIndex(index);
+    Object[] chunk = chunks[index >>> CHUNK_SHIFT];
+    int slot = slot(chunk, offsets[index >>> CHUNK_SHIFT], index & CHUNK_MASK);
+    E previous = cast(chunk[slot]);
+    chunk[slot] = element;
+    return previous;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean add(final E element) {
+    ensureCapacity(size + 1);
+    int chunk = size >>> CHUNK_SHIFT;
+    chunks[chunk][slot(chunks[chunk], offsets[chunk], size & CHUNK_MASK)] = element;
+    ++size;
+    ++modCount;
+    return true;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void add(final int index, final E element) {
+    if (index < 0 || index > size) throw new IndexOutOfBoundsException(outOfBounds(index));
+    if (index == size) {
+      add(element);
+      return;
+    }
+
+    ensureCapacity(size + 1);
+    int target = index >>> CHUNK_SHIFT;
+    int last = size >>> CHUNK_SHIFT;
+
+    // make room in the target chunk by passing the last element of every full chunk on to its successor
+    for (int chunk = last; chunk > target; --chunk) {
+      Object[] previous = chunks[chunk - 1];
+      int slot = slot(previous, offsets[chunk - 1], CHUNK_SIZE - 1);
+      pushFirst(chunk, previous[slot]);
+      previous[slot] = null;
+    }
+
+    int count = target < last ? CHUNK_SIZE - 1 : size & CHUNK_MASK;
+    insert(target, count, index & CHUNK_MASK, element);
+    ++size;
+    ++modCount;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public E remove(final int index) {
+    checkIndex(index);
+    int target = index >>> CHUNK_SHIFT;
+    int last = (size - 1) >>> CHUNK_SHIFT;
+
+    int count = target < last ? CHUNK_SIZE : size - (target << CHUNK_SHIFT);
+    E removed = extract(target, count, index & CHUNK_MASK);
+
+    // close the gap by pulling the first element of every following chunk into its predecessor
+    for (int chunk = target + 1; chunk <= last; ++chunk) {
+      Object[] previous = chunks[chunk - 1];
+      previous[slot(previous, offsets[chunk - 1], CHUNK_SIZE - 1)] = popFirst(chunk);
+    }
+
+    --size;
+    ++modCount;
+    return removed;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void clear() {
+    int used = size == 0 ? 0 : ((size - 1) >>> CHUNK_SHIFT) + 1;
+    for (int chunk = 0; chunk < used; ++chunk) {
+      Arrays.fill(chunks[chunk], null);
+      offsets[chunk] = 0;
+    }
+    size = 0;
+    ++modCount;
+  }
+
+  /**
+   * Make sure that the list can hold the given number of elements without allocating further chunks.
+   *
+   * @param capacity the minimum number of elements to hold
+   */
+  void ensureCapacity(final int capacity) {
+    if (capacity <= 0) return;
+
+    if (chunks.length == 0) {
+      chunks = new Object[Math.max(1, chunksFor(capacity))][];
+      offsets = new int[chunks.length];
+    }
+
+    if (capacity <= CHUNK_SIZE) {
+      if (chunks[0] == null || chunks[0].length < capacity) {
+        growFirstChunk(Math.max(FIRST_CHUNK_SIZE, Integer.highestOneBit(capacity - 1) << 1));
+      }
+      return;
+    }
+
+    if (chunks[0] == null || chunks[0].length < CHUNK_SIZE) {
+      growFirstChunk(CHUNK_SIZE);
+    }
+
+    int needed = chunksFor(capacity);
+    if (needed > chunks.length) {
+      int length = Math.max(needed, chunks.length + (chunks.length >> 1));
+      chunks = Arrays.copyOf(chunks, length);
+      offsets = Arrays.copyOf(offsets, length);
+    }
+    for (int chunk = 1; chunk < needed; ++chunk) {
+      if (chunks[chunk] == null) {
+        chunks[chunk] = new Object[CHUNK_SIZE];
+      }
+    }
+  }
+
+  /**
+   * Replace the first chunk by a larger one, the elements are unwrapped to start at the beginning of the ring.
+   *
+   * @param length the new length of the first chunk, a power of two not larger than the chunk size
+   */
+  private void growFirstChunk(final int length) {
+    Object[] chunk = new Object[Math.min(length, CHUNK_SIZE)];
+    Object[] current = chunks[0];
+    if (current != null) {
+      int count = Math.min(size, current.length);
+      for (int index = 0; index < count; ++index) {
+        chunk[index] = current[slot(current, offsets[0], index)];
+      }
+    }
+    chunks[0] = chunk;
+    offsets[0] = 0;
+  }
+
+  /**
+   * Insert an element into a chunk that has at least one free slot, shifting the shorter side of the chunk.
+   *
+   * @param chunk the chunk to insert into
+   * @param count the number of elements currently stored in that chunk
+   * @param position the position within the chunk for the new element
+   * @param element the element to insert
+   */
+  private void insert(final int chunk, final int count, final int position, final Object element) {
+    Object[] data = chunks[chunk];
+    int offset = offsets[chunk];
+
+    if (position < count / 2) {
+      // move the head one slot to the front
+      offset = (offset - 1) & (data.length - 1);
+      for (int index = 0; index < position; ++index) {
+        data[slot(data, offset, index)] = data[slot(data, offset, index + 1)];
+      }
+      offsets[chunk] = offset;
+    } else {
+      // move the tail one slot to the back
+      for (int index = count; index > position; --index) {
+        data[slot(data, offset, index)] = data[slot(data, offset, index - 1)];
+      }
+    }
+
+    data[slot(data, offset, position)] = element;
+  }
+
+  /**
+   * Remove an element from a chunk, shifting the shorter side of the chunk to close the gap.
+   *
+   * @param chunk the chunk to remove from
+   * @param count the number of elements currently stored in that chunk
+   * @param position the position within the chunk of the element to remove
+   * @return the removed element
+   */
+  private E extract(final int chunk, final int count, final int position) {
+    Object[] data = chunks[chunk];
+    int offset = offsets[chunk];
+    E removed = cast(data[slot(data, offset, position)]);
+
+    if (position < count / 2) {
+      // move the head one slot to the back
+      for (int index = position; index > 0; --index) {
+        data[slot(data, offset, index)] = data[slot(data, offset, index - 1)];
+      }
+      data[offset] = null;
+      offsets[chunk] = (offset + 1) & (data.length - 1);
+    } else {
+      // move the tail one slot to the front
+      for (int index = position; index < count - 1; ++index) {
+        data[slot(data, offset, index)] = data[slot(data, offset, index + 1)];
+      }
+      data[slot(data, offset, count - 1)] = null;
+    }
+
+    return removed;
+  }
+
+  /**
+   * Prepend an element to a chunk that has at least one free slot.
+   *
+   * @param chunk the chunk to prepend to
+   * @param element the element to add
+   */
+  private void pushFirst(final int chunk, final Object element) {
+    Object[] data = chunks[chunk];
+    int offset = (offsets[chunk] - 1) & (data.length - 1);
+    data[offset] = element;
+    offsets[chunk] = offset;
+  }
+
+  /**
+   * Remove the first element of a chunk.
+   *
+   * @param chunk the chunk to take the element from
+   * @return the former first element of that chunk
+   */
+  private Object popFirst(final int chunk) {
+    Object[] data = chunks[chunk];
+    int offset = offsets[chunk];
+    Object element = data[offset];
+    data[offset] = null;
+    offsets[chunk] = (offset + 1) & (data.length - 1);
+    return element;
+  }
+
+  /**
+   * Read an element without checking the bounds.
+   *
+   * @param index the valid index of the element
+   * @return the element at that index
+   */
+  private E element(final int index) {
+    Object[] chunk = chunks[index >>> CHUNK_SHIFT];
+    return cast(chunk[slot(chunk, offsets[index >>> CHUNK_SHIFT], index & CHUNK_MASK)]);
+  }
+
+  private void checkIndex(final int index) {
+    if (index < 0 || index >= size) throw new IndexOutOfBoundsException(outOfBounds(index));
+  }
+
+  private String outOfBounds(final int index) {
+    return new StringBuilder("Index: ").append(index).append(", Size: ").append(size).toString();
+  }
+
+  /**
+   * @param chunk the ring buffer
+   * @param offset the start of the ring buffer
+   * @param position the logical position in the ring buffer
+   * @return the physical slot in the ring buffer
+   */
+  private static int slot(final Object[] chunk, final int offset, final int position) {
+    return (offset + position) & (chunk.length - 1);
+  }
+
+  /**
+   * @param capacity the number of elements
+   * @return the number of chunks required to hold that many elements
+   */
+  private static int chunksFor(final int capacity) {
+    return ((capacity - 1) >>> CHUNK_SHIFT) + 1;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <E> E cast(final Object element) {
+    return (E) element;
+  }
+}
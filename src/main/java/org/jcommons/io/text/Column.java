@@ -0,0 +1,57 @@
+package org.jcommons.io.text;
+
+/**
+ * A column of a table that has been looked up by name once, so its cells can be read by index afterwards.
+ *
+ * Use a column in loops over many rows instead of reading the cells by name. The column keeps the position found when
+ * it was created, look it up again after the columns of the table have been redefined.
+ */
+public final class Column
+{
+  private final Table table;
+  private final String name;
+  private final int index;
+
+  /**
+   * Look up a column of a table.
+   *
+   * @param table the table that contains the column, never null
+   * @param name the case insensitive name of the column
+   */
+  public Column(final Table table, final String name) {
+    this.table = table;
+    this.name = name;
+    this.index = table.indexOf(name);
+  }
+
+  /** @return the name the column has been looked up with */
+  public String getName() {
+    return name;
+  }
+
+  /** @return the position of the column in the table starting with 0, -1 if the table has no such column */
+  public int getIndex() {
+    return index;
+  }
+
+  /** @return true if the table has such a column */
+  public boolean exists() {
+    return index >= 0;
+  }
+
+  /**
+   * Retrieve the value of this column in the given row
+   *
+   * @param row the row number in the table starting with 0
+   * @return the associated value of that cell, null if the row is out of bounds or the column is unknown
+   */
+  public String getValue(final int row) {
+    return index < 0 ? null : table.getValue(row, index);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return new StringBuilder(String.valueOf(name)).append("@").append(index).toString();
+  }
+}
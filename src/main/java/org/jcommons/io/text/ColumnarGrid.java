@@ -0,0 +1,437 @@
+package org.jcommons.io.text;
+
+import java.util.*;
+
+/**
+ * A grid that stores its data column by column, each column encoded by a dictionary of its distinct values.
+ *
+ * Imported files often contain columns with only a handful of distinct values like countries, states or currencies. A
+ * <code>Grid</code> keeps a string for every single cell and a list for every single row, whereas this implementation
+ * keeps every distinct value only once per column and refers to it by a small code. The codes of a column are kept in
+ * a single array which grows from bytes to shorts to integers as the dictionary grows, so repetitive data needs a
+ * fraction of the memory and scanning a column touches one contiguous array only.
+ *
+ * Rows and data are handed out as views on the columns, so they are always up to date but refer to positions, i.e.
+ * after inserting or removing rows a view shows the row that is now at its position. Values are never removed from the
+ * dictionaries, use <code>trimToSize()</code> after loading the data to release all memory that is not required for
+ * reading.
+ */
+public class ColumnarGrid
+  implements MutableTabular
+{
+  /** the minimum number of rows to allocate */
+  private static final int ROWS_EXTEND = 16;
+
+  private Column[] columns = new Column[0];
+  private int[] widths;
+  private int size = 0;
+
+  /** construct an empty grid */
+  public ColumnarGrid() {
+    this(ROWS_EXTEND);
+  }
+
+  /**
+   * Constructs a grid with the given initial capacity for larger tables.
+   *
+   * @param capacity the number of expected rows for this grid
+   */
+  public ColumnarGrid(final int capacity) {
+    widths = new int[Math.max(capacity, ROWS_EXTEND)];
+  }
+
+  /**
+   * Constructs a grid with a copy of the given data, e.g. to compact a grid that has just been read.
+   *
+   * @param data the table contents, can be null for no data
+   */
+  public ColumnarGrid(final Tabular data) {
+    this(data == null ? 0 : data.size());
+    if (data != null) {
+      for (int row = 0; row < data.size(); ++row) {
+        add(data.getRow(row));
+      }
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public ColumnarGrid add(final List<String> row) {
+    ensureRows(size + 1);
+    write(size++, row);
+    return this;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public ColumnarGrid clear() {
+    columns = new Column[0];
+    widths = new int[ROWS_EXTEND];
+    size = 0;
+    return this;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<List<String>> getData() {
+    return new Rows();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<String> getRow(final int index) {
+    if (index < 0 || index >= size) { return Collections.emptyList(); }
+    return new Row(index);
+  }
+
+  /**
+   * Access all cells of a single column.
+   *
+   * @param column the column number starting with 0
+   * @return a read-only view with one value for every row, values of rows that are too short are null, never null
+   */
+  public List<String> getColumn(final int column) {
+    if (column < 0) return Collections.emptyList();
+    return new Cells(column);
+  }
+
+  /**
+   * Determine the distinct values of a column.
+   *
+   * @param column the column number starting with 0
+   * @return the distinct values of that column that have ever been set, excluding null, never null
+   */
+  public List<String> getDistinctValues(final int column) {
+    if (column < 0 || column >= columns.length) return Collections.emptyList();
+    return Collections.unmodifiableList(columns[column].values.subList(1, columns[column].values.size()));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getValue(final int row, final int column) {
+    if (row < 0 || row >= size) return null;
+    if (column < 0 || column >= widths[row]) return null;
+    return columns[column].get(row);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public ColumnarGrid insertAfter(final int index, final List<String> row) {
+    return insertBefore(index + 1, row);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public ColumnarGrid insertBefore(final int index, final List<String> row) {
+    // interpret negative index as first row
+    int position = Math.max(0, index);
+
+    if (position > size) {
+      // add empty rows but the last one as we already have that one
+      ensureRows(position);
+      size = position;
+    }
+
+    ensureRows(size + 1);
+    System.arraycopy(widths, position, widths, position + 1, size - position);
+    for (Column column : columns) {
+      column.move(position, position + 1, size - position);
+    }
+    ++size;
+    write(position, row);
+
+    return this;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public ColumnarGrid remove(final int index) {
+    if (index >= 0 && index < size) {
+      System.arraycopy(widths, index + 1, widths, index, size - index - 1);
+      for (Column column : columns) {
+        column.move(index + 1, index, size - index - 1);
+        column.set(size - 1, 0);
+      }
+      widths[--size] = 0;
+    }
+    return this;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String setValue(final int row, final int column, final String value) {
+    if (row < 0 || column < 0) return null;
+
+    if (row >= size || column >= widths[row]) {
+      // out of scope anyway
+      if (value == null) return null;
+
+      if (row >= size) {
+        ensureRows(row + 1);
+        size = row + 1;
+      }
+      ensureColumns(column + 1);
+      widths[row] = column + 1;
+      columns[column].set(row, columns[column].encode(value));
+      return null;
+    }
+
+    Column data = columns[column];
+    String previous = data.get(row);
+    data.set(row, data.encode(value));
+    return previous;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Release all memory that is only required for adding further values.
+   *
+   * The grid stays fully functional, but the first new value of a column will rebuild the lookup of its dictionary.
+   *
+   * @return this to allow chaining
+   */
+  public ColumnarGrid trimToSize() {
+    widths = Arrays.copyOf(widths, Math.max(size, 1));
+    for (Column column : columns) {
+      column.trim(widths.length);
+    }
+    return this;
+  }
+
+  /**
+   * Store the given cells in an existing row.
+   *
+   * @param row the row number, must be within the current size
+   * @param data the cells to store, null for an empty row
+   */
+  private void write(final int row, final List<String> data) {
+    int width = data == null ? 0 : data.size();
+    ensureColumns(width);
+    for (int column = 0; column < width; ++column) {
+      columns[column].set(row, columns[column].encode(data.get(column)));
+    }
+    for (int column = width; column < columns.length; ++column) {
+      columns[column].set(row, 0);
+    }
+    widths[row] = width;
+  }
+
+  /** @param rows the number of rows that must fit into the grid */
+  private void ensureRows(final int rows) {
+    if (rows <= widths.length) return;
+    int capacity = Math.max(rows, Math.max(ROWS_EXTEND, widths.length + (widths.length >> 1)));
+    widths = Arrays.copyOf(widths, capacity);
+    for (Column column : columns) {
+      column.resize(capacity);
+    }
+  }
+
+  /** @param count the number of columns that must exist */
+  private void ensureColumns(final int count) {
+    if (count <= columns.length) return;
+    int current = columns.length;
+    columns = Arrays.copyOf(columns, count);
+    for (int column = current; column < count; ++column) {
+      columns[column] = new Column(widths.length);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return getData().toString();
+  }
+
+  /**
+   * A single column with its dictionary and the codes of all rows.
+   *
+   * Code 0 always stands for null, so new rows need no initialization.
+   */
+  private static final class Column
+  {
+    private final ArrayList<String> values = new ArrayList<String>();
+    private Map<String, Integer> codes;
+
+    // exactly one of the code arrays is in use, depending on the size of the dictionary
+    private byte[] bytes;
+    private short[] shorts;
+    private int[] ints;
+
+    Column(final int capacity) {
+      values.add(null);
+      bytes = new byte[capacity];
+    }
+
+    /**
+     * Determine the code of a value, adding it to the dictionary if required.
+     *
+     * @param value the value to encode, can be null
+     * @return the code of the value
+     */
+    int encode(final String value) {
+      if (value == null) return 0;
+      if (codes == null) {
+        codes = new HashMap<String, Integer>();
+        for (int code = 1; code < values.size(); ++code) {
+          codes.put(values.get(code), code);
+        }
+      }
+
+      Integer code = codes.get(value);
+      if (code != null) return code;
+
+      int added = values.size();
+      values.add(value);
+      codes.put(value, added);
+      widen(added);
+      return added;
+    }
+
+    String get(final int row) {
+      if (bytes != null) return values.get(bytes[row] & 0xff);
+      if (shorts != null) return values.get(shorts[row] & 0xffff);
+      return values.get(ints[row]);
+    }
+
+    void set(final int row, final int code) {
+      if (bytes != null) {
+        bytes[row] = (byte) code;
+      } else if (shorts != null) {
+        shorts[row] = (short) code;
+      } else {
+        ints[row] = code;
+      }
+    }
+
+    /**
+     * Copy the codes of a range of rows within this column.
+     *
+     * @param from the first row to copy
+     * @param to the first row to copy to
+     * @param count the number of rows
+     */
+    void move(final int from, final int to, final int count) {
+      if (bytes != null) {
+        System.arraycopy(bytes, from, bytes, to, count);
+      } else if (shorts != null) {
+        System.arraycopy(shorts, from, shorts, to, count);
+      } else {
+        System.arraycopy(ints, from, ints, to, count);
+      }
+    }
+
+    /** @param capacity the new number of rows of this column */
+    void resize(final int capacity) {
+      if (bytes != null) {
+        bytes = Arrays.copyOf(bytes, capacity);
+      } else if (shorts != null) {
+        shorts = Arrays.copyOf(shorts, capacity);
+      } else {
+        ints = Arrays.copyOf(ints, capacity);
+      }
+    }
+
+    /** @param capacity the number of rows to keep */
+    void trim(final int capacity) {
+      resize(capacity);
+      codes = null;
+      values.trimToSize();
+    }
+
+    /**
+     * Switch to wider codes if the given code does not fit the current ones.
+     *
+     * @param code the largest code in use
+     */
+    private void widen(final int code) {
+      if (bytes != null && code > 0xff) {
+        shorts = new short[bytes.length];
+        for (int row = 0; row < bytes.length; ++row) {
+          shorts[row] = (short) (bytes[row] & 0xff);
+        }
+        bytes = null;
+      }
+      if (shorts != null && code > 0xffff) {
+        ints = new int[shorts.length];
+        for (int row = 0; row < shorts.length; ++row) {
+          ints[row] = shorts[row] & 0xffff;
+        }
+        shorts = null;
+      }
+    }
+  }
+
+  /** A row that reads and writes through to the columns. */
+  private final class Row
+    extends AbstractList<String>
+    implements RandomAccess
+  {
+    private final int row;
+
+    Row(final int row) {
+      this.row = row;
+    }
+
+    @Override
+    public String get(final int index) {
+      if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+      return getValue(row, index);
+    }
+
+    @Override
+    public String set(final int index, final String value) {
+      if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+      return setValue(row, index, value);
+    }
+
+    @Override
+    public int size() {
+      return row < ColumnarGrid.this.size ? widths[row] : 0;
+    }
+  }
+
+  /** All cells of a single column in read-only mode. */
+  private final class Cells
+    extends AbstractList<String>
+    implements RandomAccess
+  {
+    private final int column;
+
+    Cells(final int column) {
+      this.column = column;
+    }
+
+    @Override
+    public String get(final int index) {
+      if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+      return getValue(index, column);
+    }
+
+    @Override
+    public int size() {
+      return ColumnarGrid.this.size;
+    }
+  }
+
+  /** All rows in read-only mode. */
+  private final class Rows
+    extends AbstractList<List<String>>
+    implements RandomAccess
+  {
+    @Override
+    public List<String> get(final int index) {
+      if (index < 0 || index >= size()) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+      return Collections.unmodifiableList(getRow(index));
+    }
+
+    @Override
+    public int size() {
+      return ColumnarGrid.this.size;
+    }
+  }
+}
@@ -18,7 +18,8 @@ public class Grid
   /** defines the minimum number if columns and also the minimum number of columns to extend */
   static final int COLUMNS_EXTEND = 10;
 
-  private LinkedList<List<String>> rows = null;
+  /** chunked storage gives constant time access to any row, even for millions of rows */
+  private ChunkedList<List<String>> rows = null;
 
   /** construct an empty table */
   public Grid() {
@@ -32,9 +33,9 @@ public class Grid
    */
   public Grid(final List<List<String>> data) {
     if (data != null) {
-      rows = new LinkedList<List<String>>(data);
+      rows = new ChunkedList<List<String>>(data);
     } else {
-      rows = new LinkedList<List<String>>();
+      rows = new ChunkedList<List<String>>();
     }
   }
 
@@ -44,8 +45,7 @@ public class Grid
    * @param capacity the number of expected rows for this table
    */
   public Grid(final int capacity) {
-    // linked lists extend easily, so we don't need an initial capacity
-    rows = new LinkedList<List<String>>();
+    rows = new ChunkedList<List<String>>(capacity);
   }
 
   /** @return the plain data of this table in read-only mode */
@@ -93,13 +93,7 @@ public class Grid
       createEmptyRows(position - 1);
     }
 
-    if (position == 0) {
-      rows.addFirst(row);
-    } else if (position == rows.size()) {
-      rows.addLast(row);
-    } else {
-      rows.add(position, row);
-    }
+    rows.add(position, row);
 
     return this;
   }
@@ -204,7 +198,7 @@ public class Grid
    * @param lastRow the last row that needs to be created
    */
   private void createEmptyRows(final int lastRow) {
-    if (lastRow > 0 && lastRow >= rows.size()) {
+    if (lastRow >= 0 && lastRow >= rows.size()) {
       for (int count = rows.size(); count <= lastRow; ++count) {
         rows.add(new ArrayList<String>());
       }
@@ -0,0 +1,73 @@
+package org.jcommons.io.text;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Iterates over a range of rows of a table by index and splits the range in halves.
+ *
+ * Every row is retrieved by its index, so a split never has to walk the rows it hands off and both halves know their
+ * exact size.
+ */
+final class RowSpliterator
+  implements Spliterator<List<String>>
+{
+  /** the number of rows below which a range is not split any further */
+  private static final int MIN_SPLIT = 1024;
+
+  private final Tabular table;
+  private int index;
+  private final int fence;
+
+  /**
+   * @param table the table to iterate over
+   * @param index the first row
+   * @param fence the row after the last row
+   */
+  RowSpliterator(final Tabular table, final int index, final int fence) {
+    this.table = table;
+    this.index = index;
+    this.fence = fence;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean tryAdvance(final Consumer<? super List<String>> action) {
+    if (index >= fence) return false;
+    action.accept(table.getRow(index++));
+    return true;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void forEachRemaining(final Consumer<? super List<String>> action) {
+    int row = index;
+    index = fence;
+    for (; row < fence; ++row) {
+      action.accept(table.getRow(row));
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Spliterator<List<String>> trySplit() {
+    if (fence - index < MIN_SPLIT) return null;
+    int middle = (index + fence) >>> 1;
+    Spliterator<List<String>> prefix = new RowSpliterator(table, index, middle);
+    index = middle;
+    return prefix;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public long estimateSize() {
+    return fence - index;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int characteristics() {
+    return ORDERED | SIZED | SUBSIZED | NONNULL;
+  }
+}
@@ -2,6 +2,9 @@ package org.jcommons.io.text;
 
 import java.util.*;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
  * Default implementation of a table.
  *
@@ -18,21 +21,32 @@ import java.util.*;
  *
  * The skipped lines are optional and must not be present. Although they will be read in, you will have no chance to
  * change them. If the need arises to write files as well, the appropriate writer should access the underlying grid.
+ * Besides a <code>Grid</code> any tabular data can be wrapped, see <code>getTabular()</code>.
+ *
+ * Columns are looked up by name through an index of the column row that is built on first use and rebuilt whenever the
+ * columns are redefined through this spreadsheet. Change the column row through <code>setColumn()</code>, not through
+ * the grid, to keep the index valid. Use a <code>Column</code> to look up a column once and read its cells by index.
  *
  * @author Thorsten Goeckeler
  */
 public class Spreadsheet
   implements Table
 {
-  private Grid grid;
+  private static final Logger LOG = LoggerFactory.getLogger(Spreadsheet.class);
+
+  private Tabular grid;
 
   private int skipHeader = 0;
   private int skipTrailer = 0;
   private int skipFooter = 0;
 
+  /** the index of the case-folded column names and the row it was built from, null if it must be rebuilt */
+  private Map<String, Integer> columnIndex;
+  private int indexedRow = -1;
+
   /** Constructs an empty spreadsheet. */
   public Spreadsheet() {
-    this(null);
+    this((Tabular) null);
   }
 
   /**
@@ -41,7 +55,16 @@ public class Spreadsheet
    * @param grid the data grid to use
    */
   public Spreadsheet(final Grid grid) {
-    this.grid = grid;
+    this((Tabular) grid);
+  }
+
+  /**
+   * Constructs a wrapper around any tabular data.
+   *
+   * @param data the data to use, e.g. a <code>Grid</code> or a <code>ColumnarGrid</code>
+   */
+  public Spreadsheet(final Tabular data) {
+    this.grid = data;
   }
 
   /** {@inheritDoc} */
@@ -64,7 +87,7 @@ public class Spreadsheet
   public List<String> getColumns() {
     int columnRow = getColumnRow();
     if (columnRow == -1) return Collections.emptyList();
-    return getGrid().getRow(columnRow);
+    return getTabular().getRow(columnRow);
   }
 
   /** {@inheritDoc} */
@@ -95,8 +118,13 @@ public class Spreadsheet
     return -1;
   }
 
-  /** @return the plain data, can be null */
+  /** @return the plain data if it is held by a <code>Grid</code>, null otherwise, see <code>getTabular()</code> */
   public Grid getGrid() {
+    return grid instanceof Grid ? (Grid) grid : null;
+  }
+
+  /** @return the plain data of any kind, can be null */
+  public Tabular getTabular() {
     return grid;
   }
 
@@ -144,13 +172,56 @@ public class Spreadsheet
   /** {@inheritDoc} */
   @Override
   public int indexOf(final String column) {
+    if (column == null) return -1;
+    Integer index = getColumnIndex().get(fold(column));
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * Resolve a column once to read its cells by index afterwards.
+   *
+   * @param column the case insensitive name of the column
+   * @return the column, which is unknown if there is no such column, never null
+   */
+  public Column getColumnHandle(final String column) {
+    return new Column(this, column);
+  }
+
+  /** @return the index of the column names, built from the column row if necessary */
+  private Map<String, Integer> getColumnIndex() {
+    int columnRow = getColumnRow();
+    Map<String, Integer> index = columnIndex;
+    if (index != null && indexedRow == columnRow) return index;
+
     List<String> columns = getColumns();
-    for (int index = 0; index < columns.size(); ++index) {
-      if (columns.get(index).equalsIgnoreCase(column)) {
-        return index;
-      }
+    index = new HashMap<String, Integer>(Math.max(16, columns.size() * 2));
+    // the first of several columns with the same name wins
+    for (int position = columns.size() - 1; position >= 0; --position) {
+      String name = columns.get(position);
+      if (name != null) index.put(fold(name), position);
     }
-    return -1;
+    indexedRow = columnRow;
+    columnIndex = index;
+    return index;
+  }
+
+  /**
+   * Fold a column name so that names that are equal ignoring case have the same key.
+   *
+   * @param name the column name, never null
+   * @return the key of the name, same as <code>equalsIgnoreCase()</code> compares characters
+   */
+  private static String fold(final String name) {
+    char[] chars = name.toCharArray();
+    for (int index = 0; index < chars.length; ++index) {
+      chars[index] = Character.toLowerCase(Character.toUpperCase(chars[index]));
+    }
+    return new String(chars);
+  }
+
+  /** drop the index of the column names after the columns have been redefined */
+  private void invalidate() {
+    columnIndex = null;
   }
 
   /** {@inheritDoc} */
@@ -158,10 +229,14 @@ public class Spreadsheet
   public Table setColumn(final int index, final String name) {
     int columnRow = getColumnRow();
 
-    if (index >= 0 && columnRow >= 0) {
-      if (getGrid().getRow(columnRow).size() > index) {
-        getGrid().setValue(columnRow, index, name);
+    if (index >= 0 && columnRow >= 0 && grid instanceof MutableTabular) {
+      if (getTabular().getRow(columnRow).size() > index) {
+        ((MutableTabular) getTabular()).setValue(columnRow, index, name);
+        invalidate();
       }
+    } else if (index >= 0 && columnRow >= 0 && LOG.isWarnEnabled()) {
+      LOG.warn(new StringBuilder("Cannot rename column ").append(index).append(" to \"").append(name)
+          .append("\" as the data of the spreadsheet is read-only.").toString());
     }
 
     return this;
@@ -174,7 +249,20 @@ public class Spreadsheet
    * @return this to allow chaining
    */
   public Spreadsheet setGrid(final Grid grid) {
-    this.grid = grid;
+    return setTabular(grid);
+  }
+
+  /**
+   * Inject any tabular data instead of a grid
+   *
+   * Column names can only be changed if the data is a <code>MutableTabular</code>.
+   *
+   * @param data the data to use
+   * @return this to allow chaining
+   */
+  public Spreadsheet setTabular(final Tabular data) {
+    this.grid = data;
+    invalidate();
     return this;
   }
 
@@ -186,6 +274,7 @@ public class Spreadsheet
    */
   public Spreadsheet setSkipFooter(final int skip) {
     this.skipFooter = Math.max(0, skip);
+    invalidate();
     return this;
   }
 
@@ -197,6 +286,7 @@ public class Spreadsheet
    */
   public Spreadsheet setSkipHeader(final int skip) {
     this.skipHeader = Math.max(0, skip);
+    invalidate();
     return this;
   }
 
@@ -208,13 +298,14 @@ public class Spreadsheet
    */
   public Spreadsheet setSkipTrailer(final int skip) {
     this.skipTrailer = Math.max(0, skip);
+    invalidate();
     return this;
   }
 
   /** {@inheritDoc} */
   @Override
   public int size() {
-    if (getGrid() == null) return 0;
+    if (getTabular() == null) return 0;
     // the size are the real data records w/o all hidden rows
     return Math.max(0, grid.size() - getHiddenRows());
   }
@@ -1,6 +1,9 @@
 package org.jcommons.io.text;
 
 import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A tabular construct that arranges data in columns and rows in read-only fashion.
@@ -13,6 +16,8 @@ import java.util.List;
  * please see <code>Table</code>. A modifiable representation with plain data is called a <code>Grid</code> which is an
  * implementation of <code>MutableTabular</code>.
  *
+ * The rows can be streamed, streams split the rows by index ranges so that parallel streams scale with the cores.
+ *
  * @author Thorsten Goeckeler
  */
 public interface Tabular
@@ -41,4 +46,25 @@ public interface Tabular
 
   /** @return the number of current rows of this table */
   int size();
+
+  /**
+   * Iterate over the rows in a way that splits into ranges of rows of the same size.
+   *
+   * The spliterator covers the rows present when it is created, the table must not be modified while it is used.
+   *
+   * @return an ordered and sized spliterator over the rows
+   */
+  default Spliterator<List<String>> spliterator() {
+    return new RowSpliterator(this, 0, size());
+  }
+
+  /** @return a sequential stream over the rows */
+  default Stream<List<String>> stream() {
+    return StreamSupport.stream(spliterator(), false);
+  }
+
+  /** @return a parallel stream over the rows that processes ranges of rows on the common pool */
+  default Stream<List<String>> parallelStream() {
+    return StreamSupport.stream(spliterator(), true);
+  }
 }
@@ -2,7 +2,10 @@ package org.jcommons.io.text.factory;
 
 import java.util.Map;
 
+import org.apache.commons.lang3.StringUtils;
 import org.jcommons.io.text.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 /**
@@ -13,6 +16,8 @@ import org.jcommons.io.text.*;
 class SpreadsheetTableFactory
   implements TableFactoryMethod
 {
+  private static final Logger LOG = LoggerFactory.getLogger(SpreadsheetTableFactory.class);
+
   /**
    * Create a spreadsheet view on the given grid with the given parameters.
    *
@@ -22,14 +27,44 @@ class SpreadsheetTableFactory
    */
   @Override
   public Table create(final Grid grid, final Map<String, String> parameters) {
-    Spreadsheet table = new Spreadsheet(grid);
+    return create((Tabular) grid, parameters);
+  }
+
+  /**
+   * Create a spreadsheet view on any tabular data with the given parameters, the data is wrapped as it is.
+   *
+   * @param data the data to be contained in the table, can be null but that is senseless
+   * @param parameters the parameters to configure the spreadsheet
+   * @return a matching <code>Spreadsheet</code>, never null
+   */
+  @Override
+  public Table create(final Tabular data, final Map<String, String> parameters) {
+    Spreadsheet table = new Spreadsheet(data);
 
     if (parameters != null) {
-      if (parameters.containsKey("header")) table.setSkipHeader(Integer.valueOf(parameters.get("header")));
-      if (parameters.containsKey("footer")) table.setSkipHeader(Integer.valueOf(parameters.get("footer")));
-      if (parameters.containsKey("trailer")) table.setSkipHeader(Integer.valueOf(parameters.get("trailer")));
+      if (parameters.containsKey("header")) table.setSkipHeader(getRows(parameters, "header"));
+      if (parameters.containsKey("footer")) table.setSkipFooter(getRows(parameters, "footer"));
+      if (parameters.containsKey("trailer")) table.setSkipTrailer(getRows(parameters, "trailer"));
     }
 
     return table;
   }
+
+  /**
+   * @param parameters the parameters to configure the spreadsheet
+   * @param name the name of the parameter
+   * @return the number of rows to skip, none if the value is no number
+   */
+  private static int getRows(final Map<String, String> parameters, final String name) {
+    String value = parameters.get(name);
+    try {
+      return Integer.parseInt(StringUtils.trim(value));
+    } catch (NumberFormatException ex) {
+      if (LOG.isWarnEnabled()) {
+        LOG.warn(new StringBuilder("Ignoring parameter \"").append(name).append("\" as \"").append(value)
+            .append("\" is no number.").toString());
+      }
+      return 0;
+    }
+  }
 }
@@ -31,11 +31,22 @@ public final class TableFactory
    * @return a matching table implementation, never null, per default as <code>Spreadsheet</code>
    */
   public static Table create(final Grid grid, final Map<String, String> parameters) {
+    return create((Tabular) grid, parameters);
+  }
+
+  /**
+   * Create a table view on any tabular data for the given parameters, e.g. a <code>ColumnarGrid</code>.
+   *
+   * @param data the data to be contained in the table, can be null but that is senseless
+   * @param parameters the parameters that configure the table
+   * @return a matching table implementation, never null, per default as <code>Spreadsheet</code>
+   */
+  public static Table create(final Tabular data, final Map<String, String> parameters) {
     if (parameters == null || !parameters.containsKey("class") || !METHODS.containsKey(parameters.get("class"))) {
       // use default implementation
-      return METHODS.get(Spreadsheet.class.getSimpleName()).create(grid, parameters);
+      return METHODS.get(Spreadsheet.class.getSimpleName()).create(data, parameters);
     }
 
-    return METHODS.get(parameters.get("class")).create(grid, parameters);
+    return METHODS.get(parameters.get("class")).create(data, parameters);
   }
 }
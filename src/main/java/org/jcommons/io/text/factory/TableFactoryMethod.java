@@ -4,6 +4,7 @@ import java.util.Map;
 
 import org.jcommons.io.text.Grid;
 import org.jcommons.io.text.Table;
+import org.jcommons.io.text.Tabular;
 
 
 /**
@@ -21,5 +22,19 @@ public interface TableFactoryMethod
    * @return a matching table implementation, never null, per default as <code>Spreadsheet</code>
    */
   Table create(final Grid grid, final Map<String, String> parameters);
+
+  /**
+   * Create a concrete table view on any tabular data for the given parameters.
+   *
+   * Data that is no <code>Grid</code> is copied into one by default, override this to wrap the data as it is.
+   *
+   * @param data the data to be contained in the table, can be null but that is senseless
+   * @param parameters the parameters that configure the table
+   * @return a matching table implementation, never null, per default as <code>Spreadsheet</code>
+   */
+  default Table create(final Tabular data, final Map<String, String> parameters) {
+    if (data == null || data instanceof Grid) return create((Grid) data, parameters);
+    return create(new Grid(data.getData()), parameters);
+  }
 }
 
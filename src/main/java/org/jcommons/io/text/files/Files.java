@@ -1,15 +1,28 @@
 package org.jcommons.io.text.files;
 
 import java.io.*;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import javax.annotation.processing.Filer;
 
+import org.apache.commons.io.ByteOrderMark;
+import org.apache.commons.io.input.BOMInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Convenience functions to access text files easily.
+ *
+ * Files are read and written with the default charset of the platform unless a charset is given. A byte order mark at
+ * the start of a file is skipped and overrides the charset. Files compressed with gzip or zip are decompressed while
+ * they are read.
  * 
  * @author Thorsten Goeckeler
  */
@@ -17,6 +30,15 @@ public final class Files
 {
   private static final Logger LOG = LoggerFactory.getLogger(Filer.class);
 
+  /** the default size of the buffers of readers and writers */
+  public static final int BUFFER_SIZE = 64 * 1024;
+
+  /** the first bytes of files compressed with gzip and of zip archives */
+  private static final int GZIP_MAGIC = 0x1f8b;
+  private static final int ZIP_MAGIC = 0x504b0304;
+
+  private static final ByteOrderMark[] BOMS = { ByteOrderMark.UTF_8, ByteOrderMark.UTF_16BE, ByteOrderMark.UTF_16LE };
+
   /** hide default constructor */
   private Files() {
   }
@@ -28,11 +50,23 @@ public final class Files
    * @return the created buffered writer or null if an error occurred which will be logged
    */
   public static BufferedWriter create(final String fileName) {
+    return create(fileName, Charset.defaultCharset());
+  }
+
+  /**
+   * Create a new file with the given name and encoding
+   *
+   * @param fileName the path describing the file to create, never null
+   * @param charset the encoding of the file, null for the default charset of the platform
+   * @return the created buffered writer or null if an error occurred which will be logged
+   */
+  public static BufferedWriter create(final String fileName, final Charset charset) {
     if (StringUtils.isBlank(fileName)) return null;
     BufferedWriter writer = null;
 
     try {
-      writer = new BufferedWriter(new FileWriter(fileName));
+      Writer output = new OutputStreamWriter(new FileOutputStream(fileName), defaultIfNull(charset));
+      writer = new BufferedWriter(output, BUFFER_SIZE);
     } catch (IOException ioex) {
       writer = null;
       if (LOG.isWarnEnabled()) {
@@ -50,39 +84,264 @@ public final class Files
    * @return the corresponding reader or null if the file cannot be opened
    */
   public static LineNumberReader open(final File file) {
-    if (file == null) return null;
+    return open(file, Charset.defaultCharset());
+  }
 
-    if (!file.exists()) {
-      if (LOG.isWarnEnabled()) {
-        StringBuilder log = new StringBuilder("Cannot open file \"").append(file.getAbsolutePath());
-        log.append("\" as there is no such file.");
-        LOG.warn(log.toString());
-      }
+  /**
+   * Opens a file with the given encoding gracefully
+   *
+   * @param file the file to open, never null
+   * @param charset the encoding of the file unless it starts with a byte order mark, null for the default charset
+   * @return the corresponding reader or null if the file cannot be opened
+   */
+  public static LineNumberReader open(final File file, final Charset charset) {
+    return open(file, charset, BUFFER_SIZE);
+  }
+
+  /**
+   * Opens a file with the given encoding and buffer size gracefully
+   *
+   * @param file the file to open, never null
+   * @param charset the encoding of the file unless it starts with a byte order mark, null for the default charset
+   * @param bufferSize the number of characters to read at once
+   * @return the corresponding reader or null if the file cannot be opened
+   */
+  public static LineNumberReader open(final File file, final Charset charset, final int bufferSize) {
+    Reader input = openReader(file, charset);
+    if (input == null) return null;
+
+    LineNumberReader reader = new LineNumberReader(input, Math.max(1, bufferSize));
+    // start counting with 1 as that is what we expect for files
+    reader.setLineNumber(1);
+    return reader;
+  }
+
+  /**
+   * Opens a file gracefully for callers that do their own buffering and line counting, e.g. parsers
+   * 
+   * @param file the file to open, never null
+   * @return the corresponding unbuffered reader or null if the file cannot be opened
+   */
+  public static Reader openReader(final File file) {
+    return openReader(file, Charset.defaultCharset());
+  }
 
+  /**
+   * Opens a file with the given encoding gracefully for callers that do their own buffering and line counting
+   *
+   * @param file the file to open, never null
+   * @param charset the encoding of the file unless it starts with a byte order mark, null for the default charset
+   * @return the corresponding unbuffered reader or null if the file cannot be opened
+   */
+  public static Reader openReader(final File file, final Charset charset) {
+    if (!isReadable(file)) return null;
+
+    BOMInputStream stream = openStream(file);
+    if (stream == null) return null;
+
+    Reader reader = null;
+    try {
+      String bom = stream.getBOMCharsetName();
+      reader = new InputStreamReader(stream, bom == null ? defaultIfNull(charset) : Charset.forName(bom));
+    } catch (IOException ioex) {
+      close(stream, file);
+      reader = null;
+      LOG.warn(new StringBuilder("Cannot open file \"").append(file.getAbsolutePath()).append("\".").toString(), ioex);
+    }
+
+    return reader;
+  }
+
+  /**
+   * Opens a file gracefully for callers that decode the bytes themselves, a byte order mark at the start is skipped
+   *
+   * Compressed files are decompressed while they are read, of a zip archive the first file is read.
+   *
+   * @param file the file to open, never null
+   * @return the corresponding unbuffered stream or null if the file cannot be opened
+   */
+  public static BOMInputStream openStream(final File file) {
+    return openStream(file, null);
+  }
+
+  /**
+   * Opens a file or an entry of a zip archive gracefully for callers that decode the bytes themselves
+   *
+   * Files compressed with gzip are decompressed while they are read. The format is detected by the first bytes of the
+   * file, not by its name. A byte order mark at the start of the content is skipped.
+   *
+   * @param file the file to open, never null
+   * @param entry the name of the file to read if the file is a zip archive, null for the first file in the archive
+   * @return the corresponding unbuffered stream or null if the file or the entry cannot be opened
+   */
+  public static BOMInputStream openStream(final File file, final String entry) {
+    if (!isReadable(file)) return null;
+
+    InputStream input = null;
+    try {
+      int magic = readMagic(file);
+      if (magic >>> 16 == GZIP_MAGIC) {
+        input = new FileInputStream(file);
+        input = new GZIPInputStream(input, BUFFER_SIZE);
+      } else if (magic == ZIP_MAGIC) {
+        input = openEntry(file, entry);
+      } else {
+        input = new FileInputStream(file);
+      }
+      return BOMInputStream.builder().setInputStream(input).setByteOrderMarks(BOMS).get();
+    } catch (IOException ioex) {
+      close(input, file);
+      LOG.warn(new StringBuilder("Cannot open file \"").append(file.getAbsolutePath()).append("\".").toString(), ioex);
       return null;
     }
+  }
 
-    if (!file.canRead()) {
-      if (LOG.isWarnEnabled()) {
-        StringBuilder log = new StringBuilder("Cannot open file \"").append(file.getAbsolutePath());
-        log.append("\" as I am not allowed to read it.");
-        LOG.warn(log.toString());
+  /**
+   * Open a file within a zip archive, closing the stream closes the archive.
+   *
+   * @param file the zip archive
+   * @param name the name of the file within the archive, null for the first file
+   * @return the decompressed content of the file
+   * @throws IOException if the archive cannot be read or does not contain the file
+   */
+  private static InputStream openEntry(final File file, final String name)
+    throws IOException
+  {
+    final ZipFile zip = new ZipFile(file);
+    try {
+      ZipEntry entry = name == null ? null : zip.getEntry(name);
+      if (name == null) {
+        Enumeration<? extends ZipEntry> entries = zip.entries();
+        while (entry == null && entries.hasMoreElements()) {
+          ZipEntry next = entries.nextElement();
+          if (!next.isDirectory()) entry = next;
+        }
+      }
+      if (entry == null || entry.isDirectory()) {
+        throw new FileNotFoundException(new StringBuilder("No file \"").append(StringUtils.defaultString(name))
+            .append("\" in archive.").toString());
       }
 
-      return null;
+      return new FilterInputStream(zip.getInputStream(entry)) {
+        @Override
+        public void close()
+          throws IOException
+        {
+          try {
+            super.close();
+          } finally {
+            zip.close();
+          }
+        }
+      };
+    } catch (IOException ioex) {
+      zip.close();
+      throw ioex;
     }
+  }
+
+  /**
+   * List the files within a zip archive
+   *
+   * @param file the zip archive, never null
+   * @return the names of the files in the order of the archive, empty if the file is no zip archive or cannot be read
+   */
+  public static List<String> listEntries(final File file) {
+    List<String> names = new ArrayList<String>();
+    if (!isZip(file)) return names;
 
-    LineNumberReader reader = null;
+    ZipFile zip = null;
     try {
-      reader = new LineNumberReader(new FileReader(file));
-      // start counting with 1 as that is what we expect for files
-      reader.setLineNumber(1);
+      zip = new ZipFile(file);
+      Enumeration<? extends ZipEntry> entries = zip.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        if (!entry.isDirectory()) names.add(entry.getName());
+      }
     } catch (IOException ioex) {
-      reader = null;
-      LOG.warn(new StringBuilder("Cannot open file \"").append(file.getAbsolutePath()).append("\".").toString(), ioex);
+      LOG.warn(new StringBuilder("Cannot read archive \"").append(file.getAbsolutePath()).append("\".").toString(),
+          ioex);
+    } finally {
+      close(zip, file);
     }
+    return names;
+  }
 
-    return reader;
+  /**
+   * @param file the file to check, can be null
+   * @return true if the file is compressed with gzip or is a zip archive, judged by its first bytes
+   */
+  public static boolean isCompressed(final File file) {
+    int magic = readMagic(file);
+    return magic >>> 16 == GZIP_MAGIC || magic == ZIP_MAGIC;
+  }
+
+  /**
+   * @param file the file to check, can be null
+   * @return true if the file is a zip archive, judged by its first bytes
+   */
+  public static boolean isZip(final File file) {
+    return readMagic(file) == ZIP_MAGIC;
+  }
+
+  /**
+   * @param file the file to check, can be null
+   * @return the first four bytes of the file in big-endian order, 0 if the file is shorter or cannot be read
+   */
+  private static int readMagic(final File file) {
+    if (file == null || !file.isFile() || !file.canRead()) return 0;
+
+    DataInputStream input = null;
+    try {
+      input = new DataInputStream(new FileInputStream(file));
+      return input.readInt();
+    } catch (IOException ioex) {
+      // too short to be compressed or not readable at all
+      return 0;
+    } finally {
+      close(input, file);
+    }
+  }
+
+  /**
+   * Detect the byte order mark a file starts with, compressed files are not decompressed
+   *
+   * @param file the file to check, never null
+   * @return the byte order mark for UTF-8 or UTF-16 or null if there is none or the file cannot be read
+   */
+  public static ByteOrderMark getByteOrderMark(final File file) {
+    if (file == null || !file.isFile() || !file.canRead()) return null;
+
+    InputStream stream = null;
+    try {
+      stream = new FileInputStream(file);
+      return BOMInputStream.builder().setInputStream(stream).setByteOrderMarks(BOMS).get().getBOM();
+    } catch (IOException ioex) {
+      LOG.debug(new StringBuilder("Cannot read file \"").append(file.getAbsolutePath()).append("\".").toString(), ioex);
+      return null;
+    } finally {
+      close(stream, file);
+    }
+  }
+
+  /**
+   * Determine the encoding of a file
+   *
+   * @param file the file to check, never null
+   * @param charset the encoding to assume if the file has no byte order mark, null for the default charset
+   * @return the encoding indicated by the byte order mark or the given encoding, never null
+   */
+  public static Charset getCharset(final File file, final Charset charset) {
+    ByteOrderMark bom = getByteOrderMark(file);
+    return bom == null ? defaultIfNull(charset) : Charset.forName(bom.getCharsetName());
+  }
+
+  /**
+   * @param charset a charset or null
+   * @return the given charset or the default charset of the platform
+   */
+  private static Charset defaultIfNull(final Charset charset) {
+    return charset == null ? Charset.defaultCharset() : charset;
   }
 
   /**
@@ -97,6 +356,38 @@ public final class Files
     return open(file);
   }
 
+  /**
+   * Check if a file exists and can be read, logs the reason if not
+   * 
+   * @param file the file to check, can be null
+   * @return true if the file can be opened for reading
+   */
+  private static boolean isReadable(final File file) {
+    if (file == null) return false;
+
+    if (!file.exists()) {
+      if (LOG.isWarnEnabled()) {
+        StringBuilder log = new StringBuilder("Cannot open file \"").append(file.getAbsolutePath());
+        log.append("\" as there is no such file.");
+        LOG.warn(log.toString());
+      }
+
+      return false;
+    }
+
+    if (!file.canRead()) {
+      if (LOG.isWarnEnabled()) {
+        StringBuilder log = new StringBuilder("Cannot open file \"").append(file.getAbsolutePath());
+        log.append("\" as I am not allowed to read it.");
+        LOG.warn(log.toString());
+      }
+
+      return false;
+    }
+
+    return true;
+  }
+
   /**
    * Close a stream gracefully, no matter if it is open or not or if cannot be closed for some unknown reason
    * 
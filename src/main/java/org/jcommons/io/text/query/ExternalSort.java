@@ -0,0 +1,284 @@
+package org.jcommons.io.text.query;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinTask;
+
+import org.jcommons.io.text.files.Files;
+import org.jcommons.io.text.reader.RowHandler;
+import org.jcommons.io.text.reader.RowIterator;
+import org.jcommons.io.text.reader.csv.CsvGridReader;
+import org.jcommons.io.text.writer.csv.CsvGridWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sorts CSV files that do not fit into memory.
+ *
+ * The rows are read with the given reader, so its projection, filter and format apply, and collected in runs that fit
+ * into half of the memory budget. Each full run is sorted and written to a temporary file on the shared pool while the
+ * next run is read, the last run stays in memory. The runs are then merged, at most <code>getMaxRuns()</code> files at
+ * once, in several passes if there are more. The sort is stable, rows that are equal keep their order in the file.
+ *
+ * The rows up to the header row of the reader are returned first as they are. Temporary files are deleted as soon as
+ * the rows have been merged or the iterator is closed.
+ */
+public class ExternalSort
+{
+  private static final Logger LOG = LoggerFactory.getLogger(ExternalSort.class);
+
+  /** the default memory budget for the rows, 64 MB */
+  public static final long DEFAULT_MEMORY = 64L * 1024 * 1024;
+
+  /** the default number of runs merged at once */
+  public static final int DEFAULT_MAX_RUNS = 64;
+
+  private final CsvGridReader reader;
+  private final RowComparator comparator;
+  private long memory = DEFAULT_MEMORY;
+  private int maxRuns = DEFAULT_MAX_RUNS;
+  private File directory;
+  private int headerRows = -1;
+
+  /**
+   * Create a sort of the file of the given reader.
+   *
+   * @param reader the reader of the file to sort, never null
+   * @param comparator the order of the rows, never null
+   */
+  public ExternalSort(final CsvGridReader reader, final RowComparator comparator) {
+    this.reader = reader;
+    this.comparator = comparator;
+  }
+
+  /** @return the estimated number of bytes the rows may take in memory */
+  public long getMemory() {
+    return memory;
+  }
+
+  /**
+   * Define how much memory the rows may take, half of it is used for a run that is read while another is written.
+   *
+   * @param memory the estimated number of bytes, at least 1 KB
+   * @return this to allow chaining
+   */
+  public ExternalSort setMemory(final long memory) {
+    this.memory = Math.max(1024, memory);
+    return this;
+  }
+
+  /** @return the maximum number of runs that are merged at once */
+  public int getMaxRuns() {
+    return maxRuns;
+  }
+
+  /**
+   * Define how many runs are merged at once, each of them takes a buffer and an open file while merging.
+   *
+   * @param maxRuns the number of runs, at least 2
+   * @return this to allow chaining
+   */
+  public ExternalSort setMaxRuns(final int maxRuns) {
+    this.maxRuns = Math.max(2, maxRuns);
+    return this;
+  }
+
+  /** @return the directory of the temporary files, null for the default temporary directory */
+  public File getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Define where the sorted runs are written to.
+   *
+   * @param directory the directory of the temporary files, null for the default temporary directory
+   * @return this to allow chaining
+   */
+  public ExternalSort setDirectory(final File directory) {
+    this.directory = directory;
+    return this;
+  }
+
+  /** @return the number of rows at the start that are not sorted, the rows up to the header row by default */
+  public int getHeaderRows() {
+    return headerRows < 0 ? reader.getHeaderRow() + 1 : headerRows;
+  }
+
+  /**
+   * Define how many rows at the start are returned first as they are.
+   *
+   * @param headerRows the number of rows, 0 to sort all rows, negative to keep the rows up to the header row
+   * @return this to allow chaining
+   */
+  public ExternalSort setHeaderRows(final int headerRows) {
+    this.headerRows = Math.max(-1, headerRows);
+    return this;
+  }
+
+  /**
+   * Sort the file and iterate over the sorted rows.
+   *
+   * The iterator deletes the temporary files once the last row has been read, close it yourself if you stop early. An
+   * error while merging is logged and reported as <code>IllegalStateException</code>.
+   *
+   * @return the iterator over the sorted rows or null if the file cannot be sorted
+   */
+  public RowIterator iterator() {
+    RowIterator input = reader.iterator();
+    if (input == null) return null;
+
+    List<File> created = Collections.synchronizedList(new ArrayList<File>());
+    ForkJoinTask<File> spill = null;
+    try {
+      SortRun head = new SortRun();
+      int header = getHeaderRows();
+      while (head.size() < header && input.hasNext()) {
+        head.add(input.next(), input.getLineNumber());
+      }
+
+      List<File> files = new ArrayList<File>();
+      SortRun run = new SortRun();
+      while (input.hasNext()) {
+        run.add(input.next(), input.getLineNumber());
+        if (run.getBytes() >= memory / 2) {
+          // write the run while the next one is read, but never hold more than two runs
+          if (spill != null) files.add(spill.get());
+          spill = Parallel.getPool().submit(spill(run, created));
+          run = new SortRun();
+        }
+      }
+      if (spill != null) files.add(spill.get());
+      spill = null;
+
+      run.sort(comparator);
+      while (files.size() >= maxRuns) {
+        files = merge(files, created);
+      }
+      return new RunMerger(comparator, head, files, run);
+    } catch (IOException | InterruptedException | ExecutionException | IllegalStateException ex) {
+      StringBuilder log = new StringBuilder("Cannot sort text file \"").append(reader.getFile().getAbsolutePath());
+      LOG.warn(log.append("\".").toString(), ex);
+      Files.close(input);
+      if (spill != null) spill.quietlyJoin();
+      RunMerger.delete(created);
+      return null;
+    }
+  }
+
+  /**
+   * Sort the file and pass the sorted rows to the handler.
+   *
+   * @param handler the handler that processes the rows, never null
+   * @return the number of rows passed to the handler or -1 if the file cannot be sorted
+   */
+  public long sort(final RowHandler handler) {
+    RowIterator rows = iterator();
+    if (rows == null) return -1;
+
+    long count = 0;
+    try {
+      while (rows.hasNext()) {
+        ++count;
+        if (!handler.handle(rows.next(), rows.getLineNumber())) break;
+      }
+    } catch (IllegalStateException ex) {
+      count = -1;
+    } finally {
+      Files.close(rows);
+    }
+    return count;
+  }
+
+  /**
+   * Sort the file into another CSV file with the format of the reader.
+   *
+   * Values are only quoted if they would not be read back as they are, see <code>CsvGridWriter</code>.
+   *
+   * @param output the file to write the sorted rows to, never null
+   * @return the number of rows written or -1 if the file cannot be sorted or written
+   */
+  public long sort(final File output) {
+    final RowIterator rows = iterator();
+    if (rows == null) return -1;
+
+    final long[] count = new long[1];
+    try {
+      boolean written = new CsvGridWriter(output).setFormat(reader).write(new Iterator<List<String>>() {
+        @Override
+        public boolean hasNext() {
+          return rows.hasNext();
+        }
+
+        @Override
+        public List<String> next() {
+          ++count[0];
+          return rows.next();
+        }
+      });
+      return written ? count[0] : -1;
+    } catch (IllegalStateException ex) {
+      return -1;
+    } finally {
+      Files.close(rows);
+    }
+  }
+
+  /**
+   * @param run the run to sort and write
+   * @param created the list of temporary files
+   * @return the task that sorts and writes the run and returns its file
+   */
+  private Callable<File> spill(final SortRun run, final List<File> created) {
+    return new Callable<File>() {
+      @Override
+      public File call()
+        throws IOException
+      {
+        run.sort(comparator);
+        File file = run.write(directory, created);
+        if (LOG.isDebugEnabled()) {
+          LOG.debug(new StringBuilder("Wrote ").append(run.size()).append(" sorted rows to temporary file \"")
+              .append(file.getAbsolutePath()).append("\".").toString());
+        }
+        return file;
+      }
+    };
+  }
+
+  /**
+   * Merge groups of consecutive runs into longer runs.
+   *
+   * @param files the files of the runs, deleted once they have been merged
+   * @param created the list of temporary files
+   * @return the files of the merged runs in the same order
+   * @throws IOException if the runs cannot be read or written
+   */
+  private List<File> merge(final List<File> files, final List<File> created)
+    throws IOException
+  {
+    List<File> merged = new ArrayList<File>();
+    for (int from = 0; from < files.size(); from += maxRuns) {
+      List<File> group = new ArrayList<File>(files.subList(from, Math.min(files.size(), from + maxRuns)));
+      RunMerger rows = new RunMerger(comparator, null, group, null);
+      RunFile run = RunFile.create(directory);
+      created.add(run.getFile());
+      try {
+        while (rows.hasNext()) {
+          List<String> row = rows.next();
+          run.write(row, rows.getLineNumber());
+        }
+      } finally {
+        rows.close();
+        run.close();
+      }
+      merged.add(run.getFile());
+    }
+    return merged;
+  }
+}
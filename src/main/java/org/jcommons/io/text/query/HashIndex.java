@@ -0,0 +1,132 @@
+package org.jcommons.io.text.query;
+
+import java.util.*;
+
+import org.jcommons.io.text.Table;
+
+/**
+ * Finds the rows with a given value of a column in constant time.
+ *
+ * The values are compared exactly, including case. Empty cells are indexed as <code>null</code>. Large tables are split
+ * into chunks that are indexed in parallel and joined in the order of the rows.
+ */
+public class HashIndex
+  extends ValueIndex
+{
+  private static final int[] NONE = new int[0];
+
+  private final Map<String, int[]> rows;
+
+  /**
+   * Index a column of a table.
+   *
+   * @param table the table to index, never null
+   * @param column the case insensitive name of the column
+   * @throws IllegalArgumentException if the table has no such column
+   */
+  public HashIndex(final Table table, final String column) {
+    this(table, table.indexOf(column));
+  }
+
+  /**
+   * Index a column of a table.
+   *
+   * @param table the table to index, never null
+   * @param column the position of the column starting with 0
+   * @throws IllegalArgumentException if the position is negative
+   */
+  public HashIndex(final Table table, final int column) {
+    super(table, column);
+    rows = build(readValues());
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int[] find(final String value) {
+    int[] found = rows.get(value);
+    return found == null ? NONE : found.clone();
+  }
+
+  /**
+   * @param value the value to count
+   * @return the number of rows with that value
+   */
+  public int count(final String value) {
+    int[] found = rows.get(value);
+    return found == null ? 0 : found.length;
+  }
+
+  /** @return the distinct values of the column, including null for empty cells */
+  public Set<String> getValues() {
+    return Collections.unmodifiableSet(rows.keySet());
+  }
+
+  /**
+   * Map every value to its rows, chunks are indexed in parallel and joined in order.
+   *
+   * @param values the value of every row
+   * @return the rows of every value in ascending order
+   */
+  private static Map<String, int[]> build(final String[] values) {
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    final Map<String, Rows>[] chunks = new Map[Parallel.getChunks(values.length)];
+    Parallel.run(values.length, new Parallel.Range() {
+      @Override
+      public void run(final int chunk, final int from, final int to) {
+        Map<String, Rows> map = new HashMap<String, Rows>();
+        for (int row = from; row < to; ++row) {
+          Rows found = map.get(values[row]);
+          if (found == null) {
+            found = new Rows();
+            map.put(values[row], found);
+          }
+          found.add(row);
+        }
+        chunks[chunk] = map;
+      }
+    });
+
+    Map<String, Rows> joined = chunks[0];
+    for (int chunk = 1; chunk < chunks.length; ++chunk) {
+      for (Map.Entry<String, Rows> entry : chunks[chunk].entrySet()) {
+        Rows found = joined.get(entry.getKey());
+        if (found == null) {
+          joined.put(entry.getKey(), entry.getValue());
+        } else {
+          found.addAll(entry.getValue());
+        }
+      }
+    }
+
+    Map<String, int[]> result = new HashMap<String, int[]>(joined.size() * 4 / 3 + 1);
+    for (Map.Entry<String, Rows> entry : joined.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().toArray());
+    }
+    return result;
+  }
+
+  /** A growing list of row numbers. */
+  private static final class Rows
+  {
+    private int[] rows = new int[2];
+    private int size = 0;
+
+    /** @param row the row to append */
+    void add(final int row) {
+      if (size == rows.length) rows = Arrays.copyOf(rows, size << 1);
+      rows[size++] = row;
+    }
+
+    /** @param other the rows to append */
+    void addAll(final Rows other) {
+      if (size + other.size > rows.length) rows = Arrays.copyOf(rows, Math.max(size << 1, size + other.size));
+      System.arraycopy(other.rows, 0, rows, size, other.size);
+      size += other.size;
+    }
+
+    /** @return the rows */
+    int[] toArray() {
+      return size == rows.length ? rows : Arrays.copyOf(rows, size);
+    }
+  }
+}
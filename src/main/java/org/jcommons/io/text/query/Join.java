@@ -0,0 +1,308 @@
+package org.jcommons.io.text.query;
+
+import java.util.*;
+
+import org.jcommons.io.sheet.Sheet;
+import org.jcommons.io.text.Grid;
+import org.jcommons.io.text.Spreadsheet;
+import org.jcommons.io.text.Table;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Relates the rows of two tables with equal values in one or more key columns, using a hash index on the right table.
+ *
+ * The right table is indexed by its first key column, the other key columns are compared for every row found. Rows
+ * with an empty key cell never match. The rows of the result follow the order of the left table, the matches of a left
+ * row follow the order of the right table. Large left tables are joined in chunks on the shared pool.
+ *
+ * An inner join returns a row for every pair of matching rows, a left join also returns every left row without match
+ * padded with empty cells, an anti join returns the left rows without match. The result has the columns of the left
+ * table followed by the columns of the right table, except for an anti join. Right columns named like a left column are
+ * prefixed with the name of the right sheet, e.g. <code>orders.id</code>.
+ *
+ * To join CSV files that do not fit into memory, use a <code>MergeJoin</code>.
+ */
+public class Join
+{
+  private static final Logger LOG = LoggerFactory.getLogger(Join.class);
+
+  /** returns the pairs of matching rows */
+  public static final int INNER = 0;
+  /** returns the pairs of matching rows and the left rows without match */
+  public static final int LEFT = 1;
+  /** returns the left rows without match */
+  public static final int ANTI = 2;
+
+  private final Table left;
+  private final Table right;
+  private final String rightName;
+  private int[] leftKeys = new int[0];
+  private int[] rightKeys = new int[0];
+  private int type = INNER;
+
+  /**
+   * Create an inner join of two tables.
+   *
+   * @param left the table that determines the order of the result, never null
+   * @param right the table that is indexed, never null
+   */
+  public Join(final Table left, final Table right) {
+    this(left, right, null);
+  }
+
+  /**
+   * Create an inner join of the tables of two sheets.
+   *
+   * @param left the sheet that determines the order of the result, never null
+   * @param right the sheet that is indexed, never null
+   */
+  public Join(final Sheet left, final Sheet right) {
+    this(left.getTable(), right.getTable(), right.getName());
+  }
+
+  /**
+   * @param left the table that determines the order of the result
+   * @param right the table that is indexed
+   * @param rightName the name used to prefix right columns named like a left column
+   */
+  private Join(final Table left, final Table right, final String rightName) {
+    this.left = left;
+    this.right = right;
+    this.rightName = rightName;
+  }
+
+  /**
+   * Add a key column that has the same name in both tables.
+   *
+   * @param column the case insensitive name of the column
+   * @return this to allow chaining
+   */
+  public Join on(final String column) {
+    return on(column, column);
+  }
+
+  /**
+   * Add a pair of key columns, a key column that cannot be found has no values and never matches.
+   *
+   * @param leftColumn the case insensitive name of the column in the left table
+   * @param rightColumn the case insensitive name of the column in the right table
+   * @return this to allow chaining
+   */
+  public Join on(final String leftColumn, final String rightColumn) {
+    leftKeys = append(leftKeys, resolve(left, leftColumn));
+    rightKeys = append(rightKeys, resolve(right, rightColumn));
+    return this;
+  }
+
+  /** @return the type of join, <code>INNER</code> by default */
+  public int getType() {
+    return type;
+  }
+
+  /**
+   * Define which rows are returned.
+   *
+   * @param type <code>INNER</code>, <code>LEFT</code> or <code>ANTI</code>
+   * @return this to allow chaining
+   */
+  public Join setType(final int type) {
+    this.type = type;
+    return this;
+  }
+
+  /**
+   * Run the join.
+   *
+   * @return a new table with the joined rows, never null
+   */
+  public Table execute() {
+    final Matcher matcher = new Matcher();
+    final int size = left.size();
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    final List<List<String>>[] chunks = new List[Parallel.getChunks(size)];
+    Parallel.run(size, new Parallel.Range() {
+      @Override
+      public void run(final int chunk, final int from, final int to) {
+        List<List<String>> rows = new ArrayList<List<String>>();
+        for (int row = from; row < to; ++row) {
+          matcher.join(row, rows);
+        }
+        chunks[chunk] = rows;
+      }
+    });
+
+    int rows = 1;
+    for (List<List<String>> chunk : chunks) {
+      rows += chunk.size();
+    }
+    Grid grid = new Grid(rows);
+    grid.add(getColumns());
+    for (List<List<String>> chunk : chunks) {
+      for (List<String> row : chunk) {
+        grid.add(row);
+      }
+    }
+    return new Spreadsheet(grid);
+  }
+
+  /**
+   * Run the join while the rows are read, so a join that results in a lot of rows does not have to be held in memory.
+   *
+   * @return an iterator over the joined rows without the column names, see <code>getColumns()</code>
+   */
+  public Iterator<List<String>> iterator() {
+    final Matcher matcher = new Matcher();
+    return new Iterator<List<String>>() {
+      private final List<List<String>> rows = new ArrayList<List<String>>();
+      private int position = 0;
+      private int row = 0;
+
+      @Override
+      public boolean hasNext() {
+        while (position == rows.size() && row < left.size()) {
+          rows.clear();
+          position = 0;
+          matcher.join(row++, rows);
+        }
+        return position < rows.size();
+      }
+
+      @Override
+      public List<String> next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        return rows.get(position++);
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException("Joined rows cannot be removed.");
+      }
+    };
+  }
+
+  /** @return the names of the columns of the result */
+  public List<String> getColumns() {
+    List<String> columns = new ArrayList<String>(left.getColumns());
+    if (type != ANTI) columns.addAll(qualify(columns, right.getColumns(), rightName));
+    return columns;
+  }
+
+  /**
+   * Name the right columns so that they can be told apart from the left columns.
+   *
+   * @param leftColumns the names of the left columns
+   * @param rightColumns the names of the right columns
+   * @param prefix the name of the right table, null or empty to keep the names
+   * @return the names of the right columns
+   */
+  static List<String> qualify(final List<String> leftColumns, final List<String> rightColumns, final String prefix) {
+    Set<String> names = new HashSet<String>();
+    for (String column : leftColumns) {
+      if (column != null) names.add(column.toLowerCase(Locale.ROOT));
+    }
+
+    List<String> columns = new ArrayList<String>(rightColumns.size());
+    for (String column : rightColumns) {
+      boolean clash = column != null && names.contains(column.toLowerCase(Locale.ROOT));
+      columns.add(clash && prefix != null && !prefix.isEmpty() ? prefix + "." + column : column);
+    }
+    return columns;
+  }
+
+  /**
+   * @param table a table
+   * @param column the name of a column
+   * @return the position of the column or -1 if there is no such column
+   */
+  private static int resolve(final Table table, final String column) {
+    int index = table.indexOf(column);
+    if (index < 0 && LOG.isWarnEnabled()) {
+      LOG.warn(new StringBuilder("Key column \"").append(column).append("\" not found, no row will match.")
+          .toString());
+    }
+    return index;
+  }
+
+  /**
+   * @param keys the positions of the key columns
+   * @param key the position to append
+   * @return the positions with the given one at the end
+   */
+  private static int[] append(final int[] keys, final int key) {
+    int[] result = Arrays.copyOf(keys, keys.length + 1);
+    result[keys.length] = key;
+    return result;
+  }
+
+  /** Finds and joins the matches of left rows, safe to be used from several threads at once. */
+  private final class Matcher
+  {
+    private final HashIndex index;
+    private final int leftWidth = left.getColumns().size();
+    private final int rightWidth = right.getColumns().size();
+
+    Matcher() {
+      index = leftKeys.length == 0 || rightKeys[0] < 0 ? null : new HashIndex(right, rightKeys[0]);
+    }
+
+    /**
+     * @param row the left row to join
+     * @param rows the rows to add the joined rows to
+     */
+    void join(final int row, final List<List<String>> rows) {
+      boolean matched = false;
+      if (index != null && !hasEmptyKey(row)) {
+        for (int match : index.find(left.getValue(row, leftKeys[0]))) {
+          if (!matches(row, match)) continue;
+          matched = true;
+          if (type == ANTI) break;
+          rows.add(combine(row, match));
+        }
+      }
+      if (!matched && type != INNER) rows.add(combine(row, -1));
+    }
+
+    /**
+     * @param row a left row
+     * @return true if one of the key cells of the row is empty
+     */
+    private boolean hasEmptyKey(final int row) {
+      for (int key : leftKeys) {
+        if (key < 0 || left.getValue(row, key) == null) return true;
+      }
+      return false;
+    }
+
+    /**
+     * @param row a left row
+     * @param match a right row with the same value in the first key column
+     * @return true if the other key columns have the same values too
+     */
+    private boolean matches(final int row, final int match) {
+      for (int key = 1; key < leftKeys.length; ++key) {
+        if (rightKeys[key] < 0 || !left.getValue(row, leftKeys[key]).equals(right.getValue(match, rightKeys[key]))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * @param row a left row
+     * @param match the matching right row, -1 if there is none
+     * @return the joined row
+     */
+    private List<String> combine(final int row, final int match) {
+      List<String> joined = new ArrayList<String>(leftWidth + (type == ANTI ? 0 : rightWidth));
+      for (int column = 0; column < leftWidth; ++column) {
+        joined.add(left.getValue(row, column));
+      }
+      if (type == ANTI) return joined;
+      for (int column = 0; column < rightWidth; ++column) {
+        joined.add(match < 0 ? null : right.getValue(match, column));
+      }
+      return joined;
+    }
+  }
+}
@@ -0,0 +1,404 @@
+package org.jcommons.io.text.query;
+
+import java.util.*;
+
+import org.apache.commons.io.FilenameUtils;
+import org.jcommons.io.text.files.Files;
+import org.jcommons.io.text.reader.RowHandler;
+import org.jcommons.io.text.reader.RowIterator;
+import org.jcommons.io.text.reader.csv.CsvGridReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Relates the rows of two CSV files that are sorted by their key columns while both files are read, so only the rows
+ * of the right file with the same key are held in memory at once.
+ *
+ * Both files must be sorted ascending by their key columns in the orders given for the keys, which also decide which
+ * keys are equal. Files that are not sorted yet can be sorted on disk before they are joined. Rows with an empty key
+ * cell never match. The types of join and the columns of the result are the same as for a <code>Join</code>, right
+ * columns named like a left column are prefixed with the name of the right file.
+ *
+ * The column names are read from the header row of each reader, the rows up to the header rows are not joined. The
+ * first row of the result contains the names of the joined columns.
+ */
+public class MergeJoin
+{
+  private static final Logger LOG = LoggerFactory.getLogger(MergeJoin.class);
+
+  private final CsvGridReader left;
+  private final CsvGridReader right;
+  private final List<String> leftColumns = new ArrayList<String>();
+  private final List<String> rightColumns = new ArrayList<String>();
+  private final List<Comparator<String>> orders = new ArrayList<Comparator<String>>();
+  private int type = Join.INNER;
+  private boolean sorted = true;
+
+  /**
+   * Create an inner join of two sorted files.
+   *
+   * @param left the reader of the file that determines the order of the result, never null
+   * @param right the reader of the file that is matched, never null
+   */
+  public MergeJoin(final CsvGridReader left, final CsvGridReader right) {
+    this.left = left;
+    this.right = right;
+  }
+
+  /**
+   * Add a key column that has the same name in both files and is sorted by its characters.
+   *
+   * @param column the case insensitive name of the column
+   * @return this to allow chaining
+   */
+  public MergeJoin on(final String column) {
+    return on(column, column, null);
+  }
+
+  /**
+   * Add a pair of key columns, a key column that cannot be found has no values and never matches.
+   *
+   * @param leftColumn the case insensitive name of the column in the left file
+   * @param rightColumn the case insensitive name of the column in the right file
+   * @param order the order both files are sorted in, e.g. <code>RowComparator.NUMERIC</code>, null for the characters
+   * @return this to allow chaining
+   */
+  public MergeJoin on(final String leftColumn, final String rightColumn, final Comparator<String> order) {
+    leftColumns.add(leftColumn);
+    rightColumns.add(rightColumn);
+    orders.add(order == null ? RowComparator.STRING : order);
+    return this;
+  }
+
+  /** @return the type of join, <code>Join.INNER</code> by default */
+  public int getType() {
+    return type;
+  }
+
+  /**
+   * Define which rows are returned.
+   *
+   * @param type <code>Join.INNER</code>, <code>Join.LEFT</code> or <code>Join.ANTI</code>
+   * @return this to allow chaining
+   */
+  public MergeJoin setType(final int type) {
+    this.type = type;
+    return this;
+  }
+
+  /** @return true if the files are expected to be sorted by their keys, the default */
+  public boolean isSorted() {
+    return sorted;
+  }
+
+  /**
+   * Define whether the files are sorted already or need to be sorted on disk before they are joined.
+   *
+   * @param sorted false to sort both files with an <code>ExternalSort</code> first
+   * @return this to allow chaining
+   */
+  public MergeJoin setSorted(final boolean sorted) {
+    this.sorted = sorted;
+    return this;
+  }
+
+  /**
+   * Run the join while the files are read.
+   *
+   * The iterator closes the files once the last row has been read, close it yourself if you stop early. An error while
+   * reading or a file that turns out not to be sorted is logged and reported as <code>IllegalStateException</code>.
+   *
+   * @return an iterator over the column names and the joined rows or null if the files cannot be read
+   */
+  public RowIterator iterator() {
+    RowIterator leftRows = open(left, leftColumns);
+    if (leftRows == null) return null;
+    RowIterator rightRows = open(right, rightColumns);
+    if (rightRows == null) {
+      Files.close(leftRows);
+      return null;
+    }
+
+    try {
+      return new Merger(leftRows, rightRows);
+    } catch (IllegalStateException ex) {
+      Files.close(leftRows);
+      Files.close(rightRows);
+      return null;
+    }
+  }
+
+  /**
+   * Run the join while the files are read and pass the column names and the joined rows to the handler.
+   *
+   * @param handler the handler that processes the rows, never null
+   * @return the number of rows passed to the handler or -1 if the files cannot be read
+   */
+  public long read(final RowHandler handler) {
+    RowIterator rows = iterator();
+    if (rows == null) return -1;
+
+    long count = 0;
+    try {
+      while (rows.hasNext()) {
+        ++count;
+        if (!handler.handle(rows.next(), rows.getLineNumber())) break;
+      }
+    } catch (IllegalStateException ex) {
+      count = -1;
+    } finally {
+      Files.close(rows);
+    }
+    return count;
+  }
+
+  /**
+   * @param reader the reader of a file
+   * @param columns the names of its key columns
+   * @return the rows of the file in the order of its keys or null if the file cannot be read
+   */
+  private RowIterator open(final CsvGridReader reader, final List<String> columns) {
+    if (sorted) return reader.iterator();
+
+    // the header is not known before the file is read, so the keys are looked up in a separate pass
+    RowIterator header = reader.iterator();
+    if (header == null) return null;
+    List<String> names = readHeader(header, reader.getHeaderRow());
+    Files.close(header);
+
+    RowComparator comparator = new RowComparator();
+    for (int key = 0; key < columns.size(); ++key) {
+      int column = indexOf(names, columns.get(key));
+      if (column >= 0) comparator.add(column, orders.get(key), false);
+    }
+    return new ExternalSort(reader, comparator).iterator();
+  }
+
+  /**
+   * @param rows the rows of a file
+   * @param headerRow the row that contains the names of the columns
+   * @return the names of the columns, the header rows have been skipped
+   */
+  private static List<String> readHeader(final RowIterator rows, final int headerRow) {
+    List<String> names = Collections.emptyList();
+    for (int row = 0; row <= headerRow && rows.hasNext(); ++row) {
+      names = rows.next();
+    }
+    return names;
+  }
+
+  /**
+   * @param names the names of the columns
+   * @param column the case insensitive name of a column
+   * @return the position of the column or -1 if there is no such column
+   */
+  private static int indexOf(final List<String> names, final String column) {
+    for (int index = 0; index < names.size(); ++index) {
+      if (column != null && column.equalsIgnoreCase(names.get(index))) return index;
+    }
+    if (LOG.isWarnEnabled()) {
+      LOG.warn(new StringBuilder("Key column \"").append(column).append("\" not found, no row will match.")
+          .toString());
+    }
+    return -1;
+  }
+
+  /** Merges the sorted rows of both files. */
+  private final class Merger
+    implements RowIterator
+  {
+    private final RowIterator leftRows;
+    private final RowIterator rightRows;
+    private final int[] leftKeys;
+    private final int[] rightKeys;
+    private final int leftWidth;
+    private final int rightWidth;
+
+    private final Deque<List<String>> pending = new ArrayDeque<List<String>>();
+    private final List<List<String>> group = new ArrayList<List<String>>();
+    private List<String> nextRight;
+    private List<String> previousLeft;
+    private long pendingLine;
+    private long line = 0;
+
+    Merger(final RowIterator leftRows, final RowIterator rightRows) {
+      this.leftRows = leftRows;
+      this.rightRows = rightRows;
+
+      List<String> leftNames = readHeader(leftRows, left.getHeaderRow());
+      List<String> rightNames = readHeader(rightRows, right.getHeaderRow());
+      leftKeys = new int[leftColumns.size()];
+      rightKeys = new int[rightColumns.size()];
+      for (int key = 0; key < leftKeys.length; ++key) {
+        leftKeys[key] = indexOf(leftNames, leftColumns.get(key));
+        rightKeys[key] = indexOf(rightNames, rightColumns.get(key));
+      }
+      leftWidth = leftNames.size();
+      rightWidth = type == Join.ANTI ? 0 : rightNames.size();
+
+      List<String> names = new ArrayList<String>(leftNames);
+      if (type != Join.ANTI) names.addAll(Join.qualify(leftNames, rightNames, getName(right)));
+      pending.add(names);
+
+      nextRight = rightRows.hasNext() ? rightRows.next() : null;
+      loadGroup();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean hasNext() {
+      while (pending.isEmpty() && leftRows.hasNext()) {
+        join(leftRows.next(), leftRows.getLineNumber());
+      }
+      return !pending.isEmpty();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<String> next() {
+      if (!hasNext()) throw new NoSuchElementException();
+      line = pendingLine;
+      List<String> row = pending.poll();
+      if (pending.isEmpty() && !leftRows.hasNext()) close();
+      return row;
+    }
+
+    /** joined rows cannot be removed */
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Joined rows cannot be removed.");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getLineNumber() {
+      return line;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() {
+      Files.close(leftRows);
+      Files.close(rightRows);
+      group.clear();
+      nextRight = null;
+    }
+
+    /**
+     * Join a left row with the group of right rows with the same key.
+     *
+     * @param row the left row
+     * @param rowLine the line where the left row starts
+     */
+    private void join(final List<String> row, final long rowLine) {
+      pendingLine = rowLine;
+      boolean matched = false;
+      if (!hasEmptyKey(row, leftKeys)) {
+        if (previousLeft != null && compare(previousLeft, leftKeys, row, leftKeys) > 0) {
+          unsorted(left, rowLine);
+        }
+        previousLeft = row;
+        while (!group.isEmpty() && compare(row, leftKeys, group.get(0), rightKeys) > 0) {
+          loadGroup();
+        }
+        matched = !group.isEmpty() && compare(row, leftKeys, group.get(0), rightKeys) == 0;
+      }
+
+      if (matched && type != Join.ANTI) {
+        for (List<String> match : group) {
+          pending.add(combine(row, match));
+        }
+      } else if (!matched && type != Join.INNER) {
+        pending.add(combine(row, null));
+      }
+    }
+
+    /** Read the next group of right rows with the same key, the group is empty if there are no more rows. */
+    private void loadGroup() {
+      List<String> previous = group.isEmpty() ? null : group.get(0);
+      group.clear();
+      while (nextRight != null && hasEmptyKey(nextRight, rightKeys)) {
+        nextRight = rightRows.hasNext() ? rightRows.next() : null;
+      }
+      if (nextRight == null) return;
+
+      if (previous != null && compare(previous, rightKeys, nextRight, rightKeys) > 0) {
+        unsorted(right, rightRows.getLineNumber());
+      }
+      do {
+        group.add(nextRight);
+        nextRight = rightRows.hasNext() ? rightRows.next() : null;
+      } while (nextRight != null && compare(group.get(0), rightKeys, nextRight, rightKeys) == 0);
+    }
+
+    /**
+     * Stop joining a file that is not sorted.
+     *
+     * @param reader the reader of the file
+     * @param rowLine the line of the row that is out of order
+     */
+    private void unsorted(final CsvGridReader reader, final long rowLine) {
+      StringBuilder log = new StringBuilder("Text file \"").append(reader.getFile().getAbsolutePath());
+      log.append(":").append(rowLine).append("\" is not sorted by its keys.");
+      LOG.warn(log.toString());
+      close();
+      throw new IllegalStateException(log.toString());
+    }
+
+    /**
+     * @param row a row
+     * @param keys the positions of its key columns
+     * @return true if one of the key cells of the row is empty
+     */
+    private boolean hasEmptyKey(final List<String> row, final int[] keys) {
+      if (keys.length == 0) return true;
+      for (int key : keys) {
+        if (key < 0 || key >= row.size() || row.get(key) == null) return true;
+      }
+      return false;
+    }
+
+    /**
+     * @param first a row without empty keys
+     * @param firstKeys the positions of its key columns
+     * @param second another row without empty keys
+     * @param secondKeys the positions of its key columns
+     * @return the order of the keys of the rows
+     */
+    private int compare(final List<String> first, final int[] firstKeys, final List<String> second,
+                        final int[] secondKeys)
+    {
+      for (int key = 0; key < firstKeys.length; ++key) {
+        int result = orders.get(key).compare(first.get(firstKeys[key]), second.get(secondKeys[key]));
+        if (result != 0) return result;
+      }
+      return 0;
+    }
+
+    /**
+     * @param row a left row
+     * @param match the matching right row, null if there is none
+     * @return the joined row
+     */
+    private List<String> combine(final List<String> row, final List<String> match) {
+      List<String> joined = new ArrayList<String>(leftWidth + rightWidth);
+      for (int column = 0; column < leftWidth; ++column) {
+        joined.add(column < row.size() ? row.get(column) : null);
+      }
+      for (int column = 0; column < rightWidth; ++column) {
+        joined.add(match != null && column < match.size() ? match.get(column) : null);
+      }
+      return joined;
+    }
+  }
+
+  /**
+   * @param reader the reader of a file
+   * @return the name of the file without path and extensions
+   */
+  private static String getName(final CsvGridReader reader) {
+    String name = reader.getEntry() == null ? reader.getFile().getName() : reader.getEntry();
+    String base = FilenameUtils.getBaseName(name);
+    return "gz".equalsIgnoreCase(FilenameUtils.getExtension(name)) ? FilenameUtils.getBaseName(base) : base;
+  }
+}
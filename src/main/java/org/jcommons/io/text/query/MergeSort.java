@@ -0,0 +1,108 @@
+package org.jcommons.io.text.query;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Sorts row numbers with a stable merge sort, large arrays are split and sorted on the shared pool.
+ *
+ * Rows that are equal keep their order, so sorting by several keys one after another and sorting row numbers that are
+ * in ascending order keeps the original order of equal rows.
+ */
+final class MergeSort
+  extends RecursiveAction
+{
+  private static final long serialVersionUID = 1L;
+
+  /** the length below which insertion sort is used */
+  private static final int INSERTION = 32;
+
+  private final int[] rows;
+  private final int[] work;
+  private final int from;
+  private final int to;
+  private final RowOrder order;
+
+  /**
+   * @param rows the rows to sort
+   * @param work a work area of the same length
+   * @param from the first row to sort
+   * @param to the position after the last row to sort
+   * @param order the order of the rows
+   */
+  private MergeSort(final int[] rows, final int[] work, final int from, final int to, final RowOrder order) {
+    this.rows = rows;
+    this.work = work;
+    this.from = from;
+    this.to = to;
+    this.order = order;
+  }
+
+  /**
+   * Sort row numbers.
+   *
+   * @param rows the row numbers to sort in place
+   * @param order the order of the rows, must be safe to call from several threads at once
+   */
+  static void sort(final int[] rows, final RowOrder order) {
+    MergeSort task = new MergeSort(rows, new int[rows.length], 0, rows.length, order);
+    if (rows.length < Parallel.THRESHOLD) {
+      task.compute();
+    } else {
+      Parallel.getPool().invoke(task);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected void compute() {
+    if (to - from <= INSERTION) {
+      insertionSort();
+      return;
+    }
+
+    int middle = (from + to) >>> 1;
+    MergeSort left = new MergeSort(rows, work, from, middle, order);
+    MergeSort right = new MergeSort(rows, work, middle, to, order);
+    if (to - from < Parallel.THRESHOLD) {
+      left.compute();
+      right.compute();
+    } else {
+      invokeAll(left, right);
+    }
+
+    // already in order, e.g. rows that are sorted by their values
+    if (order.compare(rows[middle - 1], rows[middle]) <= 0) return;
+    merge(middle);
+  }
+
+  /**
+   * Merge the sorted halves.
+   *
+   * @param middle the start of the second half
+   */
+  private void merge(final int middle) {
+    System.arraycopy(rows, from, work, from, to - from);
+    int left = from;
+    int right = middle;
+    for (int index = from; index < to; ++index) {
+      if (right >= to || left < middle && order.compare(work[left], work[right]) <= 0) {
+        rows[index] = work[left++];
+      } else {
+        rows[index] = work[right++];
+      }
+    }
+  }
+
+  /** sort a short range in place */
+  private void insertionSort() {
+    for (int index = from + 1; index < to; ++index) {
+      int row = rows[index];
+      int position = index - 1;
+      while (position >= from && order.compare(rows[position], row) > 0) {
+        rows[position + 1] = rows[position];
+        --position;
+      }
+      rows[position + 1] = row;
+    }
+  }
+}
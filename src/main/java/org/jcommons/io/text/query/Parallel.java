@@ -0,0 +1,123 @@
+package org.jcommons.io.text.query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The pool that builds indexes and runs queries, shared by all of them.
+ *
+ * Work is only split for tables with at least <code>THRESHOLD</code> rows, smaller tables are processed on the calling
+ * thread as the overhead of splitting would exceed the gain.
+ */
+final class Parallel
+{
+  /** the number of rows below which work is not split any further */
+  static final int THRESHOLD = 16 * 1024;
+
+  /** the number of chunks per thread to balance chunks that take longer than others */
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  private static ForkJoinPool pool;
+
+  /** hide default constructor */
+  private Parallel() {
+  }
+
+  /** @return the shared pool with a thread per processor, its threads do not keep the application alive */
+  static synchronized ForkJoinPool getPool() {
+    if (pool == null) pool = new ForkJoinPool();
+    return pool;
+  }
+
+  /**
+   * @param size the number of rows to process
+   * @return the number of chunks the rows are split into by <code>run()</code>
+   */
+  static int getChunks(final int size) {
+    return Math.max(1, Math.min(size / THRESHOLD, getPool().getParallelism() * CHUNKS_PER_THREAD));
+  }
+
+  /**
+   * Process rows in chunks, in parallel if there are enough rows.
+   *
+   * @param size the number of rows to process
+   * @param work the work to do on every chunk, must be safe to call from several threads at once
+   */
+  static void run(final int size, final Range work) {
+    final int chunks = getChunks(size);
+    if (chunks == 1) {
+      work.run(0, 0, size);
+      return;
+    }
+
+    getPool().invoke(new RecursiveAction() {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected void compute() {
+        List<RecursiveAction> tasks = new ArrayList<RecursiveAction>(chunks);
+        for (int chunk = 0; chunk < chunks; ++chunk) {
+          tasks.add(new Chunk(work, chunk, (int) ((long) size * chunk / chunks),
+              (int) ((long) size * (chunk + 1) / chunks)));
+        }
+        invokeAll(tasks);
+      }
+    });
+  }
+
+  /**
+   * @param chunks the rows found in every chunk
+   * @return the rows of all chunks in order
+   */
+  static int[] join(final int[][] chunks) {
+    if (chunks.length == 1) return chunks[0];
+    int size = 0;
+    for (int[] chunk : chunks) {
+      size += chunk.length;
+    }
+    int[] rows = new int[size];
+    int position = 0;
+    for (int[] chunk : chunks) {
+      System.arraycopy(chunk, 0, rows, position, chunk.length);
+      position += chunk.length;
+    }
+    return rows;
+  }
+
+  /** Work on a range of rows. */
+  interface Range
+  {
+    /**
+     * @param chunk the number of the chunk, the first chunk is 0
+     * @param from the first row of the chunk
+     * @param to the row after the last row of the chunk
+     */
+    void run(int chunk, int from, int to);
+  }
+
+  /** Runs the work on a single chunk. */
+  private static final class Chunk
+    extends RecursiveAction
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Range work;
+    private final int chunk;
+    private final int from;
+    private final int to;
+
+    Chunk(final Range work, final int chunk, final int from, final int to) {
+      this.work = work;
+      this.chunk = chunk;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      work.run(chunk, from, to);
+    }
+  }
+}
@@ -0,0 +1,543 @@
+package org.jcommons.io.text.query;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import org.jcommons.io.text.Grid;
+import org.jcommons.io.text.Spreadsheet;
+import org.jcommons.io.text.Table;
+import org.jcommons.io.text.reader.ColumnFilter;
+import org.jcommons.io.text.reader.RowFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Filters, projects, groups, sorts and limits the rows of a table into a new table.
+ *
+ * The operations are applied in a fixed order no matter in which order they are defined: the rows are filtered first,
+ * then either grouped and aggregated or projected, then duplicates are removed, then the rows are sorted by columns of
+ * the result and finally limited. Large tables are filtered, projected and grouped in chunks on a shared fork-join pool
+ * and sorted in parallel, the rows keep their order in the table unless they are sorted.
+ *
+ * The result is a table with a single column row and the rows of the result. Rows that are not projected or grouped are
+ * shared with the queried table. Columns are named like in the queried table, aggregates are named like
+ * <code>count</code> or <code>sum(amount)</code>. Columns that cannot be found are ignored and logged.
+ */
+public class Query
+{
+  private static final Logger LOG = LoggerFactory.getLogger(Query.class);
+
+  private static final int COUNT = 0;
+  private static final int SUM = 1;
+  private static final int MIN = 2;
+  private static final int MAX = 3;
+  private static final String[] FUNCTIONS = { "count", "sum", "min", "max" };
+
+  private final Table table;
+  private final List<RowFilter> filters = new ArrayList<RowFilter>();
+  private int[] columns;
+  private int[] groups;
+  private final List<Aggregate> aggregates = new ArrayList<Aggregate>();
+  private boolean distinct = false;
+  private final List<Order> orders = new ArrayList<Order>();
+  private int limit = Integer.MAX_VALUE;
+
+  /**
+   * Create a query that returns all rows of a table.
+   *
+   * @param table the table to query, never null
+   */
+  public Query(final Table table) {
+    this.table = table;
+  }
+
+  /**
+   * Keep only the rows accepted by the filter, the filter sees the complete rows of the queried table.
+   *
+   * Every call adds a condition, only rows accepted by all filters are kept.
+   *
+   * @param filter the filter, null to add no condition
+   * @return this to allow chaining
+   */
+  public Query where(final RowFilter filter) {
+    if (filter != null) filters.add(filter);
+    return this;
+  }
+
+  /**
+   * Keep only the rows with the given value, in addition to the conditions defined before.
+   *
+   * @param column the case insensitive name of the column
+   * @param value the value to keep, null to keep the rows without a value
+   * @return this to allow chaining
+   */
+  public Query where(final String column, final String value) {
+    int index = resolve(column);
+    if (index >= 0) return where(ColumnFilter.equalTo(index, value));
+
+    // no row has a value in a column that does not exist
+    return where(new RowFilter() {
+      @Override
+      public boolean accept(final List<String> row) {
+        return value == null;
+      }
+    });
+  }
+
+  /**
+   * Return only the given columns in the given order, not used if the rows are grouped.
+   *
+   * @param names the case insensitive names of the columns
+   * @return this to allow chaining
+   */
+  public Query select(final String... names) {
+    columns = resolve(names);
+    return this;
+  }
+
+  /**
+   * Return only the given columns in the given order, not used if the rows are grouped.
+   *
+   * @param indices the positions of the columns starting with 0
+   * @return this to allow chaining
+   */
+  public Query select(final int... indices) {
+    columns = indices.clone();
+    return this;
+  }
+
+  /**
+   * Group the rows with the same values in the given columns, each group results in one row with the values of the
+   * group followed by the aggregates in the order they were defined.
+   *
+   * @param names the case insensitive names of the columns
+   * @return this to allow chaining
+   */
+  public Query groupBy(final String... names) {
+    groups = resolve(names);
+    return this;
+  }
+
+  /**
+   * Count the rows of every group, all rows are a single group unless grouped by columns.
+   *
+   * @return this to allow chaining
+   */
+  public Query count() {
+    aggregates.add(new Aggregate(COUNT, -1, null, FUNCTIONS[COUNT]));
+    return this;
+  }
+
+  /**
+   * Sum up the numbers of a column within every group, values that are no numbers are ignored.
+   *
+   * @param column the case insensitive name of the column
+   * @return this to allow chaining
+   */
+  public Query sum(final String column) {
+    return aggregate(SUM, column, null);
+  }
+
+  /**
+   * Determine the lowest value of a column within every group.
+   *
+   * @param column the case insensitive name of the column
+   * @param order the order of the values, e.g. <code>RowComparator.NUMERIC</code>, null to compare the text
+   * @return this to allow chaining
+   */
+  public Query min(final String column, final Comparator<String> order) {
+    return aggregate(MIN, column, order);
+  }
+
+  /**
+   * Determine the highest value of a column within every group.
+   *
+   * @param column the case insensitive name of the column
+   * @param order the order of the values, e.g. <code>RowComparator.NUMERIC</code>, null to compare the text
+   * @return this to allow chaining
+   */
+  public Query max(final String column, final Comparator<String> order) {
+    return aggregate(MAX, column, order);
+  }
+
+  /**
+   * Remove duplicate rows from the result, the first occurrence is kept.
+   *
+   * @return this to allow chaining
+   */
+  public Query distinct() {
+    distinct = true;
+    return this;
+  }
+
+  /**
+   * Sort the result by a column of the result, after the columns the result has been sorted by before.
+   *
+   * @param column the case insensitive name of the column in the result, e.g. <code>sum(amount)</code>
+   * @param order the order of the values, e.g. <code>RowComparator.NUMERIC</code>, null to compare the text
+   * @param descending true to put the highest values first
+   * @return this to allow chaining
+   */
+  public Query orderBy(final String column, final Comparator<String> order, final boolean descending) {
+    orders.add(new Order(column, order, descending));
+    return this;
+  }
+
+  /**
+   * Return at most the given number of rows.
+   *
+   * @param rows the maximum number of rows
+   * @return this to allow chaining
+   */
+  public Query limit(final int rows) {
+    limit = Math.max(0, rows);
+    return this;
+  }
+
+  /**
+   * Run the query.
+   *
+   * @return a new table with the result, never null
+   */
+  public Table execute() {
+    int[] rows = filter();
+
+    List<String> header = new ArrayList<String>();
+    List<List<String>> data = null;
+    if (groups != null || !aggregates.isEmpty()) {
+      int[] keys = groups == null ? new int[0] : groups;
+      for (int key : keys) {
+        header.add(table.getColumn(key));
+      }
+      for (Aggregate aggregate : aggregates) {
+        header.add(aggregate.name);
+      }
+      data = group(rows, keys);
+    } else if (columns != null) {
+      for (int column : columns) {
+        header.add(table.getColumn(column));
+      }
+      data = project(rows);
+    } else {
+      header.addAll(table.getColumns());
+      data = new ArrayList<List<String>>(new RowList(table, rows));
+    }
+
+    if (distinct) data = new ArrayList<List<String>>(new LinkedHashSet<List<String>>(data));
+    if (!orders.isEmpty()) data = sort(data, header);
+    if (data.size() > limit) data = data.subList(0, limit);
+
+    Grid grid = new Grid(data.size() + 1);
+    grid.add(header);
+    for (List<String> row : data) {
+      grid.add(row);
+    }
+    return new Spreadsheet(grid);
+  }
+
+  /** @return the numbers of the rows accepted by all filters in ascending order */
+  private int[] filter() {
+    int size = table.size();
+    final int[][] chunks = new int[Parallel.getChunks(size)][];
+    Parallel.run(size, new Parallel.Range() {
+      @Override
+      public void run(final int chunk, final int from, final int to) {
+        int[] accepted = new int[to - from];
+        int count = 0;
+        for (int row = from; row < to; ++row) {
+          if (accept(table.getRow(row))) accepted[count++] = row;
+        }
+        chunks[chunk] = Arrays.copyOf(accepted, count);
+      }
+    });
+    return Parallel.join(chunks);
+  }
+
+  /**
+   * @param row a row of the queried table
+   * @return true if all filters accept the row
+   */
+  private boolean accept(final List<String> row) {
+    for (RowFilter filter : filters) {
+      if (!filter.accept(row)) return false;
+    }
+    return true;
+  }
+
+  /**
+   * @param rows the rows to project
+   * @return the projected rows
+   */
+  private List<List<String>> project(final int[] rows) {
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    final List<String>[] result = new List[rows.length];
+    Parallel.run(rows.length, new Parallel.Range() {
+      @Override
+      public void run(final int chunk, final int from, final int to) {
+        for (int position = from; position < to; ++position) {
+          List<String> row = new ArrayList<String>(columns.length);
+          for (int column : columns) {
+            row.add(table.getValue(rows[position], column));
+          }
+          result[position] = row;
+        }
+      }
+    });
+    return Arrays.asList(result);
+  }
+
+  /**
+   * Group and aggregate the rows, chunks are grouped in parallel and joined in order.
+   *
+   * @param rows the rows to group
+   * @param keys the columns to group by
+   * @return a row per group in the order the groups occur first
+   */
+  private List<List<String>> group(final int[] rows, final int[] keys) {
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    final Map<List<String>, Accumulator[]>[] chunks = new Map[Parallel.getChunks(rows.length)];
+    Parallel.run(rows.length, new Parallel.Range() {
+      @Override
+      public void run(final int chunk, final int from, final int to) {
+        Map<List<String>, Accumulator[]> groupMap = new LinkedHashMap<List<String>, Accumulator[]>();
+        for (int position = from; position < to; ++position) {
+          List<String> row = table.getRow(rows[position]);
+          List<String> key = new ArrayList<String>(keys.length);
+          for (int column : keys) {
+            key.add(column < row.size() ? row.get(column) : null);
+          }
+          Accumulator[] accumulators = groupMap.get(key);
+          if (accumulators == null) {
+            accumulators = createAccumulators();
+            groupMap.put(key, accumulators);
+          }
+          for (int index = 0; index < accumulators.length; ++index) {
+            aggregates.get(index).add(accumulators[index], row);
+          }
+        }
+        chunks[chunk] = groupMap;
+      }
+    });
+
+    Map<List<String>, Accumulator[]> joined = chunks[0];
+    for (int chunk = 1; chunk < chunks.length; ++chunk) {
+      for (Map.Entry<List<String>, Accumulator[]> entry : chunks[chunk].entrySet()) {
+        Accumulator[] accumulators = joined.get(entry.getKey());
+        if (accumulators == null) {
+          joined.put(entry.getKey(), entry.getValue());
+        } else {
+          for (int index = 0; index < accumulators.length; ++index) {
+            aggregates.get(index).merge(accumulators[index], entry.getValue()[index]);
+          }
+        }
+      }
+    }
+    // without grouping columns there is always one group, even without rows
+    if (keys.length == 0 && joined.isEmpty()) joined.put(new ArrayList<String>(), createAccumulators());
+
+    List<List<String>> result = new ArrayList<List<String>>(joined.size());
+    for (Map.Entry<List<String>, Accumulator[]> entry : joined.entrySet()) {
+      List<String> row = new ArrayList<String>(entry.getKey());
+      for (int index = 0; index < aggregates.size(); ++index) {
+        row.add(aggregates.get(index).getResult(entry.getValue()[index]));
+      }
+      result.add(row);
+    }
+    return result;
+  }
+
+  /**
+   * Sort the result by the columns to order by.
+   *
+   * @param data the rows of the result
+   * @param header the columns of the result
+   * @return the sorted rows
+   */
+  private List<List<String>> sort(final List<List<String>> data, final List<String> header) {
+    final RowComparator comparator = new RowComparator();
+    for (Order order : orders) {
+      int column = -1;
+      for (int index = 0; index < header.size() && column < 0; ++index) {
+        if (order.column != null && order.column.equalsIgnoreCase(header.get(index))) column = index;
+      }
+      if (column < 0) {
+        warn(order.column);
+      } else {
+        comparator.add(column, order.order, order.descending);
+      }
+    }
+
+    int[] positions = new int[data.size()];
+    for (int position = 0; position < positions.length; ++position) {
+      positions[position] = position;
+    }
+    MergeSort.sort(positions, new RowOrder() {
+      @Override
+      public int compare(final int left, final int right) {
+        return comparator.compare(data.get(left), data.get(right));
+      }
+    });
+
+    List<List<String>> sorted = new ArrayList<List<String>>(positions.length);
+    for (int position : positions) {
+      sorted.add(data.get(position));
+    }
+    return sorted;
+  }
+
+  /**
+   * @param function the aggregate function
+   * @param column the case insensitive name of the column
+   * @param order the order of the values for minimum and maximum
+   * @return this to allow chaining
+   */
+  private Query aggregate(final int function, final String column, final Comparator<String> order) {
+    int index = resolve(column);
+    if (index >= 0) {
+      String name = new StringBuilder(FUNCTIONS[function]).append("(").append(table.getColumn(index)).append(")")
+          .toString();
+      aggregates.add(new Aggregate(function, index, order == null ? RowComparator.STRING : order, name));
+    }
+    return this;
+  }
+
+  /** @return a new accumulator for every aggregate */
+  private Accumulator[] createAccumulators() {
+    Accumulator[] accumulators = new Accumulator[aggregates.size()];
+    for (int index = 0; index < accumulators.length; ++index) {
+      accumulators[index] = new Accumulator();
+    }
+    return accumulators;
+  }
+
+  /**
+   * @param names the names of columns
+   * @return the positions of the columns that have been found
+   */
+  private int[] resolve(final String[] names) {
+    int[] indices = new int[names.length];
+    int count = 0;
+    for (String name : names) {
+      int index = resolve(name);
+      if (index >= 0) indices[count++] = index;
+    }
+    return Arrays.copyOf(indices, count);
+  }
+
+  /**
+   * @param name the name of a column
+   * @return the position of the column or -1 if there is no such column
+   */
+  private int resolve(final String name) {
+    int index = table.indexOf(name);
+    if (index < 0) warn(name);
+    return index;
+  }
+
+  /** @param name the name of a column that cannot be found */
+  private static void warn(final String name) {
+    if (LOG.isWarnEnabled()) {
+      LOG.warn(new StringBuilder("Column \"").append(name).append("\" not found, it is ignored.").toString());
+    }
+  }
+
+  /** An aggregate function on a column. */
+  private static final class Aggregate
+  {
+    private final int function;
+    private final int column;
+    private final Comparator<String> order;
+    private final String name;
+
+    Aggregate(final int function, final int column, final Comparator<String> order, final String name) {
+      this.function = function;
+      this.column = column;
+      this.order = order;
+      this.name = name;
+    }
+
+    /**
+     * @param accumulator the state of the group
+     * @param row a row of the group
+     */
+    void add(final Accumulator accumulator, final List<String> row) {
+      String value = column >= 0 && column < row.size() ? row.get(column) : null;
+      switch (function) {
+        case COUNT:
+          ++accumulator.count;
+          break;
+        case SUM:
+          accumulator.sum(value);
+          break;
+        default:
+          accumulator.extreme(value, function == MIN ? order : Collections.reverseOrder(order));
+      }
+    }
+
+    /**
+     * @param accumulator the state of the group that is kept
+     * @param other the state of the same group in a later chunk
+     */
+    void merge(final Accumulator accumulator, final Accumulator other) {
+      accumulator.count += other.count;
+      if (other.sum != null) accumulator.sum = accumulator.sum == null ? other.sum : accumulator.sum.add(other.sum);
+      accumulator.extreme(other.value, function == MIN ? order : Collections.reverseOrder(order));
+    }
+
+    /**
+     * @param accumulator the state of the group
+     * @return the value of the aggregate
+     */
+    String getResult(final Accumulator accumulator) {
+      switch (function) {
+        case COUNT:
+          return Long.toString(accumulator.count);
+        case SUM:
+          return accumulator.sum == null ? null : accumulator.sum.toPlainString();
+        default:
+          return accumulator.value;
+      }
+    }
+  }
+
+  /** The state of an aggregate within a group. */
+  private static final class Accumulator
+  {
+    private long count = 0;
+    private BigDecimal sum;
+    private String value;
+
+    /** @param number the value to add if it is a number */
+    void sum(final String number) {
+      if (number == null) return;
+      try {
+        BigDecimal addend = new BigDecimal(number.trim());
+        sum = sum == null ? addend : sum.add(addend);
+      } catch (NumberFormatException ex) {
+        // values that are no numbers are not summed up
+      }
+    }
+
+    /**
+     * @param candidate the value to keep if it comes first in the given order
+     * @param order the order of the values
+     */
+    void extreme(final String candidate, final Comparator<String> order) {
+      if (candidate != null && (value == null || order.compare(candidate, value) < 0)) value = candidate;
+    }
+  }
+
+  /** A column of the result to sort by. */
+  private static final class Order
+  {
+    private final String column;
+    private final Comparator<String> order;
+    private final boolean descending;
+
+    Order(final String column, final Comparator<String> order, final boolean descending) {
+      this.column = column;
+      this.order = order;
+      this.descending = descending;
+    }
+  }
+}
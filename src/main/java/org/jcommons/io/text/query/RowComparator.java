@@ -0,0 +1,166 @@
+package org.jcommons.io.text.query;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Orders rows by the values of one or more columns, each compared in its own order.
+ *
+ * The orders for single values sort empty cells first. A row that is shorter than a column has no value in it.
+ */
+public class RowComparator
+  implements Comparator<List<String>>
+{
+  /** compares values by their characters */
+  public static final Comparator<String> STRING = new Comparator<String>() {
+    @Override
+    public int compare(final String left, final String right) {
+      if (left == null || right == null) return compareNulls(left, right);
+      return left.compareTo(right);
+    }
+  };
+
+  /** compares values by their characters ignoring case */
+  public static final Comparator<String> IGNORE_CASE = new Comparator<String>() {
+    @Override
+    public int compare(final String left, final String right) {
+      if (left == null || right == null) return compareNulls(left, right);
+      return String.CASE_INSENSITIVE_ORDER.compare(left, right);
+    }
+  };
+
+  /** compares values as decimal numbers, values that are no numbers follow all numbers in the order of their text */
+  public static final Comparator<String> NUMERIC = new Comparator<String>() {
+    @Override
+    public int compare(final String left, final String right) {
+      if (left == null || right == null) return compareNulls(left, right);
+      if (isInteger(left) && isInteger(right)) return compareIntegers(left, right);
+
+      BigDecimal first = toNumber(left);
+      BigDecimal second = toNumber(right);
+      if (first == null || second == null) {
+        if (first != null) return -1;
+        if (second != null) return 1;
+        return left.compareTo(right);
+      }
+      return first.compareTo(second);
+    }
+  };
+
+  private final List<Key> keys = new ArrayList<Key>();
+
+  /**
+   * Order by the text of a column, after the columns added before.
+   *
+   * @param column the position of the column in the rows starting with 0
+   * @return this to allow chaining
+   */
+  public RowComparator add(final int column) {
+    return add(column, STRING, false);
+  }
+
+  /**
+   * Order by a column, after the columns added before.
+   *
+   * @param column the position of the column in the rows starting with 0
+   * @param order the order of the values, e.g. <code>STRING</code>, <code>NUMERIC</code> or <code>IGNORE_CASE</code>
+   * @param descending true to put the highest values first
+   * @return this to allow chaining
+   */
+  public RowComparator add(final int column, final Comparator<String> order, final boolean descending) {
+    keys.add(new Key(Math.max(0, column), order == null ? STRING : order, descending));
+    return this;
+  }
+
+  /** @return the number of columns compared */
+  public int size() {
+    return keys.size();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int compare(final List<String> left, final List<String> right) {
+    for (Key key : keys) {
+      int result = key.order.compare(getValue(left, key.column), getValue(right, key.column));
+      if (result != 0) return key.descending ? -result : result;
+    }
+    return 0;
+  }
+
+  /**
+   * @param row a row
+   * @param column the position of a column
+   * @return the value of the column, null if the row is too short
+   */
+  private static String getValue(final List<String> row, final int column) {
+    return column < row.size() ? row.get(column) : null;
+  }
+
+  /**
+   * @param left a value, can be null
+   * @param right another value, can be null
+   * @return the order of the values if at least one of them is null, empty values come first
+   */
+  private static int compareNulls(final String left, final String right) {
+    if (left == null) return right == null ? 0 : -1;
+    return 1;
+  }
+
+  /**
+   * @param value a value, never null
+   * @return true if the value is a whole number with an optional minus sign, no leading zeros and no negative zero
+   */
+  private static boolean isInteger(final String value) {
+    int start = value.startsWith("-") ? 1 : 0;
+    if (value.length() == start) return false;
+    // leading zeros and negative zero compare differently as text
+    if (value.charAt(start) == '0' && (value.length() > start + 1 || start > 0)) return false;
+    for (int index = start; index < value.length(); ++index) {
+      char c = value.charAt(index);
+      if (c < '0' || c > '9') return false;
+    }
+    return true;
+  }
+
+  /**
+   * Compare whole numbers without parsing them.
+   *
+   * @param left a whole number
+   * @param right another whole number
+   * @return the order of the numbers
+   */
+  private static int compareIntegers(final String left, final String right) {
+    boolean negative = left.startsWith("-");
+    if (negative != right.startsWith("-")) return negative ? -1 : 1;
+    int result = left.length() == right.length() ? left.compareTo(right) : left.length() - right.length();
+    return negative ? -result : result;
+  }
+
+  /**
+   * @param value a value, never null
+   * @return the number or null if the value is no number
+   */
+  private static BigDecimal toNumber(final String value) {
+    try {
+      return new BigDecimal(value.trim());
+    } catch (NumberFormatException ex) {
+      return null;
+    }
+  }
+
+  /** A column to order by. */
+  private static final class Key
+  {
+    private final int column;
+    private final Comparator<String> order;
+    private final boolean descending;
+
+    Key(final int column, final Comparator<String> order, final boolean descending) {
+      this.column = column;
+      this.order = order;
+      this.descending = descending;
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package org.jcommons.io.text.query;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.jcommons.io.text.Tabular;
+
+/**
+ * A read-only view on selected rows of a table, the rows are taken from the table when they are accessed.
+ */
+final class RowList
+  extends AbstractList<List<String>>
+  implements RandomAccess
+{
+  private final Tabular table;
+  private final int[] rows;
+
+  /**
+   * @param table the table that holds the rows
+   * @param rows the numbers of the selected rows in the order of the view
+   */
+  RowList(final Tabular table, final int[] rows) {
+    this.table = table;
+    this.rows = rows;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<String> get(final int index) {
+    return table.getRow(rows[index]);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int size() {
+    return rows.length;
+  }
+}
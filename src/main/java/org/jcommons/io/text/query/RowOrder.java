@@ -0,0 +1,15 @@
+package org.jcommons.io.text.query;
+
+/**
+ * Compares rows identified by their number, e.g. by the values of one of their columns.
+ */
+interface RowOrder
+{
+  /**
+   * @param left the number of the first row
+   * @param right the number of the second row
+   * @return a negative number, zero, or a positive number if the first row is less than, equal to, or greater than the
+   *         second
+   */
+  int compare(int left, int right);
+}
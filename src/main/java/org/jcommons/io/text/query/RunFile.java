@@ -0,0 +1,139 @@
+package org.jcommons.io.text.query;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A temporary file that holds a run of sorted rows in a compact binary format.
+ *
+ * Every row is written as the number of its cells, the line it started at in the original file and its cells. Every
+ * cell is written as the number of its UTF-8 bytes followed by the bytes, so an empty string has a length of 0. A
+ * missing cell, which is null, is written as a length of -1 without bytes. A row count of -1 ends the run.
+ */
+final class RunFile
+  implements Closeable
+{
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int END = -1;
+
+  private final File file;
+  private DataOutputStream output;
+
+  /**
+   * @param file the file to write to
+   * @throws IOException if the file cannot be opened
+   */
+  private RunFile(final File file)
+    throws IOException
+  {
+    this.file = file;
+    this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+  }
+
+  /**
+   * Create a new temporary file to write a run to.
+   *
+   * @param directory the directory of the file, null for the default temporary directory
+   * @return the opened run
+   * @throws IOException if the file cannot be created
+   */
+  static RunFile create(final File directory)
+    throws IOException
+  {
+    File file = File.createTempFile("sort", ".run", directory);
+    file.deleteOnExit();
+    return new RunFile(file);
+  }
+
+  /** @return the file the run is written to */
+  File getFile() {
+    return file;
+  }
+
+  /**
+   * @param row the row to write
+   * @param line the line where the row starts in the original file
+   * @throws IOException if the row cannot be written
+   */
+  void write(final List<String> row, final long line)
+    throws IOException
+  {
+    output.writeInt(row.size());
+    output.writeLong(line);
+    for (String cell : row) {
+      if (cell == null) {
+        output.writeInt(-1);
+      } else {
+        byte[] bytes = cell.getBytes(UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+      }
+    }
+  }
+
+  /**
+   * End the run and close the file.
+   *
+   * @throws IOException if the file cannot be written
+   */
+  @Override
+  public void close()
+    throws IOException
+  {
+    if (output == null) return;
+    try {
+      output.writeInt(END);
+    } finally {
+      output.close();
+      output = null;
+    }
+  }
+
+  /**
+   * Read a run written before.
+   *
+   * @param file the file of the run
+   * @return a cursor over the rows of the run
+   * @throws IOException if the file cannot be opened
+   */
+  static RunMerger.Cursor open(final File file)
+    throws IOException
+  {
+    final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+    return new RunMerger.Cursor() {
+      private byte[] buffer = new byte[256];
+
+      @Override
+      boolean advance()
+        throws IOException
+      {
+        int cells = input.readInt();
+        if (cells == END) return false;
+
+        line = input.readLong();
+        row = new ArrayList<String>(cells);
+        for (int cell = 0; cell < cells; ++cell) {
+          int length = input.readInt();
+          if (length < 0) {
+            row.add(null);
+          } else {
+            if (length > buffer.length) buffer = new byte[Math.max(length, buffer.length * 2)];
+            input.readFully(buffer, 0, length);
+            row.add(new String(buffer, 0, length, UTF_8));
+          }
+        }
+        return true;
+      }
+
+      @Override
+      public void close()
+        throws IOException
+      {
+        input.close();
+      }
+    };
+  }
+}
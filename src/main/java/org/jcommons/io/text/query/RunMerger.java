@@ -0,0 +1,189 @@
+package org.jcommons.io.text.query;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.jcommons.io.text.files.Files;
+import org.jcommons.io.text.reader.RowIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Merges sorted runs into a single sorted sequence of rows, reading one row ahead from every run.
+ *
+ * Rows that are equal are returned in the order of their runs, so merging runs of consecutive rows is stable. The files
+ * of the runs are deleted when the merger is closed, which happens as soon as the last row has been returned.
+ */
+final class RunMerger
+  implements RowIterator
+{
+  private static final Logger LOG = LoggerFactory.getLogger(RunMerger.class);
+
+  private final Cursor head;
+  private final List<Cursor> cursors = new ArrayList<Cursor>();
+  private final List<File> files;
+  private final PriorityQueue<Cursor> queue;
+
+  private boolean heading;
+  private long line = 0;
+
+  /**
+   * Open the runs to merge.
+   *
+   * @param comparator the order of the runs
+   * @param head rows to return before all others as they are, null if there are none
+   * @param files the files of the runs in the order of their rows, deleted when the merger is closed
+   * @param last the run of the last rows kept in memory, null if all runs are files
+   * @throws IOException if the runs cannot be opened, the files are deleted in that case
+   */
+  RunMerger(final RowComparator comparator, final SortRun head, final List<File> files, final SortRun last)
+    throws IOException
+  {
+    this.head = head == null ? null : head.cursor();
+    this.files = files;
+    this.queue = new PriorityQueue<Cursor>(Math.max(1, files.size() + 1), new Comparator<Cursor>() {
+      @Override
+      public int compare(final Cursor left, final Cursor right) {
+        int result = comparator.compare(left.row, right.row);
+        return result != 0 ? result : left.index - right.index;
+      }
+    });
+
+    try {
+      for (File file : files) {
+        add(RunFile.open(file));
+      }
+      if (last != null) add(last.cursor());
+    } catch (IOException ioex) {
+      close();
+      throw ioex;
+    }
+
+    heading = this.head != null && this.head.advance();
+    if (!hasNext()) close();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean hasNext() {
+    return heading || !queue.isEmpty();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<String> next() {
+    if (heading) {
+      List<String> row = head.row;
+      line = head.line;
+      heading = advance(head);
+      return row;
+    }
+
+    Cursor cursor = queue.poll();
+    if (cursor == null) throw new NoSuchElementException();
+    List<String> row = cursor.row;
+    line = cursor.line;
+    if (advance(cursor)) queue.add(cursor);
+    if (queue.isEmpty()) close();
+    return row;
+  }
+
+  /** rows cannot be removed from a run */
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException("Rows cannot be removed from a sorted run.");
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public long getLineNumber() {
+    return line;
+  }
+
+  /** close all runs and delete their files */
+  @Override
+  public void close() {
+    heading = false;
+    queue.clear();
+    for (Cursor cursor : cursors) {
+      Files.close(cursor);
+    }
+    cursors.clear();
+    delete(files);
+  }
+
+  /**
+   * Delete temporary files quietly.
+   *
+   * @param files the files to delete
+   */
+  static void delete(final List<File> files) {
+    for (File file : files) {
+      if (file.exists() && !file.delete() && LOG.isWarnEnabled()) {
+        LOG.warn(new StringBuilder("Cannot delete temporary file \"").append(file.getAbsolutePath()).append("\".")
+            .toString());
+      }
+    }
+    files.clear();
+  }
+
+  /**
+   * @param cursor the run to move to its next row
+   * @return false if there are no more rows in the run
+   */
+  private boolean advance(final Cursor cursor) {
+    try {
+      return cursor.advance();
+    } catch (IOException ioex) {
+      LOG.warn("Aborted reading a sorted run.", ioex);
+      close();
+      throw new IllegalStateException("Aborted reading a sorted run.", ioex);
+    }
+  }
+
+  /**
+   * @param cursor the run to merge, positioned before its first row
+   * @throws IOException if the first row cannot be read
+   */
+  private void add(final Cursor cursor)
+    throws IOException
+  {
+    cursor.index = cursors.size();
+    cursors.add(cursor);
+    if (cursor.advance()) queue.add(cursor);
+  }
+
+  /** The position within a run. */
+  abstract static class Cursor
+    implements Closeable
+  {
+    /** the current row and the line it started at */
+    List<String> row;
+    long line;
+    /** the position of the run among the merged runs */
+    int index;
+
+    /**
+     * Move to the next row.
+     *
+     * @return false if there are no more rows
+     * @throws IOException if the row cannot be read
+     */
+    abstract boolean advance()
+      throws IOException;
+
+    /** {@inheritDoc} */
+    @Override
+    public void close()
+      throws IOException
+    {
+      // nothing to release by default
+    }
+  }
+}
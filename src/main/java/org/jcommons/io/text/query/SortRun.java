@@ -0,0 +1,115 @@
+package org.jcommons.io.text.query;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rows read into memory to be sorted and either written to a temporary file or merged directly.
+ *
+ * The memory taken by the rows is estimated while they are added, so a run can be closed before it exceeds its budget.
+ */
+final class SortRun
+{
+  /** the estimated bytes of a row and of a cell besides the characters */
+  private static final int ROW_OVERHEAD = 40;
+  private static final int CELL_OVERHEAD = 40;
+
+  private final List<List<String>> rows = new ArrayList<List<String>>();
+  private long[] lines = new long[1024];
+  private int[] order;
+  private long bytes = 0;
+
+  /**
+   * @param row the row to add, taken over by the run
+   * @param line the line where the row starts in the file
+   */
+  void add(final List<String> row, final long line) {
+    if (rows.size() == lines.length) lines = Arrays.copyOf(lines, lines.length * 2);
+    lines[rows.size()] = line;
+    rows.add(row);
+
+    bytes += ROW_OVERHEAD;
+    for (String cell : row) {
+      bytes += cell == null ? 8 : CELL_OVERHEAD + 2L * cell.length();
+    }
+  }
+
+  /** @return the number of rows */
+  int size() {
+    return rows.size();
+  }
+
+  /** @return the estimated bytes taken by the rows */
+  long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Sort the rows, on the shared pool if there are many. Rows that are equal keep the order they were added in.
+   *
+   * @param comparator the order of the rows
+   */
+  void sort(final RowComparator comparator) {
+    order = new int[rows.size()];
+    for (int position = 0; position < order.length; ++position) {
+      order[position] = position;
+    }
+    MergeSort.sort(order, new RowOrder() {
+      @Override
+      public int compare(final int left, final int right) {
+        return comparator.compare(rows.get(left), rows.get(right));
+      }
+    });
+  }
+
+  /**
+   * Write the rows in their order to a new temporary file.
+   *
+   * @param directory the directory of the file, null for the default temporary directory
+   * @param created the list to add the file to as soon as it has been created, so it can be deleted on errors
+   * @return the written file
+   * @throws IOException if the file cannot be written
+   */
+  File write(final File directory, final List<File> created)
+    throws IOException
+  {
+    RunFile run = RunFile.create(directory);
+    created.add(run.getFile());
+    try {
+      for (int position = 0; position < rows.size(); ++position) {
+        int row = getRow(position);
+        run.write(rows.get(row), lines[row]);
+      }
+    } finally {
+      run.close();
+    }
+    return run.getFile();
+  }
+
+  /** @return a cursor over the rows in their order, sorted or as added */
+  RunMerger.Cursor cursor() {
+    return new RunMerger.Cursor() {
+      private int position = 0;
+
+      @Override
+      boolean advance() {
+        if (position >= rows.size()) return false;
+        int index = getRow(position++);
+        row = rows.get(index);
+        line = lines[index];
+        return true;
+      }
+    };
+  }
+
+  /**
+   * @param position the position of a row in the order of the run
+   * @return the index of that row
+   */
+  private int getRow(final int position) {
+    return order == null ? position : order[position];
+  }
+}
@@ -0,0 +1,181 @@
+package org.jcommons.io.text.query;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.jcommons.io.text.Table;
+
+/**
+ * Finds the rows with a given value, a range of values or a prefix of a column in logarithmic time.
+ *
+ * The rows are sorted by their values with a stable sort, so rows with equal values keep the order of the table. Large
+ * tables are sorted in parallel. Empty cells are not indexed. Values are compared in their natural order unless a
+ * comparator is given, prefix lookups require the natural order.
+ */
+public class SortedIndex
+  extends ValueIndex
+{
+  private static final int[] NONE = new int[0];
+
+  private final Comparator<String> comparator;
+  private final String[] keys;
+  private final int[] rows;
+
+  /**
+   * Index a column of a table in the natural order of its values.
+   *
+   * @param table the table to index, never null
+   * @param column the case insensitive name of the column
+   * @throws IllegalArgumentException if the table has no such column
+   */
+  public SortedIndex(final Table table, final String column) {
+    this(table, table.indexOf(column), null);
+  }
+
+  /**
+   * Index a column of a table.
+   *
+   * @param table the table to index, never null
+   * @param column the position of the column starting with 0
+   * @param comparator the order of the values, null for their natural order
+   * @throws IllegalArgumentException if the position is negative
+   */
+  public SortedIndex(final Table table, final int column, final Comparator<String> comparator) {
+    super(table, column);
+    this.comparator = comparator;
+
+    final String[] values = readValues();
+    int count = 0;
+    for (String value : values) {
+      if (value != null) ++count;
+    }
+
+    rows = new int[count];
+    count = 0;
+    for (int row = 0; row < values.length; ++row) {
+      if (values[row] != null) rows[count++] = row;
+    }
+    MergeSort.sort(rows, new RowOrder() {
+      @Override
+      public int compare(final int left, final int right) {
+        return SortedIndex.this.compare(values[left], values[right]);
+      }
+    });
+
+    keys = new String[count];
+    for (int position = 0; position < count; ++position) {
+      keys[position] = values[rows[position]];
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int[] find(final String value) {
+    if (value == null) return NONE;
+    return copy(lower(value), upper(value));
+  }
+
+  /**
+   * Find the rows with values within a range.
+   *
+   * @param from the lowest value, null for no lower bound
+   * @param fromInclusive true to include rows with the lowest value
+   * @param to the highest value, null for no upper bound
+   * @param toInclusive true to include rows with the highest value
+   * @return the numbers of the rows in the order of their values, never null
+   */
+  public int[] range(final String from, final boolean fromInclusive, final String to, final boolean toInclusive) {
+    int start = 0;
+    if (from != null) start = fromInclusive ? lower(from) : upper(from);
+    int end = keys.length;
+    if (to != null) end = toInclusive ? upper(to) : lower(to);
+    return copy(start, end);
+  }
+
+  /**
+   * Find the rows with values that start with the given prefix.
+   *
+   * @param prefix the start of the values, the empty string finds all rows with a value
+   * @return the numbers of the rows in the order of their values, never null
+   * @throws IllegalStateException if the index has been sorted with a comparator
+   */
+  public int[] prefix(final String prefix) {
+    if (comparator != null) throw new IllegalStateException("Prefix lookups require the natural order of the values.");
+    if (prefix == null) return NONE;
+    int start = lower(prefix);
+    int end = start;
+    while (end < keys.length && keys[end].startsWith(prefix)) {
+      ++end;
+    }
+    return copy(start, end);
+  }
+
+  /** @return the number of rows with a value */
+  public int size() {
+    return keys.length;
+  }
+
+  /** @return the lowest value, null if no row has a value */
+  public String getMinimum() {
+    return keys.length == 0 ? null : keys[0];
+  }
+
+  /** @return the highest value, null if no row has a value */
+  public String getMaximum() {
+    return keys.length == 0 ? null : keys[keys.length - 1];
+  }
+
+  /**
+   * @param start the first position
+   * @param end the position after the last position
+   * @return the rows at the given positions
+   */
+  private int[] copy(final int start, final int end) {
+    return end <= start ? NONE : Arrays.copyOfRange(rows, start, end);
+  }
+
+  /**
+   * @param value the value to look for
+   * @return the first position with a value that is not less than the given value
+   */
+  private int lower(final String value) {
+    int low = 0;
+    int high = keys.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (compare(keys[middle], value) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @param value the value to look for
+   * @return the first position with a value that is greater than the given value
+   */
+  private int upper(final String value) {
+    int low = 0;
+    int high = keys.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (compare(keys[middle], value) <= 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @param left a value, never null
+   * @param right another value, never null
+   * @return the order of the values
+   */
+  private int compare(final String left, final String right) {
+    return comparator == null ? left.compareTo(right) : comparator.compare(left, right);
+  }
+}
@@ -0,0 +1,341 @@
+package org.jcommons.io.text.query;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import org.jcommons.io.text.Table;
+import org.jcommons.io.text.reader.ColumnFilter;
+import org.jcommons.io.text.reader.RowFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A read-only view on selected rows and columns of a table that does not copy any cell.
+ *
+ * A view keeps the numbers of its rows and the positions of its columns in the viewed table, the cells are taken from
+ * the table when they are accessed. Filtering, sorting and projecting a view returns a new view on the same table, so a
+ * filter of a sort of a projection still costs an <code>int</code> per row and looks up every cell in a single step.
+ *
+ * A view that has neither been filtered nor sorted shows all rows of the table, including rows added later. Otherwise
+ * it shows the rows that were present when it was created, so the table must not shrink while the view is used. Column
+ * names are changed in the viewed table. Columns that cannot be found are ignored and logged.
+ */
+public class TableView
+  implements Table
+{
+  private static final Logger LOG = LoggerFactory.getLogger(TableView.class);
+
+  private final Table table;
+  /** the numbers of the rows in the table in the order of the view, null for all rows */
+  private final int[] rows;
+  /** the positions of the columns in the table in the order of the view, -1 for no column, null for all columns */
+  private final int[] columns;
+
+  /**
+   * Create a view that shows a table as it is.
+   *
+   * @param table the table to view, a view is resolved to the table it views, never null
+   */
+  public TableView(final Table table) {
+    if (table instanceof TableView) {
+      TableView view = (TableView) table;
+      this.table = view.table;
+      this.rows = view.rows;
+      this.columns = view.columns;
+    } else {
+      this.table = table;
+      this.rows = null;
+      this.columns = null;
+    }
+  }
+
+  /**
+   * @param table the table to view
+   * @param rows the numbers of the rows in the table, null for all rows
+   * @param columns the positions of the columns in the table, null for all columns
+   */
+  private TableView(final Table table, final int[] rows, final int[] columns) {
+    this.table = table;
+    this.rows = rows;
+    this.columns = columns;
+  }
+
+  /** @return the table that holds the cells of this view, never a view */
+  public Table getTable() {
+    return table;
+  }
+
+  /**
+   * Keep only the rows accepted by the filter, large views are filtered in chunks in parallel.
+   *
+   * @param filter the filter that sees the rows of this view, must be safe to call from several threads at once
+   * @return a view on the accepted rows in the order of this view
+   */
+  public TableView filter(final RowFilter filter) {
+    int size = size();
+    final int[][] chunks = new int[Parallel.getChunks(size)][];
+    Parallel.run(size, new Parallel.Range() {
+      @Override
+      public void run(final int chunk, final int from, final int to) {
+        int[] accepted = new int[to - from];
+        int count = 0;
+        for (int position = from; position < to; ++position) {
+          if (filter.accept(getRow(position))) accepted[count++] = getTableRow(position);
+        }
+        chunks[chunk] = Arrays.copyOf(accepted, count);
+      }
+    });
+    return new TableView(table, Parallel.join(chunks), columns);
+  }
+
+  /**
+   * Keep only the rows with the given value.
+   *
+   * @param column the case insensitive name of the column
+   * @param value the value to keep, null to keep the rows without a value
+   * @return a view on the matching rows in the order of this view
+   */
+  public TableView where(final String column, final String value) {
+    int index = resolve(column);
+    if (index >= 0) return filter(ColumnFilter.equalTo(index, value));
+    // no row has a value in a column that does not exist
+    return value == null ? this : new TableView(table, new int[0], columns);
+  }
+
+  /**
+   * Sort the rows, rows that are equal keep their order in this view. Large views are sorted in parallel.
+   *
+   * @param order the order of the rows of this view, e.g. a <code>RowComparator</code>, must be safe to call from
+   *          several threads at once
+   * @return a view on the sorted rows
+   */
+  public TableView sort(final Comparator<? super List<String>> order) {
+    int[] positions = new int[size()];
+    for (int position = 0; position < positions.length; ++position) {
+      positions[position] = position;
+    }
+    MergeSort.sort(positions, new RowOrder() {
+      @Override
+      public int compare(final int left, final int right) {
+        return order.compare(getRow(left), getRow(right));
+      }
+    });
+
+    for (int position = 0; position < positions.length; ++position) {
+      positions[position] = getTableRow(positions[position]);
+    }
+    return new TableView(table, positions, columns);
+  }
+
+  /**
+   * Sort the rows by a single column, rows that are equal keep their order in this view.
+   *
+   * @param column the case insensitive name of the column
+   * @param order the order of the values, e.g. <code>RowComparator.NUMERIC</code>, null to compare the text
+   * @param descending true to put the highest values first
+   * @return a view on the sorted rows, this view if there is no such column
+   */
+  public TableView orderBy(final String column, final Comparator<String> order, final boolean descending) {
+    int index = resolve(column);
+    if (index < 0) return this;
+    return sort(new RowComparator().add(index, order, descending));
+  }
+
+  /**
+   * Show only the given columns in the given order.
+   *
+   * @param names the case insensitive names of the columns
+   * @return a view on the columns that have been found
+   */
+  public TableView select(final String... names) {
+    int[] indices = new int[names.length];
+    int count = 0;
+    for (String name : names) {
+      int index = resolve(name);
+      if (index >= 0) indices[count++] = index;
+    }
+    return select(Arrays.copyOf(indices, count));
+  }
+
+  /**
+   * Show only the given columns in the given order.
+   *
+   * @param indices the positions of the columns in this view starting with 0
+   * @return a view on the columns
+   */
+  public TableView select(final int... indices) {
+    int[] selected = new int[indices.length];
+    for (int position = 0; position < indices.length; ++position) {
+      selected[position] = getTableColumn(indices[position]);
+    }
+    return new TableView(table, rows, selected);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<String> getColumns() {
+    List<String> names = table.getColumns();
+    if (columns == null) return names;
+    String[] selected = new String[columns.length];
+    for (int position = 0; position < columns.length; ++position) {
+      int column = columns[position];
+      selected[position] = column >= 0 && column < names.size() ? names.get(column) : null;
+    }
+    return Collections.unmodifiableList(Arrays.asList(selected));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Table setColumn(final int index, final String name) {
+    int column = getTableColumn(index);
+    if (column >= 0) table.setColumn(column, name);
+    return this;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getColumn(final int index) {
+    int column = getTableColumn(index);
+    return column < 0 ? null : table.getColumn(column);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int indexOf(final String column) {
+    int index = table.indexOf(column);
+    if (columns == null || index < 0) return index;
+    for (int position = 0; position < columns.length; ++position) {
+      if (columns[position] == index) return position;
+    }
+    return -1;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getValue(final String column, final int row) {
+    return getValue(row, indexOf(column));
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Map<String, String> getParameters() {
+    Map<String, String> parameters = new HashMap<String, String>();
+    parameters.put("class", this.getClass().getSimpleName());
+    return parameters;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<List<String>> getData() {
+    return new Rows();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<String> getRow(final int index) {
+    if (index < 0 || index >= size()) return Collections.emptyList();
+    List<String> row = table.getRow(getTableRow(index));
+    return columns == null ? row : new ProjectedRow(row, columns);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getValue(final int row, final int column) {
+    if (row < 0 || row >= size() || column < 0) return null;
+    int index = getTableColumn(column);
+    return index < 0 ? null : table.getValue(getTableRow(row), index);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int size() {
+    return rows == null ? table.size() : rows.length;
+  }
+
+  /**
+   * @param row the number of a row in this view
+   * @return the number of the row in the table
+   */
+  private int getTableRow(final int row) {
+    return rows == null ? row : rows[row];
+  }
+
+  /**
+   * @param column the position of a column in this view
+   * @return the position of the column in the table, -1 if this view has no such column
+   */
+  private int getTableColumn(final int column) {
+    if (column < 0) return -1;
+    if (columns == null) return column;
+    return column < columns.length ? columns[column] : -1;
+  }
+
+  /**
+   * @param name the name of a column
+   * @return the position of the column in this view or -1 if there is no such column
+   */
+  private int resolve(final String name) {
+    int index = indexOf(name);
+    if (index < 0 && LOG.isWarnEnabled()) {
+      LOG.warn(new StringBuilder("Column \"").append(name).append("\" not found, it is ignored.").toString());
+    }
+    return index;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder();
+    text.append(getColumns().toString()).append(", ");
+    text.append(getData().toString());
+    return text.toString();
+  }
+
+  /** The rows of this view, taken from the table when they are accessed. */
+  private final class Rows
+    extends AbstractList<List<String>>
+    implements RandomAccess
+  {
+    @Override
+    public List<String> get(final int index) {
+      if (index < 0 || index >= size()) throw new IndexOutOfBoundsException(Integer.toString(index));
+      return getRow(index);
+    }
+
+    @Override
+    public int size() {
+      return TableView.this.size();
+    }
+  }
+
+  /** The selected cells of a row of the table. */
+  private static final class ProjectedRow
+    extends AbstractList<String>
+    implements RandomAccess
+  {
+    private final List<String> row;
+    private final int[] columns;
+
+    ProjectedRow(final List<String> row, final int[] columns) {
+      this.row = row;
+      this.columns = columns;
+    }
+
+    @Override
+    public String get(final int index) {
+      int column = columns[index];
+      return column >= 0 && column < row.size() ? row.get(column) : null;
+    }
+
+    @Override
+    public int size() {
+      return columns.length;
+    }
+  }
+}
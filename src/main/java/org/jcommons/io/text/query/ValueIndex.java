@@ -0,0 +1,94 @@
+package org.jcommons.io.text.query;
+
+import java.util.List;
+
+import org.jcommons.io.text.Table;
+
+/**
+ * An index on the values of a single column of a table to find rows without scanning the table.
+ *
+ * An index is a snapshot of the table when it was built, build it again after the table has been changed. Large tables
+ * are indexed in parallel on a shared pool. Indexes can be used by several threads at once.
+ */
+public abstract class ValueIndex
+{
+  private final Table table;
+  private final int column;
+
+  /**
+   * Create an index on a column.
+   *
+   * @param table the table to index, never null
+   * @param column the position of the column starting with 0
+   * @throws IllegalArgumentException if there is no such column
+   */
+  protected ValueIndex(final Table table, final int column) {
+    if (column < 0) throw new IllegalArgumentException("Cannot index a column that does not exist.");
+    this.table = table;
+    this.column = column;
+  }
+
+  /** @return the indexed table */
+  public Table getTable() {
+    return table;
+  }
+
+  /** @return the position of the indexed column */
+  public int getColumn() {
+    return column;
+  }
+
+  /**
+   * Find the rows with the given value.
+   *
+   * @param value the value to find
+   * @return the numbers of the rows with that value in ascending order, empty if there are none, never null
+   */
+  public abstract int[] find(String value);
+
+  /**
+   * Find the rows with the given value.
+   *
+   * @param value the value to find
+   * @return the rows with that value in the order of the table, read from the table when they are accessed
+   */
+  public List<List<String>> getRows(final String value) {
+    return getRows(find(value));
+  }
+
+  /**
+   * Access rows found by this index.
+   *
+   * @param rows the numbers of the rows
+   * @return a read-only view on the rows, read from the table when they are accessed
+   */
+  public List<List<String>> getRows(final int[] rows) {
+    return new RowList(table, rows);
+  }
+
+  /**
+   * @param value the value to find
+   * @return true if at least one row has that value
+   */
+  public boolean contains(final String value) {
+    return find(value).length > 0;
+  }
+
+  /**
+   * Read the values of the indexed column.
+   *
+   * @return the value of every row of the table
+   */
+  String[] readValues() {
+    final String[] values = new String[table.size()];
+    Parallel.run(values.length, new Parallel.Range() {
+      @Override
+      public void run(final int chunk, final int from, final int to) {
+        for (int row = from; row < to; ++row) {
+          values[row] = table.getValue(row, column);
+        }
+      }
+    });
+    return values;
+  }
+}
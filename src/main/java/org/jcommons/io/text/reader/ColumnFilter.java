@@ -0,0 +1,60 @@
+package org.jcommons.io.text.reader;
+
+import java.util.List;
+
+/**
+ * A row filter that only looks at the value of a single column.
+ *
+ * Readers evaluate the filter as soon as the cell has been read, so the other cells of a rejected row are skipped
+ * without creating any values for them. The column is the index within the file, regardless of which columns are
+ * selected to be read.
+ */
+public abstract class ColumnFilter
+  implements RowFilter
+{
+  private final int column;
+
+  /**
+   * Create a filter on the given column.
+   *
+   * @param column the index of the column in the file, the first column is 0
+   */
+  protected ColumnFilter(final int column) {
+    this.column = Math.max(0, column);
+  }
+
+  /**
+   * Create a filter that keeps the rows with the given value.
+   *
+   * @param column the index of the column in the file, the first column is 0
+   * @param value the value to keep, can be null to keep rows without a value in that column
+   * @return the filter
+   */
+  public static ColumnFilter equalTo(final int column, final String value) {
+    return new ColumnFilter(column) {
+      @Override
+      public boolean accept(final String cell) {
+        return value == null ? cell == null : value.equals(cell);
+      }
+    };
+  }
+
+  /** @return the index of the column in the file */
+  public int getColumn() {
+    return column;
+  }
+
+  /**
+   * Check the value of the column.
+   *
+   * @param value the value of the column in the current row, null if the row has no such cell
+   * @return true to keep the row, false to drop it
+   */
+  public abstract boolean accept(String value);
+
+  /** {@inheritDoc} */
+  @Override
+  public final boolean accept(final List<String> row) {
+    return accept(column < row.size() ? row.get(column) : null);
+  }
+}
@@ -0,0 +1,20 @@
+package org.jcommons.io.text.reader;
+
+import java.util.List;
+
+/**
+ * Decides which rows are kept while a file is read, rejected rows never reach the grid or the row handler.
+ *
+ * Use a <code>ColumnFilter</code> if the decision depends on a single column, which allows to reject rows before their
+ * remaining cells are created.
+ */
+public interface RowFilter
+{
+  /**
+   * Check a row that has just been read.
+   *
+   * @param row the cells of the row, empty for blank lines
+   * @return true to keep the row, false to drop it
+   */
+  boolean accept(List<String> row);
+}
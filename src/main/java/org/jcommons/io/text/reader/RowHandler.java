@@ -0,0 +1,20 @@
+package org.jcommons.io.text.reader;
+
+import java.util.List;
+
+/**
+ * Receives rows one by one while they are read, so that the data never has to be held in memory as a whole.
+ */
+public interface RowHandler
+{
+  /**
+   * Process a single row.
+   *
+   * The row belongs to the handler, so it can be kept or modified, but it will not be referenced by the reader anymore.
+   *
+   * @param row the cells of the row, empty for blank lines, never null
+   * @param line the number of the line where the row starts, the first line is 1
+   * @return true to continue reading, false to stop reading
+   */
+  boolean handle(List<String> row, long line);
+}
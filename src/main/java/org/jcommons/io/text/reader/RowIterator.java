@@ -0,0 +1,18 @@
+package org.jcommons.io.text.reader;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Iterates over the rows of some source without holding more than the current row in memory.
+ *
+ * The iterator releases its source as soon as all rows have been read. If you stop early you must close it yourself.
+ * Rows cannot be removed.
+ */
+public interface RowIterator
+  extends Iterator<List<String>>, Closeable
+{
+  /** @return the number of the line where the row last returned by <code>next()</code> starts, the first line is 1 */
+  long getLineNumber();
+}
@@ -0,0 +1,128 @@
+package org.jcommons.io.text.reader;
+
+/**
+ * Shares string instances for values that are read repeatedly, e.g. currencies or status codes in large files.
+ *
+ * The pool is a fixed-size table where every value has exactly one slot determined by its hash. A value found in its
+ * slot is returned as is, otherwise a new string is created and replaces the previous occupant of the slot. Lookups on
+ * character arrays do not create temporary strings, so repeated values cost no allocation at all. As the pool never
+ * grows, rarely repeated values simply push each other out while frequent values stay.
+ *
+ * Only short values are pooled as long values are rarely repeated. The pool can be shared by multiple threads without
+ * locking: strings are immutable, so a thread sees either the previous or the new occupant of a slot, and a missed
+ * value is merely created once more.
+ */
+public final class StringPool
+{
+  /** the default number of slots */
+  public static final int DEFAULT_CAPACITY = 16 * 1024;
+
+  /** the default maximum length of pooled values */
+  public static final int DEFAULT_MAX_LENGTH = 32;
+
+  private final String[] slots;
+  private final int mask;
+  private final int maxLength;
+
+  /** Create a pool with the default capacity. */
+  public StringPool() {
+    this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+  }
+
+  /**
+   * Create a pool of the given size.
+   *
+   * @param capacity the number of values the pool can hold at most, rounded up to the next power of two
+   * @param maxLength the maximum length of values that are pooled
+   */
+  public StringPool(final int capacity, final int maxLength) {
+    int size = Integer.highestOneBit(Math.max(1, Math.min(capacity, 1 << 30)));
+    if (size < capacity) size <<= 1;
+    slots = new String[size];
+    mask = size - 1;
+    this.maxLength = maxLength;
+  }
+
+  /**
+   * Return the shared instance for the given characters.
+   *
+   * @param chars the characters of the value
+   * @param offset the first character
+   * @param length the number of characters
+   * @return the shared instance or a new string if the value is not pooled, never null
+   */
+  public String get(final char[] chars, final int offset, final int length) {
+    if (length == 0) return "";
+    if (length > maxLength) return new String(chars, offset, length);
+
+    int hash = 0;
+    for (int index = offset; index < offset + length; ++index) {
+      hash = 31 * hash + chars[index];
+    }
+
+    int slot = spread(hash);
+    String value = slots[slot];
+    if (value != null && matches(value, chars, offset, length)) return value;
+
+    value = new String(chars, offset, length);
+    slots[slot] = value;
+    return value;
+  }
+
+  /**
+   * Return the shared instance for the given value.
+   *
+   * @param value the value to share, can be null
+   * @return the shared instance or the value itself if it is not pooled
+   */
+  public String get(final String value) {
+    if (value == null || value.length() > maxLength) return value;
+
+    int slot = spread(value.hashCode());
+    String shared = slots[slot];
+    if (value.equals(shared)) return shared;
+
+    slots[slot] = value;
+    return value;
+  }
+
+  /** @return the number of slots of this pool */
+  public int getCapacity() {
+    return slots.length;
+  }
+
+  /** @return the maximum length of values that are pooled */
+  public int getMaxLength() {
+    return maxLength;
+  }
+
+  /** Forget all values. */
+  public void clear() {
+    for (int slot = 0; slot < slots.length; ++slot) {
+      slots[slot] = null;
+    }
+  }
+
+  /**
+   * @param hash the hash code of a value
+   * @return the slot of the value
+   */
+  private int spread(final int hash) {
+    return (hash ^ hash >>> 16) & mask;
+  }
+
+  /**
+   * @param value the pooled value
+   * @param chars the characters to compare
+   * @param offset the first character
+   * @param length the number of characters
+   * @return true if the value consists of the given characters
+   */
+  private static boolean matches(final String value, final char[] chars, final int offset, final int length) {
+    if (value.length() != length) return false;
+    for (int index = 0; index < length; ++index) {
+      if (value.charAt(index) != chars[offset + index]) return false;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,281 @@
+package org.jcommons.io.text.reader.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.List;
+
+/**
+ * Parses the raw bytes of UTF-8, ASCII and single-byte encodings without decoding the input as a whole.
+ *
+ * Line breaks, the delimiter and the quotes are found on the bytes, which is safe for the encodings accepted by
+ * <code>CsvScanner.isSupported()</code>. Only the bytes of the cells that are returned are decoded, cells of pure ASCII
+ * are copied without a decoder. Malformed input is replaced like a reader of the same encoding would do.
+ */
+final class ByteCsvParser
+  extends CsvParser
+{
+  private final InputStream input;
+  private final byte delimiter;
+  private final byte[] quotes;
+  private final CharsetDecoder decoder;
+
+  /** flags all bytes that end a plain sequence of bytes */
+  private final boolean[] special = new boolean[256];
+
+  private final byte[] buffer;
+  private int position = 0;
+  private int limit = 0;
+  private boolean eof = false;
+
+  /** the bytes of the current cell and the characters they are decoded into */
+  private byte[] cell = new byte[CELL_SIZE];
+  private char[] chars = new char[CELL_SIZE];
+
+  /**
+   * Create a parser.
+   *
+   * @param input the input to parse, never null
+   * @param charset the encoding of the input, must be supported by the scanner
+   * @param delimiter the character that separates the cells, must be supported by the scanner
+   * @param quotes the characters that can quote a cell, must be supported by the scanner
+   * @param trim true to remove white space around the cells
+   * @param emptyAsNull true to return empty cells as null
+   * @param bufferSize the number of bytes to read at once
+   */
+  ByteCsvParser(final InputStream input, final Charset charset, final String delimiter, final String quotes,
+                final boolean trim, final boolean emptyAsNull, final int bufferSize)
+  {
+    super(trim, emptyAsNull);
+    this.input = input;
+    this.delimiter = (byte) delimiter.charAt(0);
+    this.quotes = new byte[quotes.length()];
+    for (int index = 0; index < quotes.length(); ++index) {
+      this.quotes[index] = (byte) quotes.charAt(index);
+      special[this.quotes[index]] = true;
+    }
+    this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    this.buffer = new byte[Math.max(bufferSize, 2)];
+
+    special['\n'] = true;
+    special['\r'] = true;
+    special[this.delimiter] = true;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  boolean hasInput()
+    throws IOException
+  {
+    return position < limit || fill();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  boolean parse(final List<String> row)
+    throws IOException
+  {
+    boolean blank = true;
+    while (position < limit || fill()) {
+      byte b = buffer[position];
+
+      if (!special[b & 0xff]) {
+        // fast path for a run of plain bytes
+        int end = position + 1;
+        while (end < limit && !special[buffer[end] & 0xff]) {
+          ++end;
+        }
+        blank = plain(position, end) && blank;
+        position = end;
+      } else if (b == '\n') {
+        ++position;
+        ++line;
+        break;
+      } else if (b == '\r') {
+        ++position;
+        ++line;
+        if ((position < limit || fill()) && buffer[position] == '\n') {
+          ++position;
+        }
+        break;
+      } else if (b == delimiter) {
+        ++position;
+        blank = false;
+        add(row);
+      } else if (!started || b == opened) {
+        ++position;
+        blank = false;
+        quoted(b);
+      } else {
+        // a quote within a cell that is not quoted by it
+        blank = false;
+        ++position;
+        append(b);
+        kept = length;
+      }
+    }
+    return blank;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  String text(final int end) {
+    if (chars.length < end) chars = new char[Math.max(chars.length << 1, end)];
+    for (int index = 0; index < end; ++index) {
+      byte b = cell[index];
+      if (b < 0) return decode(end);
+      chars[index] = (char) b;
+    }
+    return share(chars, end);
+  }
+
+  /**
+   * Decode the bytes of a cell that contains characters other than ASCII.
+   *
+   * @param end the number of bytes of the cell
+   * @return the decoded value
+   */
+  private String decode(final int end) {
+    int capacity = (int) Math.ceil(end * (double) decoder.maxCharsPerByte());
+    if (chars.length < capacity) chars = new char[capacity];
+    CharBuffer target = CharBuffer.wrap(chars);
+    decoder.reset();
+    decoder.decode(ByteBuffer.wrap(cell, 0, end), target, true);
+    decoder.flush(target);
+    return share(chars, target.position());
+  }
+
+  /**
+   * Append a sequence of bytes outside of quotes from the buffer to the current cell.
+   *
+   * @param start the first byte in the buffer
+   * @param end the position after the last byte in the buffer
+   * @return true if the sequence consists of white space only
+   */
+  private boolean plain(final int start, final int end) {
+    int first = start;
+    if (trim && !started) {
+      // leading white space is dropped
+      while (first < end && isWhite(buffer[first])) {
+        ++first;
+      }
+      if (first == end) return true;
+    }
+
+    // trailing white space is cut off when the cell is complete
+    int last = end - 1;
+    if (trim) {
+      while (last >= first && isWhite(buffer[last])) {
+        --last;
+      }
+    }
+
+    if (!skipping) {
+      int count = end - first;
+      if (length + count > cell.length) {
+        byte[] larger = new byte[Math.max(cell.length << 1, length + count)];
+        System.arraycopy(cell, 0, larger, 0, length);
+        cell = larger;
+      }
+      System.arraycopy(buffer, first, cell, length, count);
+      length += count;
+      if (last >= first) kept = length - (end - 1 - last);
+    }
+
+    if (last >= first) started = true;
+    return trim ? last < first : isBlank(first, end);
+  }
+
+  /**
+   * @param start the first byte in the buffer
+   * @param end the position after the last byte in the buffer
+   * @return true if the given bytes are white space only
+   */
+  private boolean isBlank(final int start, final int end) {
+    for (int index = start; index < end; ++index) {
+      if (!isWhite(buffer[index])) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Append a quoted section to the current cell, the opening quote has already been consumed.
+   *
+   * @param quote the byte that started the section and will end it
+   * @throws IOException if the input cannot be read
+   */
+  private void quoted(final byte quote)
+    throws IOException
+  {
+    if (!started) opened = quote;
+    started = true;
+    while (position < limit || fill()) {
+      byte b = buffer[position++];
+      if (b == quote) {
+        if ((position < limit || fill()) && buffer[position] == quote) {
+          // doubled quote is an escaped quote
+          ++position;
+        } else {
+          break;
+        }
+      } else if (b == '\n') {
+        ++line;
+      } else if (b == '\r' && (position < limit || fill()) && buffer[position] != '\n') {
+        ++line;
+      }
+      append(b);
+    }
+    kept = length;
+  }
+
+  /** @param b the byte to append to the current cell unless it is skipped */
+  private void append(final byte b) {
+    if (skipping) return;
+    if (length == cell.length) {
+      byte[] larger = new byte[cell.length << 1];
+      System.arraycopy(cell, 0, larger, 0, length);
+      cell = larger;
+    }
+    cell[length++] = b;
+  }
+
+  /**
+   * @param b a byte of the input
+   * @return true if the byte is white space or a control character, which never occurs within other characters
+   */
+  private static boolean isWhite(final byte b) {
+    return b >= 0 && b <= ' ';
+  }
+
+  /**
+   * Read more bytes, keeping the bytes that have not been consumed yet.
+   *
+   * @return true if there are bytes available
+   * @throws IOException if the input cannot be read
+   */
+  private boolean fill()
+    throws IOException
+  {
+    if (eof) return position < limit;
+
+    if (position > 0) {
+      System.arraycopy(buffer, position, buffer, 0, limit - position);
+      limit -= position;
+      position = 0;
+    }
+
+    int count = input.read(buffer, limit, buffer.length - limit);
+    if (count < 0) {
+      eof = true;
+    } else {
+      limit += count;
+    }
+
+    return position < limit;
+  }
+}
@@ -0,0 +1,52 @@
+package org.jcommons.io.text.reader.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a range of a file from a channel without moving the position of the channel.
+ *
+ * Any number of streams can read from the same channel at the same time, closing a stream leaves the channel open.
+ */
+final class ChannelInputStream
+  extends InputStream
+{
+  private final FileChannel channel;
+  private final long to;
+  private long position;
+
+  /**
+   * Create a stream over a range of the file.
+   *
+   * @param channel the file to read from
+   * @param from the first byte to read
+   * @param to the position after the last byte to read
+   */
+  ChannelInputStream(final FileChannel channel, final long from, final long to) {
+    this.channel = channel;
+    this.position = from;
+    this.to = to;
+  }
+
+  @Override
+  public int read()
+    throws IOException
+  {
+    byte[] single = new byte[1];
+    return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+  }
+
+  @Override
+  public int read(final byte[] data, final int offset, final int length)
+    throws IOException
+  {
+    if (position >= to) return -1;
+    if (length == 0) return 0;
+    ByteBuffer buffer = ByteBuffer.wrap(data, offset, (int) Math.min(length, to - position));
+    int count = channel.read(buffer, position);
+    if (count > 0) position += count;
+    return count;
+  }
+}
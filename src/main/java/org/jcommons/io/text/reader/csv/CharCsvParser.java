@@ -0,0 +1,302 @@
+package org.jcommons.io.text.reader.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Parses decoded character input, which works for any encoding and for delimiters of any length.
+ */
+final class CharCsvParser
+  extends CsvParser
+{
+  private final Reader reader;
+  private final char[] delimiter;
+  private final String quotes;
+
+  /** flags all ASCII characters that end a plain sequence of characters */
+  private final boolean[] special = new boolean[128];
+
+  private final char[] buffer;
+  private int position = 0;
+  private int limit = 0;
+  private boolean eof = false;
+
+  /** the characters of the current cell */
+  private char[] cell = new char[CELL_SIZE];
+
+  /**
+   * Create a parser with the default buffer size.
+   *
+   * @param reader the input to parse, never null
+   * @param delimiter the character sequence that separates the cells, never empty
+   * @param quotes the characters that can quote a cell, can be empty
+   * @param trim true to remove white space around the cells
+   * @param emptyAsNull true to return empty cells as null
+   */
+  CharCsvParser(final Reader reader, final String delimiter, final String quotes, final boolean trim,
+                final boolean emptyAsNull)
+  {
+    this(reader, delimiter, quotes, trim, emptyAsNull, BUFFER_SIZE);
+  }
+
+  /**
+   * Create a parser.
+   *
+   * @param reader the input to parse, never null
+   * @param delimiter the character sequence that separates the cells, never empty
+   * @param quotes the characters that can quote a cell, can be empty
+   * @param trim true to remove white space around the cells
+   * @param emptyAsNull true to return empty cells as null
+   * @param bufferSize the number of characters to read at once
+   */
+  CharCsvParser(final Reader reader, final String delimiter, final String quotes, final boolean trim,
+                final boolean emptyAsNull, final int bufferSize)
+  {
+    super(trim, emptyAsNull);
+    this.reader = reader;
+    this.delimiter = delimiter.toCharArray();
+    this.quotes = quotes;
+    this.buffer = new char[Math.max(bufferSize, this.delimiter.length + 1)];
+
+    special['\n'] = true;
+    special['\r'] = true;
+    markSpecial(this.delimiter[0]);
+    for (int index = 0; index < quotes.length(); ++index) {
+      markSpecial(quotes.charAt(index));
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  boolean hasInput()
+    throws IOException
+  {
+    return position < limit || fill();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  boolean parse(final List<String> row)
+    throws IOException
+  {
+    boolean blank = true;
+    while (position < limit || fill()) {
+      char c = buffer[position];
+
+      if (c < 128 ? !special[c] : !isSpecial(c)) {
+        // fast path for a run of plain characters
+        int end = position + 1;
+        while (end < limit) {
+          char next = buffer[end];
+          if (next < 128 ? special[next] : isSpecial(next)) break;
+          ++end;
+        }
+        blank = plain(position, end) && blank;
+        position = end;
+      } else if (c == '\n') {
+        ++position;
+        ++line;
+        break;
+      } else if (c == '\r') {
+        ++position;
+        ++line;
+        if ((position < limit || fill()) && buffer[position] == '\n') {
+          ++position;
+        }
+        break;
+      } else if (c == delimiter[0] && isDelimiter()) {
+        position += delimiter.length;
+        blank = false;
+        add(row);
+      } else if (quotes.indexOf(c) >= 0 && (!started || c == opened)) {
+        ++position;
+        blank = false;
+        quoted(c);
+      } else {
+        // a special character that is not relevant here, e.g. the start of an incomplete delimiter
+        blank &= c <= ' ';
+        ++position;
+        plain(c);
+      }
+    }
+    return blank;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  String text(final int end) {
+    return share(cell, end);
+  }
+
+  /**
+   * Append a sequence of characters outside of quotes from the buffer to the current cell.
+   *
+   * @param start the first character in the buffer
+   * @param end the position after the last character in the buffer
+   * @return true if the sequence consists of white space only
+   */
+  private boolean plain(final int start, final int end) {
+    int first = start;
+    if (trim && !started) {
+      // leading white space is dropped
+      while (first < end && buffer[first] <= ' ') {
+        ++first;
+      }
+      if (first == end) return true;
+    }
+
+    // trailing white space is cut off when the cell is complete
+    int last = end - 1;
+    if (trim) {
+      while (last >= first && buffer[last] <= ' ') {
+        --last;
+      }
+    }
+
+    if (!skipping) {
+      int count = end - first;
+      if (length + count > cell.length) {
+        char[] larger = new char[Math.max(cell.length << 1, length + count)];
+        System.arraycopy(cell, 0, larger, 0, length);
+        cell = larger;
+      }
+      System.arraycopy(buffer, first, cell, length, count);
+      length += count;
+      if (last >= first) kept = length - (end - 1 - last);
+    }
+
+    if (last >= first) started = true;
+    return trim ? last < first : isBlank(first, end);
+  }
+
+  /**
+   * @param start the first character in the buffer
+   * @param end the position after the last character in the buffer
+   * @return true if the given characters are white space only
+   */
+  private boolean isBlank(final int start, final int end) {
+    for (int index = start; index < end; ++index) {
+      if (buffer[index] > ' ') return false;
+    }
+    return true;
+  }
+
+  /**
+   * Append a character outside of quotes to the current cell.
+   *
+   * @param c the character to append
+   */
+  private void plain(final char c) {
+    if (trim && c <= ' ') {
+      // leading white space is dropped, trailing white space is cut off when the cell is complete
+      if (started) append(c);
+    } else {
+      append(c);
+      kept = length;
+      started = true;
+    }
+  }
+
+  /**
+   * Append a quoted section to the current cell, the opening quote has already been consumed.
+   *
+   * @param quote the character that started the section and will end it
+   * @throws IOException if the input cannot be read
+   */
+  private void quoted(final char quote)
+    throws IOException
+  {
+    if (!started) opened = quote;
+    started = true;
+    while (position < limit || fill()) {
+      char c = buffer[position++];
+      if (c == quote) {
+        if ((position < limit || fill()) && buffer[position] == quote) {
+          // doubled quote is an escaped quote
+          ++position;
+        } else {
+          break;
+        }
+      } else if (c == '\n') {
+        ++line;
+      } else if (c == '\r' && (position < limit || fill()) && buffer[position] != '\n') {
+        ++line;
+      }
+      append(c);
+    }
+    kept = length;
+  }
+
+  /** @param c the character to append to the current cell unless it is skipped */
+  private void append(final char c) {
+    if (skipping) return;
+    if (length == cell.length) {
+      char[] larger = new char[cell.length << 1];
+      System.arraycopy(cell, 0, larger, 0, length);
+      cell = larger;
+    }
+    cell[length++] = c;
+  }
+
+  /**
+   * Check if the delimiter starts at the current position, the first character is already known to match.
+   *
+   * @return true if the complete delimiter is found
+   * @throws IOException if the input cannot be read
+   */
+  private boolean isDelimiter()
+    throws IOException
+  {
+    if (delimiter.length == 1) return true;
+    while (limit - position < delimiter.length) {
+      if (eof || !fill()) break;
+    }
+    if (limit - position < delimiter.length) return false;
+
+    for (int index = 1; index < delimiter.length; ++index) {
+      if (buffer[position + index] != delimiter[index]) return false;
+    }
+    return true;
+  }
+
+  /**
+   * @param c a character that is not ASCII
+   * @return true if the character might end a sequence of plain characters
+   */
+  private boolean isSpecial(final char c) {
+    return c == delimiter[0] || quotes.indexOf(c) >= 0;
+  }
+
+  /** @param c the character to mark as special */
+  private void markSpecial(final char c) {
+    if (c < 128) special[c] = true;
+  }
+
+  /**
+   * Read more characters, keeping the characters that have not been consumed yet.
+   *
+   * @return true if there are characters available
+   * @throws IOException if the input cannot be read
+   */
+  private boolean fill()
+    throws IOException
+  {
+    if (eof) return position < limit;
+
+    if (position > 0) {
+      System.arraycopy(buffer, position, buffer, 0, limit - position);
+      limit -= position;
+      position = 0;
+    }
+
+    int count = reader.read(buffer, limit, buffer.length - limit);
+    if (count < 0) {
+      eof = true;
+    } else {
+      limit += count;
+    }
+
+    return position < limit;
+  }
+}
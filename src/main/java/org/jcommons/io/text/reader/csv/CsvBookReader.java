@@ -1,23 +1,36 @@
 package org.jcommons.io.text.reader.csv;
 
 import java.io.File;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
 import java.util.*;
+import java.util.concurrent.*;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.filefilter.FileFilterUtils;
 import org.apache.commons.io.filefilter.IOFileFilter;
+import org.apache.commons.lang3.StringUtils;
 import org.jcommons.io.sheet.Book;
 import org.jcommons.io.sheet.Sheet;
 import org.jcommons.io.text.Grid;
 import org.jcommons.io.text.Table;
 import org.jcommons.io.text.factory.TableFactory;
+import org.jcommons.io.text.files.Files;
 import org.jcommons.io.text.reader.BookReader;
+import org.jcommons.io.text.reader.StringPool;
+import org.jcommons.io.text.snapshot.SheetCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Reads multiple CSV files into a single book.
+ *
+ * The files are read concurrently, each by its own reader, and the sheets are added to the book in the order of the
+ * files. Without an explicit executor, a virtual thread is used per file if the runtime supports them, otherwise a
+ * pool with a thread per processor. Compressed files are decompressed while they are read, every file within a zip
+ * archive becomes a sheet of its own and is read concurrently like any other file. With a cache, only the files that
+ * changed since they were cached are parsed, the sheets of all other files are taken from the cache.
  * 
  * @author Thorsten Goeckeler
  */
@@ -27,14 +40,19 @@ public class CsvBookReader
   private static final Logger LOG = LoggerFactory.getLogger(CsvBookReader.class);
 
   private final List<File> files;
-  private final File rootDirectory;
-  private final IOFileFilter filter;
+  private File rootDirectory;
+  private IOFileFilter filter;
+  private StringPool stringPool;
+  private Charset charset;
+  private ExecutorService executor;
+  private SheetCache cache;
 
   /** Sole constructor to create a reader. */
   public CsvBookReader() {
     files = new ArrayList<File>();
     rootDirectory = null;
     filter = null;
+    executor = null;
   }
 
   /**
@@ -55,7 +73,7 @@ public class CsvBookReader
    * @return this to allow chaining
    */
   public CsvBookReader addFiles(final Collection<File> files) {
-    files.addAll(files);
+    this.files.addAll(files);
     return this;
   }
 
@@ -67,36 +85,231 @@ public class CsvBookReader
    * @return this to allow chaining
    */
   public CsvBookReader setFilter(final File rootDirectory, final IOFileFilter filter) {
+    this.rootDirectory = rootDirectory;
+    this.filter = filter;
     return this;
   }
 
+  /**
+   * Define the executor that reads the files
+   *
+   * The executor is not shut down by this reader.
+   *
+   * @param executor the executor to use, <code>null</code> to use a new executor for every book
+   * @return this to allow chaining
+   */
+  public CsvBookReader setExecutor(final ExecutorService executor) {
+    this.executor = executor;
+    return this;
+  }
+
+  /** @return the executor that reads the files, null if a new executor is used for every book, the default */
+  public ExecutorService getExecutor() {
+    return executor;
+  }
+
+  /**
+   * Define a pool to share the instances of values repeated within and across the files of the book
+   *
+   * @param stringPool the pool to use, null to create a new string for every value
+   * @return this to allow chaining
+   */
+  public CsvBookReader setStringPool(final StringPool stringPool) {
+    this.stringPool = stringPool;
+    return this;
+  }
+
+  /** @return the pool that shares repeated values, null if every value is a new string, the default */
+  public StringPool getStringPool() {
+    return stringPool;
+  }
+
+  /**
+   * Define the encoding of all files of the book, a byte order mark overrides it
+   *
+   * @param charset the encoding, null for the default charset of the platform
+   * @return this to allow chaining
+   */
+  public CsvBookReader setCharset(final Charset charset) {
+    this.charset = charset;
+    return this;
+  }
+
+  /** @return the encoding of the files, null for the default charset of the platform, the default */
+  public Charset getCharset() {
+    return charset;
+  }
+
+  /**
+   * Define a cache that keeps the parsed sheets of the files, so that unchanged files are not parsed again
+   *
+   * Sheets taken from the cache are read-only, their columns cannot be renamed through <code>setColumn()</code>. Only
+   * sheets of files that have been parsed by this read are backed by a <code>Grid</code> that can be changed.
+   *
+   * @param cache the cache to use, null to parse every file on every read
+   * @return this to allow chaining
+   */
+  public CsvBookReader setCache(final SheetCache cache) {
+    this.cache = cache;
+    return this;
+  }
+
+  /** @return the cache that keeps the parsed sheets, null if every file is parsed on every read, the default */
+  public SheetCache getCache() {
+    return cache;
+  }
+
   /** {@inheritDoc} */
   @Override
   public Book read(final Map<String, String> arguments) {
     Book book = new Book();
 
+    List<File> sources = new ArrayList<File>(files);
     if (rootDirectory != null && filter != null) {
       // add all matching files
-      files.addAll(FileUtils.listFiles(rootDirectory, filter, FileFilterUtils.makeCVSAware(null)));
+      sources.addAll(FileUtils.listFiles(rootDirectory, filter, FileFilterUtils.makeCVSAware(null)));
     }
 
-    if (!files.isEmpty()) {
-      LOG.info("Loading book from " + files.size() + " files.");
+    if (!sources.isEmpty()) {
+      LOG.info("Loading book from " + sources.size() + " files.");
 
-      CsvGridReader reader = new CsvGridReader();
-      for (File file : files) {
-        Grid grid = reader.setFile(file).read();
-        Table table = TableFactory.create(grid, arguments);
-        Sheet sheet = new Sheet().setTable(table).setName(FilenameUtils.getBaseName(file.getName()));
-        book.add(sheet);
+      List<Callable<Sheet>> tasks = new ArrayList<Callable<Sheet>>(sources.size());
+      for (File file : sources) {
+        if (Files.isZip(file)) {
+          // every file within the archive is a sheet of its own
+          for (String entry : Files.listEntries(file)) {
+            tasks.add(createTask(file, entry, arguments));
+          }
+        } else {
+          tasks.add(createTask(file, null, arguments));
+        }
       }
 
+      ExecutorService service = executor == null ? createExecutor(tasks.size()) : executor;
+      try {
+        for (Future<Sheet> sheet : service.invokeAll(tasks)) {
+          book.add(sheet.get());
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        LOG.warn("Interrupted while loading book.");
+        return null;
+      } catch (ExecutionException ex) {
+        if (ex.getCause() instanceof RuntimeException) throw (RuntimeException) ex.getCause();
+        if (ex.getCause() instanceof Error) throw (Error) ex.getCause();
+        throw new IllegalStateException(ex.getCause());
+      } finally {
+        if (service != executor) service.shutdown();
+      }
+      if (cache != null) cache.save();
+
       LOG.info("Loaded book with " + book.getSheets().size() + " sheets.");
     }
 
     return book;
   }
 
+  /**
+   * Create a task that reads a single sheet of the book.
+   *
+   * @param file the file to read
+   * @param entry the file within the zip archive to read, null if the file is no archive
+   * @param arguments the arguments of the book, can be null
+   * @return the task
+   */
+  private Callable<Sheet> createTask(final File file, final String entry, final Map<String, String> arguments) {
+    return new Callable<Sheet>() {
+      @Override
+      public Sheet call() {
+        CsvGridReader reader = createReader(file, arguments).setEntry(entry);
+        String format = cache == null ? null : getFormat(reader);
+        if (cache != null) {
+          Sheet cached = cache.get(file, entry, format, arguments);
+          if (cached != null) return cached;
+        }
+
+        Grid grid = reader.read();
+        Table table = TableFactory.create(grid, arguments);
+        Sheet sheet = new Sheet().setTable(table).setName(getSheetName(entry == null ? file.getName() : entry));
+        if (cache != null) cache.put(file, entry, format, arguments, sheet);
+        return sheet;
+      }
+    };
+  }
+
+  /**
+   * Describe the settings of a reader that are not part of the arguments, a cached sheet read with other settings would
+   * have other values.
+   *
+   * @param reader the reader of a single file
+   * @return the format, the encoding and whether values are shared
+   */
+  private String getFormat(final CsvGridReader reader) {
+    return new StringBuilder("delimiter=").append(reader.getDelimiter()).append(", escape=").append(reader.getEscape())
+        .append(", trimming=").append(reader.isTrimming()).append(", emptyAsNull=").append(reader.isEmptyAsNull())
+        .append(", charset=").append(charset == null ? Charset.defaultCharset() : charset)
+        .append(", pool=").append(stringPool != null).toString();
+  }
+
+  /**
+   * @param name the name of a file, possibly with a path and compressed
+   * @return the name of the file without path and extensions
+   */
+  private static String getSheetName(final String name) {
+    String base = FilenameUtils.getBaseName(name);
+    return "gz".equalsIgnoreCase(FilenameUtils.getExtension(name)) ? FilenameUtils.getBaseName(base) : base;
+  }
+
+  /**
+   * Create a reader for a single file of the book.
+   *
+   * The argument "columns" selects the columns to read as comma separated list of names, which are looked up in the
+   * row after the number of rows given by the argument "header".
+   *
+   * @param file the file to read
+   * @param arguments the arguments of the book, can be null
+   * @return the reader
+   */
+  private CsvGridReader createReader(final File file, final Map<String, String> arguments) {
+    CsvGridReader reader = new CsvGridReader(file).setStringPool(stringPool).setCharset(charset);
+    if (arguments != null && StringUtils.isNotBlank(arguments.get("columns"))) {
+      reader.setColumns(StringUtils.stripAll(StringUtils.split(arguments.get("columns"), ',')));
+      if (arguments.containsKey("header")) reader.setHeaderRow(getHeaderRow(arguments.get("header")));
+    }
+    return reader;
+  }
+
+  /**
+   * @param header the value of the argument "header"
+   * @return the index of the row with the column names, the first row if the value is no number
+   */
+  private static int getHeaderRow(final String header) {
+    try {
+      return Integer.parseInt(StringUtils.trim(header));
+    } catch (NumberFormatException ex) {
+      if (LOG.isWarnEnabled()) {
+        LOG.warn(new StringBuilder("Ignoring argument \"header\" as \"").append(header).append("\" is no number.")
+            .toString());
+      }
+      return 0;
+    }
+  }
+
+  /**
+   * Create an executor that reads the given number of files at once.
+   *
+   * @param files the number of files to read
+   * @return an executor with virtual threads if the runtime supports them, otherwise a thread per processor
+   */
+  private static ExecutorService createExecutor(final int files) {
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) factory.invoke(null);
+    } catch (ReflectiveOperationException ex) {
+      return Executors.newFixedThreadPool(Math.max(1, Math.min(files, Runtime.getRuntime().availableProcessors())));
+    }
+  }
+
   /** {@inheritDoc} */
   @Override
   public Book read() {
@@ -1,15 +1,20 @@
 package org.jcommons.io.text.reader.csv;
 
 import java.io.*;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import org.apache.commons.io.input.BOMInputStream;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.text.StrMatcher;
-import org.apache.commons.lang3.text.StrTokenizer;
 import org.jcommons.io.text.Grid;
 import org.jcommons.io.text.files.Files;
 import org.jcommons.io.text.reader.GridReader;
+import org.jcommons.io.text.reader.RowFilter;
+import org.jcommons.io.text.reader.RowHandler;
+import org.jcommons.io.text.reader.RowIterator;
+import org.jcommons.io.text.reader.StringPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,9 +34,24 @@ public class CsvGridReader
 
   private String delimiter = DEFAULT_DELIMITER;
   private String escape = DEFAULT_ESCAPE;
+  private boolean trimming = true;
+  private boolean emptyAsNull = true;
+  private boolean quotedEmptyAsEmpty = false;
+  private Charset charset = Charset.defaultCharset();
+  private int bufferSize = CsvParser.BUFFER_SIZE;
+  private int parallelism = 1;
+  private boolean indexed = false;
+  private StringPool stringPool;
+  private int[] columnIndices;
+  private String[] columnNames;
+  private int headerRow = 0;
+  private RowFilter rowFilter;
+
+  /** the projection resolved for the current read, see <code>CsvParser.setProjection()</code> */
+  private int[] slots;
 
   private File file;
-  private StrTokenizer tokenizer;
+  private String entry;
 
   /** Create a reader, specify the file later. */
   public CsvGridReader() {
@@ -72,6 +92,25 @@ public class CsvGridReader
     return file;
   }
 
+  /**
+   * Specify which file of a zip archive to read from
+   *
+   * Files compressed with gzip and zip archives are decompressed while they are read, which is detected by the first
+   * bytes of the file. Compressed files are always read sequentially and cannot be mapped or indexed.
+   *
+   * @param entry the name of the file within the archive, <code>null</code> for the first file in the archive
+   * @return this to allow chaining
+   */
+  public CsvGridReader setEntry(final String entry) {
+    this.entry = entry;
+    return this;
+  }
+
+  /** @return the name of the file to read within a zip archive, null for the first file, the default */
+  public String getEntry() {
+    return entry;
+  }
+
   /**
    * Reads the given file, which is interpreted as a CSV file, and creates the table structure.
    *
@@ -79,17 +118,95 @@ public class CsvGridReader
    */
   @Override
   public Grid read() {
-    if (file == null) return null;
+    prepare();
+    if (isParallel()) return readParallel();
+
+    final Grid table = new Grid();
+    long rows = parse(new RowHandler() {
+      @Override
+      public boolean handle(final List<String> row, final long line) {
+        table.add(row);
+        return true;
+      }
+    }, 0, Long.MAX_VALUE);
+    return rows < 0 ? null : table;
+  }
+
+  /** @return true if the file is large enough and its format allows to read it in chunks */
+  private boolean isParallel() {
+    if (parallelism < 2 || file == null || !file.isFile() || !file.canRead()) return false;
+    if (file.length() < 2L * ParallelCsvReader.MIN_CHUNK_SIZE || Files.isCompressed(file)) return false;
+    return CsvScanner.isSupported(Files.getCharset(file, charset), getDelimiter(), getEscape());
+  }
+
+  /** @return the table structure read on multiple threads or null if the file cannot be read */
+  private Grid readParallel() {
+    LOG.info(new StringBuilder("Reading from text file \"").append(file.getAbsolutePath()).append("\" in parallel.")
+        .toString());
+    try {
+      Grid table = new ParallelCsvReader(this, Files.getCharset(file, charset), parallelism,
+          ParallelCsvReader.MIN_CHUNK_SIZE).read(file);
+      if (LOG.isInfoEnabled()) {
+        StringBuilder log = new StringBuilder("Completed reading from text file \"");
+        log.append(file.getAbsolutePath()).append("\".");
+        LOG.info(log.toString());
+      }
+      return table;
+    } catch (IOException ioex) {
+      StringBuilder log = new StringBuilder("Aborted reading from text file \"").append(file.getAbsolutePath());
+      log.append("\".");
+      LOG.warn(log.toString(), ioex);
+      return null;
+    }
+  }
+
+  /**
+   * Reads the given file row by row and passes every row to the handler without keeping it.
+   *
+   * Memory consumption does not depend on the size of the file, so this is the way to process files that do not fit
+   * into memory.
+   *
+   * @param handler the handler that processes the rows, never null
+   * @return the number of rows passed to the handler or -1 if the file cannot be read
+   */
+  public long read(final RowHandler handler) {
+    prepare();
+    return parse(handler, 0, Long.MAX_VALUE);
+  }
+
+  /**
+   * Reads a range of rows of the given file row by row with the projection prepared before.
+   *
+   * @param handler the handler that processes the rows, never null
+   * @param from the first row of the file to read
+   * @param to the row after the last row of the file to read
+   * @return the number of rows passed to the handler or -1 if the file cannot be read
+   */
+  private long parse(final RowHandler handler, final long from, final long to) {
+    if (file == null) return -1;
 
     LOG.info(new StringBuilder("Reading from text file \"").append(file.getAbsolutePath()).append("\".").toString());
-    LineNumberReader reader = Files.open(file);
-    if (reader == null) return null;
+    BOMInputStream input = Files.openStream(file, entry);
+    if (input == null) return -1;
 
-    Grid table = new Grid();
+    CsvParser parser = null;
+    long rows = 0;
     try {
-      String row = null;
-      while ((row = reader.readLine()) != null) {
-        table.add(toRow(row));
+      parser = createParser(input);
+      if (from > 0) {
+        // rows before the range are neither filtered nor returned
+        parser.setFilter(null, 0);
+        for (long skip = 0; skip < from && parser.next() != null; ++skip) {
+          // skip the row
+        }
+        parser.setFilter(rowFilter, headerRow + 1 - from);
+      }
+      parser.setLimit(to);
+
+      List<String> row = null;
+      while ((row = parser.next()) != null) {
+        ++rows;
+        if (!handler.handle(row, parser.getLineNumber())) break;
       }
       if (LOG.isInfoEnabled()) {
         StringBuilder log = new StringBuilder("Completed reading from text file \"");
@@ -98,15 +215,177 @@ public class CsvGridReader
       }
     } catch (IOException ioex) {
       StringBuilder log = new StringBuilder("Aborted reading from text file \"").append(file.getAbsolutePath());
-      log.append(":").append(reader.getLineNumber()).append("\".");
+      if (parser != null) log.append(":").append(parser.getLineNumber());
+      LOG.warn(log.append("\".").toString(), ioex);
+      rows = -1;
+    } finally {
+      Files.close(input, file);
+      input = null;
+    }
+
+    return rows;
+  }
+
+  /**
+   * Iterate over the rows of the given file, reading one row at a time.
+   *
+   * The iterator closes the file once the last row has been read, close it yourself if you stop early. An error while
+   * reading is logged and reported as <code>IllegalStateException</code>.
+   *
+   * @return the iterator over all rows or null if the file cannot be opened
+   */
+  public RowIterator iterator() {
+    if (file == null) return null;
+    prepare();
+
+    LOG.info(new StringBuilder("Iterating over text file \"").append(file.getAbsolutePath()).append("\".").toString());
+    BOMInputStream input = Files.openStream(file, entry);
+    if (input == null) return null;
+
+    try {
+      return new CsvRowIterator(file, input, createParser(input));
+    } catch (IOException ioex) {
+      LOG.warn(new StringBuilder("Cannot read text file \"").append(file.getAbsolutePath()).append("\".").toString(),
+          ioex);
+      Files.close(input, file);
+      return null;
+    }
+  }
+
+  /**
+   * Reads a range of rows of the given file.
+   *
+   * If the reader is indexed, the sidecar index is used to seek to the first row directly, so only the requested rows
+   * are read. Otherwise the file is parsed from its start and the rows before the range are skipped.
+   *
+   * @param from the first row to read, the first row of the file is 0
+   * @param to the row after the last row to read, rows beyond the end of the file are ignored
+   * @return the rows of the range, or null if the file cannot be read
+   */
+  public Grid read(final int from, final int to) {
+    if (file == null) return null;
+    prepare();
+    final int first = Math.max(0, from);
+    final Grid table = new Grid(Math.max(0, Math.min(to - first, 1024)));
+    if (to <= first) return table;
+
+    if (indexed && file.isFile() && !Files.isCompressed(file)
+        && CsvScanner.isSupported(Files.getCharset(file, charset), getDelimiter(), getEscape())) {
+      return readIndexed(first, to);
+    }
+
+    long rows = parse(new RowHandler() {
+      @Override
+      public boolean handle(final List<String> data, final long line) {
+        table.add(data);
+        return true;
+      }
+    }, first, to);
+    return rows < 0 ? null : table;
+  }
+
+  /**
+   * Read a range of rows using the sidecar index.
+   *
+   * @param from the first row to read
+   * @param to the row after the last row to read, greater than from
+   * @return the rows of the range, or null if the file cannot be read
+   */
+  private Grid readIndexed(final int from, final int to) {
+    LOG.info(new StringBuilder("Reading rows ").append(from).append(" to ").append(to).append(" from text file \"")
+        .append(file.getAbsolutePath()).append("\".").toString());
+
+    CsvIndex index = null;
+    FileInputStream input = null;
+    try {
+      index = createIndex();
+      Grid table = new Grid(Math.max(0, Math.min(to, index.size()) - from));
+      if (from >= index.size()) return table;
+
+      input = new FileInputStream(file);
+      long end = index.getEnd(Math.min(to, index.size()) - 1);
+      CsvParser parser = createParser(new ChannelInputStream(input.getChannel(), index.getStart(from), end),
+          Files.getCharset(file, charset));
+      parser.setFilter(rowFilter, headerRow + 1L - from);
+      List<String> row = null;
+      while ((row = parser.next()) != null) {
+        table.add(row);
+      }
+      return table;
+    } catch (IOException ioex) {
+      StringBuilder log = new StringBuilder("Aborted reading from text file \"").append(file.getAbsolutePath());
+      log.append("\".");
       LOG.warn(log.toString(), ioex);
-      table = null;
+      return null;
     } finally {
-      Files.close(reader, file);
-      reader = null;
+      Files.close(input, file);
+      if (index != null) index.close();
+    }
+  }
+
+  /**
+   * Index the rows of the file with the current settings.
+   *
+   * @return the sidecar index if the reader is indexed, otherwise an index in memory
+   * @throws IOException if the file cannot be read
+   */
+  CsvIndex createIndex()
+    throws IOException
+  {
+    return indexed ? CsvIndex.open(this, file) : CsvIndex.scan(this, file);
+  }
+
+  /**
+   * Map the given file into memory and index its rows, the rows are parsed only when they are accessed.
+   *
+   * Use this for lookups of a few rows in files too large to be read completely. If the reader is indexed, the offsets
+   * of the rows are taken from the sidecar index instead of scanning the file. The current settings apply to the
+   * mapped file, changing them later has no effect on it. Compressed files, multi-character delimiters and encodings
+   * that do not allow to find line breaks on the raw bytes are not supported.
+   *
+   * @return the lazily parsed table, close it to release the mapping, or null if the file cannot be mapped
+   */
+  public MappedCsvGrid map() {
+    if (file == null) return null;
+    prepare();
+    Charset encoding = Files.getCharset(file, charset);
+    if (Files.isCompressed(file) || !CsvScanner.isSupported(encoding, getDelimiter(), getEscape())) {
+      LOG.warn(new StringBuilder("Cannot map text file \"").append(file.getAbsolutePath())
+          .append("\" as its format is not supported.").toString());
+      return null;
     }
 
-    return table;
+    LOG.info(new StringBuilder("Mapping text file \"").append(file.getAbsolutePath()).append("\".").toString());
+    try {
+      CsvGridReader settings = copy();
+      return new MappedCsvGrid(settings, encoding, file, MappedCsvGrid.SEGMENT_SIZE, settings.createIndex());
+    } catch (IOException ioex) {
+      LOG.warn(new StringBuilder("Cannot map text file \"").append(file.getAbsolutePath()).append("\".").toString(),
+          ioex);
+      return null;
+    }
+  }
+
+  /** @return a reader for the same file with the same settings */
+  CsvGridReader copy() {
+    CsvGridReader copy = new CsvGridReader(file);
+    copy.entry = entry;
+    copy.delimiter = delimiter;
+    copy.escape = escape;
+    copy.trimming = trimming;
+    copy.emptyAsNull = emptyAsNull;
+    copy.quotedEmptyAsEmpty = quotedEmptyAsEmpty;
+    copy.charset = charset;
+    copy.bufferSize = bufferSize;
+    copy.parallelism = parallelism;
+    copy.indexed = indexed;
+    copy.stringPool = stringPool;
+    copy.columnIndices = columnIndices;
+    copy.columnNames = columnNames;
+    copy.headerRow = headerRow;
+    copy.slots = slots;
+    copy.rowFilter = rowFilter;
+    return copy;
   }
 
   /**
@@ -116,16 +395,184 @@ public class CsvGridReader
    * @return the separated strings
    */
   List<String> toRow(final String data) {
-    List<String> row = new ArrayList<String>();
-    if (StringUtils.isBlank(data)) return row;
-
-    // if you simply use data.split() you cannot use escape characters
-    // however it is very kind of Apache to have a solution for that
-    getTokenizer().reset(data);
-    while (getTokenizer().hasNext()) {
-      row.add(getTokenizer().nextToken());
+    if (StringUtils.isBlank(data)) return new ArrayList<String>();
+
+    try {
+      List<String> row = createParser(new StringReader(data), data.length()).next();
+      return row == null ? new ArrayList<String>() : row;
+    } catch (IOException ioex) {
+      // cannot happen for strings
+      throw new IllegalStateException(ioex);
+    }
+  }
+
+  /**
+   * Create a parser for a file opened with the current settings, a byte order mark overrides the charset.
+   *
+   * @param input the opened file
+   * @return the matching parser
+   * @throws IOException if the byte order mark cannot be read
+   */
+  private CsvParser createParser(final BOMInputStream input)
+    throws IOException
+  {
+    String bom = input.getBOMCharsetName();
+    return createParser(input, bom == null ? charset : Charset.forName(bom));
+  }
+
+  /**
+   * Create a parser for the given input with the current settings.
+   *
+   * Encodings that allow to find the line breaks on the raw bytes are parsed without decoding the input, only the
+   * values returned are decoded. All other encodings are decoded completely.
+   *
+   * @param input the input to parse, without a byte order mark
+   * @param encoding the encoding of the input
+   * @return the matching parser
+   */
+  CsvParser createParser(final InputStream input, final Charset encoding) {
+    return createParser(input, encoding, bufferSize);
+  }
+
+  /**
+   * Create a parser for the given input with the current settings.
+   *
+   * @param input the input to parse, without a byte order mark
+   * @param encoding the encoding of the input
+   * @param size the number of bytes to read at once
+   * @return the matching parser
+   */
+  CsvParser createParser(final InputStream input, final Charset encoding, final int size) {
+    if (!CsvScanner.isSupported(encoding, getDelimiter(), getEscape())) {
+      return configure(new CharCsvParser(new InputStreamReader(input, encoding), getDelimiter(), getEscape(),
+          isTrimming(), isEmptyAsNull(), size));
+    }
+    return configure(new ByteCsvParser(input, encoding, getDelimiter(), getEscape(), isTrimming(), isEmptyAsNull(),
+        size));
+  }
+
+  /**
+   * Create a parser for the given characters with the current settings.
+   *
+   * @param reader the input to parse
+   * @return the matching parser
+   */
+  CsvParser createParser(final Reader reader) {
+    return createParser(reader, bufferSize);
+  }
+
+  /**
+   * Create a parser for the given characters with the current settings.
+   *
+   * @param reader the input to parse
+   * @param size the number of characters to read at once
+   * @return the matching parser
+   */
+  CsvParser createParser(final Reader reader, final int size) {
+    return configure(new CharCsvParser(reader, getDelimiter(), getEscape(), isTrimming(), isEmptyAsNull(), size));
+  }
+
+  /**
+   * Apply the current settings to a parser.
+   *
+   * @param parser the new parser
+   * @return the parser
+   */
+  private CsvParser configure(final CsvParser parser) {
+    parser.setStringPool(stringPool);
+    parser.setQuotedEmptyAsEmpty(quotedEmptyAsEmpty);
+    parser.setProjection(slots);
+    parser.setFilter(rowFilter, headerRow + 1L);
+    return parser;
+  }
+
+  /** resolve the selected columns for the next read, names are looked up in the header row of the file */
+  private void prepare() {
+    slots = null;
+    if (columnIndices != null) {
+      slots = toSlots(columnIndices);
+    } else if (columnNames != null) {
+      slots = toSlots(resolve(columnNames));
+    }
+  }
+
+  /**
+   * Find the indices of the given columns in the header row.
+   *
+   * @param names the names of the columns, not case-sensitive
+   * @return the indices of the columns found
+   */
+  private int[] resolve(final String[] names) {
+    List<String> header = readHeader();
+    int[] columns = new int[names.length];
+    int count = 0;
+    for (String name : names) {
+      int column = -1;
+      for (int index = 0; index < header.size() && column < 0; ++index) {
+        if (name != null && name.equalsIgnoreCase(header.get(index))) column = index;
+      }
+      if (column < 0) {
+        if (LOG.isWarnEnabled()) {
+          LOG.warn(new StringBuilder("Column \"").append(name).append("\" not found in text file \"")
+              .append(file.getAbsolutePath()).append("\".").toString());
+        }
+      } else {
+        columns[count++] = column;
+      }
     }
-    return row;
+    return Arrays.copyOf(columns, count);
+  }
+
+  /** @return the cells of the header row or an empty row if there is none */
+  private List<String> readHeader() {
+    List<String> row = null;
+    BOMInputStream input = file == null ? null : Files.openStream(file, entry);
+    if (input == null) return new ArrayList<String>();
+
+    try {
+      CsvParser parser = createParser(input);
+      for (int index = 0; index <= headerRow; ++index) {
+        row = parser.next();
+        if (row == null) break;
+      }
+    } catch (IOException ioex) {
+      LOG.warn(new StringBuilder("Cannot read header of text file \"").append(file.getAbsolutePath()).append("\".")
+          .toString(), ioex);
+      row = null;
+    } finally {
+      Files.close(input, file);
+    }
+    return row == null ? new ArrayList<String>() : row;
+  }
+
+  /**
+   * Map columns of the file to their position in the projected row.
+   *
+   * @param columns the selected columns in the order they are returned
+   * @return the position of every column of the file in the projected row, -1 if the column is skipped
+   */
+  private static int[] toSlots(final int[] columns) {
+    int width = 0;
+    for (int column : columns) {
+      width = Math.max(width, column + 1);
+    }
+
+    int[] result = new int[width];
+    Arrays.fill(result, -1);
+    int position = 0;
+    for (int column : columns) {
+      if (column >= 0 && result[column] < 0) result[column] = position++;
+    }
+    return result;
+  }
+
+  /**
+   * Create a scanner that finds records in the encoded file with the current settings.
+   *
+   * @return the matching scanner, only valid if the settings are supported by the scanner
+   */
+  CsvScanner createScanner() {
+    return new CsvScanner(getDelimiter(), getEscape(), isTrimming());
   }
 
   /** @return the current delimiter that determines how to separate fields from each other */
@@ -141,7 +588,6 @@ public class CsvGridReader
    */
   public CsvGridReader setDelimiter(final String delimiter) {
     this.delimiter = StringUtils.defaultIfEmpty(delimiter, DEFAULT_DELIMITER);
-    this.tokenizer = null;
     return this;
   }
 
@@ -161,24 +607,247 @@ public class CsvGridReader
    */
   public CsvGridReader setEscape(final String escape) {
     this.escape = StringUtils.defaultIfEmpty(escape, DEFAULT_ESCAPE);
-    this.tokenizer = null;
-    return this;
-  }
-
-  /** @return the row tokenizer to convert a line into columns */
-  private StrTokenizer getTokenizer() {
-    if (tokenizer == null) {
-      // separate using the given delimiter
-      tokenizer = new StrTokenizer("", getDelimiter());
-      // allow quoting (escaping the delimiter) - the quote is escaped by double quoting
-      tokenizer.setQuoteMatcher(StrMatcher.charSetMatcher(getEscape()));
-      // removed leading and trailing spaces
-      tokenizer.setTrimmerMatcher(StrMatcher.trimMatcher());
-      // automatically ignore empty columns at the end, we don't want that!
-      tokenizer.setIgnoreEmptyTokens(false);
-      tokenizer.setEmptyTokenAsNull(true);
-    }
+    return this;
+  }
+
+  /** @return true if white space around unquoted values is removed, the default */
+  public boolean isTrimming() {
+    return trimming;
+  }
+
+  /**
+   * Define if leading and trailing white space outside of quotes is removed from the values
+   *
+   * @param trimming true to remove white space, false to keep the values as they are
+   * @return this to allow chaining
+   */
+  public CsvGridReader setTrimming(final boolean trimming) {
+    this.trimming = trimming;
+    return this;
+  }
+
+  /** @return true if empty values are returned as <code>null</code>, the default */
+  public boolean isEmptyAsNull() {
+    return emptyAsNull;
+  }
+
+  /**
+   * Define if empty values are returned as <code>null</code> or as empty strings
+   *
+   * @param emptyAsNull true to return <code>null</code> for empty values, false to return empty strings
+   * @return this to allow chaining
+   */
+  public CsvGridReader setEmptyAsNull(final boolean emptyAsNull) {
+    this.emptyAsNull = emptyAsNull;
+    return this;
+  }
+
+  /** @return true if quoted empty values are returned as empty strings even if empty values are null, not by default */
+  public boolean isQuotedEmptyAsEmpty() {
+    return quotedEmptyAsEmpty;
+  }
+
+  /**
+   * Define if a quoted empty value like <code>""</code> is returned as an empty string even if empty values are
+   * returned as <code>null</code>, so that empty values can be told apart from missing ones.
+   *
+   * A <code>CsvGridWriter</code> formatted by this reader writes empty strings as a pair of quotes if this is enabled.
+   *
+   * @param quotedEmptyAsEmpty true to return an empty string for <code>""</code>, false to treat it as any empty value
+   * @return this to allow chaining
+   */
+  public CsvGridReader setQuotedEmptyAsEmpty(final boolean quotedEmptyAsEmpty) {
+    this.quotedEmptyAsEmpty = quotedEmptyAsEmpty;
+    return this;
+  }
+
+  /** @return the encoding of files without a byte order mark, the default charset of the platform by default */
+  public Charset getCharset() {
+    return charset;
+  }
+
+  /**
+   * Define the encoding of the file
+   *
+   * A byte order mark for UTF-8 or UTF-16 at the start of the file is skipped and overrides the encoding. Files in
+   * UTF-8, ASCII and single-byte encodings are parsed on the raw bytes and only the values returned are decoded.
+   *
+   * @param charset the encoding, <code>null</code> to reset to the default charset of the platform
+   * @return this to allow chaining
+   */
+  public CsvGridReader setCharset(final Charset charset) {
+    this.charset = charset == null ? Charset.defaultCharset() : charset;
+    return this;
+  }
+
+  /** @return the number of bytes or characters read from the file at once */
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * Define how much of the file is read at once
+   *
+   * @param bufferSize the number of bytes or characters, at least 1 kB are used
+   * @return this to allow chaining
+   */
+  public CsvGridReader setBufferSize(final int bufferSize) {
+    this.bufferSize = Math.max(1024, bufferSize);
+    return this;
+  }
+
+  /** @return the number of threads used to read a file, 1 by default */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Define how many threads may be used to read a single file
+   *
+   * Large files are split into chunks that are parsed at the same time and joined in their original order. Small files,
+   * multi-character delimiters and encodings that do not allow to find line breaks on the raw bytes are always read
+   * sequentially. The row handler and the iterator always read sequentially.
+   *
+   * @param parallelism the number of threads, values below 2 read sequentially
+   * @return this to allow chaining
+   */
+  public CsvGridReader setParallelism(final int parallelism) {
+    this.parallelism = Math.max(1, parallelism);
+    return this;
+  }
+
+  /** @return true if a sidecar index of the row offsets is used, false by default */
+  public boolean isIndexed() {
+    return indexed;
+  }
+
+  /**
+   * Define if a sidecar index of the row offsets is written and reused
+   *
+   * The index is stored next to the file with <code>.idx</code> appended to its name. It is created on first use and
+   * replaced when the size, the modification time or the first and last bytes of the file change. An index allows
+   * <code>map()</code> and <code>read(from, to)</code> to skip scanning the file.
+   *
+   * @param indexed true to use a sidecar index
+   * @return this to allow chaining
+   */
+  public CsvGridReader setIndexed(final boolean indexed) {
+    this.indexed = indexed;
+    return this;
+  }
+
+  /** @return the pool that shares repeated values, null if every value is a new string, the default */
+  public StringPool getStringPool() {
+    return stringPool;
+  }
+
+  /**
+   * Define a pool to share the instances of repeated values
+   *
+   * Files with many repeated values like codes or currencies take much less memory once read if the values are shared.
+   * The same pool can be used for several files and by several threads.
+   *
+   * @param stringPool the pool to use, null to create a new string for every value
+   * @return this to allow chaining
+   */
+  public CsvGridReader setStringPool(final StringPool stringPool) {
+    this.stringPool = stringPool;
+    return this;
+  }
+
+  /** @return the indices of the selected columns, null if all columns or columns by name are selected */
+  public int[] getColumnIndices() {
+    return columnIndices == null ? null : columnIndices.clone();
+  }
+
+  /** @return the names of the selected columns, null if all columns or columns by index are selected */
+  public String[] getColumnNames() {
+    return columnNames == null ? null : columnNames.clone();
+  }
+
+  /**
+   * Select the columns to read by their index
+   *
+   * Only the selected cells are returned in the given order, all others are skipped without creating values for them,
+   * which saves time and memory for files with many columns. Duplicates and negative indices are ignored.
+   *
+   * @param columns the indices of the columns, the first column is 0, <code>null</code> to read all columns, see
+   *          <code>clearColumns()</code>
+   * @return this to allow chaining
+   */
+  public CsvGridReader setColumns(final int... columns) {
+    this.columnIndices = columns == null ? null : columns.clone();
+    this.columnNames = null;
+    return this;
+  }
+
+  /**
+   * Select the columns to read by their name in the header row
+   *
+   * The names are looked up in the header row ignoring case whenever the file is read. Only the selected cells are
+   * returned in the given order, the header row included, names that cannot be found are ignored.
+   *
+   * @param columns the names of the columns, <code>null</code> to read all columns, see <code>clearColumns()</code>
+   * @return this to allow chaining
+   */
+  public CsvGridReader setColumns(final String... columns) {
+    this.columnNames = columns == null ? null : columns.clone();
+    this.columnIndices = null;
+    return this;
+  }
+
+  /**
+   * Read all columns again after columns have been selected, same as passing a typed <code>null</code> to
+   * <code>setColumns()</code>, which is ambiguous otherwise
+   *
+   * @return this to allow chaining
+   */
+  public CsvGridReader clearColumns() {
+    this.columnIndices = null;
+    this.columnNames = null;
+    return this;
+  }
+
+  /** @return the filter that decides which rows are read, null if all rows are read, the default */
+  public RowFilter getRowFilter() {
+    return rowFilter;
+  }
+
+  /**
+   * Define which rows are read
+   *
+   * Rows rejected by the filter are dropped while parsing and never reach the grid, the row handler or the iterator, so
+   * memory scales with the rows kept. A <code>ColumnFilter</code> is checked as soon as its cell has been read, the
+   * other cells of rejected rows are not created at all. The rows up to the header row are always kept, ranges refer to
+   * the rows of the file before filtering. Mapped files are not filtered.
+   *
+   * If columns are selected, a <code>ColumnFilter</code> still refers to the column of the file, even if that column is
+   * not selected. Any other filter receives the projected row, which holds the selected columns only, in the order of
+   * the selection.
+   *
+   * @param rowFilter the filter, <code>null</code> to read all rows
+   * @return this to allow chaining
+   */
+  public CsvGridReader setRowFilter(final RowFilter rowFilter) {
+    this.rowFilter = rowFilter;
+    return this;
+  }
+
+  /** @return the index of the row that contains the column names, 0 by default */
+  public int getHeaderRow() {
+    return headerRow;
+  }
 
-    return tokenizer;
+  /**
+   * Define which row contains the names of the columns, which is needed to select columns by name
+   *
+   * The rows up to the header row are never filtered.
+   *
+   * @param headerRow the index of the row, the first row is 0
+   * @return this to allow chaining
+   */
+  public CsvGridReader setHeaderRow(final int headerRow) {
+    this.headerRow = Math.max(0, headerRow);
+    return this;
   }
 }
@@ -0,0 +1,384 @@
+package org.jcommons.io.text.reader.csv;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.ByteOrderMark;
+import org.jcommons.io.text.files.Files;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The positions where the records of a CSV file start, either held in memory or stored in a sidecar file.
+ *
+ * A sidecar file is named like the CSV file with <code>.idx</code> appended. It starts with a header that identifies
+ * the CSV file by its size, its modification time and a checksum of its first and last bytes, followed by the format
+ * settings that determine the records and the number of records. The offsets follow as fixed-width numbers, so the
+ * sidecar is memory mapped and the start of any record is found without reading the others. A sidecar that does not
+ * match the CSV file any more is replaced by a new one.
+ */
+final class CsvIndex
+  implements Closeable
+{
+  private static final Logger LOG = LoggerFactory.getLogger(CsvIndex.class);
+
+  /** the suffix of sidecar files */
+  static final String SUFFIX = ".idx";
+
+  private static final int MAGIC = 0x43535649;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 48;
+  private static final int ROWS_POSITION = 40;
+
+  private static final int BLOCK_SIZE = 64 * 1024;
+  private static final int CHECKSUM_SIZE = 64 * 1024;
+  private static final int INDEX_SIZE = 1024;
+
+  /** mapped regions are limited to 2 GB */
+  private static final int SEGMENT_SHIFT = 27;
+  private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+  private final long length;
+  private final int rows;
+  private long[] offsets;
+  private LongBuffer[] segments;
+
+  /**
+   * Create an index held in memory.
+   *
+   * @param length the size of the indexed file
+   * @param offsets the positions of the records
+   * @param rows the number of records
+   */
+  private CsvIndex(final long length, final long[] offsets, final int rows) {
+    this.length = length;
+    this.offsets = offsets;
+    this.rows = rows;
+  }
+
+  /**
+   * Create an index backed by a mapped sidecar file.
+   *
+   * @param length the size of the indexed file
+   * @param segments the mapped positions of the records
+   * @param rows the number of records
+   */
+  private CsvIndex(final long length, final LongBuffer[] segments, final int rows) {
+    this.length = length;
+    this.segments = segments;
+    this.rows = rows;
+  }
+
+  /**
+   * Index a file in memory.
+   *
+   * @param settings the reader that defines the format of the file
+   * @param file the CSV file
+   * @return the index
+   * @throws IOException if the file cannot be read
+   */
+  static CsvIndex scan(final CsvGridReader settings, final File file)
+    throws IOException
+  {
+    final long[][] offsets = { new long[INDEX_SIZE] };
+    final int[] rows = { 0 };
+    long length = scan(settings, file, new Collector() {
+      @Override
+      public void record(final long offset) {
+        if (rows[0] == offsets[0].length) offsets[0] = Arrays.copyOf(offsets[0], offsets[0].length << 1);
+        offsets[0][rows[0]++] = offset;
+      }
+    });
+    return new CsvIndex(length, Arrays.copyOf(offsets[0], rows[0]), rows[0]);
+  }
+
+  /**
+   * Open the sidecar index of a file, the sidecar is created or replaced if it does not match the file.
+   *
+   * If the sidecar cannot be written, the file is indexed in memory.
+   *
+   * @param settings the reader that defines the format of the file
+   * @param file the CSV file
+   * @return the index
+   * @throws IOException if the file cannot be read
+   */
+  static CsvIndex open(final CsvGridReader settings, final File file)
+    throws IOException
+  {
+    File sidecar = getSidecar(file);
+    CsvIndex index = load(settings, file, sidecar);
+    if (index != null) return index;
+
+    try {
+      create(settings, file, sidecar);
+    } catch (IOException ioex) {
+      LOG.warn(new StringBuilder("Cannot write index \"").append(sidecar.getAbsolutePath()).append("\".").toString(),
+          ioex);
+      return scan(settings, file);
+    }
+
+    index = load(settings, file, sidecar);
+    return index == null ? scan(settings, file) : index;
+  }
+
+  /**
+   * @param file the CSV file
+   * @return the sidecar file that stores the index of the file
+   */
+  static File getSidecar(final File file) {
+    return new File(file.getPath() + SUFFIX);
+  }
+
+  /** @return the number of records */
+  int size() {
+    return rows;
+  }
+
+  /**
+   * @param row the record number, must be valid
+   * @return the position of the first byte of the record
+   */
+  long getStart(final int row) {
+    if (offsets != null) return offsets[row];
+    return segments[row >>> SEGMENT_SHIFT].get(row & SEGMENT_MASK);
+  }
+
+  /**
+   * @param row the record number, must be valid
+   * @return the position after the last byte of the record including its line break
+   */
+  long getEnd(final int row) {
+    return row + 1 < rows ? getStart(row + 1) : length;
+  }
+
+  /** Release the offsets. */
+  @Override
+  public void close() {
+    offsets = null;
+    segments = null;
+  }
+
+  /**
+   * Map the sidecar if it matches the file.
+   *
+   * @param settings the reader that defines the format of the file
+   * @param file the CSV file
+   * @param sidecar the sidecar file
+   * @return the index or null if there is no matching sidecar
+   * @throws IOException if the file cannot be read
+   */
+  private static CsvIndex load(final CsvGridReader settings, final File file, final File sidecar)
+    throws IOException
+  {
+    if (!sidecar.isFile() || sidecar.length() < HEADER_SIZE) return null;
+
+    ByteBuffer expected = header(settings, file, -1);
+    FileInputStream input = new FileInputStream(sidecar);
+    try {
+      FileChannel channel = input.getChannel();
+      ByteBuffer actual = ByteBuffer.allocate(HEADER_SIZE);
+      while (actual.hasRemaining() && channel.read(actual) >= 0) {
+        // read the complete header
+      }
+      actual.flip();
+
+      long rows = actual.getLong(ROWS_POSITION);
+      actual.putLong(ROWS_POSITION, -1);
+      if (!actual.equals(expected) || rows < 0 || rows > Integer.MAX_VALUE) return null;
+      if (channel.size() != HEADER_SIZE + rows * 8) return null;
+
+      LongBuffer[] segments = new LongBuffer[(int) ((rows + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+      for (int segment = 0; segment < segments.length; ++segment) {
+        long first = (long) segment << SEGMENT_SHIFT;
+        long count = Math.min(1L << SEGMENT_SHIFT, rows - first);
+        segments[segment] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * 8, count * 8)
+            .asLongBuffer();
+      }
+      return new CsvIndex(file.length(), segments, (int) rows);
+    } finally {
+      input.close();
+    }
+  }
+
+  /**
+   * Index a file into its sidecar, the offsets are written while scanning and never held in memory.
+   *
+   * @param settings the reader that defines the format of the file
+   * @param file the CSV file
+   * @param sidecar the sidecar file
+   * @throws IOException if the file cannot be read or the sidecar cannot be written
+   */
+  private static void create(final CsvGridReader settings, final File file, final File sidecar)
+    throws IOException
+  {
+    if (LOG.isInfoEnabled()) {
+      LOG.info(new StringBuilder("Writing index \"").append(sidecar.getAbsolutePath()).append("\".").toString());
+    }
+
+    File temporary = new File(sidecar.getPath() + ".tmp");
+    final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)));
+    final long[] rows = { 0 };
+    try {
+      output.write(header(settings, file, -1).array());
+      scan(settings, file, new Collector() {
+        @Override
+        public void record(final long offset)
+          throws IOException
+        {
+          output.writeLong(offset);
+          ++rows[0];
+        }
+      });
+    } finally {
+      output.close();
+    }
+
+    RandomAccessFile patch = new RandomAccessFile(temporary, "rw");
+    try {
+      patch.seek(ROWS_POSITION);
+      patch.writeLong(rows[0]);
+    } finally {
+      patch.close();
+    }
+
+    if (sidecar.exists() && !sidecar.delete() || !temporary.renameTo(sidecar)) {
+      temporary.delete();
+      throw new IOException("Cannot replace \"" + sidecar.getAbsolutePath() + "\".");
+    }
+  }
+
+  /**
+   * Create the header that identifies the file and the format.
+   *
+   * @param settings the reader that defines the format of the file
+   * @param file the CSV file
+   * @param rows the number of records
+   * @return the header ready to be read
+   * @throws IOException if the file cannot be read
+   */
+  private static ByteBuffer header(final CsvGridReader settings, final File file, final long rows)
+    throws IOException
+  {
+    CRC32 format = new CRC32();
+    format.update((settings.getDelimiter() + '\u0000' + settings.getEscape() + '\u0000' + settings.isTrimming())
+        .getBytes("UTF-8"));
+
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putInt(MAGIC).putInt(VERSION);
+    header.putLong(file.length()).putLong(file.lastModified()).putLong(checksum(file)).putLong(format.getValue());
+    header.putLong(rows);
+    header.flip();
+    return header;
+  }
+
+  /**
+   * Compute a checksum over the first and the last bytes of a file, which detects most changes without reading it all.
+   *
+   * @param file the CSV file
+   * @return the checksum
+   * @throws IOException if the file cannot be read
+   */
+  private static long checksum(final File file)
+    throws IOException
+  {
+    CRC32 checksum = new CRC32();
+    FileInputStream input = new FileInputStream(file);
+    try {
+      FileChannel channel = input.getChannel();
+      long size = channel.size();
+      update(checksum, channel, 0, Math.min(CHECKSUM_SIZE, size));
+      if (size > CHECKSUM_SIZE) {
+        long tail = Math.max(CHECKSUM_SIZE, size - CHECKSUM_SIZE);
+        update(checksum, channel, tail, size - tail);
+      }
+    } finally {
+      input.close();
+    }
+    return checksum.getValue();
+  }
+
+  /**
+   * Add a range of a file to a checksum.
+   *
+   * @param checksum the checksum to update
+   * @param channel the file
+   * @param position the first byte
+   * @param count the number of bytes
+   * @throws IOException if the file cannot be read
+   */
+  private static void update(final CRC32 checksum, final FileChannel channel, final long position, final long count)
+    throws IOException
+  {
+    ByteBuffer buffer = ByteBuffer.allocate((int) count);
+    while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+      // read the complete range
+    }
+    checksum.update(buffer.array(), 0, buffer.position());
+  }
+
+  /**
+   * Find the start of every record in one pass over the file.
+   *
+   * @param settings the reader that defines the format of the file
+   * @param file the CSV file
+   * @param collector receives the start of every record in order
+   * @return the size of the file
+   * @throws IOException if the file cannot be read or the collector fails
+   */
+  private static long scan(final CsvGridReader settings, final File file, final Collector collector)
+    throws IOException
+  {
+    FileInputStream input = new FileInputStream(file);
+    try {
+      FileChannel channel = input.getChannel();
+      long length = channel.size();
+      CsvScanner scanner = settings.createScanner();
+      final ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+      final long[] base = { 0 };
+      final IOException[] failure = { null };
+      CsvScanner.RecordCollector records = new CsvScanner.RecordCollector() {
+        @Override
+        public void record(final int position) {
+          if (failure[0] != null) return;
+          try {
+            collector.record(base[0] + position);
+          } catch (IOException ioex) {
+            failure[0] = ioex;
+          }
+        }
+      };
+
+      // the first record starts after the byte order mark
+      ByteOrderMark bom = Files.getByteOrderMark(file);
+      int state = CsvScanner.RECORD;
+      for (long position = bom == null ? 0 : bom.length(); position < length; position += BLOCK_SIZE) {
+        buffer.clear();
+        buffer.limit((int) Math.min(BLOCK_SIZE, length - position));
+        while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {
+          // read the complete block
+        }
+        base[0] = position;
+        state = scanner.scan(state, buffer.array(), 0, buffer.position(), records);
+        if (failure[0] != null) throw failure[0];
+      }
+      return length;
+    } finally {
+      input.close();
+    }
+  }
+
+  /** Receives the start of every record within a file. */
+  private interface Collector
+  {
+    /**
+     * @param offset the position of the first byte of a record
+     * @throws IOException if the position cannot be stored
+     */
+    void record(long offset)
+      throws IOException;
+  }
+}
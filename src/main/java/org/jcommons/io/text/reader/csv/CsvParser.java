@@ -0,0 +1,314 @@
+package org.jcommons.io.text.reader.csv;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jcommons.io.text.reader.ColumnFilter;
+import org.jcommons.io.text.reader.RowFilter;
+import org.jcommons.io.text.reader.StringPool;
+
+/**
+ * Splits input into records and cells following RFC 4180.
+ *
+ * The parser reads straight from its own buffer and collects a cell in a reusable work area, so the only objects
+ * created per record are the row and its cell strings. It handles quoted cells with doubled quotes as escapes, line
+ * breaks within quoted cells, and all three kinds of line endings. Subclasses read either characters or the raw bytes
+ * of encodings that allow to find the line breaks, delimiters and quotes without decoding.
+ *
+ * A cell is quoted if it starts with one of the quote characters, the same character ends the quoted section and may
+ * start further quoted sections within that cell. Quote characters within cells that do not start with a quote are
+ * plain characters. If trimming is enabled leading and trailing white space outside of quoted sections is removed. A
+ * record consisting of white space only is returned as an empty row. A quoted cell without characters can be returned
+ * as an empty string even if empty cells are returned as null.
+ *
+ * With a projection only the selected cells are returned in the order of the projection, the characters of all other
+ * cells are skipped without being copied. With a filter rejected records are skipped as a whole, a column filter is
+ * checked as soon as its cell is complete and the remaining cells of a rejected record are skipped without being
+ * copied.
+ */
+abstract class CsvParser
+{
+  /** the default size of the input buffer */
+  static final int BUFFER_SIZE = 64 * 1024;
+
+  /** the initial size of the work area of a cell */
+  static final int CELL_SIZE = 256;
+
+  private static final int ROW_SIZE = 10;
+
+  /** true to remove white space around the cells */
+  final boolean trim;
+  private final boolean emptyAsNull;
+  private boolean quotedEmptyAsEmpty = false;
+  private StringPool pool;
+
+  /** the position of every cell of the input in the projected row, -1 to skip it, null to keep all */
+  private int[] slots;
+  private int projected;
+  private int column = 0;
+
+  /** true if the current cell is neither returned nor filtered, so it is not collected at all */
+  boolean skipping = false;
+
+  /** the filter and the column filter if the filter is one, only applied after the exempt records */
+  private RowFilter filter;
+  private int filterColumn = -1;
+  private long exempt = 0;
+  private boolean filtering = false;
+  private boolean evaluated = false;
+  private boolean rejected = false;
+
+  /** the number of records read so far, accepted or not, and the number of records to read at most */
+  private long records = 0;
+  private long maxRecords = Long.MAX_VALUE;
+
+  /** the length of the current cell, the length without trailing white space and how it was started */
+  int length = 0;
+  int kept = 0;
+  boolean started = false;
+  int opened = 0;
+
+  /** the current line of the input */
+  long line = 1;
+  private long recordLine = 1;
+  private int width = ROW_SIZE;
+
+  /**
+   * Create a parser.
+   *
+   * @param trim true to remove white space around the cells
+   * @param emptyAsNull true to return empty cells as null
+   */
+  CsvParser(final boolean trim, final boolean emptyAsNull) {
+    this.trim = trim;
+    this.emptyAsNull = emptyAsNull;
+  }
+
+  /**
+   * Read the next record.
+   *
+   * @return the cells of the next record, empty for a blank line, null if the input is exhausted
+   * @throws IOException if the input cannot be read
+   */
+  List<String> next()
+    throws IOException
+  {
+    List<String> row = record();
+    while (row != null && rejected) {
+      row = record();
+    }
+    return row;
+  }
+
+  /**
+   * Read the next record, whether it is accepted by the filter or not.
+   *
+   * @return the cells of the next record, null if the input is exhausted
+   * @throws IOException if the input cannot be read
+   */
+  private List<String> record()
+    throws IOException
+  {
+    if (records >= maxRecords || !hasInput()) return null;
+    ++records;
+
+    filtering = filter != null && exempt == 0;
+    if (exempt > 0) --exempt;
+    evaluated = false;
+    rejected = false;
+
+    recordLine = line;
+    List<String> row = null;
+    if (slots == null) {
+      row = new ArrayList<String>(width);
+    } else {
+      row = new ArrayList<String>(Collections.<String>nCopies(projected, null));
+    }
+    column = 0;
+    skipping = isSkipped(0);
+
+    if (parse(row)) {
+      // blank lines carry no cells at all
+      reset();
+      return check(slots == null ? row : new ArrayList<String>(0));
+    }
+
+    add(row);
+    width = Math.max(width, row.size());
+    return check(row);
+  }
+
+  /**
+   * @return true if there is input left to parse
+   * @throws IOException if the input cannot be read
+   */
+  abstract boolean hasInput()
+    throws IOException;
+
+  /**
+   * Parse the current record up to and including its line break, every cell but the last is added to the row.
+   *
+   * @param row the row to add the cells to
+   * @return true if the record consists of white space only
+   * @throws IOException if the input cannot be read
+   */
+  abstract boolean parse(List<String> row)
+    throws IOException;
+
+  /**
+   * Create the value of the current cell from the work area.
+   *
+   * @param end the number of collected characters or bytes that belong to the value
+   * @return the value, never null
+   */
+  abstract String text(int end);
+
+  /**
+   * Apply the filter to a complete record unless it has been decided already.
+   *
+   * @param row the complete record
+   * @return the record
+   */
+  private List<String> check(final List<String> row) {
+    if (!filtering || evaluated) return row;
+    if (filterColumn >= 0) {
+      // the record has no such column
+      rejected = !((ColumnFilter) filter).accept((String) null);
+    } else {
+      rejected = !filter.accept(row);
+    }
+    return row;
+  }
+
+  /**
+   * Add the current cell to the row unless it is skipped and move on to the next cell.
+   *
+   * @param row the row to add to
+   */
+  final void add(final List<String> row) {
+    if (skipping) {
+      reset();
+    } else if (column == filterColumn && filtering) {
+      String value = cell();
+      evaluated = true;
+      rejected = !((ColumnFilter) filter).accept(value);
+      if (!rejected) put(row, value);
+    } else {
+      put(row, cell());
+    }
+    skipping = isSkipped(++column);
+  }
+
+  /**
+   * Put a value of the current cell into the row unless it is not part of the projection.
+   *
+   * @param row the row to add to
+   * @param value the value of the current cell
+   */
+  private void put(final List<String> row, final String value) {
+    if (slots == null) {
+      row.add(value);
+    } else if (column < slots.length && slots[column] >= 0) {
+      row.set(slots[column], value);
+    }
+  }
+
+  /**
+   * @param index the index of a cell within the record
+   * @return true if the cell is neither part of the projection nor needed by the filter
+   */
+  private boolean isSkipped(final int index) {
+    if (rejected) return true;
+    if (slots == null || index == filterColumn && filtering) return false;
+    return index >= slots.length || slots[index] < 0;
+  }
+
+  /**
+   * Share the values of the cells through the given pool.
+   *
+   * @param pool the pool to use, null to create a new string for every cell
+   */
+  void setStringPool(final StringPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Return quoted cells without characters as empty strings even if empty cells are returned as null.
+   *
+   * @param quotedEmptyAsEmpty true to return <code>""</code> as empty string, false to treat it like any empty cell
+   */
+  void setQuotedEmptyAsEmpty(final boolean quotedEmptyAsEmpty) {
+    this.quotedEmptyAsEmpty = quotedEmptyAsEmpty;
+  }
+
+  /**
+   * Return only the selected cells of the following records.
+   *
+   * @param slots the position of every cell in the returned row or -1 to skip it, null to return all cells
+   */
+  void setProjection(final int[] slots) {
+    this.slots = slots;
+    projected = 0;
+    if (slots != null) {
+      for (int slot : slots) {
+        projected = Math.max(projected, slot + 1);
+      }
+    }
+  }
+
+  /**
+   * Return only the records accepted by the filter.
+   *
+   * @param filter the filter to apply, null to return all records
+   * @param exempt the number of following records that are returned without being filtered, e.g. header rows
+   */
+  void setFilter(final RowFilter filter, final long exempt) {
+    this.filter = filter;
+    this.filterColumn = filter instanceof ColumnFilter ? ((ColumnFilter) filter).getColumn() : -1;
+    this.exempt = Math.max(0, exempt);
+  }
+
+  /**
+   * Stop reading once the given number of records has been read, accepted by the filter or not.
+   *
+   * @param maxRecords the number of records from the start of the input
+   */
+  void setLimit(final long maxRecords) {
+    this.maxRecords = maxRecords;
+  }
+
+  /** @return the number of the line where the last record returned by <code>next()</code> starts, the first is 1 */
+  long getLineNumber() {
+    return recordLine;
+  }
+
+  /**
+   * @param chars the characters of a value
+   * @param count the number of characters
+   * @return the value taken from the pool if there is one
+   */
+  final String share(final char[] chars, final int count) {
+    return pool == null ? new String(chars, 0, count) : pool.get(chars, 0, count);
+  }
+
+  /** @return the current cell as string and reset the work area for the next one */
+  private String cell() {
+    int end = trim ? kept : length;
+    String value = null;
+    if (end > 0 || !emptyAsNull || quotedEmptyAsEmpty && opened != 0) {
+      value = text(end);
+    }
+    reset();
+    return value;
+  }
+
+  /** clear the work area to start a new cell */
+  private void reset() {
+    length = 0;
+    kept = 0;
+    started = false;
+    opened = 0;
+  }
+}
@@ -0,0 +1,99 @@
+package org.jcommons.io.text.reader.csv;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.jcommons.io.text.files.Files;
+import org.jcommons.io.text.reader.RowIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Iterates over the rows of a CSV file, reading one row ahead.
+ */
+final class CsvRowIterator
+  implements RowIterator
+{
+  private static final Logger LOG = LoggerFactory.getLogger(CsvRowIterator.class);
+
+  private final File file;
+  private final CsvParser parser;
+  private Closeable input;
+
+  private List<String> next;
+  private long nextLine;
+  private long line = 0;
+
+  /**
+   * Create an iterator that takes over the given input.
+   *
+   * @param file the file that is read, used for logging only
+   * @param input the opened input which will be closed by this iterator
+   * @param parser the parser reading from that input
+   */
+  CsvRowIterator(final File file, final Closeable input, final CsvParser parser) {
+    this.file = file;
+    this.input = input;
+    this.parser = parser;
+    advance();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean hasNext() {
+    return next != null;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<String> next() {
+    if (next == null) throw new NoSuchElementException();
+    List<String> row = next;
+    line = nextLine;
+    advance();
+    return row;
+  }
+
+  /** rows cannot be removed from a file */
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException("Rows cannot be removed from a file.");
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public long getLineNumber() {
+    return line;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void close() {
+    Files.close(input, file);
+    input = null;
+    next = null;
+  }
+
+  /** read the next row or close the input if there is none */
+  private void advance() {
+    if (input == null) return;
+
+    try {
+      next = parser.next();
+      nextLine = parser.getLineNumber();
+    } catch (IOException ioex) {
+      StringBuilder log = new StringBuilder("Aborted reading from text file \"").append(file.getAbsolutePath());
+      log.append(":").append(parser.getLineNumber()).append("\".");
+      LOG.warn(log.toString(), ioex);
+      close();
+      throw new IllegalStateException(log.toString(), ioex);
+    }
+
+    if (next == null) {
+      close();
+    }
+  }
+}
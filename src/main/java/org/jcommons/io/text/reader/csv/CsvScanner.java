@@ -0,0 +1,191 @@
+package org.jcommons.io.text.reader.csv;
+
+import java.nio.charset.Charset;
+
+/**
+ * Finds the boundaries of records in encoded CSV data without decoding or splitting any cells.
+ *
+ * The scanner is a small state machine that follows the parser's rules on quotes and line endings byte by byte, so it
+ * can be started at any position of a file as long as the state at that position is known. If the state is unknown,
+ * the scanner can be run from all of its states, which is what allows splitting files into chunks that are parsed in
+ * parallel.
+ *
+ * Scanning bytes is only safe for charsets that encode the line endings, the delimiter and the quotes as single ASCII
+ * bytes that never occur within the encoding of other characters, see <code>isSupported()</code>.
+ */
+final class CsvScanner
+{
+  /** at the start of a record */
+  static final int RECORD = 0;
+  /** after a carriage return that ended a record, a following line feed belongs to it */
+  private static final int RETURN = 1;
+  /** at the start of a cell, possibly after white space */
+  private static final int CELL = 2;
+  /** within an unquoted cell */
+  private static final int PLAIN = 3;
+
+  /** the states per quote character follow the states above */
+  private static final int QUOTED = 4;
+  private static final int CLOSING = 5;
+  private static final int CLOSED = 6;
+  private static final int QUOTE_STATES = 3;
+
+  private final byte delimiter;
+  private final byte[] quotes;
+  private final boolean trim;
+
+  /**
+   * Create a scanner for the given format.
+   *
+   * @param delimiter the delimiter, must be supported
+   * @param quotes the quote characters, must be supported
+   * @param trim true if white space before quotes is ignored
+   */
+  CsvScanner(final String delimiter, final String quotes, final boolean trim) {
+    this.delimiter = (byte) delimiter.charAt(0);
+    this.quotes = new byte[quotes.length()];
+    for (int index = 0; index < quotes.length(); ++index) {
+      this.quotes[index] = (byte) quotes.charAt(index);
+    }
+    this.trim = trim;
+  }
+
+  /**
+   * Check if records can be found on the encoded bytes for the given format.
+   *
+   * @param charset the encoding of the file
+   * @param delimiter the delimiter
+   * @param quotes the quote characters
+   * @return true if the scanner can be used
+   */
+  static boolean isSupported(final Charset charset, final String delimiter, final String quotes) {
+    if (delimiter.length() != 1 || delimiter.charAt(0) >= 128) return false;
+    for (int index = 0; index < quotes.length(); ++index) {
+      if (quotes.charAt(index) >= 128) return false;
+    }
+
+    // multi-byte encodings other than UTF-8 may use ASCII bytes within other characters
+    String name = charset.name();
+    if ("UTF-8".equals(name) || "US-ASCII".equals(name)) return true;
+    if (charset.newEncoder().maxBytesPerChar() > 1) return false;
+
+    byte[] ascii = "\r\n,;|\t\"'".getBytes(charset);
+    return ascii.length == 8 && "\r\n,;|\t\"'".equals(new String(ascii, charset));
+  }
+
+  /** @return the number of states of this scanner */
+  int getStates() {
+    return QUOTED + QUOTE_STATES * quotes.length;
+  }
+
+  /**
+   * Advance the state over the given bytes.
+   *
+   * @param state the state before the first byte
+   * @param data the encoded data
+   * @param from the first byte to scan
+   * @param to the position after the last byte to scan
+   * @param record receives the position of the first record start within the range or -1, can be null
+   * @return the state after the last byte
+   */
+  int scan(final int state, final byte[] data, final int from, final int to, final int[] record) {
+    int current = state;
+    if (record != null) record[0] = -1;
+
+    for (int position = from; position < to; ++position) {
+      byte b = data[position];
+
+      if (record != null && record[0] < 0 && (current == RECORD || current == RETURN && b != '\n')) {
+        record[0] = position;
+      }
+
+      current = step(current, b);
+    }
+
+    return current;
+  }
+
+  /**
+   * Advance the state over the given bytes and report every record that starts within them.
+   *
+   * @param state the state before the first byte
+   * @param data the encoded data
+   * @param from the first byte to scan
+   * @param to the position after the last byte to scan
+   * @param collector receives the position of every record start within the range
+   * @return the state after the last byte
+   */
+  int scan(final int state, final byte[] data, final int from, final int to, final RecordCollector collector) {
+    int current = state;
+
+    for (int position = from; position < to; ++position) {
+      byte b = data[position];
+
+      if (current == RECORD || current == RETURN && b != '\n') {
+        collector.record(position);
+      }
+
+      current = step(current, b);
+    }
+
+    return current;
+  }
+
+  /**
+   * Compute the state after a single byte.
+   *
+   * @param state the state before the byte
+   * @param b the byte
+   * @return the state after the byte
+   */
+  private int step(final int state, final byte b) {
+    if (state >= QUOTED) {
+      int quote = (state - QUOTED) / QUOTE_STATES;
+      int base = QUOTED + quote * QUOTE_STATES;
+      if (state == base) {
+        // within quotes only the quote itself is of interest
+        return b == quotes[quote] ? base + CLOSING - QUOTED : state;
+      }
+      if (state == base + CLOSING - QUOTED && b == quotes[quote]) {
+        // doubled quote is an escaped quote, anything else ends the quoted section
+        return base;
+      }
+      return closed(base, b);
+    }
+
+    if (b == '\n') return RECORD;
+    if (b == '\r') return RETURN;
+    if (b == delimiter) return CELL;
+    if (state == PLAIN) return PLAIN;
+
+    // at the start of a cell
+    for (int quote = 0; quote < quotes.length; ++quote) {
+      if (b == quotes[quote]) return QUOTED + quote * QUOTE_STATES;
+    }
+    if (trim && (b & 0xff) <= ' ') return CELL;
+    return PLAIN;
+  }
+
+  /**
+   * Compute the state after a byte that follows a closed quoted section.
+   *
+   * @param base the first state of the quote character that opened the cell
+   * @param b the byte
+   * @return the state after the byte
+   */
+  private int closed(final int base, final byte b) {
+    if (b == '\n') return RECORD;
+    if (b == '\r') return RETURN;
+    if (b == delimiter) return CELL;
+    // the quote that opened the cell may open further quoted sections
+    if (b == quotes[(base - QUOTED) / QUOTE_STATES]) return base;
+    return base + CLOSED - QUOTED;
+  }
+
+  /** Receives the record starts found by a scanner. */
+  interface RecordCollector
+  {
+    /** @param position the position of the first byte of a record within the scanned data */
+    void record(int position);
+  }
+}
@@ -0,0 +1,213 @@
+package org.jcommons.io.text.reader.csv;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.*;
+
+import org.jcommons.io.text.Tabular;
+
+/**
+ * A read-only table over a memory mapped CSV file that parses rows only when they are accessed.
+ *
+ * Opening the file scans it once to record where every row starts, the cells are not decoded, unless a sidecar index of
+ * the file is used. A row is parsed when it is requested for the first time and kept in a small cache of recently used
+ * rows. The heap holds just the offsets and the cache, while the operating system pages the file in and out as needed,
+ * so this suits lookups of a few rows in files that are too large to be read completely.
+ *
+ * The table reflects the file at the time it was opened, do not change the file while it is mapped.
+ */
+public class MappedCsvGrid
+  implements Tabular, Closeable
+{
+  /** the default number of parsed rows kept in memory */
+  public static final int CACHE_SIZE = 1024;
+
+  /** mapped regions are limited to 2 GB, rows may span two regions */
+  static final int SEGMENT_SIZE = 1 << 30;
+
+  private final CsvGridReader settings;
+  private final Charset charset;
+  private final File file;
+  private final int segmentSize;
+
+  private final CsvIndex index;
+  private final int rows;
+
+  private ByteBuffer[] segments;
+  private Map<Integer, List<String>> cache;
+
+  /**
+   * Map the file.
+   *
+   * @param settings the reader that defines the format of the file
+   * @param charset the encoding of the file, must be supported by the <code>CsvScanner</code>
+   * @param file the file to map
+   * @param segmentSize the maximum size of a single mapped region
+   * @param index the start of every row of the file
+   * @throws IOException if the file cannot be mapped
+   */
+  MappedCsvGrid(final CsvGridReader settings, final Charset charset, final File file, final int segmentSize,
+                final CsvIndex index)
+    throws IOException
+  {
+    this.settings = settings;
+    this.charset = charset;
+    this.file = file;
+    this.segmentSize = segmentSize;
+    this.index = index;
+    this.rows = index.size();
+    setCacheSize(CACHE_SIZE);
+
+    // the mapping stays valid after the file has been closed
+    FileInputStream input = new FileInputStream(file);
+    try {
+      FileChannel channel = input.getChannel();
+      long length = channel.size();
+      segments = new ByteBuffer[(int) ((length + segmentSize - 1) / segmentSize)];
+      for (int segment = 0; segment < segments.length; ++segment) {
+        long start = (long) segment * segmentSize;
+        segments[segment] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, length - start));
+      }
+    } finally {
+      input.close();
+    }
+  }
+
+  /** @return the mapped file */
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Define how many parsed rows are kept in memory, the least recently used rows are dropped first
+   *
+   * @param cacheSize the number of rows to keep, 0 to parse rows on every access
+   * @return this to allow chaining
+   */
+  public final synchronized MappedCsvGrid setCacheSize(final int cacheSize) {
+    final int capacity = Math.max(0, cacheSize);
+    cache = new LinkedHashMap<Integer, List<String>>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<Integer, List<String>> eldest) {
+        return size() > capacity;
+      }
+    };
+    return this;
+  }
+
+  /** @return the rows as a list that parses the rows on access */
+  @Override
+  public List<List<String>> getData() {
+    return new Rows();
+  }
+
+  /**
+   * Access the given row, which is parsed from the file unless it is cached.
+   *
+   * @param index the row number, the first row is 0
+   * @return the read-only data of the row or an empty list if the row is out of bounds, never null
+   */
+  @Override
+  public synchronized List<String> getRow(final int index) {
+    if (index < 0 || index >= rows || segments == null) return Collections.emptyList();
+
+    List<String> row = cache.get(index);
+    if (row == null) {
+      row = Collections.unmodifiableList(parse(index));
+      cache.put(index, row);
+    }
+    return row;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getValue(final int row, final int column) {
+    if (column < 0) return null;
+    List<String> data = getRow(row);
+    return column < data.size() ? data.get(column) : null;
+  }
+
+  /** @return the number of rows in the file */
+  @Override
+  public int size() {
+    return rows;
+  }
+
+  /** Release the mapping, all rows are empty afterwards. */
+  @Override
+  public synchronized void close() {
+    segments = null;
+    cache.clear();
+    index.close();
+  }
+
+  /**
+   * Parse a row from the mapped file.
+   *
+   * @param row the row number, must be valid
+   * @return the parsed cells
+   */
+  private List<String> parse(final int row) {
+    long start = index.getStart(row);
+    long end = index.getEnd(row);
+    byte[] data = new byte[(int) (end - start)];
+    copy(start, data, data.length);
+
+    try {
+      CsvParser parser = settings.createParser(new ByteArrayInputStream(data), charset, data.length + 1);
+      parser.setFilter(null, 0);
+      List<String> cells = parser.next();
+      return cells == null ? new ArrayList<String>() : cells;
+    } catch (IOException ioex) {
+      // cannot happen for arrays
+      throw new IllegalStateException(ioex);
+    }
+  }
+
+  /**
+   * Copy bytes from the mapped regions.
+   *
+   * @param position the position within the file
+   * @param target the array to fill from its start
+   * @param count the number of bytes to copy
+   */
+  private void copy(final long position, final byte[] target, final int count) {
+    int copied = 0;
+    while (copied < count) {
+      long at = position + copied;
+      ByteBuffer segment = segments[(int) (at / segmentSize)].duplicate();
+      segment.position((int) (at % segmentSize));
+      int chunk = Math.min(count - copied, segment.remaining());
+      segment.get(target, copied, chunk);
+      copied += chunk;
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return new StringBuilder("MappedCsvGrid[").append(file.getAbsolutePath()).append(", ").append(rows)
+        .append(" rows]").toString();
+  }
+
+  /** The rows of the file as read-only list. */
+  private final class Rows
+    extends AbstractList<List<String>>
+    implements RandomAccess
+  {
+    @Override
+    public List<String> get(final int index) {
+      if (index < 0 || index >= rows) throw new IndexOutOfBoundsException("Row " + index + " of " + rows);
+      return getRow(index);
+    }
+
+    @Override
+    public int size() {
+      return rows;
+    }
+  }
+}
@@ -0,0 +1,295 @@
+package org.jcommons.io.text.reader.csv;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.apache.commons.io.ByteOrderMark;
+import org.jcommons.io.text.Grid;
+import org.jcommons.io.text.files.Files;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads a CSV file on multiple threads by splitting it into chunks that are parsed independently.
+ *
+ * The file is cut into byte ranges of about the same size. As a cut may end up within a quoted cell, every range is
+ * scanned from all states of the <code>CsvScanner</code> first, which tells where the first record of the range starts
+ * for any state the range might begin with. Chaining these results from the start of the file yields the exact record
+ * boundaries, so the ranges between them can be parsed in parallel and joined in their original order.
+ */
+final class ParallelCsvReader
+{
+  private static final Logger LOG = LoggerFactory.getLogger(ParallelCsvReader.class);
+
+  /** the minimum size of a chunk, smaller files are not worth splitting */
+  static final int MIN_CHUNK_SIZE = 8 * 1024 * 1024;
+
+  /** more chunks than threads balance the load if some chunks take longer */
+  private static final int CHUNKS_PER_THREAD = 4;
+  private static final int BLOCK_SIZE = 256 * 1024;
+
+  private final CsvGridReader settings;
+  private final Charset charset;
+  private final int parallelism;
+  private final int chunkSize;
+
+  /**
+   * Create a reader.
+   *
+   * @param settings the reader that defines the format and creates the parsers
+   * @param charset the encoding of the file, must be supported by the <code>CsvScanner</code>
+   * @param parallelism the number of threads to use
+   * @param chunkSize the minimum number of bytes per chunk
+   */
+  ParallelCsvReader(final CsvGridReader settings, final Charset charset, final int parallelism, final int chunkSize) {
+    this.settings = settings;
+    this.charset = charset;
+    this.parallelism = parallelism;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Read the complete file.
+   *
+   * @param file the file to read
+   * @return the table structure that resembles the file layout
+   * @throws IOException if the file cannot be read
+   */
+  Grid read(final File file)
+    throws IOException
+  {
+    FileInputStream input = new FileInputStream(file);
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      FileChannel channel = input.getChannel();
+      // the first record starts after the byte order mark
+      ByteOrderMark bom = Files.getByteOrderMark(file);
+      long first = bom == null ? 0 : bom.length();
+      long size = channel.size() - first;
+      int chunks = (int) Math.max(1, Math.min(parallelism * CHUNKS_PER_THREAD, size / chunkSize));
+
+      long[] starts = new long[chunks + 1];
+      for (int chunk = 0; chunk <= chunks; ++chunk) {
+        starts[chunk] = first + size * chunk / chunks;
+      }
+
+      long[] bounds = findRecords(pool, channel, starts);
+      if (LOG.isDebugEnabled()) {
+        LOG.debug(new StringBuilder("Parsing ").append(bounds.length - 1).append(" chunks of \"")
+            .append(file.getAbsolutePath()).append("\" in parallel.").toString());
+      }
+
+      List<Callable<List<List<String>>>> tasks = new ArrayList<Callable<List<List<String>>>>();
+      for (int chunk = 0; chunk < bounds.length - 1; ++chunk) {
+        tasks.add(new Parse(channel, bounds[chunk], bounds[chunk + 1], chunk == 0));
+      }
+
+      List<List<List<String>>> parts = invokeAll(pool, tasks);
+      int rows = 0;
+      for (List<List<String>> part : parts) {
+        rows += part.size();
+      }
+
+      Grid grid = new Grid(rows);
+      for (List<List<String>> part : parts) {
+        for (List<String> row : part) {
+          grid.add(row);
+        }
+      }
+      return grid;
+    } finally {
+      pool.shutdown();
+      input.close();
+    }
+  }
+
+  /**
+   * Determine where the records of the chunks start.
+   *
+   * @param pool the pool to scan the chunks on
+   * @param channel the file to scan
+   * @param starts the nominal start of every chunk and the size of the file as last element
+   * @return the start of the first record of every chunk that contains one and the size of the file as last element
+   * @throws IOException if the file cannot be read
+   */
+  private long[] findRecords(final ForkJoinPool pool, final FileChannel channel, final long[] starts)
+    throws IOException
+  {
+    int chunks = starts.length - 1;
+    List<Callable<Transition>> tasks = new ArrayList<Callable<Transition>>();
+    for (int chunk = 0; chunk < chunks; ++chunk) {
+      tasks.add(new Scan(channel, starts[chunk], starts[chunk + 1]));
+    }
+    List<Transition> transitions = invokeAll(pool, tasks);
+
+    // follow the states from the start of the file, which always starts with a record
+    long[] bounds = new long[chunks + 1];
+    int count = 0;
+    bounds[count++] = starts[0];
+    int state = CsvScanner.RECORD;
+    for (int chunk = 1; chunk < chunks; ++chunk) {
+      state = transitions.get(chunk - 1).after[state];
+      long first = transitions.get(chunk).first[state];
+      if (first >= 0) {
+        bounds[count++] = first;
+      }
+    }
+    bounds[count++] = starts[chunks];
+
+    return Arrays.copyOf(bounds, count);
+  }
+
+  /**
+   * Run all tasks and wait for their results.
+   *
+   * @param pool the pool to run the tasks on
+   * @param tasks the tasks to run
+   * @return the results in the order of the tasks
+   * @throws IOException if any task failed to read the file
+   */
+  private static <T> List<T> invokeAll(final ForkJoinPool pool, final List<Callable<T>> tasks)
+    throws IOException
+  {
+    List<T> results = new ArrayList<T>(tasks.size());
+    try {
+      for (Future<T> future : pool.invokeAll(tasks)) {
+        results.add(future.get());
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while reading in parallel.");
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof IOException) throw (IOException) ex.getCause();
+      if (ex.getCause() instanceof RuntimeException) throw (RuntimeException) ex.getCause();
+      throw new IOException(ex.getCause());
+    }
+    return results;
+  }
+
+  /**
+   * Read a range of the file completely.
+   *
+   * @param channel the file to read from
+   * @param buffer the buffer to fill
+   * @param position the position in the file to start at
+   * @param length the number of bytes to read, at most the capacity of the buffer
+   * @return the number of bytes read, less than requested only at the end of the file
+   * @throws IOException if the file cannot be read
+   */
+  private static int read(final FileChannel channel, final ByteBuffer buffer, final long position, final int length)
+    throws IOException
+  {
+    buffer.clear();
+    buffer.limit(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) break;
+    }
+    return buffer.position();
+  }
+
+  /** The effect of a chunk on the state of the scanner, for every state it might start with. */
+  private static final class Transition
+  {
+    /** the position of the first record of the chunk per state at its start, -1 if there is none */
+    private final long[] first;
+    /** the state at the end of the chunk per state at its start */
+    private final int[] after;
+
+    Transition(final int states) {
+      first = new long[states];
+      after = new int[states];
+    }
+  }
+
+  /** Scans a chunk from all states of the scanner. */
+  private final class Scan
+    implements Callable<Transition>
+  {
+    private final FileChannel channel;
+    private final long from;
+    private final long to;
+
+    Scan(final FileChannel channel, final long from, final long to) {
+      this.channel = channel;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public Transition call()
+      throws IOException
+    {
+      CsvScanner scanner = settings.createScanner();
+      int states = scanner.getStates();
+      Transition transition = new Transition(states);
+      long[] first = transition.first;
+      Arrays.fill(first, -1);
+
+      // all initial states are scanned in lockstep, states that have converged are scanned only once per block
+      int[] current = transition.after;
+      for (int state = 0; state < states; ++state) {
+        current[state] = state;
+      }
+
+      ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+      int[] after = new int[states];
+      int[] records = new int[states];
+      int[] record = new int[1];
+
+      for (long position = from; position < to; position += BLOCK_SIZE) {
+        int length = read(channel, buffer, position, (int) Math.min(BLOCK_SIZE, to - position));
+
+        Arrays.fill(after, -1);
+        for (int state = 0; state < states; ++state) {
+          int now = current[state];
+          if (after[now] < 0) {
+            after[now] = scanner.scan(now, buffer.array(), 0, length, record);
+            records[now] = record[0];
+          }
+          if (first[state] < 0 && records[now] >= 0) {
+            first[state] = position + records[now];
+          }
+          current[state] = after[now];
+        }
+      }
+
+      return transition;
+    }
+  }
+
+  /** Parses all records within a range of the file. */
+  private final class Parse
+    implements Callable<List<List<String>>>
+  {
+    private final FileChannel channel;
+    private final long from;
+    private final long to;
+    private final boolean first;
+
+    Parse(final FileChannel channel, final long from, final long to, final boolean first) {
+      this.channel = channel;
+      this.from = from;
+      this.to = to;
+      this.first = first;
+    }
+
+    @Override
+    public List<List<String>> call()
+      throws IOException
+    {
+      List<List<String>> rows = new ArrayList<List<String>>();
+      CsvParser parser = settings.createParser(new ChannelInputStream(channel, from, to), charset);
+      // only the first chunk contains the header rows, it starts after the byte order mark if there is one
+      if (!first) parser.setFilter(settings.getRowFilter(), 0);
+      List<String> row = null;
+      while ((row = parser.next()) != null) {
+        rows.add(row);
+      }
+      return rows;
+    }
+  }
+}
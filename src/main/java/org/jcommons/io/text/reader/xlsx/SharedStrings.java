@@ -0,0 +1,66 @@
+package org.jcommons.io.text.reader.xlsx;
+
+import java.util.ArrayList;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Collects the shared strings of a workbook, which the cells of all worksheets refer to by their position.
+ *
+ * Formatted text consists of several runs that are joined into a single value, phonetic hints are dropped.
+ */
+final class SharedStrings
+  extends DefaultHandler
+{
+  private final ArrayList<String> strings = new ArrayList<String>();
+  private final StringBuilder text = new StringBuilder();
+  private boolean inText;
+  private int phonetic;
+
+  /**
+   * @param index the position of a shared string
+   * @return the string or null if there is no such string
+   */
+  String get(final int index) {
+    return index >= 0 && index < strings.size() ? strings.get(index) : null;
+  }
+
+  /** @return the number of shared strings */
+  int size() {
+    return strings.size();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void startElement(final String uri, final String localName, final String qName, final Attributes attributes) {
+    if ("sst".equals(localName)) {
+      String count = attributes.getValue("uniqueCount");
+      if (count != null && count.matches("\\d{1,9}")) strings.ensureCapacity(Integer.parseInt(count));
+    } else if ("si".equals(localName)) {
+      text.setLength(0);
+    } else if ("rPh".equals(localName)) {
+      ++phonetic;
+    } else if ("t".equals(localName)) {
+      inText = phonetic == 0;
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void endElement(final String uri, final String localName, final String qName) {
+    if ("si".equals(localName)) {
+      strings.add(text.toString());
+    } else if ("rPh".equals(localName)) {
+      --phonetic;
+    } else if ("t".equals(localName)) {
+      inText = false;
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void characters(final char[] chars, final int start, final int length) {
+    if (inText) text.append(chars, start, length);
+  }
+}
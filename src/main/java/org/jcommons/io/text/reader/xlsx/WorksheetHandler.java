@@ -0,0 +1,130 @@
+package org.jcommons.io.text.reader.xlsx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jcommons.io.text.Grid;
+import org.jcommons.io.text.reader.StringPool;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Adds the rows of a worksheet to a grid while the worksheet is parsed, only the current row is held apart from the
+ * grid.
+ *
+ * Rows and cells keep their positions in the worksheet, missing rows are empty and missing cells are null. Cells hold
+ * their value as stored in the workbook: text, numbers as written, dates as serial numbers, booleans as TRUE or FALSE
+ * and the results of formulas. Formats and styles are ignored.
+ */
+final class WorksheetHandler
+  extends DefaultHandler
+{
+  /** the number of columns of a worksheet in Excel */
+  private static final int MAX_COLUMNS = 16384;
+
+  private final Grid grid;
+  private final SharedStrings strings;
+  private final StringPool stringPool;
+
+  private List<String> row;
+  private int column;
+  private String type;
+  private final StringBuilder text = new StringBuilder();
+  private boolean hasValue;
+  private boolean inValue;
+  private int phonetic;
+
+  /**
+   * @param grid the grid to add the rows to
+   * @param strings the shared strings of the workbook, never null
+   * @param stringPool the pool to share repeated values, null to create a new string for every value
+   */
+  WorksheetHandler(final Grid grid, final SharedStrings strings, final StringPool stringPool) {
+    this.grid = grid;
+    this.strings = strings;
+    this.stringPool = stringPool;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void startElement(final String uri, final String localName, final String qName, final Attributes attributes) {
+    if ("row".equals(localName)) {
+      int number = parse(attributes.getValue("r"), 0);
+      while (grid.size() < number - 1) {
+        grid.add(new ArrayList<String>(0));
+      }
+      row = new ArrayList<String>(row == null ? 10 : Math.max(10, row.size()));
+      column = -1;
+    } else if ("c".equals(localName)) {
+      column = getColumn(attributes.getValue("r"), column + 1);
+      type = attributes.getValue("t");
+      text.setLength(0);
+      hasValue = false;
+    } else if ("v".equals(localName) || ("t".equals(localName) && "inlineStr".equals(type))) {
+      inValue = phonetic == 0;
+      hasValue = true;
+    } else if ("rPh".equals(localName)) {
+      ++phonetic;
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void endElement(final String uri, final String localName, final String qName) {
+    if ("row".equals(localName)) {
+      grid.add(row);
+    } else if ("c".equals(localName)) {
+      if (hasValue && row != null && column < MAX_COLUMNS) {
+        while (row.size() < column) {
+          row.add(null);
+        }
+        row.add(getValue());
+      }
+    } else if ("v".equals(localName) || "t".equals(localName)) {
+      inValue = false;
+    } else if ("rPh".equals(localName)) {
+      --phonetic;
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void characters(final char[] chars, final int start, final int length) {
+    if (inValue) text.append(chars, start, length);
+  }
+
+  /** @return the value of the current cell */
+  private String getValue() {
+    if ("s".equals(type)) return strings.get(parse(text.toString().trim(), -1));
+    if ("b".equals(type)) return "1".equals(text.toString().trim()) ? "TRUE" : "FALSE";
+    if (stringPool == null) return text.toString();
+    return stringPool.get(text.toString());
+  }
+
+  /**
+   * @param reference the reference of a cell like "AB12", can be null
+   * @param defaultColumn the column if the cell has no reference
+   * @return the position of the column starting with 0
+   */
+  private static int getColumn(final String reference, final int defaultColumn) {
+    if (reference == null) return defaultColumn;
+    int result = 0;
+    int index = 0;
+    for (; index < reference.length() && result <= MAX_COLUMNS; ++index) {
+      char c = reference.charAt(index);
+      if (c < 'A' || c > 'Z') break;
+      result = result * 26 + (c - 'A' + 1);
+    }
+    return index == 0 ? defaultColumn : result - 1;
+  }
+
+  /**
+   * @param number a whole number, can be null
+   * @param defaultValue the value if there is no number
+   * @return the number
+   */
+  private static int parse(final String number, final int defaultValue) {
+    if (number == null || !number.matches("\\d{1,9}")) return defaultValue;
+    return Integer.parseInt(number);
+  }
+}
@@ -0,0 +1,103 @@
+package org.jcommons.io.text.reader.xlsx;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.zip.ZipFile;
+
+import org.jcommons.io.sheet.Book;
+import org.jcommons.io.sheet.Sheet;
+import org.jcommons.io.text.Grid;
+import org.jcommons.io.text.Table;
+import org.jcommons.io.text.factory.TableFactory;
+import org.jcommons.io.text.files.Files;
+import org.jcommons.io.text.reader.BookReader;
+import org.jcommons.io.text.reader.StringPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads an Excel workbook (xlsx) into a book with a sheet per worksheet in the order of the tabs.
+ *
+ * The parts of the workbook are parsed as a stream of events, the cells are added to the grid of a sheet as they are
+ * read and no model of the workbook is built. Besides the grids only the shared strings of the workbook and the current
+ * row are held in memory. The arguments of the book configure the tables of all sheets, e.g. the rows to skip.
+ */
+public class XlsxBookReader
+  implements BookReader
+{
+  private static final Logger LOG = LoggerFactory.getLogger(XlsxBookReader.class);
+
+  private final File file;
+  private StringPool stringPool;
+
+  /**
+   * Create a reader for a workbook.
+   *
+   * @param file the workbook to read
+   */
+  public XlsxBookReader(final File file) {
+    this.file = file;
+  }
+
+  /**
+   * Define a pool to share the instances of values repeated within and across the worksheets, text cells share their
+   * instances anyway
+   *
+   * @param stringPool the pool to use, null to create a new string for every value
+   * @return this to allow chaining
+   */
+  public XlsxBookReader setStringPool(final StringPool stringPool) {
+    this.stringPool = stringPool;
+    return this;
+  }
+
+  /** @return the pool that shares repeated values, null if every value is a new string, the default */
+  public StringPool getStringPool() {
+    return stringPool;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Book read(final Map<String, String> arguments) {
+    if (file == null || !file.isFile()) {
+      if (LOG.isWarnEnabled()) {
+        LOG.warn(new StringBuilder("Cannot open file \"").append(file == null ? null : file.getAbsolutePath())
+            .append("\" as there is no such file.").toString());
+      }
+      return null;
+    }
+
+    ZipFile archive = null;
+    try {
+      archive = new ZipFile(file);
+      XlsxParts parts = new XlsxParts(archive);
+      SharedStrings strings = new SharedStrings();
+      if (parts.getSharedStrings() != null) parts.parse(parts.getSharedStrings(), strings);
+
+      Book book = new Book();
+      for (Map.Entry<String, String> worksheet : parts.getSheets().entrySet()) {
+        Grid grid = new Grid();
+        if (!parts.parse(worksheet.getValue(), new WorksheetHandler(grid, strings, stringPool))) continue;
+        Table table = TableFactory.create(grid, arguments);
+        book.add(new Sheet().setTable(table).setName(worksheet.getKey()));
+      }
+      LOG.info("Loaded book with " + book.getSheets().size() + " sheets.");
+      return book;
+    } catch (IOException ioex) {
+      if (LOG.isWarnEnabled()) {
+        LOG.warn(new StringBuilder("Cannot read workbook \"").append(file.getAbsolutePath()).append("\".").toString(),
+            ioex);
+      }
+      return null;
+    } finally {
+      Files.close(archive, file);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Book read() {
+    return read(null);
+  }
+}
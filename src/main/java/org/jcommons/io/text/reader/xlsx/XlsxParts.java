@@ -0,0 +1,199 @@
+package org.jcommons.io.text.reader.xlsx;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Locates the parts of an Excel workbook within its zip archive: the worksheets in the order of their tabs and the
+ * shared strings.
+ *
+ * The parts are found through the relationships of the package, so workbooks written by other tools than Excel with
+ * different part names are read as well.
+ */
+final class XlsxParts
+{
+  private static final String RELATIONSHIPS = "http://schemas.openxmlformats.org/package/2006/relationships";
+  private static final String OFFICE_RELATIONSHIPS =
+      "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+  private final ZipFile archive;
+  private String sharedStrings;
+  private final Map<String, String> sheets = new LinkedHashMap<String, String>();
+
+  /**
+   * Read the relationships and the sheet names of a workbook.
+   *
+   * @param archive the open workbook
+   * @throws IOException if the workbook cannot be read or is no Excel workbook
+   */
+  XlsxParts(final ZipFile archive)
+    throws IOException
+  {
+    this.archive = archive;
+    String workbook = getTargets("_rels/.rels", "").get("officeDocument");
+    if (workbook == null) workbook = "xl/workbook.xml";
+
+    final String folder = workbook.substring(0, workbook.lastIndexOf('/') + 1);
+    String relationships = folder + "_rels/" + workbook.substring(folder.length()) + ".rels";
+    final Map<String, String> targets = getTargets(relationships, folder);
+    sharedStrings = targets.get("sharedStrings");
+
+    final Map<String, String> ids = getIds(relationships, folder);
+    parse(workbook, new DefaultHandler() {
+      @Override
+      public void startElement(final String uri, final String localName, final String qName,
+                               final Attributes attributes)
+      {
+        if ("sheet".equals(localName)) {
+          String part = ids.get(attributes.getValue(OFFICE_RELATIONSHIPS, "id"));
+          if (part != null) sheets.put(attributes.getValue("name"), part);
+        }
+      }
+    });
+  }
+
+  /** @return the names of the worksheets mapped to their parts in the order of the tabs, never null */
+  Map<String, String> getSheets() {
+    return sheets;
+  }
+
+  /** @return the part with the shared strings, null if the workbook has none */
+  String getSharedStrings() {
+    return sharedStrings;
+  }
+
+  /**
+   * Parse a part of the workbook.
+   *
+   * @param part the name of the part within the archive
+   * @param handler the handler that receives the events
+   * @return false if there is no such part
+   * @throws IOException if the part cannot be read or parsed
+   */
+  boolean parse(final String part, final DefaultHandler handler)
+    throws IOException
+  {
+    ZipEntry entry = archive.getEntry(part);
+    if (entry == null) return false;
+
+    InputStream stream = archive.getInputStream(entry);
+    try {
+      createParser().parse(stream, handler);
+    } catch (SAXException ex) {
+      throw new IOException(new StringBuilder("Cannot parse \"").append(part).append("\".").toString(), ex);
+    } finally {
+      stream.close();
+    }
+    return true;
+  }
+
+  /**
+   * @return a parser that does not load external entities, which a workbook does not need
+   * @throws IOException if no parser can be created
+   */
+  private static SAXParser createParser()
+    throws IOException
+  {
+    try {
+      SAXParserFactory factory = SAXParserFactory.newInstance();
+      factory.setNamespaceAware(true);
+      factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+      return factory.newSAXParser();
+    } catch (ParserConfigurationException | SAXException ex) {
+      throw new IOException(ex);
+    }
+  }
+
+  /**
+   * @param relationships the part with the relationships
+   * @param folder the folder the targets are relative to
+   * @return the last segment of the relationship types mapped to their parts
+   * @throws IOException if the relationships cannot be read
+   */
+  private Map<String, String> getTargets(final String relationships, final String folder)
+    throws IOException
+  {
+    final Map<String, String> targets = new HashMap<String, String>();
+    for (String[] relationship : getRelationships(relationships, folder)) {
+      targets.put(relationship[1].substring(relationship[1].lastIndexOf('/') + 1), relationship[2]);
+    }
+    return targets;
+  }
+
+  /**
+   * @param relationships the part with the relationships
+   * @param folder the folder the targets are relative to
+   * @return the relationship ids mapped to their parts
+   * @throws IOException if the relationships cannot be read
+   */
+  private Map<String, String> getIds(final String relationships, final String folder)
+    throws IOException
+  {
+    final Map<String, String> ids = new HashMap<String, String>();
+    for (String[] relationship : getRelationships(relationships, folder)) {
+      ids.put(relationship[0], relationship[2]);
+    }
+    return ids;
+  }
+
+  /**
+   * @param relationships the part with the relationships
+   * @param folder the folder the targets are relative to
+   * @return the id, the type and the part of every relationship, empty if there is no such part
+   * @throws IOException if the relationships cannot be read
+   */
+  private List<String[]> getRelationships(final String relationships, final String folder)
+    throws IOException
+  {
+    final List<String[]> result = new ArrayList<String[]>();
+    parse(relationships, new DefaultHandler() {
+      @Override
+      public void startElement(final String uri, final String localName, final String qName,
+                               final Attributes attributes)
+      {
+        if (RELATIONSHIPS.equals(uri) && "Relationship".equals(localName)) {
+          String target = attributes.getValue("Target");
+          if (target == null || "External".equals(attributes.getValue("TargetMode"))) return;
+          result.add(new String[] { attributes.getValue("Id"), String.valueOf(attributes.getValue("Type")),
+              resolve(folder, target) });
+        }
+      }
+    });
+    return result;
+  }
+
+  /**
+   * @param folder the folder of the part that refers to the target
+   * @param target the target, absolute or relative to the folder
+   * @return the name of the target within the archive
+   */
+  private static String resolve(final String folder, final String target) {
+    if (target.startsWith("/")) return target.substring(1);
+
+    StringBuilder path = new StringBuilder(folder);
+    for (String segment : target.split("/")) {
+      if ("..".equals(segment)) {
+        int end = path.lastIndexOf("/", path.length() - 2);
+        path.setLength(end + 1);
+      } else if (!".".equals(segment) && !segment.isEmpty()) {
+        path.append(segment).append('/');
+      }
+    }
+    return path.substring(0, Math.max(0, path.length() - 1));
+  }
+}
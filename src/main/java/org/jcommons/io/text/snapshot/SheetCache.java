@@ -0,0 +1,326 @@
+package org.jcommons.io.text.snapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.jcommons.io.sheet.Book;
+import org.jcommons.io.sheet.Sheet;
+import org.jcommons.io.text.files.Files;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps parsed sheets as snapshots in a directory, so that a file is only parsed again once it has changed.
+ *
+ * A sheet is looked up by the path of its file and the entry within an archive. It is only reused if the fingerprint
+ * of the file still matches, which consists of its size, its time of last modification, the format and the arguments
+ * the sheet was read with. Files that may change without changing their size and time can be hashed as well, which
+ * reads the whole file but is still much faster than parsing it.
+ *
+ * The cache holds a limited number of sheets and evicts the sheet that has not been used for the longest time. The
+ * index of the cache is loaded when the cache is created and stored by <code>save()</code>, the snapshots are written
+ * as soon as a sheet is added. The cache can be used by several threads at once.
+ */
+public class SheetCache
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SheetCache.class);
+
+  private static final String INDEX = "sheets.index";
+  private static final int VERSION = 1;
+
+  private final File directory;
+  private final int capacity;
+  private final Map<String, Entry> entries;
+  private volatile boolean hashing;
+
+  /**
+   * Create a cache in the given directory, the sheets cached by a former cache in this directory are reused.
+   *
+   * @param directory the directory that keeps the snapshots, created if it does not exist
+   * @param capacity the maximum number of sheets to keep, at least 1
+   */
+  public SheetCache(final File directory, final int capacity) {
+    this.directory = directory;
+    this.capacity = Math.max(1, capacity);
+    this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    load();
+  }
+
+  /**
+   * Define whether the content of the files is part of their fingerprint
+   *
+   * @param hashing true to compare the checksums of the files as well, false to compare their size and time only
+   * @return this to allow chaining
+   */
+  public SheetCache setHashing(final boolean hashing) {
+    this.hashing = hashing;
+    return this;
+  }
+
+  /** @return true if the checksums of the files are compared, false if only their size and time are, the default */
+  public boolean isHashing() {
+    return hashing;
+  }
+
+  /** @return the maximum number of sheets to keep */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /** @return the number of sheets kept */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Look up the sheet of a file, the sheet is only returned if the file has not changed since it was added.
+   *
+   * @param file the file of the sheet
+   * @param entry the file within the zip archive, null if the file is no archive
+   * @param format the settings of the reader that are not part of the arguments, can be null
+   * @param arguments the arguments to read the sheet with, can be null
+   * @return the sheet or null if the sheet is not cached or the file or the settings have changed
+   */
+  public Sheet get(final File file, final String entry, final String format, final Map<String, String> arguments) {
+    String key = getKey(file, entry);
+    Entry cached;
+    synchronized (this) {
+      cached = entries.get(key);
+    }
+    if (cached == null) return null;
+
+    String fingerprint = getFingerprint(file, format, arguments);
+    if (fingerprint == null || !fingerprint.equals(cached.fingerprint)) return null;
+
+    Sheet sheet = new SnapshotReader(new File(directory, cached.snapshot)).readSheet(cached.name, arguments);
+    if (sheet == null) {
+      // the snapshot has been removed or damaged, the sheet is read once more
+      remove(key, cached);
+    }
+    return sheet;
+  }
+
+  /**
+   * Add the sheet of a file, a former sheet of the file is replaced.
+   *
+   * @param file the file of the sheet
+   * @param entry the file within the zip archive, null if the file is no archive
+   * @param format the settings of the reader that are not part of the arguments, can be null
+   * @param arguments the arguments the sheet has been read with, can be null
+   * @param sheet the sheet to keep
+   * @return true if the sheet has been added, false if its snapshot cannot be written
+   */
+  public boolean put(final File file, final String entry, final String format, final Map<String, String> arguments,
+                     final Sheet sheet)
+  {
+    String fingerprint = getFingerprint(file, format, arguments);
+    if (fingerprint == null || sheet == null || !directory.isDirectory() && !directory.mkdirs()) return false;
+
+    File snapshot;
+    try {
+      snapshot = File.createTempFile("sheet", ".snapshot", directory);
+    } catch (IOException ioex) {
+      if (LOG.isWarnEnabled()) {
+        LOG.warn(new StringBuilder("Cannot create snapshot in \"").append(directory.getAbsolutePath()).append("\".")
+            .toString(), ioex);
+      }
+      return false;
+    }
+    if (!new SnapshotWriter(snapshot).write(new Book().add(sheet))) {
+      FileUtils.deleteQuietly(snapshot);
+      return false;
+    }
+
+    Entry added = new Entry(fingerprint, snapshot.getName(), sheet.getName() == null ? "" : sheet.getName());
+    Entry replaced;
+    synchronized (this) {
+      replaced = entries.put(getKey(file, entry), added);
+      evict();
+    }
+    if (replaced != null) delete(replaced);
+    return true;
+  }
+
+  /**
+   * Store the index of the cache, so that a later cache in the same directory reuses the sheets.
+   *
+   * @return true if the index has been stored
+   */
+  public synchronized boolean save() {
+    if (!directory.isDirectory() && !directory.mkdirs()) return false;
+
+    File index = new File(directory, INDEX);
+    File written = new File(directory, INDEX + ".tmp");
+    DataOutputStream output = null;
+    try {
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(written), Files.BUFFER_SIZE));
+      output.writeInt(VERSION);
+      output.writeInt(entries.size());
+      // the least recently used sheet comes first, so that loading the index restores the order
+      for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+        output.writeUTF(entry.getKey());
+        output.writeUTF(entry.getValue().fingerprint);
+        output.writeUTF(entry.getValue().snapshot);
+        output.writeUTF(entry.getValue().name);
+      }
+      output.close();
+      java.nio.file.Files.move(written.toPath(), index.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      return true;
+    } catch (IOException ioex) {
+      if (LOG.isWarnEnabled()) {
+        LOG.warn(new StringBuilder("Cannot store cache index \"").append(index.getAbsolutePath()).append("\".")
+            .toString(), ioex);
+      }
+      return false;
+    } finally {
+      Files.close(output, written);
+      FileUtils.deleteQuietly(written);
+    }
+  }
+
+  /** Remove all sheets from the cache and delete their snapshots. */
+  public synchronized void clear() {
+    for (Entry entry : entries.values()) {
+      delete(entry);
+    }
+    entries.clear();
+  }
+
+  /** Load the index of a former cache, sheets whose snapshots are gone are skipped. */
+  private void load() {
+    File index = new File(directory, INDEX);
+    if (!index.isFile()) return;
+
+    DataInputStream input = null;
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(index), Files.BUFFER_SIZE));
+      if (input.readInt() != VERSION) return;
+      int count = input.readInt();
+      for (int entry = 0; entry < count; ++entry) {
+        String key = input.readUTF();
+        Entry loaded = new Entry(input.readUTF(), input.readUTF(), input.readUTF());
+        if (new File(directory, loaded.snapshot).isFile()) entries.put(key, loaded);
+      }
+      evict();
+      sweep();
+    } catch (IOException ioex) {
+      if (LOG.isWarnEnabled()) {
+        LOG.warn(new StringBuilder("Cannot load cache index \"").append(index.getAbsolutePath()).append("\".")
+            .toString(), ioex);
+      }
+    } finally {
+      Files.close(input, index);
+    }
+  }
+
+  /** Delete the snapshots that have been written after the index has been stored the last time. */
+  private void sweep() {
+    Set<String> known = new HashSet<String>();
+    for (Entry entry : entries.values()) {
+      known.add(entry.snapshot);
+    }
+    File[] snapshots = directory.listFiles();
+    if (snapshots == null) return;
+    for (File snapshot : snapshots) {
+      String name = snapshot.getName();
+      if (name.startsWith("sheet") && name.endsWith(".snapshot") && !known.contains(name)) {
+        FileUtils.deleteQuietly(snapshot);
+      }
+    }
+  }
+
+  /** Remove the least recently used sheets until the cache holds no more sheets than its capacity. */
+  private void evict() {
+    Iterator<Entry> eldest = entries.values().iterator();
+    while (entries.size() > capacity && eldest.hasNext()) {
+      delete(eldest.next());
+      eldest.remove();
+    }
+  }
+
+  /**
+   * @param key the key of the sheet
+   * @param entry the sheet to remove, unless it has been replaced meanwhile
+   */
+  private synchronized void remove(final String key, final Entry entry) {
+    if (entries.get(key) == entry) {
+      entries.remove(key);
+      delete(entry);
+    }
+  }
+
+  /** @param entry the sheet whose snapshot to delete */
+  private void delete(final Entry entry) {
+    File snapshot = new File(directory, entry.snapshot);
+    if (!FileUtils.deleteQuietly(snapshot) && snapshot.exists()) {
+      LOG.debug("Cannot delete snapshot \"" + snapshot.getAbsolutePath() + "\".");
+    }
+  }
+
+  /**
+   * @param file the file of the sheet
+   * @param entry the file within the zip archive, null if the file is no archive
+   * @return the key of the sheet
+   */
+  private static String getKey(final File file, final String entry) {
+    String path = file.getAbsoluteFile().toURI().normalize().getPath();
+    return entry == null ? path : path + "!" + entry;
+  }
+
+  /**
+   * @param file the file of the sheet
+   * @param format the settings of the reader of the sheet, can be null
+   * @param arguments the arguments of the sheet, can be null
+   * @return the fingerprint or null if the file cannot be read
+   */
+  private String getFingerprint(final File file, final String format, final Map<String, String> arguments) {
+    if (!file.isFile()) return null;
+
+    StringBuilder fingerprint = new StringBuilder();
+    fingerprint.append(file.length()).append('/').append(file.lastModified());
+    if (hashing) {
+      try {
+        fingerprint.append('/').append(Long.toHexString(FileUtils.checksumCRC32(file)));
+      } catch (IOException ioex) {
+        LOG.debug("Cannot hash file \"" + file.getAbsolutePath() + "\".", ioex);
+        return null;
+      }
+    }
+    if (format != null) fingerprint.append('/').append(format);
+    if (arguments != null) fingerprint.append('/').append(new TreeMap<String, String>(arguments));
+    return fingerprint.toString();
+  }
+
+  /** A cached sheet. */
+  private static final class Entry
+  {
+    private final String fingerprint;
+    private final String snapshot;
+    private final String name;
+
+    /**
+     * @param fingerprint the fingerprint of the file at the time it was read
+     * @param snapshot the name of the snapshot within the directory of the cache
+     * @param name the name of the sheet
+     */
+    Entry(final String fingerprint, final String snapshot, final String name) {
+      this.fingerprint = fingerprint;
+      this.snapshot = snapshot;
+      this.name = name;
+    }
+  }
+}
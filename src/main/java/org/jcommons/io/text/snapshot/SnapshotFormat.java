@@ -0,0 +1,45 @@
+package org.jcommons.io.text.snapshot;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The layout of a snapshot file, shared by the writer and the reader.
+ *
+ * <pre>
+ *   magic
+ *   per sheet: the widths of the rows, then per column its dictionary followed by its codes
+ *   footer: per sheet its name, parameters, size and the offsets of its blocks
+ *   offset of the footer, magic
+ * </pre>
+ *
+ * A dictionary holds the number of distinct values, the end offset of every value and the UTF-8 bytes of all values.
+ * A block of codes holds the number of bytes per code followed by a code per row, code 0 stands for null and the code
+ * n for the n-th value of the dictionary. The widths of the rows are a block of codes where the code is the width
+ * itself. All numbers are big endian.
+ */
+final class SnapshotFormat
+{
+  /** identifies a snapshot at the start and the end of the file, the last digits are the version */
+  static final long MAGIC = 0x4A43534E41503031L;
+
+  /** the encoding of all text in a snapshot */
+  static final Charset CHARSET = StandardCharsets.UTF_8;
+
+  /** the number of bytes at the end of the file: the offset of the footer and the magic */
+  static final int TRAILER = 16;
+
+  /** hide default constructor */
+  private SnapshotFormat() {
+  }
+
+  /**
+   * @param code the largest code of a block
+   * @return the number of bytes required per code
+   */
+  static int getWidth(final int code) {
+    if (code <= 0xff) return 1;
+    if (code <= 0xffff) return 2;
+    return 4;
+  }
+}
@@ -0,0 +1,202 @@
+package org.jcommons.io.text.snapshot;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.jcommons.io.text.Tabular;
+
+/**
+ * A read-only grid over the mapped blocks of a sheet in a snapshot.
+ *
+ * The blocks are mapped when the snapshot is opened but the operating system reads their pages only when they are
+ * accessed, so reading a few columns touches those columns only. A value is decoded the first time it is accessed and
+ * then shared by all cells with the same value. The grid can be read by several threads at once.
+ */
+public final class SnapshotGrid
+  implements Tabular
+{
+  private final int size;
+  private final Codes widths;
+  private final Column[] columns;
+
+  /**
+   * @param size the number of rows
+   * @param widths the widths of the rows
+   * @param columns the dictionaries and codes of the columns
+   */
+  SnapshotGrid(final int size, final ByteBuffer widths, final ByteBuffer[] columns) {
+    this.size = size;
+    this.widths = new Codes(widths);
+    this.columns = new Column[columns.length / 2];
+    for (int column = 0; column < this.columns.length; ++column) {
+      this.columns[column] = new Column(columns[2 * column], columns[2 * column + 1]);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<List<String>> getData() {
+    return new Rows();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public List<String> getRow(final int index) {
+    if (index < 0 || index >= size) return Collections.emptyList();
+    return new Row(index);
+  }
+
+  /**
+   * Access all cells of a single column, only this column of the snapshot is read.
+   *
+   * @param column the column number starting with 0
+   * @return a read-only view with one value for every row, values of rows that are too short are null, never null
+   */
+  public List<String> getColumn(final int column) {
+    if (column < 0) return Collections.emptyList();
+    return new Cells(column);
+  }
+
+  /** @return the number of columns of the widest row */
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getValue(final int row, final int column) {
+    if (row < 0 || row >= size || column < 0 || column >= columns.length) return null;
+    return columns[column].get(row);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String toString() {
+    return getData().toString();
+  }
+
+  /** A block of codes with a code per row. */
+  private static final class Codes
+  {
+    private final ByteBuffer codes;
+    private final int width;
+
+    Codes(final ByteBuffer block) {
+      width = block.get(0);
+      codes = block;
+    }
+
+    int get(final int row) {
+      if (width == 1) return codes.get(1 + row) & 0xff;
+      if (width == 2) return codes.getShort(1 + 2 * row) & 0xffff;
+      return codes.getInt(1 + 4 * row);
+    }
+  }
+
+  /** A column with its dictionary and codes, the values of the dictionary are decoded when they are accessed. */
+  private static final class Column
+  {
+    private final ByteBuffer dictionary;
+    private final Codes codes;
+    private final String[] values;
+
+    Column(final ByteBuffer dictionary, final ByteBuffer codes) {
+      this.dictionary = dictionary;
+      this.codes = new Codes(codes);
+      this.values = new String[dictionary.getInt(0)];
+    }
+
+    String get(final int row) {
+      int code = codes.get(row);
+      if (code == 0) return null;
+
+      String value = values[code - 1];
+      if (value == null) {
+        // strings are immutable, a thread that misses the value of another thread merely decodes it once more
+        int start = code == 1 ? 0 : dictionary.getInt(4 * (code - 1));
+        int end = dictionary.getInt(4 * code);
+        byte[] bytes = new byte[end - start];
+        ByteBuffer data = dictionary.duplicate();
+        data.position(4 + 4 * values.length + start);
+        data.get(bytes);
+        value = new String(bytes, SnapshotFormat.CHARSET);
+        values[code - 1] = value;
+      }
+      return value;
+    }
+  }
+
+  /** A row in read-only mode. */
+  private final class Row
+    extends AbstractList<String>
+    implements RandomAccess
+  {
+    private final int row;
+    private final int width;
+
+    Row(final int row) {
+      this.row = row;
+      this.width = widths.get(row);
+    }
+
+    @Override
+    public String get(final int index) {
+      if (index < 0 || index >= width) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + width);
+      return columns[index].get(row);
+    }
+
+    @Override
+    public int size() {
+      return width;
+    }
+  }
+
+  /** All cells of a single column in read-only mode. */
+  private final class Cells
+    extends AbstractList<String>
+    implements RandomAccess
+  {
+    private final int column;
+
+    Cells(final int column) {
+      this.column = column;
+    }
+
+    @Override
+    public String get(final int index) {
+      if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      return getValue(index, column);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+
+  /** All rows in read-only mode. */
+  private final class Rows
+    extends AbstractList<List<String>>
+    implements RandomAccess
+  {
+    @Override
+    public List<String> get(final int index) {
+      if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      return getRow(index);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
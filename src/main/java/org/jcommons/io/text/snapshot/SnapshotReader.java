@@ -0,0 +1,216 @@
+package org.jcommons.io.text.snapshot;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jcommons.io.sheet.Book;
+import org.jcommons.io.sheet.Sheet;
+import org.jcommons.io.text.Table;
+import org.jcommons.io.text.factory.TableFactory;
+import org.jcommons.io.text.files.Files;
+import org.jcommons.io.text.reader.BookReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opens a snapshot written by the <code>SnapshotWriter</code> as a book.
+ *
+ * Only the footer of the snapshot is read, the blocks of the sheets are mapped into memory and read by the operating
+ * system when their cells are accessed, so opening a snapshot takes a fraction of the time that parsing the original
+ * files took. The tables of the sheets are created with the parameters stored in the snapshot, the arguments of the
+ * book override them.
+ *
+ * The sheets reflect the snapshot at the time it was opened, do not change the file while it is mapped.
+ */
+public class SnapshotReader
+  implements BookReader
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SnapshotReader.class);
+
+  private final File file;
+
+  /**
+   * Create a reader for a snapshot.
+   *
+   * @param file the snapshot to read
+   */
+  public SnapshotReader(final File file) {
+    this.file = file;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Book read(final Map<String, String> arguments) {
+    return open(null, arguments);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Book read() {
+    return read(null);
+  }
+
+  /**
+   * Open a single sheet of the snapshot, the blocks of the other sheets are not mapped.
+   *
+   * @param name the case insensitive name of the sheet
+   * @param arguments several parameters to configure the table, can be null
+   * @return the sheet or null if there is no such sheet or the snapshot cannot be read
+   */
+  public Sheet readSheet(final String name, final Map<String, String> arguments) {
+    Book book = open(name, arguments);
+    return book == null ? null : book.getSheet(name);
+  }
+
+  /**
+   * @param name the name of the only sheet to open, null to open all sheets
+   * @param arguments the arguments of the book, can be null
+   * @return the book or null if the snapshot cannot be read
+   */
+  private Book open(final String name, final Map<String, String> arguments) {
+    if (file == null || !file.isFile()) {
+      if (LOG.isWarnEnabled()) {
+        LOG.warn(new StringBuilder("Cannot open file \"").append(file == null ? null : file.getAbsolutePath())
+            .append("\" as there is no such file.").toString());
+      }
+      return null;
+    }
+
+    FileInputStream input = null;
+    try {
+      // the mappings stay valid after the file has been closed
+      input = new FileInputStream(file);
+      FileChannel channel = input.getChannel();
+      List<Entry> entries = readFooter(channel);
+
+      Book book = new Book();
+      for (Entry entry : entries) {
+        if (name != null && !name.equalsIgnoreCase(entry.name)) continue;
+
+        ByteBuffer[] blocks = new ByteBuffer[entry.offsets.length - 1];
+        for (int block = 0; block < blocks.length; ++block) {
+          blocks[block] = map(channel, entry.offsets[block], entry.offsets[block + 1]);
+        }
+        ByteBuffer[] columns = new ByteBuffer[blocks.length - 1];
+        System.arraycopy(blocks, 1, columns, 0, columns.length);
+        SnapshotGrid grid = new SnapshotGrid(entry.size, blocks[0], columns);
+
+        Map<String, String> parameters = new HashMap<String, String>(entry.parameters);
+        if (arguments != null) parameters.putAll(arguments);
+        Table table = TableFactory.create(grid, parameters);
+        book.add(new Sheet().setTable(table).setName(entry.name));
+      }
+      return book;
+    } catch (IOException ioex) {
+      if (LOG.isWarnEnabled()) {
+        LOG.warn(new StringBuilder("Cannot read snapshot \"").append(file.getAbsolutePath()).append("\".").toString(),
+            ioex);
+      }
+      return null;
+    } finally {
+      Files.close(input, file);
+    }
+  }
+
+  /**
+   * @param channel the snapshot
+   * @return the sheets described by the footer, the offsets of every sheet end with the start of the next block
+   * @throws IOException if the snapshot cannot be read or is no snapshot
+   */
+  private List<Entry> readFooter(final FileChannel channel)
+    throws IOException
+  {
+    long length = channel.size();
+    if (length < 8 + SnapshotFormat.TRAILER || read(channel, 0, 8).getLong(0) != SnapshotFormat.MAGIC) {
+      throw new IOException("File is no snapshot.");
+    }
+    ByteBuffer trailer = read(channel, length - SnapshotFormat.TRAILER, SnapshotFormat.TRAILER);
+    long start = trailer.getLong(0);
+    long end = length - SnapshotFormat.TRAILER;
+    if (trailer.getLong(8) != SnapshotFormat.MAGIC || start < 8 || start > end) {
+      throw new IOException("Snapshot is incomplete.");
+    }
+
+    ByteBuffer footer = read(channel, start, (int) (end - start));
+    List<Entry> entries = new ArrayList<Entry>();
+    int sheets = footer.getInt();
+    for (int sheet = 0; sheet < sheets; ++sheet) {
+      Entry entry = new Entry();
+      entry.name = readString(footer);
+      int parameters = footer.getInt();
+      for (int parameter = 0; parameter < parameters; ++parameter) {
+        entry.parameters.put(readString(footer), readString(footer));
+      }
+      entry.size = footer.getInt();
+      entry.offsets = new long[2 + 2 * footer.getInt()];
+      for (int block = 0; block < entry.offsets.length - 1; ++block) {
+        entry.offsets[block] = footer.getLong();
+      }
+      entries.add(entry);
+    }
+    // every block ends where the next one starts
+    for (int sheet = 0; sheet < entries.size(); ++sheet) {
+      long[] offsets = entries.get(sheet).offsets;
+      offsets[offsets.length - 1] = sheet + 1 < entries.size() ? entries.get(sheet + 1).offsets[0] : start;
+    }
+    return entries;
+  }
+
+  /**
+   * @param channel the snapshot
+   * @param from the offset of the block
+   * @param to the offset after the block
+   * @return the mapped block
+   * @throws IOException if the block cannot be mapped
+   */
+  private static ByteBuffer map(final FileChannel channel, final long from, final long to)
+    throws IOException
+  {
+    if (from < 0 || to < from || to - from > Integer.MAX_VALUE) throw new IOException("Snapshot is corrupt.");
+    return channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+  }
+
+  /**
+   * @param channel the snapshot
+   * @param position the offset of the bytes
+   * @param length the number of bytes
+   * @return the bytes read
+   * @throws IOException if the bytes cannot be read
+   */
+  private static ByteBuffer read(final FileChannel channel, final long position, final int length)
+    throws IOException
+  {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) throw new IOException("Snapshot is incomplete.");
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * @param footer the footer at the position of the text
+   * @return the text
+   */
+  private static String readString(final ByteBuffer footer) {
+    byte[] bytes = new byte[footer.getInt()];
+    footer.get(bytes);
+    return new String(bytes, SnapshotFormat.CHARSET);
+  }
+
+  /** A sheet as described by the footer. */
+  private static final class Entry
+  {
+    private String name;
+    private final Map<String, String> parameters = new HashMap<String, String>();
+    private int size;
+    private long[] offsets;
+  }
+}
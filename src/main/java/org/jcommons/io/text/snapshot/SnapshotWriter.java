@@ -0,0 +1,294 @@
+package org.jcommons.io.text.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.jcommons.io.sheet.Book;
+import org.jcommons.io.sheet.Sheet;
+import org.jcommons.io.text.Spreadsheet;
+import org.jcommons.io.text.Table;
+import org.jcommons.io.text.Tabular;
+import org.jcommons.io.text.files.Files;
+import org.jcommons.io.text.writer.BookWriter;
+import org.jcommons.io.text.writer.GridWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes books or single grids into a binary snapshot that the <code>SnapshotReader</code> opens without parsing.
+ *
+ * Every column of a sheet is stored on its own with a dictionary of its distinct values and a code per row, so columns
+ * with few distinct values take a byte per cell. A footer records where every block starts, which lets the reader open
+ * a single sheet or column without reading the rest of the file.
+ *
+ * The sheet of a <code>Spreadsheet</code> is stored with its complete grid and its parameters, so the reader restores
+ * the same table including skipped rows. Other tables are stored as their column row followed by their data rows.
+ */
+public class SnapshotWriter
+  implements BookWriter, GridWriter
+{
+  private static final Logger LOG = LoggerFactory.getLogger(SnapshotWriter.class);
+
+  private final File file;
+
+  /**
+   * Create a writer for a snapshot.
+   *
+   * @param file the snapshot to write, an existing file is replaced
+   */
+  public SnapshotWriter(final File file) {
+    this.file = file;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean write(final Book book) {
+    List<String> names = new ArrayList<String>();
+    List<Tabular> grids = new ArrayList<Tabular>();
+    List<Map<String, String>> parameters = new ArrayList<Map<String, String>>();
+    for (Sheet sheet : book.getSheets()) {
+      names.add(sheet.getName());
+      Table table = sheet.getTable();
+      if (table instanceof Spreadsheet && ((Spreadsheet) table).getTabular() != null) {
+        grids.add(((Spreadsheet) table).getTabular());
+        parameters.add(table.getParameters());
+      } else {
+        grids.add(table == null ? new TableRows(null) : new TableRows(table));
+        parameters.add(Collections.<String, String> emptyMap());
+      }
+    }
+    return write(names, grids, parameters);
+  }
+
+  /**
+   * Writes the grid as the only sheet of a snapshot, which has no name.
+   *
+   * @param grid the grid to write, never null
+   * @return true if the grid has been written, false if the file cannot be written
+   */
+  @Override
+  public boolean write(final Tabular grid) {
+    return write(Collections.singletonList(""), Collections.singletonList(grid),
+        Collections.singletonList(Collections.<String, String> emptyMap()));
+  }
+
+  /**
+   * @param names the names of the sheets
+   * @param grids the grids of the sheets
+   * @param parameters the parameters of the tables of the sheets
+   * @return true if the snapshot has been written
+   */
+  private boolean write(final List<String> names, final List<Tabular> grids,
+                        final List<Map<String, String>> parameters)
+  {
+    DataOutputStream output = null;
+    try {
+      CountingOutputStream counter = new CountingOutputStream(new FileOutputStream(file));
+      output = new DataOutputStream(new BufferedOutputStream(counter, Files.BUFFER_SIZE));
+      output.writeLong(SnapshotFormat.MAGIC);
+
+      List<long[]> offsets = new ArrayList<long[]>(grids.size());
+      for (Tabular grid : grids) {
+        offsets.add(writeGrid(output, counter, grid));
+      }
+
+      output.flush();
+      long footer = counter.getByteCount();
+      output.writeInt(grids.size());
+      for (int sheet = 0; sheet < grids.size(); ++sheet) {
+        writeString(output, names.get(sheet));
+        output.writeInt(parameters.get(sheet).size());
+        for (Map.Entry<String, String> parameter : parameters.get(sheet).entrySet()) {
+          writeString(output, parameter.getKey());
+          writeString(output, parameter.getValue());
+        }
+        output.writeInt(grids.get(sheet).size());
+        long[] blocks = offsets.get(sheet);
+        output.writeInt(blocks.length / 2);
+        for (long offset : blocks) {
+          output.writeLong(offset);
+        }
+      }
+      output.writeLong(footer);
+      output.writeLong(SnapshotFormat.MAGIC);
+      output.flush();
+      if (LOG.isDebugEnabled()) {
+        LOG.debug(new StringBuilder("Wrote snapshot with ").append(grids.size()).append(" sheets.").toString());
+      }
+      return true;
+    } catch (IOException ioex) {
+      if (LOG.isWarnEnabled()) {
+        LOG.warn(new StringBuilder("Cannot write snapshot \"").append(file.getAbsolutePath()).append("\".").toString(),
+            ioex);
+      }
+      return false;
+    } finally {
+      Files.close(output, file);
+    }
+  }
+
+  /**
+   * Write the widths of the rows and every column of a grid.
+   *
+   * @param output the snapshot
+   * @param counter the number of bytes written so far once the snapshot has been flushed
+   * @param grid the grid to write
+   * @return the offset of the widths, then the offsets of the dictionary and the codes of every column
+   * @throws IOException if the grid cannot be written
+   */
+  private static long[] writeGrid(final DataOutputStream output, final CountingOutputStream counter,
+                                  final Tabular grid)
+    throws IOException
+  {
+    int size = grid.size();
+    int[] widths = new int[size];
+    int columns = 0;
+    for (int row = 0; row < size; ++row) {
+      widths[row] = grid.getRow(row).size();
+      columns = Math.max(columns, widths[row]);
+    }
+
+    long[] offsets = new long[1 + 2 * columns];
+    output.flush();
+    offsets[0] = counter.getByteCount();
+    writeCodes(output, widths, columns);
+
+    int[] codes = new int[size];
+    for (int column = 0; column < columns; ++column) {
+      Map<String, Integer> dictionary = new HashMap<String, Integer>();
+      List<byte[]> values = new ArrayList<byte[]>();
+      for (int row = 0; row < size; ++row) {
+        String value = column < widths[row] ? grid.getValue(row, column) : null;
+        if (value == null) {
+          codes[row] = 0;
+          continue;
+        }
+        Integer code = dictionary.get(value);
+        if (code == null) {
+          values.add(value.getBytes(SnapshotFormat.CHARSET));
+          code = values.size();
+          dictionary.put(value, code);
+        }
+        codes[row] = code;
+      }
+
+      output.flush();
+      offsets[1 + 2 * column] = counter.getByteCount();
+      writeDictionary(output, values);
+      output.flush();
+      offsets[2 + 2 * column] = counter.getByteCount();
+      writeCodes(output, codes, values.size());
+    }
+    return offsets;
+  }
+
+  /**
+   * @param output the snapshot
+   * @param values the encoded values of a dictionary in the order of their codes
+   * @throws IOException if the dictionary cannot be written or is too large
+   */
+  private static void writeDictionary(final DataOutputStream output, final List<byte[]> values)
+    throws IOException
+  {
+    output.writeInt(values.size());
+    long end = 0;
+    for (byte[] value : values) {
+      end += value.length;
+      if (end > Integer.MAX_VALUE) throw new IOException("Column has too many distinct values.");
+      output.writeInt((int) end);
+    }
+    for (byte[] value : values) {
+      output.write(value);
+    }
+  }
+
+  /**
+   * @param output the snapshot
+   * @param codes the codes of all rows
+   * @param max the largest code
+   * @throws IOException if the codes cannot be written
+   */
+  private static void writeCodes(final DataOutputStream output, final int[] codes, final int max)
+    throws IOException
+  {
+    int width = SnapshotFormat.getWidth(max);
+    output.writeByte(width);
+    for (int code : codes) {
+      if (width == 1) {
+        output.writeByte(code);
+      } else if (width == 2) {
+        output.writeShort(code);
+      } else {
+        output.writeInt(code);
+      }
+    }
+  }
+
+  /**
+   * @param output the snapshot
+   * @param text the text to write, null is written as empty text
+   * @throws IOException if the text cannot be written
+   */
+  private static void writeString(final DataOutputStream output, final String text)
+    throws IOException
+  {
+    byte[] bytes = text == null ? new byte[0] : text.getBytes(SnapshotFormat.CHARSET);
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  /** The column row followed by the data rows of a table. */
+  private static final class TableRows
+    implements Tabular
+  {
+    private final Table table;
+
+    /** @param table the table, null for no rows */
+    TableRows(final Table table) {
+      this.table = table;
+    }
+
+    @Override
+    public List<List<String>> getData() {
+      return new AbstractList<List<String>>() {
+        @Override
+        public List<String> get(final int index) {
+          if (index < 0 || index >= size()) throw new IndexOutOfBoundsException(Integer.toString(index));
+          return getRow(index);
+        }
+
+        @Override
+        public int size() {
+          return TableRows.this.size();
+        }
+      };
+    }
+
+    @Override
+    public List<String> getRow(final int index) {
+      if (index < 0 || index >= size()) return Collections.emptyList();
+      return index == 0 ? table.getColumns() : table.getRow(index - 1);
+    }
+
+    @Override
+    public String getValue(final int row, final int column) {
+      List<String> cells = getRow(row);
+      return column >= 0 && column < cells.size() ? cells.get(column) : null;
+    }
+
+    @Override
+    public int size() {
+      return table == null ? 0 : table.size() + 1;
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package org.jcommons.io.text.writer;
+
+import org.jcommons.io.sheet.Book;
+
+/**
+ * A data writer that writes a book with all its sheets to some target
+ */
+public interface BookWriter
+{
+  /**
+   * Writes all sheets of the book, each with its column row followed by the data rows of its table.
+   *
+   * @param book the book to write, never null
+   * @return true if the book has been written, false if it cannot be written
+   */
+  boolean write(Book book);
+}
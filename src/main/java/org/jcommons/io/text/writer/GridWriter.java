@@ -0,0 +1,17 @@
+package org.jcommons.io.text.writer;
+
+import org.jcommons.io.text.Tabular;
+
+/**
+ * A text writer writes tabular data from its in-memory format to some target
+ */
+public interface GridWriter
+{
+  /**
+   * Writes all rows of the table to some target, a table is preceded by its column row.
+   *
+   * @param table the table to write, never null
+   * @return true if the table has been written, false if it cannot be written
+   */
+  boolean write(Tabular table);
+}
@@ -0,0 +1,461 @@
+package org.jcommons.io.text.writer.csv;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.jcommons.io.text.Table;
+import org.jcommons.io.text.Tabular;
+import org.jcommons.io.text.files.Files;
+import org.jcommons.io.text.reader.csv.CsvGridReader;
+import org.jcommons.io.text.writer.GridWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes tabular data into comma separated text files that the <code>CsvGridReader</code> reads back
+ *
+ * The cells are copied into a character buffer that is reused for all rows and files, encoded in one go when it is full
+ * and written to the channel of the file, so no object is created per cell or row. By default only cells that need it
+ * are quoted: cells containing the delimiter, a quote character or a line break and cells with leading or trailing
+ * white space, which the reader would remove otherwise. Quotes within quoted cells are doubled. Missing cells and empty
+ * cells are written as nothing, which the reader returns as <code>null</code> by default. Empty cells can be written
+ * as a pair of quotes instead, for readers that return those as empty strings. The format can be taken from the reader
+ * that reads the file back.
+ */
+public class CsvGridWriter
+  implements GridWriter
+{
+  private static final Logger LOG = LoggerFactory.getLogger(CsvGridWriter.class);
+
+  /** quote the cells that would not be read back as they are, the default */
+  public static final int QUOTE_MINIMAL = 0;
+  /** quote all cells that have a value */
+  public static final int QUOTE_ALL = 1;
+  /** never quote, the cells must not contain delimiters, quotes or line breaks */
+  public static final int QUOTE_NONE = 2;
+
+  private static final String DEFAULT_DELIMITER = ",";
+  private static final String DEFAULT_ESCAPE = "\"";
+
+  private String delimiter = DEFAULT_DELIMITER;
+  private String escape = DEFAULT_ESCAPE;
+  private int quoting = QUOTE_MINIMAL;
+  private boolean quotedEmpty = false;
+  private String lineSeparator = System.lineSeparator();
+  private Charset charset = Charset.defaultCharset();
+  private int bufferSize = Files.BUFFER_SIZE;
+
+  private File file;
+
+  /** the state of the current write, the buffers are kept for the next write */
+  private char[] buffer;
+  private int position;
+  private CharBuffer chars;
+  private ByteBuffer bytes;
+  private CharsetEncoder encoder;
+  private FileChannel channel;
+  private final boolean[] special = new boolean[128];
+  private String specialChars;
+  private char quote;
+
+  /** Create a writer, specify the file later. */
+  public CsvGridWriter() {
+    file = null;
+  }
+
+  /**
+   * Construct a writer for the given file name.
+   *
+   * @param fileName the path to the file which should be written
+   */
+  public CsvGridWriter(final String fileName) {
+    file = new File(fileName);
+  }
+
+  /**
+   * Construct a writer for the given file.
+   *
+   * @param file the file to write to, an existing file is replaced
+   */
+  public CsvGridWriter(final File file) {
+    this.file = file;
+  }
+
+  /**
+   * Specify which file to write to
+   *
+   * @param file the file to write to, an existing file is replaced
+   * @return this to allow chaining
+   */
+  public CsvGridWriter setFile(final File file) {
+    this.file = file;
+    return this;
+  }
+
+  /** @return the current file we want to write to */
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Take the delimiter, the quote characters, the encoding and how empty cells are quoted from a reader, so that it
+   * reads the file back
+   *
+   * @param reader the reader whose format to use, never null
+   * @return this to allow chaining
+   */
+  public CsvGridWriter setFormat(final CsvGridReader reader) {
+    return setDelimiter(reader.getDelimiter()).setEscape(reader.getEscape()).setCharset(reader.getCharset())
+        .setQuotedEmpty(reader.isQuotedEmptyAsEmpty());
+  }
+
+  /**
+   * Writes the rows of the table, a <code>Table</code> is preceded by its column row.
+   *
+   * @param table the table to write, never null
+   * @return true if the table has been written, false if the file cannot be written
+   */
+  @Override
+  public boolean write(final Tabular table) {
+    if (!open()) return false;
+    try {
+      if (table instanceof Table) writeRow(((Table) table).getColumns());
+      int size = table.size();
+      for (int row = 0; row < size; ++row) {
+        writeRow(table.getRow(row));
+      }
+      flush(true);
+      return true;
+    } catch (IOException ioex) {
+      warn(ioex);
+      return false;
+    } finally {
+      close();
+    }
+  }
+
+  /**
+   * Writes the rows returned by an iterator as they are returned, e.g. by the <code>RowIterator</code> of a reader.
+   *
+   * @param rows the rows to write, never null
+   * @return true if the rows have been written, false if the file cannot be written
+   */
+  public boolean write(final Iterator<? extends List<String>> rows) {
+    if (!open()) return false;
+    try {
+      while (rows.hasNext()) {
+        writeRow(rows.next());
+      }
+      flush(true);
+      return true;
+    } catch (IOException ioex) {
+      warn(ioex);
+      return false;
+    } finally {
+      close();
+    }
+  }
+
+  /** @return true if the file has been opened and the buffers are prepared */
+  private boolean open() {
+    if (file == null) return false;
+    try {
+      channel = new FileOutputStream(file).getChannel();
+    } catch (IOException ioex) {
+      warn(ioex);
+      return false;
+    }
+
+    if (buffer == null || buffer.length != bufferSize) {
+      buffer = new char[bufferSize];
+      chars = CharBuffer.wrap(buffer);
+      bytes = ByteBuffer.allocateDirect(bufferSize);
+    }
+    if (encoder == null || !encoder.charset().equals(charset)) {
+      encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+    encoder.reset();
+    bytes.clear();
+    position = 0;
+
+    // the characters that require a cell to be quoted
+    specialChars = "\r\n" + delimiter + escape;
+    Arrays.fill(special, false);
+    for (int index = 0; index < specialChars.length(); ++index) {
+      char c = specialChars.charAt(index);
+      if (c < special.length) special[c] = true;
+    }
+    quote = escape.charAt(0);
+    return true;
+  }
+
+  /** close the file of the current write */
+  private void close() {
+    Files.close(channel, file);
+    channel = null;
+  }
+
+  /** @param ioex the reason why the file cannot be written */
+  private void warn(final IOException ioex) {
+    if (LOG.isWarnEnabled()) {
+      LOG.warn(new StringBuilder("Cannot write file \"").append(file.getAbsolutePath()).append("\".").toString(), ioex);
+    }
+  }
+
+  /**
+   * @param row the cells of the row, null cells and empty cells unless they are quoted are written as nothing
+   * @throws IOException if the row cannot be written
+   */
+  private void writeRow(final List<String> row)
+    throws IOException
+  {
+    int size = row.size();
+    for (int column = 0; column < size; ++column) {
+      if (column > 0) append(delimiter, 0, delimiter.length());
+      String value = row.get(column);
+      if (value != null && (quotedEmpty || !value.isEmpty())) writeCell(value);
+    }
+    append(lineSeparator, 0, lineSeparator.length());
+  }
+
+  /**
+   * @param value the value of a cell, never null, only empty if empty cells are quoted
+   * @throws IOException if the cell cannot be written
+   */
+  private void writeCell(final String value)
+    throws IOException
+  {
+    if (quoting == QUOTE_NONE || (quoting == QUOTE_MINIMAL && !needsQuotes(value))) {
+      append(value, 0, value.length());
+      return;
+    }
+
+    append(quote);
+    int start = 0;
+    for (int index = value.indexOf(quote); index >= 0; index = value.indexOf(quote, start)) {
+      append(value, start, index + 1);
+      append(quote);
+      start = index + 1;
+    }
+    append(value, start, value.length());
+    append(quote);
+  }
+
+  /**
+   * @param value the value of a cell, never null, only empty if empty cells are quoted
+   * @return true if the value would not be read back as it is without quotes
+   */
+  private boolean needsQuotes(final String value) {
+    int length = value.length();
+    if (length == 0) return true;
+    if (value.charAt(0) <= ' ' || value.charAt(length - 1) <= ' ') return true;
+    for (int index = 0; index < length; ++index) {
+      char c = value.charAt(index);
+      if (c < special.length ? special[c] : specialChars.indexOf(c) >= 0) return true;
+    }
+    return false;
+  }
+
+  /**
+   * @param c the character to add to the buffer
+   * @throws IOException if the buffer cannot be written
+   */
+  private void append(final char c)
+    throws IOException
+  {
+    if (position == buffer.length) flush(false);
+    buffer[position++] = c;
+  }
+
+  /**
+   * @param text the text to add to the buffer
+   * @param from the first character to add
+   * @param to the position after the last character to add
+   * @throws IOException if the buffer cannot be written
+   */
+  private void append(final String text, final int from, final int to)
+    throws IOException
+  {
+    int start = from;
+    while (start < to) {
+      if (position == buffer.length) flush(false);
+      int end = Math.min(to, start + buffer.length - position);
+      text.getChars(start, end, buffer, position);
+      position += end - start;
+      start = end;
+    }
+  }
+
+  /**
+   * Encode the buffer and write it to the file, a character that cannot be encoded without the next one is kept.
+   *
+   * @param end true if there are no more characters
+   * @throws IOException if the file cannot be written
+   */
+  private void flush(final boolean end)
+    throws IOException
+  {
+    chars.clear();
+    chars.limit(position);
+    while (encoder.encode(chars, bytes, end).isOverflow()) {
+      drain();
+    }
+    if (end) {
+      CoderResult result = encoder.flush(bytes);
+      while (result.isOverflow()) {
+        drain();
+        result = encoder.flush(bytes);
+      }
+    }
+    drain();
+
+    int left = chars.remaining();
+    System.arraycopy(buffer, chars.position(), buffer, 0, left);
+    position = left;
+  }
+
+  /**
+   * write the encoded bytes to the file
+   *
+   * @throws IOException if the file cannot be written
+   */
+  private void drain()
+    throws IOException
+  {
+    bytes.flip();
+    while (bytes.hasRemaining()) {
+      channel.write(bytes);
+    }
+    bytes.clear();
+  }
+
+  /** @return the current delimiter that separates the cells from each other */
+  public String getDelimiter() {
+    return delimiter;
+  }
+
+  /**
+   * Define which character sequence separates the cells
+   *
+   * @param delimiter the delimiter to be used, <code>null</code> to reset to the default delimiter
+   * @return this to allow chaining
+   */
+  public CsvGridWriter setDelimiter(final String delimiter) {
+    this.delimiter = StringUtils.defaultIfEmpty(delimiter, DEFAULT_DELIMITER);
+    return this;
+  }
+
+  /** @return the quote characters, the first one encloses quoted cells */
+  public String getEscape() {
+    return escape;
+  }
+
+  /**
+   * Define which character encloses cells to escape delimiters contained in them
+   *
+   * Same as for the reader, all characters of the escape sequence are quote characters. The first one encloses quoted
+   * cells, cells containing any of them are quoted.
+   *
+   * @param escape the escape character sequence to be used, <code>null</code> to reset to the default
+   * @return this to allow chaining
+   */
+  public CsvGridWriter setEscape(final String escape) {
+    this.escape = StringUtils.defaultIfEmpty(escape, DEFAULT_ESCAPE);
+    return this;
+  }
+
+  /** @return which cells are quoted, <code>QUOTE_MINIMAL</code> by default */
+  public int getQuoting() {
+    return quoting;
+  }
+
+  /**
+   * Define which cells are quoted
+   *
+   * @param quoting one of <code>QUOTE_MINIMAL</code>, <code>QUOTE_ALL</code> or <code>QUOTE_NONE</code>, other values
+   *          reset to the default
+   * @return this to allow chaining
+   */
+  public CsvGridWriter setQuoting(final int quoting) {
+    this.quoting = quoting == QUOTE_ALL || quoting == QUOTE_NONE ? quoting : QUOTE_MINIMAL;
+    return this;
+  }
+
+  /** @return true if empty cells are written as a pair of quotes, false if they are written as nothing, the default */
+  public boolean isQuotedEmpty() {
+    return quotedEmpty;
+  }
+
+  /**
+   * Define if empty cells are written as a pair of quotes, which a reader returns as empty strings if it is set to
+   * return quoted empty values as empty strings. Without quoting empty cells are always written as nothing.
+   *
+   * @param quotedEmpty true to write empty cells as a pair of quotes, false to write them as nothing
+   * @return this to allow chaining
+   */
+  public CsvGridWriter setQuotedEmpty(final boolean quotedEmpty) {
+    this.quotedEmpty = quotedEmpty;
+    return this;
+  }
+
+  /** @return the characters that end a row, the line separator of the platform by default */
+  public String getLineSeparator() {
+    return lineSeparator;
+  }
+
+  /**
+   * Define the characters that end a row
+   *
+   * @param lineSeparator the line separator, <code>null</code> to reset to the line separator of the platform
+   * @return this to allow chaining
+   */
+  public CsvGridWriter setLineSeparator(final String lineSeparator) {
+    this.lineSeparator = StringUtils.defaultIfEmpty(lineSeparator, System.lineSeparator());
+    return this;
+  }
+
+  /** @return the encoding of the file, the default charset of the platform by default */
+  public Charset getCharset() {
+    return charset;
+  }
+
+  /**
+   * Define the encoding of the file, characters that cannot be encoded are replaced
+   *
+   * @param charset the encoding, <code>null</code> to reset to the default charset of the platform
+   * @return this to allow chaining
+   */
+  public CsvGridWriter setCharset(final Charset charset) {
+    this.charset = charset == null ? Charset.defaultCharset() : charset;
+    return this;
+  }
+
+  /** @return the number of characters encoded and written to the file at once */
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * Define how much is written to the file at once
+   *
+   * @param bufferSize the number of characters, at least 1 kB are used
+   * @return this to allow chaining
+   */
+  public CsvGridWriter setBufferSize(final int bufferSize) {
+    this.bufferSize = Math.max(1024, bufferSize);
+    return this;
+  }
+}
@@ -0,0 +1,477 @@
+package org.jcommons.io.text.writer.xlsx;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.jcommons.io.sheet.Book;
+import org.jcommons.io.sheet.Sheet;
+import org.jcommons.io.text.Table;
+import org.jcommons.io.text.files.Files;
+import org.jcommons.io.text.writer.BookWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes a book into an Excel workbook (xlsx) with a worksheet per sheet in the order of the book.
+ *
+ * Every worksheet is written row by row straight into the compressed workbook, so no cell is held in memory and a
+ * worksheet of millions of rows needs no more heap than a single row and the output buffer. Text is written inline with
+ * the cells instead of into shared strings, which would have to be kept until the end. Values that are plain decimal
+ * numbers are written as numbers unless disabled, numbers with leading zeros or more digits than Excel keeps remain
+ * text.
+ *
+ * Sheet names are cut to the 31 characters Excel allows, characters Excel does not allow are replaced and duplicate
+ * names are numbered. A worksheet holds at most 1,048,576 rows, the rows of larger tables continue on worksheets named
+ * like "name (2)" that repeat the column row. Tables with more than 16,384 columns cannot be written.
+ */
+public class XlsxBookWriter
+  implements BookWriter
+{
+  private static final Logger LOG = LoggerFactory.getLogger(XlsxBookWriter.class);
+
+  private static final String MAIN = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+  private static final String PACKAGE = "http://schemas.openxmlformats.org/package/2006/";
+  private static final String OFFICE = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+  private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+
+  /** the maximum length of a sheet name in Excel */
+  private static final int MAX_NAME = 31;
+  /** the number of significant digits Excel keeps of a number */
+  private static final int MAX_DIGITS = 15;
+  /** the maximum number of rows of a worksheet in Excel */
+  static final int MAX_ROWS = 1048576;
+  /** the maximum number of columns of a worksheet in Excel */
+  static final int MAX_COLUMNS = 16384;
+
+  private final File file;
+  private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+  private boolean numbers = true;
+  private final List<String> columns = new ArrayList<String>();
+
+  /**
+   * Create a writer for a workbook.
+   *
+   * @param file the workbook to write, an existing file is replaced
+   */
+  public XlsxBookWriter(final File file) {
+    this.file = file;
+  }
+
+  /**
+   * Define how much the workbook is compressed
+   *
+   * @param compressionLevel the level from 0 for no compression, which is fastest, to 9 for the smallest file, -1 for
+   *          the default level
+   * @return this to allow chaining
+   */
+  public XlsxBookWriter setCompressionLevel(final int compressionLevel) {
+    this.compressionLevel = Math.max(-1, Math.min(9, compressionLevel));
+    return this;
+  }
+
+  /** @return the compression level of the workbook, -1 for the default level, the default */
+  public int getCompressionLevel() {
+    return compressionLevel;
+  }
+
+  /**
+   * Define if values that are plain decimal numbers are written as numbers
+   *
+   * @param numbers true to write numbers as numbers, the default, false to write all values as text
+   * @return this to allow chaining
+   */
+  public XlsxBookWriter setNumbers(final boolean numbers) {
+    this.numbers = numbers;
+    return this;
+  }
+
+  /** @return true if numbers are written as numbers, the default */
+  public boolean isNumbers() {
+    return numbers;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean write(final Book book) {
+    List<Worksheet> worksheets = split(book.getSheets());
+    if (worksheets == null) return false;
+
+    ZipOutputStream zip = null;
+    boolean written = false;
+    try {
+      zip = new ZipOutputStream(new FileOutputStream(file), StandardCharsets.UTF_8);
+      zip.setLevel(compressionLevel);
+      Writer writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), Files.BUFFER_SIZE);
+
+      writeStatic(zip, writer, worksheets.size());
+      writeWorkbook(zip, writer, worksheets);
+      for (int index = 0; index < worksheets.size(); ++index) {
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + (index + 1) + ".xml"));
+        writeWorksheet(writer, worksheets.get(index));
+        writer.flush();
+        zip.closeEntry();
+      }
+      zip.finish();
+      LOG.info("Wrote book with " + worksheets.size() + " worksheets.");
+      written = true;
+      return true;
+    } catch (IOException ioex) {
+      if (LOG.isWarnEnabled()) {
+        LOG.warn(new StringBuilder("Cannot write workbook \"").append(file.getAbsolutePath()).append("\".").toString(),
+            ioex);
+      }
+      return false;
+    } finally {
+      Files.close(zip, file);
+      // a workbook that is incomplete cannot be opened anyway
+      if (!written && zip != null) FileUtils.deleteQuietly(file);
+    }
+  }
+
+  /**
+   * Split the sheets into worksheets that fit into the limits of Excel.
+   *
+   * @param sheets the sheets of the book
+   * @return the worksheets in the order of the book, null if a table has too many columns
+   */
+  private List<Worksheet> split(final List<Sheet> sheets) {
+    List<Worksheet> worksheets = new ArrayList<Worksheet>(sheets.size());
+    for (Sheet sheet : sheets) {
+      Table table = sheet.getTable();
+      if (table != null && table.getColumns().size() > MAX_COLUMNS) {
+        if (LOG.isWarnEnabled()) {
+          LOG.warn(new StringBuilder("Cannot write sheet \"").append(sheet.getName()).append("\" with ")
+              .append(table.getColumns().size()).append(" columns as Excel allows ").append(MAX_COLUMNS)
+              .append(" columns only.").toString());
+        }
+        return null;
+      }
+
+      // the column row is repeated on every worksheet of a table
+      int size = table == null ? 0 : table.size();
+      int part = 1;
+      int from = 0;
+      do {
+        int to = (int) Math.min(size, (long) from + MAX_ROWS - 1);
+        worksheets.add(new Worksheet(sheet.getName(), part++, table, from, to));
+        from = to;
+      } while (from < size);
+    }
+    return worksheets;
+  }
+
+  /**
+   * Write the parts that only depend on the number of worksheets.
+   *
+   * @param zip the workbook
+   * @param writer the writer on the workbook
+   * @param sheets the number of worksheets
+   * @throws IOException if the parts cannot be written
+   */
+  private static void writeStatic(final ZipOutputStream zip, final Writer writer, final int sheets)
+    throws IOException
+  {
+    zip.putNextEntry(new ZipEntry("[Content_Types].xml"));
+    writer.write(HEADER);
+    writer.write("<Types xmlns=\"" + PACKAGE + "content-types\">");
+    writer.write("<Default Extension=\"rels\" "
+        + "ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>");
+    writer.write("<Default Extension=\"xml\" ContentType=\"application/xml\"/>");
+    writer.write("<Override PartName=\"/xl/workbook.xml\" "
+        + "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>");
+    writer.write("<Override PartName=\"/xl/styles.xml\" "
+        + "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+    for (int index = 1; index <= sheets; ++index) {
+      writer.write("<Override PartName=\"/xl/worksheets/sheet" + index + ".xml\" "
+          + "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+    }
+    writer.write("</Types>");
+    closeEntry(zip, writer);
+
+    zip.putNextEntry(new ZipEntry("_rels/.rels"));
+    writer.write(HEADER);
+    writer.write("<Relationships xmlns=\"" + PACKAGE + "relationships\">");
+    writer.write("<Relationship Id=\"rId1\" Type=\"" + OFFICE + "/officeDocument\" Target=\"xl/workbook.xml\"/>");
+    writer.write("</Relationships>");
+    closeEntry(zip, writer);
+
+    zip.putNextEntry(new ZipEntry("xl/_rels/workbook.xml.rels"));
+    writer.write(HEADER);
+    writer.write("<Relationships xmlns=\"" + PACKAGE + "relationships\">");
+    writer.write("<Relationship Id=\"rId0\" Type=\"" + OFFICE + "/styles\" Target=\"styles.xml\"/>");
+    for (int index = 1; index <= sheets; ++index) {
+      writer.write("<Relationship Id=\"rId" + index + "\" Type=\"" + OFFICE + "/worksheet\" Target=\"worksheets/sheet"
+          + index + ".xml\"/>");
+    }
+    writer.write("</Relationships>");
+    closeEntry(zip, writer);
+
+    zip.putNextEntry(new ZipEntry("xl/styles.xml"));
+    writer.write(HEADER);
+    writer.write("<styleSheet xmlns=\"" + MAIN + "\">");
+    writer.write("<fonts count=\"1\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>");
+    writer.write("<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill>"
+        + "<fill><patternFill patternType=\"gray125\"/></fill></fills>");
+    writer.write("<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>");
+    writer.write("<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/>"
+        + "</cellStyleXfs>");
+    writer.write("<cellXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+        + "</cellXfs>");
+    writer.write("</styleSheet>");
+    closeEntry(zip, writer);
+  }
+
+  /**
+   * Write the list of worksheets.
+   *
+   * @param zip the workbook
+   * @param writer the writer on the workbook
+   * @param worksheets the worksheets of the book
+   * @throws IOException if the part cannot be written
+   */
+  private static void writeWorkbook(final ZipOutputStream zip, final Writer writer, final List<Worksheet> worksheets)
+    throws IOException
+  {
+    zip.putNextEntry(new ZipEntry("xl/workbook.xml"));
+    writer.write(HEADER);
+    writer.write("<workbook xmlns=\"" + MAIN + "\" xmlns:r=\"" + OFFICE + "\"><sheets>");
+    Set<String> names = new HashSet<String>();
+    for (int index = 1; index <= worksheets.size(); ++index) {
+      Worksheet worksheet = worksheets.get(index - 1);
+      writer.write("<sheet name=\"");
+      escape(writer, getSheetName(worksheet.name, worksheet.part, index, names), true);
+      writer.write("\" sheetId=\"" + index + "\" r:id=\"rId" + index + "\"/>");
+    }
+    writer.write("</sheets></workbook>");
+    closeEntry(zip, writer);
+  }
+
+  /**
+   * Write the column row and the data rows of a worksheet.
+   *
+   * @param writer the writer on the workbook
+   * @param worksheet the worksheet
+   * @throws IOException if the worksheet cannot be written or a row has too many columns
+   */
+  private void writeWorksheet(final Writer writer, final Worksheet worksheet)
+    throws IOException
+  {
+    writer.write(HEADER);
+    writer.write("<worksheet xmlns=\"" + MAIN + "\"><sheetData>");
+    Table table = worksheet.table;
+    if (table != null) {
+      writeRow(writer, 1, table.getColumns());
+      for (int row = worksheet.from; row < worksheet.to; ++row) {
+        writeRow(writer, row - worksheet.from + 2, table.getRow(row));
+      }
+    }
+    writer.write("</sheetData></worksheet>");
+  }
+
+  /**
+   * Write a row, cells without a value are left out.
+   *
+   * @param writer the writer on the workbook
+   * @param number the number of the row starting with 1
+   * @param cells the values of the row
+   * @throws IOException if the row cannot be written or has too many columns
+   */
+  private void writeRow(final Writer writer, final int number, final List<String> cells)
+    throws IOException
+  {
+    if (cells.size() > MAX_COLUMNS) {
+      throw new IOException("Row has " + cells.size() + " columns but Excel allows " + MAX_COLUMNS + " columns only.");
+    }
+    String row = Integer.toString(number);
+    writer.write("<row r=\"");
+    writer.write(row);
+    writer.write("\">");
+    for (int column = 0; column < cells.size(); ++column) {
+      String value = cells.get(column);
+      if (value == null) continue;
+
+      writer.write("<c r=\"");
+      writer.write(getColumnName(column));
+      writer.write(row);
+      if (numbers && isNumber(value)) {
+        writer.write("\"><v>");
+        writer.write(value);
+        writer.write("</v></c>");
+      } else {
+        writer.write("\" t=\"inlineStr\"><is>");
+        writer.write(isPadded(value) ? "<t xml:space=\"preserve\">" : "<t>");
+        escape(writer, value, false);
+        writer.write("</t></is></c>");
+      }
+    }
+    writer.write("</row>");
+  }
+
+  /**
+   * @param column the position of a column starting with 0
+   * @return the name of the column like "A" or "AB"
+   */
+  private String getColumnName(final int column) {
+    while (columns.size() <= column) {
+      StringBuilder name = new StringBuilder();
+      for (int index = columns.size() + 1; index > 0; index = (index - 1) / 26) {
+        name.insert(0, (char) ('A' + (index - 1) % 26));
+      }
+      columns.add(name.toString());
+    }
+    return columns.get(column);
+  }
+
+  /**
+   * @param name the name of a sheet
+   * @param part the number of the worksheet of the sheet starting with 1, continuations are numbered like duplicates
+   * @param index the position of the worksheet starting with 1
+   * @param names the names used so far, the returned name is added
+   * @return a unique name that Excel accepts
+   */
+  private static String getSheetName(final String name, final int part, final int index, final Set<String> names) {
+    String base = name == null ? "" : name.replaceAll("[\\[\\]:*?/\\\\]", "_").replaceAll("^'|'$", "_");
+    if (base.trim().isEmpty()) base = "Sheet" + index;
+    if (base.length() > MAX_NAME) base = base.substring(0, MAX_NAME);
+
+    String unique = part == 1 ? base : number(base, part);
+    for (int count = part + 1; !names.add(unique.toLowerCase(Locale.ROOT)); ++count) {
+      unique = number(base, count);
+    }
+    return unique;
+  }
+
+  /**
+   * @param base the name of a sheet that Excel accepts
+   * @param count the number to append
+   * @return the numbered name, cut to the length Excel allows
+   */
+  private static String number(final String base, final int count) {
+    String suffix = " (" + count + ")";
+    return base.substring(0, Math.min(base.length(), MAX_NAME - suffix.length())) + suffix;
+  }
+
+  /**
+   * @param value a value, never null
+   * @return true if the value is a decimal number Excel keeps as it is
+   */
+  private static boolean isNumber(final String value) {
+    int start = value.startsWith("-") ? 1 : 0;
+    int length = value.length();
+    if (length == start || length - start > MAX_DIGITS + 1) return false;
+    // leading zeros are significant in text like postal codes
+    if (value.charAt(start) == '0' && length > start + 1 && value.charAt(start + 1) != '.') return false;
+
+    int digits = 0;
+    int point = -1;
+    for (int index = start; index < length; ++index) {
+      char c = value.charAt(index);
+      if (c == '.' && point < 0) {
+        point = index;
+      } else if (c >= '0' && c <= '9') {
+        ++digits;
+      } else {
+        return false;
+      }
+    }
+    // a trailing zero or point after the decimal point would be lost as well
+    if (point >= 0 && (point == start || point == length - 1 || value.charAt(length - 1) == '0')) return false;
+    return digits <= MAX_DIGITS && !"-0".equals(value);
+  }
+
+  /**
+   * @param value a value, never null
+   * @return true if the value starts or ends with white space, which is only kept if marked as preserved
+   */
+  private static boolean isPadded(final String value) {
+    return !value.isEmpty()
+        && (Character.isWhitespace(value.charAt(0)) || Character.isWhitespace(value.charAt(value.length() - 1)));
+  }
+
+  /**
+   * Write text with the characters that have a meaning in XML escaped, characters that XML does not allow are dropped.
+   *
+   * @param writer the writer on the workbook
+   * @param text the text to write
+   * @param attribute true if the text is the value of an attribute
+   * @throws IOException if the text cannot be written
+   */
+  private static void escape(final Writer writer, final String text, final boolean attribute)
+    throws IOException
+  {
+    int start = 0;
+    int length = text.length();
+    for (int index = 0; index < length; ++index) {
+      char c = text.charAt(index);
+      String replacement = null;
+      if (c == '&') {
+        replacement = "&amp;";
+      } else if (c == '<') {
+        replacement = "&lt;";
+      } else if (c == '>') {
+        replacement = "&gt;";
+      } else if (c == '"' && attribute) {
+        replacement = "&quot;";
+      } else if ((c < 0x20 && c != '\t' && c != '\n' && c != '\r') || c == 0xFFFE || c == 0xFFFF) {
+        replacement = "";
+      } else {
+        continue;
+      }
+      writer.write(text, start, index - start);
+      writer.write(replacement);
+      start = index + 1;
+    }
+    writer.write(text, start, length - start);
+  }
+
+  /**
+   * @param zip the workbook
+   * @param writer the writer on the workbook
+   * @throws IOException if the part cannot be completed
+   */
+  private static void closeEntry(final ZipOutputStream zip, final Writer writer)
+    throws IOException
+  {
+    writer.flush();
+    zip.closeEntry();
+  }
+
+  /** The rows of a sheet that fit on a single worksheet. */
+  private static final class Worksheet
+  {
+    private final String name;
+    private final int part;
+    private final Table table;
+    private final int from;
+    private final int to;
+
+    /**
+     * @param name the name of the sheet
+     * @param part the number of the worksheet of the sheet starting with 1
+     * @param table the table of the sheet, null for an empty worksheet
+     * @param from the first data row of the worksheet
+     * @param to the data row after the last data row of the worksheet
+     */
+    Worksheet(final String name, final int part, final Table table, final int from, final int to) {
+      this.name = name;
+      this.part = part;
+      this.table = table;
+      this.from = from;
+      this.to = to;
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package org.jcommons.io.text;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.*;
+
+import org.junit.Test;
+
+/** Test the chunked list that backs a grid */
+public class ChunkedListTest
+{
+  private static final int MANY = 3 * ChunkedList.CHUNK_SIZE + 17;
+
+  /** check that appending and reading works across chunk boundaries */
+  @Test
+  public void testAddAndGet() {
+    ChunkedList<Integer> list = new ChunkedList<Integer>();
+    assertTrue(list.isEmpty());
+
+    for (int index = 0; index < MANY; ++index) {
+      list.add(index);
+    }
+
+    assertEquals(MANY, list.size());
+    for (int index = 0; index < MANY; ++index) {
+      assertEquals(Integer.valueOf(index), list.get(index));
+    }
+  }
+
+  /** check that inserting and removing anywhere behaves exactly like an array list */
+  @Test
+  public void testInsertAndRemove() {
+    List<Integer> expected = new ArrayList<Integer>();
+    ChunkedList<Integer> list = new ChunkedList<Integer>();
+    Random random = new Random(4711);
+
+    for (int count = 0; count < 4 * MANY; ++count) {
+      int index = random.nextInt(expected.size() + 1);
+      if (expected.isEmpty() || random.nextInt(3) > 0) {
+        expected.add(index, count);
+        list.add(index, count);
+      } else {
+        index = Math.min(index, expected.size() - 1);
+        assertEquals(expected.remove(index), list.remove(index));
+      }
+    }
+
+    assertEquals(expected, list);
+
+    // always remove the first element until nothing is left
+    while (!expected.isEmpty()) {
+      assertEquals(expected.remove(0), list.remove(0));
+    }
+    assertTrue(list.isEmpty());
+  }
+
+  /** check that a presized list behaves like an empty list */
+  @Test
+  public void testCapacity() {
+    ChunkedList<String> list = new ChunkedList<String>(MANY);
+    assertEquals(0, list.size());
+    list.add(0, "b");
+    list.add(0, "a");
+    list.add("c");
+    assertEquals(Arrays.asList("a", "b", "c"), list);
+    assertEquals("b", list.set(1, "B"));
+    assertEquals("B", list.get(1));
+
+    list.clear();
+    assertEquals(0, list.size());
+    list.add("d");
+    assertEquals(Arrays.asList("d"), list);
+  }
+
+  /** check that invalid indices are rejected like for any other list */
+  @Test
+  public void testOutOfBounds() {
+    ChunkedList<String> list = new ChunkedList<String>(Arrays.asList("a", "b"));
+    try {
+      list.get(2);
+      fail("Should not be able to read beyond the end of the list.");
+    } catch (IndexOutOfBoundsException ex) {
+      // well, this is okay
+    }
+
+    try {
+      list.add(3, "c");
+      fail("Should not be able to insert beyond the end of the list.");
+    } catch (IndexOutOfBoundsException ex) {
+      // well, this is okay
+    }
+  }
+}
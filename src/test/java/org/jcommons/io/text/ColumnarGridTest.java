@@ -0,0 +1,137 @@
+package org.jcommons.io.text;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.*;
+
+import org.junit.Test;
+
+/** Test the dictionary encoded grid implementation */
+public class ColumnarGridTest
+{
+  private final String[] columns = { "A", "B", "C" };
+  private final String[][] rows = { { "a1", "b1", "c1" }, { "a2", "b2", "c2" }, { "a3", null, "c3" } };
+
+  /** test that data can be copied from another grid */
+  @Test
+  public void testColumnarGridWithData() {
+    List<List<String>> data = new ArrayList<List<String>>();
+    data.add(Arrays.asList(columns));
+    for (String[] row : rows) {
+      data.add(Arrays.asList(row));
+    }
+
+    ColumnarGrid grid = new ColumnarGrid(new Grid(data));
+    assertEquals(1 + rows.length, grid.size());
+    assertEquals(data, grid.getData());
+    assertEquals(data.toString(), grid.toString());
+  }
+
+  /** test that rows are views with the original widths */
+  @Test
+  public void testGetRow() {
+    ColumnarGrid grid = new ColumnarGrid();
+    assertTrue(grid.getRow(0).isEmpty());
+
+    grid.add(Arrays.asList(columns)).add(Arrays.asList("x")).add(null);
+    assertEquals(3, grid.size());
+    assertEquals(Arrays.asList(columns), grid.getRow(0));
+    assertEquals(Arrays.asList("x"), grid.getRow(1));
+    assertTrue(grid.getRow(2).isEmpty());
+    assertNull(grid.getValue(1, 1));
+
+    // rows write through to the grid
+    assertEquals("A", grid.getRow(0).set(0, "Z"));
+    assertEquals("Z", grid.getValue(0, 0));
+  }
+
+  /** test that repeated values share the same instance */
+  @Test
+  public void testDictionary() {
+    ColumnarGrid grid = new ColumnarGrid();
+    for (int row = 0; row < 1000; ++row) {
+      grid.add(Arrays.asList(Integer.toString(row), new String(row % 2 == 0 ? "EUR" : "USD")));
+    }
+
+    assertEquals(1000, grid.getDistinctValues(0).size());
+    assertEquals(Arrays.asList("EUR", "USD"), grid.getDistinctValues(1));
+    assertSame(grid.getValue(0, 1), grid.getValue(998, 1));
+    assertEquals("999", grid.getValue(999, 0));
+    assertEquals("USD", grid.getColumn(1).get(999));
+    assertNull(grid.getColumn(4).get(0));
+
+    // still usable after compacting
+    grid.trimToSize().add(Arrays.asList("1000", "CHF"));
+    assertEquals("CHF", grid.getValue(1000, 1));
+    assertEquals("EUR", grid.getValue(0, 1));
+  }
+
+  /** test inserting and removing rows */
+  @Test
+  public void testInsertAndRemove() {
+    ColumnarGrid grid = new ColumnarGrid();
+    grid.add(Arrays.asList(rows[0]));
+    grid.insertBefore(0, Arrays.asList(columns));
+    grid.insertAfter(1, Arrays.asList(rows[2]));
+    grid.insertBefore(-1, Arrays.asList(rows[1]));
+    assertEquals(4, grid.size());
+    assertEquals(rows[1][0], grid.getValue(0, 0));
+    assertEquals(columns[0], grid.getValue(1, 0));
+    assertEquals(rows[0][0], grid.getValue(2, 0));
+    assertEquals(rows[2][0], grid.getValue(3, 0));
+
+    // empty rows are added automatically
+    grid.insertBefore(6, Arrays.asList(columns));
+    assertEquals(7, grid.size());
+    assertTrue(grid.getRow(5).isEmpty());
+    assertEquals(columns[2], grid.getValue(6, 2));
+
+    grid.remove(0).remove(5).remove(20);
+    assertEquals(5, grid.size());
+    assertEquals(columns[0], grid.getValue(0, 0));
+    assertNull(grid.getValue(4, 0));
+    assertEquals(0, grid.clear().size());
+  }
+
+  /** test if setValue() extends the grid like a plain grid */
+  @Test
+  public void testSetValue() {
+    ColumnarGrid grid = new ColumnarGrid();
+    assertNull(grid.setValue(1, 1, "test"));
+    assertEquals(2, grid.size());
+    assertEquals("test", grid.setValue(1, 1, "test2"));
+    assertEquals("test2", grid.getValue(1, 1));
+    assertEquals(2, grid.getRow(1).size());
+
+    // no extra rows or columns for null values
+    assertNull(grid.setValue(4, 0, null));
+    assertNull(grid.setValue(1, 5, null));
+    assertEquals(2, grid.size());
+    assertEquals(2, grid.getRow(1).size());
+
+    assertNull(grid.setValue(-1, 0, "test"));
+    assertNull(grid.setValue(0, -1, "test"));
+  }
+
+  /** test that a spreadsheet can interpret a columnar grid */
+  @Test
+  public void testSpreadsheet() {
+    ColumnarGrid grid = new ColumnarGrid();
+    grid.add(Arrays.asList(columns));
+    for (String[] row : rows) {
+      grid.add(Arrays.asList(row));
+    }
+
+    Spreadsheet sheet = new Spreadsheet(grid);
+    assertNull(sheet.getGrid());
+    assertNotNull(sheet.getTabular());
+    assertEquals(rows.length, sheet.size());
+    assertEquals("b2", sheet.getValue("b", 1));
+    assertEquals("X", sheet.setColumn(1, "X").getColumn(1));
+    assertEquals("b1", sheet.getValue("X", 0));
+  }
+}
@@ -52,6 +52,31 @@ public class GridTest
     assertEquals(0, grid.size());
   }
 
+  /** test that large grids can be changed anywhere */
+  @Test
+  public void testLargeGrid() {
+    int size = 5000;
+    Grid grid = new Grid(size);
+    for (int row = 0; row < size; ++row) {
+      grid.add(new ArrayList<String>(Arrays.asList("a" + row, "b" + row)));
+    }
+    assertEquals(size, grid.size());
+    assertEquals("b2500", grid.getValue(2500, 1));
+
+    grid.insertBefore(1500, Arrays.asList(columns));
+    assertEquals(columns[0], grid.getValue(1500, 0));
+    assertEquals("a1500", grid.getValue(1501, 0));
+    assertEquals("a4999", grid.getValue(size, 0));
+
+    grid.remove(1500).remove(0);
+    assertEquals(size - 1, grid.size());
+    assertEquals("a1", grid.getValue(0, 0));
+    assertEquals("a4999", grid.getValue(size - 2, 0));
+
+    assertEquals("b4000", grid.setValue(3999, 1, "x"));
+    assertEquals("x", grid.getRow(3999).get(1));
+  }
+
   /** test single row */
   @Test
   public void testGetRow() {
@@ -288,6 +313,10 @@ public class GridTest
     assertNull(grid.setValue(0, 4, null));
     assertEquals(0, grid.getRow(0).size());
 
+    // check that the very first row can be created as well
+    assertNull(new Grid().setValue(0, 0, "test"));
+    assertEquals(columns[0], new Grid().insertBefore(1, Arrays.asList(columns)).getValue(1, 0));
+
     // check that invalid row/column indices are not causing an error
     try {
       assertNull(grid.setValue(-1, 0, null));
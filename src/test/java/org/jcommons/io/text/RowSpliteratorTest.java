@@ -0,0 +1,62 @@
+package org.jcommons.io.text;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+/** Check that tables are streamed and split by ranges of rows */
+public class RowSpliteratorTest
+{
+  /** check that parallel streams return the same rows in the same order as sequential ones */
+  @Test
+  public void testStream() {
+    Grid grid = new Grid();
+    grid.add(Arrays.asList("id", "value"));
+    for (int row = 0; row < 100000; ++row) {
+      grid.add(Arrays.asList(Integer.toString(row), Integer.toString(row % 7)));
+    }
+    Spreadsheet sheet = new Spreadsheet(grid);
+
+    assertEquals(grid.getData(), grid.stream().collect(Collectors.toList()));
+    assertEquals(sheet.getData(), sheet.parallelStream().collect(Collectors.toList()));
+    assertEquals(99999L * 100000 / 2, sheet.parallelStream().mapToLong(row -> Long.parseLong(row.get(0))).sum());
+    assertEquals(100000 / 7 + 1, sheet.parallelStream().filter(row -> "0".equals(row.get(1))).count());
+    assertEquals("id", grid.stream().findFirst().get().get(0));
+    assertEquals(0, new Spreadsheet().stream().count());
+  }
+
+  /** check how a spliterator splits the rows */
+  @Test
+  public void testSplit() {
+    Grid grid = new Grid();
+    for (int row = 0; row < 5000; ++row) {
+      grid.add(Arrays.asList(Integer.toString(row)));
+    }
+
+    Spliterator<List<String>> rows = grid.spliterator();
+    assertTrue(rows.hasCharacteristics(Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED));
+    Spliterator<List<String>> prefix = rows.trySplit();
+    assertNotNull(prefix);
+    assertEquals(2500, prefix.estimateSize());
+    assertEquals(2500, rows.estimateSize());
+
+    prefix.tryAdvance(row -> assertEquals("0", row.get(0)));
+    rows.tryAdvance(row -> assertEquals("2500", row.get(0)));
+    assertEquals(2499, prefix.getExactSizeIfKnown());
+
+    Spliterator<List<String>> small = new RowSpliterator(grid, 0, 10);
+    assertNull(small.trySplit());
+    final int[] count = new int[1];
+    small.forEachRemaining(row -> ++count[0]);
+    assertEquals(10, count[0]);
+    assertEquals(0, small.estimateSize());
+  }
+}
@@ -192,6 +192,40 @@ public class SpreadsheetTest
     assertEquals(-1, sheet.indexOf("no.such.column"));
   }
 
+  /** check that the column index follows changes of the columns and ignores empty header cells */
+  @Test
+  public void testColumnIndex() {
+    Grid grid = new Grid();
+    grid.add(Arrays.asList("skip", "me"));
+    grid.add(Arrays.asList("Name", null, "\u00df", "name", "Value"));
+    grid.add(Arrays.asList("a", "b", "c", "d", "e"));
+    sheet = new Spreadsheet(grid);
+
+    assertEquals(-1, sheet.indexOf("name"));
+    assertEquals(1, sheet.indexOf("ME"));
+    sheet.setSkipHeader(1);
+    assertEquals(0, sheet.indexOf("NAME"));
+    assertEquals(2, sheet.indexOf("\u00df"));
+    assertEquals(-1, sheet.indexOf(null));
+    assertEquals("e", sheet.getValue("value", 0));
+
+    sheet.setColumn(0, "first");
+    assertEquals(3, sheet.indexOf("name"));
+    assertEquals(0, sheet.indexOf("First"));
+
+    Column column = sheet.getColumnHandle("VALUE");
+    assertTrue(column.exists());
+    assertEquals(4, column.getIndex());
+    assertEquals("e", column.getValue(0));
+    assertNull(column.getValue(1));
+    assertFalse(new Column(sheet, "missing").exists());
+    assertNull(new Column(sheet, "missing").getValue(0));
+
+    sheet.setGrid(createComplexGrid()).setSkipHeader(2);
+    assertEquals(-1, sheet.indexOf("first"));
+    assertEquals(0, sheet.indexOf("column"));
+  }
+
   /** check that we can define the column names ourself */
   @Test
   public void testSetColumn() {
@@ -0,0 +1,132 @@
+package org.jcommons.io.text.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.jcommons.io.text.reader.RowHandler;
+import org.jcommons.io.text.reader.RowIterator;
+import org.jcommons.io.text.reader.csv.CsvGridReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Check that files are sorted in runs on disk like they are sorted in memory */
+public class ExternalSortTest
+{
+  private static final String[] KEYS = { "apple", "Apple", "pear", "PLUM", "fig", "" };
+  private static final String[] TEXTS = { "plain", "with,comma", "\"quoted\"", "  padded  ", "multi\nline", "it's",
+    "umlaut äöü" };
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /** check that many runs merged in several passes result in the same order as a stable sort in memory */
+  @Test
+  public void testRuns()
+    throws IOException
+  {
+    File file = createFile(new Random(4711), 5000);
+    File directory = folder.newFolder();
+    CsvGridReader reader = new CsvGridReader(file).setCharset(Charset.forName("UTF-8"));
+    RowComparator comparator = new RowComparator().add(1, RowComparator.IGNORE_CASE, false)
+        .add(2, RowComparator.NUMERIC, true);
+
+    List<List<String>> expected = new ArrayList<List<String>>(reader.read().getData());
+    Collections.sort(expected.subList(1, expected.size()), comparator);
+
+    ExternalSort sort = new ExternalSort(reader, comparator).setMemory(16 * 1024).setMaxRuns(3)
+        .setDirectory(directory);
+    assertEquals(1, sort.getHeaderRows());
+    final List<List<String>> rows = new ArrayList<List<String>>();
+    final List<Long> lines = new ArrayList<Long>();
+    assertEquals(expected.size(), sort.sort(new RowHandler() {
+      @Override
+      public boolean handle(final List<String> row, final long line) {
+        rows.add(row);
+        lines.add(line);
+        return true;
+      }
+    }));
+    assertEquals(expected, rows);
+    assertEquals(Long.valueOf(1), lines.get(0));
+    assertEquals(0, directory.list().length);
+
+    // everything fits into memory
+    RowIterator iterator = sort.setMemory(ExternalSort.DEFAULT_MEMORY).iterator();
+    for (List<String> row : expected) {
+      assertEquals(row, iterator.next());
+    }
+    assertEquals(false, iterator.hasNext());
+
+    // stop early
+    iterator = sort.setMemory(1024).setHeaderRows(0).iterator();
+    assertTrue(directory.list().length > 0);
+    iterator.next();
+    iterator.close();
+    assertEquals(0, directory.list().length);
+
+    assertNull(new ExternalSort(new CsvGridReader(new File(directory, "missing.csv")), comparator).iterator());
+  }
+
+  /** check that the sorted file is read back as sorted */
+  @Test
+  public void testOutput()
+    throws IOException
+  {
+    File file = createFile(new Random(42), 500);
+    File output = new File(folder.getRoot(), "sorted.csv");
+    RowComparator comparator = new RowComparator().add(3).add(0, RowComparator.NUMERIC, false);
+
+    for (CsvGridReader reader : new CsvGridReader[] { new CsvGridReader(file),
+      new CsvGridReader(file).setTrimming(false).setEmptyAsNull(false) }) {
+      reader.setCharset(Charset.forName("UTF-8")).setEscape("\"'");
+      List<List<String>> expected = new ArrayList<List<String>>(reader.read().getData());
+      Collections.sort(expected.subList(1, expected.size()), comparator);
+
+      assertEquals(expected.size(), new ExternalSort(reader, comparator).setMemory(4096).sort(output));
+      CsvGridReader sorted = new CsvGridReader(output).setCharset(reader.getCharset()).setEscape(reader.getEscape())
+          .setTrimming(reader.isTrimming()).setEmptyAsNull(reader.isEmptyAsNull());
+      assertEquals(expected, sorted.read().getData());
+    }
+  }
+
+  /**
+   * Create a CSV file with a header and random rows.
+   *
+   * @param random the source of the values
+   * @param rows the number of rows
+   * @return the created file
+   * @throws IOException if the file cannot be written
+   */
+  private File createFile(final Random random, final int rows)
+    throws IOException
+  {
+    File file = folder.newFile();
+    Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+    try {
+      writer.write("id,key,number,text\n");
+      for (int row = 0; row < rows; ++row) {
+        String number = random.nextBoolean() ? Integer.toString(random.nextInt(200) - 100)
+            : Double.toString(random.nextInt(2000) / 10.0);
+        String text = TEXTS[random.nextInt(TEXTS.length)];
+        writer.write(new StringBuilder().append(row).append(',').append(KEYS[random.nextInt(KEYS.length)])
+            .append(',').append(number).append(",\"").append(text.replace("\"", "\"\"")).append("\"\n").toString());
+      }
+    } finally {
+      writer.close();
+    }
+    return file;
+  }
+}
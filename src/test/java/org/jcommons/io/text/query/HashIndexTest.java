@@ -0,0 +1,97 @@
+package org.jcommons.io.text.query;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.jcommons.io.text.Grid;
+import org.jcommons.io.text.Spreadsheet;
+import org.jcommons.io.text.Table;
+import org.junit.Test;
+
+/** Check that hash indexes find the same rows as scanning the table */
+public class HashIndexTest
+{
+  /** check lookups on a small table */
+  @Test
+  public void testFind() {
+    Grid grid = new Grid();
+    grid.add(Arrays.asList("id", "currency"));
+    grid.add(Arrays.asList("1", "EUR"));
+    grid.add(Arrays.asList("2", "USD"));
+    grid.add(Arrays.asList("3", "EUR"));
+    grid.add(Arrays.asList("4"));
+    Table table = new Spreadsheet(grid);
+
+    HashIndex index = new HashIndex(table, "Currency");
+    assertEquals(1, index.getColumn());
+    assertArrayEquals(new int[] { 0, 2 }, index.find("EUR"));
+    assertArrayEquals(new int[] { 3 }, index.find(null));
+    assertArrayEquals(new int[0], index.find("eur"));
+    assertEquals(2, index.count("EUR"));
+    assertTrue(index.contains("USD"));
+    assertFalse(index.contains("CHF"));
+    assertEquals(3, index.getValues().size());
+    assertEquals(Arrays.asList(Arrays.asList("1", "EUR"), Arrays.asList("3", "EUR")), index.getRows("EUR"));
+  }
+
+  /** check that a column that does not exist cannot be indexed */
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingColumn() {
+    Grid grid = new Grid();
+    grid.add(Arrays.asList("id", "currency"));
+    grid.add(Arrays.asList("1", "EUR"));
+    new HashIndex(new Spreadsheet(grid), "missing");
+  }
+
+  /** check that large tables indexed in parallel keep the order of the rows */
+  @Test
+  public void testParallel() {
+    Table table = createTable(new Random(17), 100000, 50);
+    HashIndex index = new HashIndex(table, 1);
+    for (int value = 0; value < 50; ++value) {
+      assertArrayEquals(scan(table, 1, "v" + value), index.find("v" + value));
+    }
+    assertArrayEquals(scan(table, 1, null), index.find(null));
+  }
+
+  /**
+   * Create a table with random values in the second column.
+   *
+   * @param random the source of the values
+   * @param rows the number of data rows
+   * @param values the number of distinct values
+   * @return the table
+   */
+  static Table createTable(final Random random, final int rows, final int values) {
+    Grid grid = new Grid(rows + 1);
+    grid.add(Arrays.asList("id", "value"));
+    for (int row = 0; row < rows; ++row) {
+      int value = random.nextInt(values + 1);
+      grid.add(Arrays.asList(Integer.toString(row), value == values ? null : "v" + value));
+    }
+    return new Spreadsheet(grid);
+  }
+
+  /**
+   * Find rows the slow way.
+   *
+   * @param table the table to scan
+   * @param column the column to compare
+   * @param value the value to find
+   * @return the numbers of the rows with that value
+   */
+  static int[] scan(final Table table, final int column, final String value) {
+    int[] found = new int[table.size()];
+    int count = 0;
+    for (int row = 0; row < table.size(); ++row) {
+      String cell = table.getValue(row, column);
+      if (value == null ? cell == null : value.equals(cell)) found[count++] = row;
+    }
+    return Arrays.copyOf(found, count);
+  }
+}
@@ -0,0 +1,90 @@
+package org.jcommons.io.text.query;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.jcommons.io.sheet.Sheet;
+import org.jcommons.io.text.Grid;
+import org.jcommons.io.text.Spreadsheet;
+import org.jcommons.io.text.Table;
+import org.junit.Test;
+
+/** Check that the rows of two tables are related by their keys */
+public class JoinTest
+{
+  /** check the types of join on a single key */
+  @Test
+  public void testTypes() {
+    Sheet customers = new Sheet().setName("customers").setTable(createTable("id,name", "1,Alice", "2,Bob", ",Nobody",
+        "3,Carol"));
+    Sheet orders = new Sheet().setName("orders").setTable(createTable("id,customer,amount", "10,2,5", "11,1,7",
+        "12,2,9", "13,4,1", "14,,3"));
+
+    Table result = new Join(customers, orders).on("id", "customer").execute();
+    assertEquals(Arrays.asList("id", "name", "orders.id", "customer", "amount"), result.getColumns());
+    assertEquals("[[1, Alice, 11, 1, 7], [2, Bob, 10, 2, 5], [2, Bob, 12, 2, 9]]", result.getData().toString());
+
+    result = new Join(customers, orders).on("id", "customer").setType(Join.LEFT).execute();
+    assertEquals("[[1, Alice, 11, 1, 7], [2, Bob, 10, 2, 5], [2, Bob, 12, 2, 9], [null, Nobody, null, null, null], "
+        + "[3, Carol, null, null, null]]", result.getData().toString());
+
+    result = new Join(customers, orders).on("id", "customer").setType(Join.ANTI).execute();
+    assertEquals(Arrays.asList("id", "name"), result.getColumns());
+    assertEquals("[[null, Nobody], [3, Carol]]", result.getData().toString());
+
+    result = new Join(customers.getTable(), orders.getTable()).on("id", "missing").setType(Join.LEFT).execute();
+    assertEquals(Arrays.asList("id", "name", "id", "customer", "amount"), result.getColumns());
+    assertEquals(4, result.size());
+    assertEquals(0, new Join(customers, orders).on("id", "missing").execute().size());
+  }
+
+  /** check a join on several keys and that the iterator returns the same rows */
+  @Test
+  public void testKeys() {
+    Table left = HashIndexTest.createTable(new Random(5), 50000, 30);
+    Table right = createTable("value,id,label", "v1,1,one", "v1,7,seven", "v2,2,two", "v1,1,again", "V1,1,case");
+    left.setColumn(0, "key");
+
+    Join join = new Join(left, right).on("value").on("key", "id").setType(Join.LEFT);
+    Table result = join.execute();
+    List<List<String>> iterated = new ArrayList<List<String>>();
+    for (Iterator<List<String>> rows = join.iterator(); rows.hasNext();) {
+      iterated.add(rows.next());
+    }
+    assertEquals(result.getData(), iterated);
+
+    List<List<String>> expected = new ArrayList<List<String>>();
+    for (List<String> row : left.getData()) {
+      int found = 0;
+      for (List<String> match : right.getData()) {
+        if (row.get(1) != null && row.get(1).equals(match.get(0)) && row.get(0).equals(match.get(1))) {
+          expected.add(Arrays.asList(row.get(0), row.get(1), match.get(0), match.get(1), match.get(2)));
+          ++found;
+        }
+      }
+      if (found == 0) expected.add(Arrays.asList(row.get(0), row.get(1), null, null, null));
+    }
+    assertEquals(expected, result.getData());
+  }
+
+  /**
+   * @param lines the lines of the table separated by commas, the first line names the columns
+   * @return the table
+   */
+  static Table createTable(final String... lines) {
+    Grid grid = new Grid();
+    for (String line : lines) {
+      List<String> row = new ArrayList<String>();
+      for (String value : line.split(",", -1)) {
+        row.add(value.isEmpty() ? null : value);
+      }
+      grid.add(row);
+    }
+    return new Spreadsheet(grid);
+  }
+}
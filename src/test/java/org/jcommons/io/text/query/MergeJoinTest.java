@@ -0,0 +1,106 @@
+package org.jcommons.io.text.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.jcommons.io.text.reader.RowHandler;
+import org.jcommons.io.text.reader.RowIterator;
+import org.jcommons.io.text.reader.csv.CsvGridReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Check that sorted files are joined like tables */
+public class MergeJoinTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /** check the types of join on sorted files */
+  @Test
+  public void testTypes()
+    throws IOException
+  {
+    CsvGridReader customers = createFile("customers.csv", "id,name\n,Nobody\n1,Alice\n2,Bob\n3,Carol\n");
+    CsvGridReader orders = createFile("orders.csv", "id,customer,amount\n14,,3\n11,1,7\n10,2,5\n12,2,9\n13,4,1\n");
+
+    MergeJoin join = new MergeJoin(customers, orders).on("id", "customer", RowComparator.NUMERIC);
+    assertEquals("[[id, name, orders.id, customer, amount], [1, Alice, 11, 1, 7], [2, Bob, 10, 2, 5], "
+        + "[2, Bob, 12, 2, 9]]", read(join));
+
+    join.setType(Join.LEFT);
+    assertEquals("[[id, name, orders.id, customer, amount], [null, Nobody, null, null, null], [1, Alice, 11, 1, 7], "
+        + "[2, Bob, 10, 2, 5], [2, Bob, 12, 2, 9], [3, Carol, null, null, null]]", read(join));
+
+    join.setType(Join.ANTI);
+    assertEquals("[[id, name], [null, Nobody], [3, Carol]]", read(join));
+
+    RowIterator rows = join.iterator();
+    rows.next();
+    rows.next();
+    assertEquals(2, rows.getLineNumber());
+    rows.close();
+  }
+
+  /** check that files are sorted first if needed and that unsorted files are detected */
+  @Test
+  public void testUnsorted()
+    throws IOException
+  {
+    CsvGridReader left = createFile("left.csv", "key,code,a\nb,2,x\na,1,y\nA,1,z\nb,1,w\n");
+    CsvGridReader right = createFile("right.csv", "code,key,b\n1,b,p\n2,b,q\n1,a,r\n1,B,s\n");
+
+    MergeJoin join = new MergeJoin(left, right).on("key", "key", RowComparator.IGNORE_CASE).on("code");
+    assertEquals(-1, join.read(new RowHandler() {
+      @Override
+      public boolean handle(final List<String> row, final long line) {
+        return true;
+      }
+    }));
+
+    join.setSorted(false);
+    assertEquals("[[key, code, a, right.code, right.key, b], [a, 1, y, 1, a, r], [A, 1, z, 1, a, r], "
+        + "[b, 1, w, 1, b, p], [b, 1, w, 1, B, s], [b, 2, x, 2, b, q]]", read(join));
+
+    assertNull(new MergeJoin(new CsvGridReader(new File(folder.getRoot(), "missing.csv")), right).on("key")
+        .iterator());
+  }
+
+  /**
+   * @param join the join to run
+   * @return the joined rows
+   */
+  private static String read(final MergeJoin join) {
+    final List<List<String>> rows = new ArrayList<List<String>>();
+    long count = join.read(new RowHandler() {
+      @Override
+      public boolean handle(final List<String> row, final long line) {
+        rows.add(row);
+        return true;
+      }
+    });
+    assertEquals(rows.size(), count);
+    return rows.toString();
+  }
+
+  /**
+   * @param name the name of the file
+   * @param text the content of the file
+   * @return a reader of the file
+   * @throws IOException if the file cannot be written
+   */
+  private CsvGridReader createFile(final String name, final String text)
+    throws IOException
+  {
+    File file = folder.newFile(name);
+    FileUtils.writeStringToFile(file, text, "UTF-8");
+    return new CsvGridReader(file);
+  }
+}
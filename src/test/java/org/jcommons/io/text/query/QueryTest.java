@@ -0,0 +1,97 @@
+package org.jcommons.io.text.query;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.jcommons.io.text.Grid;
+import org.jcommons.io.text.Spreadsheet;
+import org.jcommons.io.text.Table;
+import org.jcommons.io.text.reader.RowFilter;
+import org.junit.Test;
+
+/** Check that queries filter, project, group, sort and limit tables */
+public class QueryTest
+{
+  /** check every operation on a small table */
+  @Test
+  public void testOperations() {
+    Table table = createTable();
+
+    Table result = new Query(table).where("currency", "EUR").select("ID", "amount").execute();
+    assertEquals(Arrays.asList("id", "amount"), result.getColumns());
+    assertEquals("[[1, 10.5], [3, 7], [5, 2.25]]", result.getData().toString());
+
+    result = new Query(table).select("currency").distinct().orderBy("currency", null, false).execute();
+    assertEquals("[[CHF], [EUR], [USD]]", result.getData().toString());
+
+    result = new Query(table).groupBy("currency").count().sum("amount").min("amount", RowComparator.NUMERIC)
+        .max("amount", RowComparator.NUMERIC).orderBy("sum(amount)", RowComparator.NUMERIC, true).execute();
+    assertEquals(Arrays.asList("currency", "count", "sum(amount)", "min(amount)", "max(amount)"),
+        result.getColumns());
+    assertEquals("[[EUR, 3, 19.75, 2.25, 10.5], [USD, 2, 12, 3, 9], [CHF, 1, null, n/a, n/a]]",
+        result.getData().toString());
+
+    result = new Query(table).orderBy("amount", RowComparator.NUMERIC, false).limit(2).execute();
+    assertEquals(Arrays.asList("id", "currency", "amount"), result.getColumns());
+    assertEquals("[[5, EUR, 2.25], [4, USD, 3]]", result.getData().toString());
+
+    result = new Query(table).where(new RowFilter() {
+      @Override
+      public boolean accept(final List<String> row) {
+        return false;
+      }
+    }).count().execute();
+    assertEquals("[[0]]", result.getData().toString());
+    assertEquals(0, new Query(table).where("missing", "x").execute().size());
+
+    result = new Query(table).where("currency", "EUR").where("amount", "7").select("id").execute();
+    assertEquals("[[3]]", result.getData().toString());
+    assertEquals(0, new Query(table).where("currency", "CHF").where("currency", "EUR").execute().size());
+    assertEquals(6, new Query(table).select("missing", "id").execute().size());
+  }
+
+  /** check that large tables processed in chunks give the same results as small ones */
+  @Test
+  public void testParallel() {
+    Table table = HashIndexTest.createTable(new Random(99), 100000, 20);
+    Table result = new Query(table).groupBy("value").count().orderBy("value", null, false).execute();
+    assertEquals(21, result.size());
+
+    HashIndex index = new HashIndex(table, "value");
+    long total = 0;
+    for (int row = 0; row < result.size(); ++row) {
+      assertEquals(Integer.toString(index.count(result.getValue(row, 0))), result.getValue(row, 1));
+      total += Long.parseLong(result.getValue(row, 1));
+    }
+    assertEquals(table.size(), total);
+
+    result = new Query(table).where("value", "v7").select("id").execute();
+    assertEquals(index.count("v7"), result.size());
+    int previous = -1;
+    for (List<String> row : result.getData()) {
+      int id = Integer.parseInt(row.get(0));
+      assertEquals(true, id > previous);
+      previous = id;
+    }
+
+    result = new Query(table).orderBy("id", RowComparator.NUMERIC, true).limit(3).execute();
+    assertEquals("99999", result.getValue(0, 0));
+    assertEquals("99997", result.getValue(2, 0));
+  }
+
+  /** @return a small table of payments */
+  private static Table createTable() {
+    Grid grid = new Grid();
+    grid.add(Arrays.asList("id", "currency", "amount"));
+    grid.add(Arrays.asList("1", "EUR", "10.5"));
+    grid.add(Arrays.asList("2", "USD", "9"));
+    grid.add(Arrays.asList("3", "EUR", "7"));
+    grid.add(Arrays.asList("4", "USD", "3"));
+    grid.add(Arrays.asList("5", "EUR", "2.25"));
+    grid.add(Arrays.asList("6", "CHF", "n/a"));
+    return new Spreadsheet(grid);
+  }
+}
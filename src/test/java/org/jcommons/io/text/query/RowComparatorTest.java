@@ -0,0 +1,55 @@
+package org.jcommons.io.text.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/** Check the orders of values and rows */
+public class RowComparatorTest
+{
+  /** check the orders of single values */
+  @Test
+  public void testValues() {
+    List<String> values = new ArrayList<String>(Arrays.asList("10", "-2", null, "abc", "9.5", "-10", "0", "007",
+        "1e2", "Abd"));
+    Collections.sort(values, RowComparator.NUMERIC);
+    assertEquals(Arrays.asList(null, "-10", "-2", "0", "007", "9.5", "10", "1e2", "Abd", "abc"), values);
+
+    Collections.sort(values, RowComparator.STRING);
+    assertEquals(Arrays.asList(null, "-10", "-2", "0", "007", "10", "1e2", "9.5", "Abd", "abc"), values);
+
+    Collections.sort(values, RowComparator.IGNORE_CASE);
+    assertEquals("abc", values.get(8));
+    assertEquals("Abd", values.get(9));
+
+    assertEquals(0, RowComparator.NUMERIC.compare("-0", "0"));
+    assertEquals(0, RowComparator.NUMERIC.compare("1.50", "1.5"));
+    assertTrue(RowComparator.NUMERIC.compare("123456789012345678901", "99") > 0);
+    assertTrue(RowComparator.NUMERIC.compare("-123456789012345678901", "-99") < 0);
+  }
+
+  /** check the order of rows by several columns */
+  @Test
+  public void testRows() {
+    List<List<String>> rows = new ArrayList<List<String>>();
+    rows.add(Arrays.asList("b", "2"));
+    rows.add(Arrays.asList("a", "10"));
+    rows.add(Arrays.asList("B", "1"));
+    rows.add(Arrays.asList("a"));
+
+    RowComparator comparator = new RowComparator().add(0, RowComparator.IGNORE_CASE, false)
+        .add(1, RowComparator.NUMERIC, true);
+    assertEquals(2, comparator.size());
+    Collections.sort(rows, comparator);
+    assertEquals("[[a, 10], [a], [b, 2], [B, 1]]", rows.toString());
+
+    Collections.sort(rows, new RowComparator().add(0));
+    assertEquals("[[B, 1], [a, 10], [a], [b, 2]]", rows.toString());
+  }
+}
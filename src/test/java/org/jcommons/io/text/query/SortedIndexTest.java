@@ -0,0 +1,77 @@
+package org.jcommons.io.text.query;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.jcommons.io.text.Grid;
+import org.jcommons.io.text.Spreadsheet;
+import org.jcommons.io.text.Table;
+import org.junit.Test;
+
+/** Check that sorted indexes find values, ranges and prefixes */
+public class SortedIndexTest
+{
+  /** check lookups on a small table */
+  @Test
+  public void testLookups() {
+    Grid grid = new Grid();
+    grid.add(Arrays.asList("name"));
+    for (String name : new String[] { "pear", "apple", null, "peach", "apricot", "pear", "banana" }) {
+      grid.add(Arrays.asList(name));
+    }
+    Table table = new Spreadsheet(grid);
+
+    SortedIndex index = new SortedIndex(table, "NAME");
+    assertEquals(6, index.size());
+    assertEquals("apple", index.getMinimum());
+    assertEquals("pear", index.getMaximum());
+    assertArrayEquals(new int[] { 0, 5 }, index.find("pear"));
+    assertArrayEquals(new int[0], index.find(null));
+    assertArrayEquals(new int[] { 1, 4 }, index.prefix("ap"));
+    assertArrayEquals(new int[] { 4, 6, 3, 0, 5 }, index.range("apricot", true, null, false));
+    assertArrayEquals(new int[] { 6, 3 }, index.range("apricot", false, "pear", false));
+    assertArrayEquals(new int[] { 1, 4 }, index.range(null, false, "b", true));
+    assertArrayEquals(new int[0], index.range("z", true, "a", true));
+    assertEquals(Arrays.asList(Arrays.asList("apple"), Arrays.asList("apricot")), index.getRows(index.prefix("a")));
+
+    try {
+      new SortedIndex(table, "missing");
+      fail("missing column indexed");
+    } catch (IllegalArgumentException ex) {
+      // expected
+    }
+  }
+
+  /** check that prefixes cannot be looked up in an index with a custom order */
+  @Test(expected = IllegalStateException.class)
+  public void testPrefixWithComparator() {
+    Grid grid = new Grid();
+    grid.add(Arrays.asList("name"));
+    grid.add(Arrays.asList("Apple"));
+    grid.add(Arrays.asList("apricot"));
+    SortedIndex index = new SortedIndex(new Spreadsheet(grid), 0, String.CASE_INSENSITIVE_ORDER);
+    assertArrayEquals(new int[] { 0 }, index.find("APPLE"));
+    index.prefix("ap");
+  }
+
+  /** check that large tables sorted in parallel find the same rows as scanning */
+  @Test
+  public void testParallel() {
+    Table table = HashIndexTest.createTable(new Random(4711), 100000, 1000);
+    SortedIndex index = new SortedIndex(table, 1, null);
+    for (int value = 0; value < 1000; value += 7) {
+      assertArrayEquals(HashIndexTest.scan(table, 1, "v" + value), index.find("v" + value));
+    }
+
+    int[] all = index.range(null, true, null, true);
+    assertEquals(index.size(), all.length);
+    for (int position = 1; position < all.length; ++position) {
+      int order = table.getValue(all[position - 1], 1).compareTo(table.getValue(all[position], 1));
+      assertEquals(true, order < 0 || order == 0 && all[position - 1] < all[position]);
+    }
+  }
+}
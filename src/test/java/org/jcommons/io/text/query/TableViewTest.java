@@ -0,0 +1,99 @@
+package org.jcommons.io.text.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.jcommons.io.sheet.Sheet;
+import org.jcommons.io.text.Grid;
+import org.jcommons.io.text.Spreadsheet;
+import org.jcommons.io.text.Table;
+import org.jcommons.io.text.reader.RowFilter;
+import org.junit.Test;
+
+/** Check that views filter, sort and project tables without copying them */
+public class TableViewTest
+{
+  /** check every operation and their composition on a small table */
+  @Test
+  public void testOperations() {
+    Grid grid = new Grid();
+    grid.add(Arrays.asList("id", "currency", "amount"));
+    grid.add(Arrays.asList("1", "EUR", "10.5"));
+    grid.add(Arrays.asList("2", "USD", "9"));
+    grid.add(Arrays.asList("3", "EUR", "7"));
+    grid.add(Arrays.asList("4", "USD", "3"));
+    grid.add(Arrays.asList("5", "EUR", "2.25"));
+    grid.add(Arrays.asList("6", "CHF"));
+    Table table = new Spreadsheet(grid);
+
+    TableView view = new TableView(table);
+    assertEquals(table.getData(), view.getData());
+    assertSame(table.getRow(2), view.getRow(2));
+
+    TableView sorted = view.orderBy("amount", RowComparator.NUMERIC, false);
+    assertEquals("[[6, CHF], [5, EUR, 2.25], [4, USD, 3], [3, EUR, 7], [2, USD, 9], [1, EUR, 10.5]]",
+        sorted.getData().toString());
+
+    TableView projected = sorted.select("amount", "ID");
+    assertEquals(Arrays.asList("amount", "id"), projected.getColumns());
+    assertEquals(1, projected.indexOf("Id"));
+    assertEquals(-1, projected.indexOf("currency"));
+    assertEquals("[null, 6]", projected.getRow(0).toString());
+    assertEquals("9", projected.getValue("amount", 4));
+
+    TableView filtered = projected.filter(new RowFilter() {
+      @Override
+      public boolean accept(final List<String> row) {
+        return row.get(0) != null && row.get(0).length() > 1;
+      }
+    });
+    assertEquals("[[amount, id], [[2.25, 5], [10.5, 1]]]", Arrays.asList(filtered.getColumns(), filtered.getData())
+        .toString());
+    assertSame(table, filtered.getTable());
+
+    TableView euros = new TableView(filtered).where("currency", "EUR");
+    assertEquals(0, euros.size());
+    euros = sorted.where("currency", "EUR").select(2, 0);
+    assertEquals("[[2.25, 5], [7, 3], [10.5, 1]]", euros.getData().toString());
+    assertNull(euros.getValue(0, 2));
+    assertEquals("[]", euros.getRow(3).toString());
+
+    euros.setColumn(0, "value");
+    assertEquals("value", table.getColumn(2));
+    assertEquals(Arrays.asList("value", "id"), euros.getColumns());
+
+    Sheet sheet = new Sheet().setTable(euros);
+    assertEquals(3, sheet.getTable().size());
+  }
+
+  /** check that large views are filtered and sorted in parallel with the same results */
+  @Test
+  public void testParallel() {
+    Table table = HashIndexTest.createTable(new Random(7), 100000, 20);
+    HashIndex index = new HashIndex(table, "value");
+
+    TableView view = new TableView(table).where("value", "v3");
+    assertEquals(index.count("v3"), view.size());
+
+    view = new TableView(table).orderBy("value", null, true).select("id");
+    assertEquals(table.size(), view.size());
+    int previous = -1;
+    for (int row = 0; row < view.size() && "v9".equals(table.getValue(Integer.parseInt(view.getValue(row, 0)), 1));
+        ++row) {
+      int id = Integer.parseInt(view.getValue(row, 0));
+      assertEquals(true, id > previous);
+      previous = id;
+    }
+    assertEquals(index.count("v9"), view.select("id").filter(new RowFilter() {
+      @Override
+      public boolean accept(final List<String> row) {
+        return "v9".equals(table.getValue(Integer.parseInt(row.get(0)), 1));
+      }
+    }).size());
+  }
+}
@@ -0,0 +1,47 @@
+package org.jcommons.io.text.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/** Test the sharing of repeated values */
+public class StringPoolTest
+{
+  /** check that equal characters return the same instance */
+  @Test
+  public void testGet() {
+    StringPool pool = new StringPool();
+    char[] chars = "xEURxEUR".toCharArray();
+    String first = pool.get(chars, 1, 3);
+    assertEquals("EUR", first);
+    assertSame(first, pool.get(chars, 5, 3));
+    assertSame(first, pool.get(new String("EUR")));
+    assertSame("", pool.get(chars, 0, 0));
+    assertNull(pool.get(null));
+
+    pool.clear();
+    assertNotSame(first, pool.get(chars, 1, 3));
+  }
+
+  /** check that the pool is bounded */
+  @Test
+  public void testBounds() {
+    StringPool pool = new StringPool(3, 4);
+    assertEquals(4, pool.getCapacity());
+    assertEquals(4, pool.getMaxLength());
+
+    char[] chars = "ACTIVE".toCharArray();
+    assertNotSame(pool.get(chars, 0, 6), pool.get(chars, 0, 6));
+    assertSame(pool.get(chars, 0, 4), pool.get(chars, 0, 4));
+
+    // values replace each other but are always correct
+    for (int value = 0; value < 100; ++value) {
+      String text = Integer.toString(value);
+      assertEquals(text, pool.get(text.toCharArray(), 0, text.length()));
+    }
+    assertEquals("ACTI", pool.get(chars, 0, 4));
+  }
+}
@@ -0,0 +1,93 @@
+package org.jcommons.io.text.reader.csv;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/** Check if parsing the raw bytes results in the same rows as parsing the decoded characters */
+public class ByteCsvParserTest
+{
+  private static final String[] CELLS = { "plain", "", "  padded  ", "\"quoted\"", "\"with,comma\"",
+    "\"multi\nline\"", "\"multi\r\nline\"", "\"doubled \"\" quote\"", "mid\"quote", "  \"spaced\"  ", "'single'",
+    "'it''s'", "\"\"", "\"open\"close\"again\"", "\"a\",b'c'", "umlaut äöü", "€   \t",
+    "\"ß\"ß", "😀" };
+  private static final String[] ENDINGS = { "\n", "\r\n", "\r", "\n\n", "\r\r\n" };
+
+  /** check random input with all kinds of characters and settings */
+  @Test
+  public void testRandom()
+    throws IOException
+  {
+    Random random = new Random(815);
+    for (String charset : new String[] { "UTF-8", "ISO-8859-1", "US-ASCII" }) {
+      byte[] data = createData(random, 300).getBytes(charset);
+      for (int bufferSize : new int[] { 2, 7, 1000 }) {
+        CsvGridReader settings = new CsvGridReader().setEscape("\"'");
+        assertParsed(settings, Charset.forName(charset), data, bufferSize);
+        settings.setTrimming(false).setEmptyAsNull(false);
+        assertParsed(settings, Charset.forName(charset), data, bufferSize);
+      }
+    }
+  }
+
+  /** check that malformed input is replaced like a reader does */
+  @Test
+  public void testMalformed()
+    throws IOException
+  {
+    byte[] data = { 'a', (byte) 0xc3, ',', (byte) 0xe2, (byte) 0x82, '\n', (byte) 0xff, (byte) 0xc3, (byte) 0xa4 };
+    assertParsed(new CsvGridReader(), Charset.forName("UTF-8"), data, 3);
+  }
+
+  /**
+   * Parse the data with both parsers and compare the rows.
+   *
+   * @param settings the format of the data
+   * @param charset the encoding of the data
+   * @param data the encoded data
+   * @param bufferSize the number of bytes or characters to read at once
+   * @throws IOException if the data cannot be parsed
+   */
+  private static void assertParsed(final CsvGridReader settings, final Charset charset, final byte[] data,
+                                   final int bufferSize)
+    throws IOException
+  {
+    CsvParser chars = settings.createParser(new InputStreamReader(new ByteArrayInputStream(data), charset),
+        bufferSize);
+    CsvParser bytes = settings.createParser(new ByteArrayInputStream(data), charset, bufferSize);
+    assertEquals(ByteCsvParser.class, bytes.getClass());
+
+    List<String> expected = null;
+    do {
+      expected = chars.next();
+      assertEquals(expected, bytes.next());
+      assertEquals(chars.getLineNumber(), bytes.getLineNumber());
+    } while (expected != null);
+  }
+
+  /**
+   * Create random rows that use all the features of the format.
+   *
+   * @param random the source of the cells
+   * @param rows the number of rows to create
+   * @return the text of the rows
+   */
+  private static String createData(final Random random, final int rows) {
+    StringBuilder text = new StringBuilder();
+    for (int row = 0; row < rows; ++row) {
+      int count = random.nextInt(6);
+      for (int cell = 0; cell < count; ++cell) {
+        if (cell > 0) text.append(',');
+        text.append(CELLS[random.nextInt(CELLS.length)]);
+      }
+      text.append(ENDINGS[random.nextInt(ENDINGS.length)]);
+    }
+    // the last row may end without a line break
+    return text.append(CELLS[random.nextInt(CELLS.length)]).toString();
+  }
+}
@@ -4,9 +4,26 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.filefilter.FileFilterUtils;
 import org.jcommons.io.sheet.Book;
+import org.jcommons.io.sheet.Sheet;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 /**
  * Check if multiple CSV files can be read
@@ -15,7 +32,13 @@ import org.junit.Test;
  */
 public class CsvBookReaderTest
 {
-  private static final String SIMPLE = "src/test/resources/" + "csv/simple.csv";
+  private static final String ROOT = "src/test/resources/" + "csv";
+  private static final String SIMPLE = ROOT + "/simple.csv";
+  private static final String SEMICOLON = ROOT + "/semicolon.csv";
+  private static final String MULTILINE = ROOT + "/multiline.csv";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
 
   /** check that the book can be read completely */
   @Test
@@ -30,4 +53,96 @@ public class CsvBookReaderTest
     assertEquals("a", book.getSheets().get(0).getTable().getColumn(0));
     assertEquals("a1", book.getSheets().get(0).getTable().getValue(0, 0));
   }
+
+  /** check that the columns can be selected by argument */
+  @Test
+  public void testColumns() {
+    Map<String, String> arguments = new HashMap<String, String>();
+    arguments.put("columns", "c, a");
+    arguments.put("header", "0");
+    Book book = new CsvBookReader().addFile(new File(SIMPLE)).read(arguments);
+    assertEquals(Arrays.asList("c", "a"), book.getSheets().get(0).getTable().getColumns());
+    assertEquals("c1, e1", book.getSheets().get(0).getTable().getValue("c", 0));
+    assertEquals("a1", book.getSheets().get(0).getTable().getValue(0, 1));
+  }
+
+  /** check that a malformed header argument falls back to the first row instead of failing the book */
+  @Test
+  public void testMalformedHeader() {
+    Map<String, String> arguments = new HashMap<String, String>();
+    arguments.put("columns", "c, a");
+    arguments.put("header", "first");
+    Book book = new CsvBookReader().addFile(new File(SIMPLE)).read(arguments);
+    assertEquals(Arrays.asList("c", "a"), book.getSheets().get(0).getTable().getColumns());
+    assertEquals("a1", book.getSheets().get(0).getTable().getValue(0, 1));
+  }
+
+  /** check that the sheets keep the order of the files no matter how they are read */
+  @Test
+  public void testReadConcurrently() {
+    CsvBookReader reader = new CsvBookReader().addFile(new File(MULTILINE));
+    reader.addFiles(Arrays.asList(new File(SIMPLE), new File(SEMICOLON)));
+    assertEquals(Arrays.asList("multiline", "simple", "semicolon"), names(reader.read()));
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      assertEquals(Arrays.asList("multiline", "simple", "semicolon"), names(reader.setExecutor(executor).read()));
+      // the executor is still usable
+      assertEquals(Arrays.asList("multiline", "simple", "semicolon"), names(reader.read()));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /** check that every file of a zip archive becomes a sheet and compressed files are read */
+  @Test
+  public void testArchive()
+    throws IOException
+  {
+    File archive = folder.newFile("book.zip");
+    ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive));
+    try {
+      for (String name : new String[] { SIMPLE, SEMICOLON, MULTILINE }) {
+        zip.putNextEntry(new ZipEntry("csv/" + new File(name).getName()));
+        zip.write(FileUtils.readFileToByteArray(new File(name)));
+      }
+    } finally {
+      zip.close();
+    }
+
+    File compressed = folder.newFile("single.csv.gz");
+    GZIPOutputStream gzip = new GZIPOutputStream(new FileOutputStream(compressed));
+    try {
+      gzip.write(FileUtils.readFileToByteArray(new File(SIMPLE)));
+    } finally {
+      gzip.close();
+    }
+
+    Book book = new CsvBookReader().addFile(archive).addFile(compressed).read();
+    assertEquals(Arrays.asList("simple", "semicolon", "multiline", "single"), names(book));
+    assertEquals("a1", book.getSheets().get(0).getTable().getValue(0, 0));
+    assertEquals(book.getSheets().get(0).getTable().getValue(1, 3), book.getSheets().get(3).getTable().getValue(1, 3));
+  }
+
+  /** check that files can be selected by a filter */
+  @Test
+  public void testFilter() {
+    CsvBookReader reader = new CsvBookReader();
+    reader.setFilter(new File(ROOT), FileFilterUtils.nameFileFilter("simple.csv"));
+    assertEquals(Arrays.asList("simple"), names(reader.read()));
+    // reading again does not add the files twice
+    assertEquals(Arrays.asList("simple"), names(reader.read()));
+  }
+
+  /**
+   * @param book the book to look at
+   * @return the names of the sheets in their order
+   */
+  private static List<String> names(final Book book) {
+    List<String> names = new ArrayList<String>();
+    for (Sheet sheet : book.getSheets()) {
+      names.add(sheet.getName());
+    }
+    return names;
+  }
 }
@@ -1,15 +1,35 @@
 package org.jcommons.io.text.reader.csv;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.commons.io.FileUtils;
 import org.jcommons.io.text.Grid;
+import org.jcommons.io.text.reader.ColumnFilter;
 import org.jcommons.io.text.reader.GridReader;
+import org.jcommons.io.text.reader.RowFilter;
+import org.jcommons.io.text.reader.RowHandler;
+import org.jcommons.io.text.reader.RowIterator;
+import org.jcommons.io.text.reader.StringPool;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 /**
  * Check if CSV files can be read
@@ -21,6 +41,10 @@ public class CsvGridReaderTest
   private static final String ROOT = "src/test/resources/csv";
   private static final String SIMPLE = ROOT + "/simple.csv";
   private static final String SEMICOLON = ROOT + "/semicolon.csv";
+  private static final String MULTILINE = ROOT + "/multiline.csv";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
 
   /** check if we can process some simple input files */
   @Test
@@ -125,4 +149,265 @@ public class CsvGridReaderTest
     assertNull(columns.get(2));
     assertNull(columns.get(3));
   }
+
+  /** check that quoted values may contain line breaks and escaped quotes */
+  @Test
+  public void testReadMultiline() {
+    Grid table = new CsvGridReader(MULTILINE).read();
+    assertNotNull(table);
+    assertEquals(4, table.size());
+    assertEquals("first line\nsecond line", table.getValue(1, 1));
+    assertEquals("plain", table.getValue(1, 2));
+    assertEquals("say \"hello\"", table.getValue(2, 1));
+    assertNull(table.getValue(2, 2));
+    assertEquals(3, table.getRow(2).size());
+    assertEquals("a, b", table.getValue(3, 1));
+  }
+
+  /** check that all kinds of line endings are accepted and line numbers are counted */
+  @Test
+  public void testLineEndings() throws Exception {
+    CsvParser parser = new CsvGridReader().createParser(new StringReader("a,b\r\nc,\"d\r\ne\"\rf\n\ng"));
+    assertEquals("[a, b]", parser.next().toString());
+    assertEquals(1, parser.getLineNumber());
+    assertEquals("[c, d\r\ne]", parser.next().toString());
+    assertEquals(2, parser.getLineNumber());
+    assertEquals("[f]", parser.next().toString());
+    assertEquals(4, parser.getLineNumber());
+    assertEquals(0, parser.next().size());
+    assertEquals("[g]", parser.next().toString());
+    assertEquals(6, parser.getLineNumber());
+    assertNull(parser.next());
+  }
+
+  /** check that trimming and empty values can be configured */
+  @Test
+  public void testOptions() {
+    CsvGridReader reader = new CsvGridReader().setDelimiter("||");
+    List<String> columns = reader.toRow(" a || \" b \" ||| c ||");
+    assertEquals(4, columns.size());
+    assertEquals("a", columns.get(0));
+    assertEquals(" b ", columns.get(1));
+    assertEquals("| c", columns.get(2));
+    assertNull(columns.get(3));
+
+    reader.setTrimming(false).setEmptyAsNull(false);
+    columns = reader.toRow(" a || \" b \" ||| c ||");
+    assertEquals(4, columns.size());
+    assertEquals(" a ", columns.get(0));
+    assertEquals(" \" b \" ", columns.get(1));
+    assertEquals("| c ", columns.get(2));
+    assertEquals("", columns.get(3));
+  }
+
+  /** check that rows can be streamed to a handler that may stop at any time */
+  @Test
+  public void testReadHandler() {
+    final List<Long> lines = new ArrayList<Long>();
+    long rows = new CsvGridReader(MULTILINE).read(new RowHandler() {
+      @Override
+      public boolean handle(final List<String> row, final long line) {
+        lines.add(line);
+        return !"2".equals(row.get(0));
+      }
+    });
+    assertEquals(3, rows);
+    assertEquals("[1, 2, 4]", lines.toString());
+
+    // handler is never called if the file does not exist
+    assertEquals(-1, new CsvGridReader(ROOT + "/no.such.file").read((RowHandler) null));
+  }
+
+  /** check that rows can be iterated one by one */
+  @Test
+  public void testIterator() throws Exception {
+    RowIterator rows = new CsvGridReader(SIMPLE).iterator();
+    assertNotNull(rows);
+    assertTrue(rows.hasNext());
+    assertEquals("[a, b, c, d]", rows.next().toString());
+    assertEquals(1, rows.getLineNumber());
+
+    int count = 1;
+    while (rows.hasNext()) {
+      rows.next();
+      ++count;
+    }
+    assertEquals(5, count);
+    assertEquals(5, rows.getLineNumber());
+    assertFalse(rows.hasNext());
+    rows.close();
+
+    assertNull(new CsvGridReader().iterator());
+  }
+
+  /** check that repeated values share the same instance if a pool is given */
+  @Test
+  public void testStringPool() {
+    CsvGridReader reader = new CsvGridReader(SIMPLE);
+    List<String> row = reader.toRow("EUR, EUR,\"EUR\",");
+    assertNotSame(row.get(0), row.get(1));
+
+    reader.setStringPool(new StringPool());
+    row = reader.toRow("EUR, EUR,\"EUR\",");
+    assertSame(row.get(0), row.get(1));
+    assertSame(row.get(0), row.get(2));
+    assertNull(row.get(3));
+
+    Grid first = reader.read();
+    Grid second = reader.read();
+    assertEquals(first.getData(), second.getData());
+    assertSame(first.getValue(1, 1), second.getValue(1, 1));
+  }
+
+  /** check that only the selected columns are read */
+  @Test
+  public void testColumns() {
+    CsvGridReader reader = new CsvGridReader(SIMPLE).setColumns(3, 1, 1, -2);
+    assertEquals(4, reader.getColumnIndices().length);
+    assertNull(reader.getColumnNames());
+
+    Grid table = reader.read();
+    assertEquals(5, table.size());
+    assertEquals("[d, b]", table.getRow(0).toString());
+    assertEquals("[d1, b1]", table.getRow(1).toString());
+    assertTrue(table.getRow(3).isEmpty());
+    assertEquals("[null, b4]", table.getRow(4).toString());
+
+    // names are looked up in the header row
+    reader.setColumns("D", "x", "b");
+    assertNull(reader.getColumnIndices());
+    assertEquals(table.getData(), reader.read().getData());
+    assertEquals(table.getData(), reader.map().getData());
+    assertEquals("[d1, b1]", reader.setHeaderRow(1).setColumns("d1", "b1").read().getRow(1).toString());
+
+    reader.clearColumns();
+    assertNull(reader.getColumnNames());
+    assertEquals(4, reader.read().getRow(0).size());
+  }
+
+  /** check that rows are filtered while reading */
+  @Test
+  public void testRowFilter() {
+    CsvGridReader reader = new CsvGridReader(SIMPLE).setRowFilter(ColumnFilter.equalTo(2, null));
+    Grid table = reader.read();
+    assertEquals(4, table.size());
+    assertEquals("a", table.getValue(0, 0));
+    assertEquals("a2", table.getValue(1, 0));
+    assertTrue(table.getRow(2).isEmpty());
+    assertEquals("a4", table.getValue(3, 0));
+
+    // the filter may look at columns that are not read
+    reader.setRowFilter(ColumnFilter.equalTo(3, "d1")).setColumns(0);
+    assertEquals("[[a], [a1]]", reader.read().getData().toString());
+    assertEquals("[[a1]]", reader.read(1, 5).getData().toString());
+    assertEquals(0, reader.read(2, 5).size());
+    // mapped files are not filtered
+    assertEquals(5, reader.map().size());
+
+    RowIterator rows = reader.setRowFilter(new RowFilter() {
+      @Override
+      public boolean accept(final List<String> row) {
+        return !row.isEmpty() && "a4".equals(row.get(0));
+      }
+    }).iterator();
+    assertEquals("[a]", rows.next().toString());
+    assertEquals("[a4]", rows.next().toString());
+    assertEquals(5, rows.getLineNumber());
+    assertFalse(rows.hasNext());
+  }
+
+  /** check that the charset is applied and a byte order mark is skipped and overrides it */
+  @Test
+  public void testCharset()
+    throws IOException
+  {
+    String text = "\"\u00e4\u20ac\",b\n c , \"\u00f6\n\u00fc\"\r\n";
+    String expected = "[[\u00e4\u20ac, b], [c, \u00f6\n\u00fc]]";
+    Charset utf8 = Charset.forName("UTF-8");
+    Charset latin1 = Charset.forName("ISO-8859-1");
+
+    File file = createFile(new byte[] { (byte) 0xef, (byte) 0xbb, (byte) 0xbf }, text, utf8);
+    CsvGridReader reader = new CsvGridReader(file).setCharset(latin1);
+    assertEquals(expected, reader.read().getData().toString());
+    assertEquals(expected, reader.map().getData().toString());
+    assertEquals("[[c, \u00f6\n\u00fc]]", reader.read(1, 2).getData().toString());
+    assertEquals("[\u00e4\u20ac, b]", reader.iterator().next().toString());
+    assertEquals(expected, reader.setIndexed(true).read(0, 2).getData().toString());
+    assertEquals(expected, new ParallelCsvReader(reader, utf8, 2, 1).read(file).getData().toString());
+
+    file = createFile(new byte[] { (byte) 0xff, (byte) 0xfe }, text, Charset.forName("UTF-16LE"));
+    assertEquals(expected, new CsvGridReader(file).read().getData().toString());
+    assertNull(new CsvGridReader(file).map());
+
+    text = "\u00e4,b\n\u00f6";
+    file = createFile(new byte[0], text, latin1);
+    reader = new CsvGridReader(file).setCharset(latin1).setBufferSize(1);
+    assertEquals(latin1, reader.getCharset());
+    assertEquals(1024, reader.getBufferSize());
+    assertEquals("[[\u00e4, b], [\u00f6]]", reader.read().getData().toString());
+    assertEquals("[[\ufffd, b], [\ufffd]]", reader.setCharset(utf8).read().getData().toString());
+    assertEquals(Charset.defaultCharset(), reader.setCharset(null).getCharset());
+  }
+
+  /** check that compressed files are decompressed while they are read */
+  @Test
+  public void testCompressed()
+    throws IOException
+  {
+    Grid expected = new CsvGridReader(SIMPLE).read();
+    byte[] data = FileUtils.readFileToByteArray(new File(SIMPLE));
+
+    File file = folder.newFile("simple.csv.gz");
+    GZIPOutputStream gzip = new GZIPOutputStream(new FileOutputStream(file));
+    try {
+      gzip.write(data);
+    } finally {
+      gzip.close();
+    }
+    CsvGridReader reader = new CsvGridReader(file).setParallelism(2).setIndexed(true);
+    assertEquals(expected.getData(), reader.read().getData());
+    assertEquals(expected.getRow(2), reader.read(2, 3).getRow(0));
+    assertEquals(expected.getRow(0), reader.iterator().next());
+    assertNull(reader.map());
+
+    file = folder.newFile("book.zip");
+    ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file));
+    try {
+      zip.putNextEntry(new ZipEntry("data/"));
+      zip.putNextEntry(new ZipEntry("data/first.csv"));
+      zip.write("x,y\n".getBytes("UTF-8"));
+      zip.putNextEntry(new ZipEntry("data/simple.csv"));
+      zip.write(data);
+    } finally {
+      zip.close();
+    }
+    reader = new CsvGridReader(file);
+    assertEquals("[[x, y]]", reader.read().getData().toString());
+    assertEquals(expected.getData(), reader.setEntry("data/simple.csv").read().getData());
+    assertEquals("data/simple.csv", reader.getEntry());
+    assertNull(reader.setEntry("missing.csv").read());
+  }
+
+  /**
+   * Create a file with the given content.
+   *
+   * @param bom the byte order mark the file starts with, can be empty
+   * @param text the content of the file
+   * @param charset the encoding of the content
+   * @return the file
+   * @throws IOException if the file cannot be written
+   */
+  private File createFile(final byte[] bom, final String text, final Charset charset)
+    throws IOException
+  {
+    File file = folder.newFile();
+    FileOutputStream output = new FileOutputStream(file);
+    try {
+      output.write(bom);
+      output.write(text.getBytes(charset));
+    } finally {
+      output.close();
+    }
+    return file;
+  }
 }
@@ -0,0 +1,101 @@
+package org.jcommons.io.text.reader.csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.*;
+
+import org.apache.commons.io.FileUtils;
+import org.jcommons.io.text.Grid;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Check if sidecar indices are written, reused and replaced */
+public class CsvIndexTest
+{
+  private static final String MULTILINE = "src/test/resources/csv/multiline.csv";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /** check that the sidecar matches the offsets found by scanning */
+  @Test
+  public void testSidecar()
+    throws IOException
+  {
+    File file = copy();
+    CsvGridReader reader = new CsvGridReader(file);
+    File sidecar = CsvIndex.getSidecar(file);
+    assertFalse(sidecar.exists());
+
+    CsvIndex scanned = CsvIndex.scan(reader, file);
+    CsvIndex stored = CsvIndex.open(reader, file);
+    assertTrue(sidecar.isFile());
+    assertEquals(scanned.size(), stored.size());
+    for (int row = 0; row < scanned.size(); ++row) {
+      assertEquals(scanned.getStart(row), stored.getStart(row));
+      assertEquals(scanned.getEnd(row), stored.getEnd(row));
+    }
+    stored.close();
+
+    // an unchanged file reuses the sidecar
+    long modified = sidecar.lastModified();
+    CsvIndex.open(reader, file).close();
+    assertEquals(modified, sidecar.lastModified());
+  }
+
+  /** check that a sidecar is replaced if the file or the format changes */
+  @Test
+  public void testStale()
+    throws IOException
+  {
+    File file = copy();
+    CsvGridReader reader = new CsvGridReader(file).setIndexed(true);
+    int rows = reader.map().size();
+
+    FileUtils.writeStringToFile(file, "a,b\nc,d\n", "UTF-8", true);
+    assertEquals(rows + 2, reader.map().size());
+
+    // same size but different content at the end
+    FileUtils.writeStringToFile(file, FileUtils.readFileToString(file, "UTF-8").replace("c,d\n", "c\nd\n"), "UTF-8");
+    assertEquals(rows + 3, reader.map().size());
+
+    // the format determines the records as well
+    assertEquals(new CsvGridReader(file).setEscape("'").read().size(), reader.setEscape("'").map().size());
+  }
+
+  /** check that ranges are read with and without the sidecar */
+  @Test
+  public void testReadRange()
+    throws IOException
+  {
+    File file = copy();
+    CsvGridReader reader = new CsvGridReader(file);
+    Grid all = reader.read();
+    assertNotNull(all);
+
+    for (boolean indexed : new boolean[] { false, true }) {
+      reader.setIndexed(indexed);
+      assertEquals(all.getData().subList(1, 3), reader.read(1, 3).getData());
+      assertEquals(all.getData().subList(2, all.size()), reader.read(2, 1000).getData());
+      assertEquals(0, reader.read(1000, 1001).size());
+      assertEquals(0, reader.read(3, 1).size());
+    }
+    assertTrue(CsvIndex.getSidecar(file).isFile());
+  }
+
+  /**
+   * @return a copy of the test file that can be changed
+   * @throws IOException if the file cannot be copied
+   */
+  private File copy()
+    throws IOException
+  {
+    File file = new File(folder.getRoot(), "multiline.csv");
+    FileUtils.copyFile(new File(MULTILINE), file);
+    return file;
+  }
+}
@@ -0,0 +1,79 @@
+package org.jcommons.io.text.reader.csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import org.junit.Test;
+
+/** Check if mapped CSV files provide the same rows as files that are read completely */
+public class MappedCsvGridTest
+{
+  private static final String ROOT = "src/test/resources/csv";
+  private static final String SIMPLE = ROOT + "/simple.csv";
+  private static final String SEMICOLON = ROOT + "/semicolon.csv";
+  private static final String MULTILINE = ROOT + "/multiline.csv";
+
+  /** check that the mapped rows match the rows read by the reader */
+  @Test
+  public void testMap() {
+    CsvGridReader reader = new CsvGridReader(MULTILINE);
+    MappedCsvGrid grid = reader.map();
+    assertNotNull(grid);
+    assertEquals(reader.read().getData(), grid.getData());
+
+    reader = new CsvGridReader(SEMICOLON).setDelimiter(";").setEscape("'");
+    grid = reader.map();
+    assertEquals(reader.read().getData(), grid.getData());
+    assertNull(new CsvGridReader(ROOT + "/missing.csv").map());
+    assertNull(new CsvGridReader(SIMPLE).setDelimiter("::").map());
+  }
+
+  /** check random access and the cache */
+  @Test
+  public void testGetRow() {
+    MappedCsvGrid grid = new CsvGridReader(SIMPLE).map();
+    assertEquals(5, grid.size());
+    assertEquals("b1", grid.getValue(1, 1));
+    assertNull(grid.getValue(1, 10));
+    assertNull(grid.getValue(10, 1));
+    assertTrue(grid.getRow(-1).isEmpty());
+
+    List<String> row = grid.getRow(2);
+    assertSame(row, grid.getRow(2));
+    try {
+      row.set(0, "x");
+      fail("Mapped rows must not be changed.");
+    } catch (UnsupportedOperationException ex) {
+      // well, this is okay
+    }
+
+    grid.setCacheSize(0);
+    assertEquals(row, grid.getRow(2));
+
+    grid.close();
+    assertTrue(grid.getRow(2).isEmpty());
+  }
+
+  /** check that rows spanning two mapped regions are read completely */
+  @Test
+  public void testSegments()
+    throws IOException
+  {
+    CsvGridReader reader = new CsvGridReader(MULTILINE);
+    File file = new File(MULTILINE);
+    for (int segmentSize : new int[] { 1, 5, 16 }) {
+      MappedCsvGrid grid = new MappedCsvGrid(reader, Charset.defaultCharset(), file, segmentSize,
+          CsvIndex.scan(reader, file));
+      assertEquals(reader.read().getData(), grid.getData());
+    }
+  }
+}
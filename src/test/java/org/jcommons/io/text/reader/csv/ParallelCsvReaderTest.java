@@ -0,0 +1,139 @@
+package org.jcommons.io.text.reader.csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.jcommons.io.text.Grid;
+import org.jcommons.io.text.reader.ColumnFilter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Check if CSV files split into chunks are read exactly like sequentially read files */
+public class ParallelCsvReaderTest
+{
+  private static final String[] CELLS = { "plain", "", "  padded  ", "\"quoted\"", "\"with,comma\"",
+    "\"multi\nline\"", "\"multi\r\nline\"", "\"doubled \"\" quote\"", "mid\"quote", "  \"spaced\"  ",
+    "'single'", "'it''s'", "\"\"", "\"open\"close\"again\"", "\"a\",b'c'", "umlaut äöü" };
+  private static final String[] ENDINGS = { "\n", "\r\n", "\r", "\n\n", "\r\r\n" };
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /** check that any chunk size results in the same rows as reading sequentially */
+  @Test
+  public void testChunks()
+    throws IOException
+  {
+    File file = createFile(new Random(4711), 500);
+    CsvGridReader settings = new CsvGridReader(file).setEscape("\"'");
+    Grid expected = settings.read();
+
+    for (int chunkSize : new int[] { 1, 3, 7, 64, 1000, 100000 }) {
+      Grid actual = new ParallelCsvReader(settings, Charset.defaultCharset(), 3, chunkSize).read(file);
+      assertEquals("chunk size " + chunkSize, expected.getData(), actual.getData());
+    }
+
+    settings.setTrimming(false).setEmptyAsNull(false).setEscape("\"");
+    expected = settings.read();
+    Grid actual = new ParallelCsvReader(settings, Charset.defaultCharset(), 4, 5).read(file);
+    assertEquals(expected.getData(), actual.getData());
+
+    settings.setColumns(4, 0, 2);
+    expected = settings.read();
+    actual = new ParallelCsvReader(settings, Charset.defaultCharset(), 4, 5).read(file);
+    assertEquals(expected.getData(), actual.getData());
+
+    settings.setRowFilter(ColumnFilter.equalTo(1, "plain"));
+    expected = settings.read();
+    actual = new ParallelCsvReader(settings, Charset.defaultCharset(), 4, 5).read(file);
+    assertEquals(expected.getData(), actual.getData());
+    assertTrue(expected.size() > 10);
+  }
+
+  /** check that the header rows of a file with a byte order mark are kept by a row filter */
+  @Test
+  public void testByteOrderMark()
+    throws IOException
+  {
+    File file = folder.newFile();
+    Writer writer = new OutputStreamWriter(new FileOutputStream(file), Charset.forName("UTF-8"));
+    try {
+      writer.write("\ufeffname,currency\n");
+      for (int row = 0; row < 200; ++row) {
+        writer.write("row " + row + "," + (row % 3 == 0 ? "EUR" : "CHF") + "\n");
+      }
+    } finally {
+      writer.close();
+    }
+
+    CsvGridReader settings = new CsvGridReader(file).setCharset(Charset.forName("UTF-8"));
+    settings.setRowFilter(ColumnFilter.equalTo(1, "EUR"));
+    Grid expected = settings.read();
+    Grid actual = new ParallelCsvReader(settings, Charset.forName("UTF-8"), 3, 64).read(file);
+    assertEquals(expected.getData(), actual.getData());
+    assertEquals(Arrays.asList("name", "currency"), actual.getRow(0));
+    assertEquals(68, actual.size());
+  }
+
+  /** check that files that are not split are read as well */
+  @Test
+  public void testSmallFiles()
+    throws IOException
+  {
+    File file = folder.newFile("empty.csv");
+    CsvGridReader settings = new CsvGridReader(file);
+    assertEquals(0, new ParallelCsvReader(settings, Charset.defaultCharset(), 2, 1).read(file).size());
+
+    file = createFile(new Random(42), 3);
+    settings.setFile(file).setParallelism(4);
+    assertEquals(4, settings.getParallelism());
+    assertEquals(new CsvGridReader(file).read().getData(), settings.read().getData());
+  }
+
+  /** check which formats can be scanned on the raw bytes */
+  @Test
+  public void testSupported() {
+    assertTrue(CsvScanner.isSupported(Charset.forName("UTF-8"), ",", "\"'"));
+    assertTrue(CsvScanner.isSupported(Charset.forName("ISO-8859-1"), ";", "\""));
+    assertFalse(CsvScanner.isSupported(Charset.forName("UTF-16"), ",", "\""));
+    assertFalse(CsvScanner.isSupported(Charset.forName("UTF-8"), "::", "\""));
+    assertFalse(CsvScanner.isSupported(Charset.forName("UTF-8"), ",", "»"));
+  }
+
+  /**
+   * Create a file with random rows that use all the features of the format.
+   *
+   * @param random the source of the cells
+   * @param rows the number of rows to write
+   * @return the file
+   * @throws IOException if the file cannot be written
+   */
+  private File createFile(final Random random, final int rows)
+    throws IOException
+  {
+    File file = folder.newFile();
+    Writer writer = new OutputStreamWriter(new FileOutputStream(file), Charset.defaultCharset());
+    try {
+      for (int row = 0; row < rows; ++row) {
+        int cells = random.nextInt(6);
+        for (int cell = 0; cell < cells; ++cell) {
+          if (cell > 0) writer.write(',');
+          writer.write(CELLS[random.nextInt(CELLS.length)]);
+        }
+        writer.write(ENDINGS[random.nextInt(ENDINGS.length)]);
+      }
+      // the last row may end without a line break
+      writer.write(CELLS[random.nextInt(CELLS.length)]);
+    } finally {
+      writer.close();
+    }
+    return file;
+  }
+}
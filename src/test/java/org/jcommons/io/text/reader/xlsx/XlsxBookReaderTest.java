@@ -0,0 +1,131 @@
+package org.jcommons.io.text.reader.xlsx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.jcommons.io.sheet.Book;
+import org.jcommons.io.sheet.Sheet;
+import org.jcommons.io.text.Table;
+import org.jcommons.io.text.reader.StringPool;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Check that Excel workbooks are read into books */
+public class XlsxBookReaderTest
+{
+  private static final String MAIN = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+  private static final String RELATIONSHIPS = "http://schemas.openxmlformats.org/package/2006/relationships";
+  private static final String TYPES = "http://schemas.openxmlformats.org/officeDocument/2006/relationships/";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /** check that all worksheets and kinds of cells are read */
+  @Test
+  public void testRead() throws IOException {
+    Book book = new XlsxBookReader(createWorkbook()).read();
+    assertNotNull(book);
+    assertEquals(2, book.getSheets().size());
+
+    Sheet sheet = book.getSheets().get(0);
+    assertEquals("Payments", sheet.getName());
+    Table table = sheet.getTable();
+    assertEquals(Arrays.asList("id", "currency", "amount"), table.getColumns());
+    assertEquals(4, table.size());
+    assertEquals(Arrays.asList("1", "EUR", "10.5"), table.getRow(0));
+    assertEquals(Arrays.asList("2", null, "9"), table.getRow(1));
+    assertEquals(Collections.emptyList(), table.getRow(2));
+    assertEquals(Arrays.asList("4", "Swiss Franc", "TRUE"), table.getRow(3));
+    assertSame(table.getValue(0, 1), book.getSheet("payments").getTable().getValue(0, 1));
+
+    table = book.getSheet("Summary").getTable();
+    assertEquals("total", table.getColumn(0));
+    assertEquals("19.5", table.getValue("total", 0));
+  }
+
+  /** check that the arguments configure the tables and values are pooled */
+  @Test
+  public void testArguments() throws IOException {
+    Map<String, String> arguments = new HashMap<String, String>();
+    arguments.put("header", "1");
+    Book book = new XlsxBookReader(createWorkbook()).setStringPool(new StringPool()).read(arguments);
+    Table table = book.getSheet("Payments").getTable();
+    assertEquals(Arrays.asList("1", "EUR", "10.5"), table.getColumns());
+    assertEquals(3, table.size());
+    assertEquals(0, book.getSheet("Summary").getTable().size());
+  }
+
+  /** check that files that are no workbooks are not read */
+  @Test
+  public void testInvalid() throws IOException {
+    File text = folder.newFile("text.xlsx");
+    FileUtils.writeStringToFile(text, "no workbook", StandardCharsets.UTF_8);
+    assertNull(new XlsxBookReader(text).read());
+    assertNull(new XlsxBookReader(new File(folder.getRoot(), "missing.xlsx")).read());
+  }
+
+  /**
+   * @return a workbook with a sheet of payments using shared and inline strings and a sheet with a formula
+   * @throws IOException if the workbook cannot be written
+   */
+  private File createWorkbook() throws IOException {
+    File file = folder.newFile();
+    ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(file));
+    try {
+      write(zip, "_rels/.rels", "<Relationships xmlns=\"" + RELATIONSHIPS + "\">"
+          + "<Relationship Id=\"rId1\" Type=\"" + TYPES + "officeDocument\" Target=\"xl/workbook.xml\"/>"
+          + "</Relationships>");
+      write(zip, "xl/workbook.xml", "<workbook xmlns=\"" + MAIN + "\" xmlns:r=\"" + TYPES.substring(0,
+          TYPES.length() - 1) + "\"><sheets><sheet name=\"Payments\" sheetId=\"1\" r:id=\"rId2\"/>"
+          + "<sheet name=\"Summary\" sheetId=\"2\" r:id=\"rId1\"/></sheets></workbook>");
+      write(zip, "xl/_rels/workbook.xml.rels", "<Relationships xmlns=\"" + RELATIONSHIPS + "\">"
+          + "<Relationship Id=\"rId1\" Type=\"" + TYPES + "worksheet\" Target=\"/xl/worksheets/summary.xml\"/>"
+          + "<Relationship Id=\"rId2\" Type=\"" + TYPES + "worksheet\" Target=\"worksheets/sheet1.xml\"/>"
+          + "<Relationship Id=\"rId3\" Type=\"" + TYPES + "sharedStrings\" Target=\"sharedStrings.xml\"/>"
+          + "</Relationships>");
+      write(zip, "xl/sharedStrings.xml", "<sst xmlns=\"" + MAIN + "\" count=\"5\" uniqueCount=\"4\">"
+          + "<si><t>id</t></si><si><t>currency</t></si><si><t>amount</t></si>"
+          + "<si><r><t>E</t></r><r><t>UR</t></r><rPh><t>hint</t></rPh></si></sst>");
+      write(zip, "xl/worksheets/sheet1.xml", "<worksheet xmlns=\"" + MAIN + "\"><sheetData>"
+          + "<row r=\"1\"><c r=\"A1\" t=\"s\"><v>0</v></c><c r=\"B1\" t=\"s\"><v>1</v></c>"
+          + "<c r=\"C1\" t=\"s\"><v>2</v></c></row>"
+          + "<row r=\"2\"><c r=\"A2\"><v>1</v></c><c r=\"B2\" t=\"s\"><v>3</v></c><c r=\"C2\"><v>10.5</v></c></row>"
+          + "<row r=\"3\"><c r=\"A3\"><v>2</v></c><c r=\"C3\" s=\"1\"><v>9</v></c></row>"
+          + "<row r=\"5\"><c><v>4</v></c><c t=\"inlineStr\"><is><t>Swiss Franc</t></is></c>"
+          + "<c t=\"b\"><v>1</v></c></row></sheetData></worksheet>");
+      write(zip, "xl/worksheets/summary.xml", "<worksheet xmlns=\"" + MAIN + "\"><sheetData>"
+          + "<row><c t=\"inlineStr\"><is><t>total</t></is></c></row>"
+          + "<row><c><f>SUM(Payments!C2:C3)</f><v>19.5</v></c></row></sheetData></worksheet>");
+    } finally {
+      zip.close();
+    }
+    return file;
+  }
+
+  /**
+   * @param zip the workbook
+   * @param name the name of the part
+   * @param xml the content of the part
+   * @throws IOException if the part cannot be written
+   */
+  private static void write(final ZipOutputStream zip, final String name, final String xml) throws IOException {
+    zip.putNextEntry(new ZipEntry(name));
+    zip.write(xml.getBytes(StandardCharsets.UTF_8));
+    zip.closeEntry();
+  }
+}
@@ -0,0 +1,124 @@
+package org.jcommons.io.text.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.jcommons.io.sheet.Book;
+import org.jcommons.io.sheet.Sheet;
+import org.jcommons.io.text.Spreadsheet;
+import org.jcommons.io.text.reader.csv.CsvBookReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Check that parsed sheets are cached until their files change */
+public class SheetCacheTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /** check that only changed files are parsed again, also by a later cache in the same directory, and are read-only */
+  @Test
+  public void testRead() throws IOException {
+    File directory = new File(folder.getRoot(), "cache");
+    File first = write("first.csv", "a,b\n1,2\n");
+    File second = write("second.csv", "c,d\n3,4\n");
+
+    Book book = new CsvBookReader().addFiles(Arrays.asList(first, second)).setCache(new SheetCache(directory, 10))
+        .read();
+    assertFalse(isCached(book.getSheet("first")));
+    assertFalse(isCached(book.getSheet("second")));
+
+    write("second.csv", "c,d\n5,6,7\n");
+    assertTrue(second.setLastModified(second.lastModified() + 2000));
+    book = new CsvBookReader().addFiles(Arrays.asList(first, second)).setCache(new SheetCache(directory, 10)).read();
+    assertEquals(2, book.getSheets().size());
+    assertTrue(isCached(book.getSheet("first")));
+    assertEquals("2", book.getSheet("first").getTable().getValue("b", 0));
+    assertEquals("b", book.getSheet("first").getTable().setColumn(1, "renamed").getColumn(1));
+    assertFalse(isCached(book.getSheet("second")));
+    assertEquals("7", book.getSheet("second").getTable().getValue(0, 2));
+
+    book = new CsvBookReader().addFiles(Arrays.asList(first, second)).setCache(new SheetCache(directory, 10)).read();
+    assertTrue(isCached(book.getSheet("second")));
+    assertEquals(Arrays.asList("5", "6", "7"), book.getSheet("second").getTable().getRow(0));
+  }
+
+  /** check that sheets read with other settings of the reader are parsed again */
+  @Test
+  public void testSettings() throws IOException {
+    File directory = new File(folder.getRoot(), "cache");
+    File file = write("umlauts.csv", "name\nGrüße\n");
+    SheetCache cache = new SheetCache(directory, 10);
+
+    CsvBookReader reader = new CsvBookReader().addFile(file).setCache(cache).setCharset(StandardCharsets.UTF_8);
+    assertEquals("Grüße", reader.read().getSheet("umlauts").getTable().getValue(0, 0));
+    assertTrue(isCached(reader.read().getSheet("umlauts")));
+
+    Sheet sheet = reader.setCharset(StandardCharsets.ISO_8859_1).read().getSheet("umlauts");
+    assertFalse(isCached(sheet));
+    assertEquals("GrÃ¼Ã\u009fe", sheet.getTable().getValue(0, 0));
+    assertTrue(isCached(reader.read().getSheet("umlauts")));
+    assertEquals(1, cache.size());
+  }
+
+  /** check that the least recently used sheets are evicted and that hashing detects changes of the content */
+  @Test
+  public void testEviction() throws IOException {
+    File directory = folder.newFolder("cache");
+    File first = write("first.csv", "a\n1\n");
+    File second = write("second.csv", "b\n2\n");
+    File third = write("third.csv", "c\n3\n");
+    Sheet sheet = new Sheet().setName("any").setTable(new Spreadsheet());
+
+    SheetCache cache = new SheetCache(directory, 2).setHashing(true);
+    assertTrue(cache.put(first, null, null, null, sheet));
+    assertTrue(cache.put(second, null, null, null, sheet));
+    assertNotNull(cache.get(first, null, null, null));
+    assertTrue(cache.put(third, null, null, null, sheet));
+    assertEquals(2, cache.size());
+    assertNotNull(cache.get(first, null, null, null));
+    assertNull(cache.get(second, null, null, null));
+    assertNotNull(cache.get(third, null, null, null));
+    assertNull(cache.get(third, "entry", null, null));
+    assertEquals(2, directory.list().length);
+
+    long modified = first.lastModified();
+    write("first.csv", "a\n9\n");
+    assertTrue(first.setLastModified(modified));
+    assertNull(cache.get(first, null, null, null));
+
+    cache.clear();
+    assertEquals(0, cache.size());
+    assertEquals(0, directory.list().length);
+  }
+
+  /**
+   * @param name the name of the file
+   * @param content the content of the file
+   * @return the file
+   * @throws IOException if the file cannot be written
+   */
+  private File write(final String name, final String content) throws IOException {
+    File file = new File(folder.getRoot(), name);
+    FileUtils.writeStringToFile(file, content, StandardCharsets.UTF_8);
+    return file;
+  }
+
+  /**
+   * @param sheet the sheet to check
+   * @return true if the sheet has been taken from a snapshot
+   */
+  private static boolean isCached(final Sheet sheet) {
+    return ((Spreadsheet) sheet.getTable()).getTabular() instanceof SnapshotGrid;
+  }
+}
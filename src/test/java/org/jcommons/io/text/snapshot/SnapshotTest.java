@@ -0,0 +1,100 @@
+package org.jcommons.io.text.snapshot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jcommons.io.sheet.Book;
+import org.jcommons.io.sheet.Sheet;
+import org.jcommons.io.text.Grid;
+import org.jcommons.io.text.Spreadsheet;
+import org.jcommons.io.text.Table;
+import org.jcommons.io.text.query.TableView;
+import org.jcommons.io.text.reader.csv.CsvBookReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Check that books are written into snapshots and opened again */
+public class SnapshotTest
+{
+  private static final String SIMPLE = "src/test/resources/csv/simple.csv";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /** check that all sheets are restored with their tables */
+  @Test
+  public void testBook() throws IOException {
+    Grid grid = new Grid();
+    grid.add(Arrays.asList("title"));
+    grid.add(Arrays.asList("id", "currency", "text"));
+    for (int row = 0; row < 1000; ++row) {
+      String text = row % 7 == 0 ? null : "Grüße " + row;
+      grid.add(Arrays.asList(Integer.toString(row), row % 2 == 0 ? "EUR" : "CHF", text));
+    }
+    grid.add(Collections.<String> emptyList());
+    grid.add(Arrays.asList("", null));
+
+    Book book = new CsvBookReader().addFile(new File(SIMPLE)).read();
+    book.add(new Sheet().setTable(new Spreadsheet(grid).setSkipHeader(1)).setName("payments"));
+    book.add(new Sheet().setTable(new TableView(book.getSheet("payments").getTable()).where("currency", "CHF")
+        .select("text", "id")).setName("francs"));
+    book.add(new Sheet().setName("empty"));
+
+    File file = folder.newFile("book.snapshot");
+    assertTrue(new SnapshotWriter(file).write(book));
+    Book read = new SnapshotReader(file).read();
+    assertEquals(4, read.getSheets().size());
+
+    for (String name : Arrays.asList("simple", "payments", "francs")) {
+      Table expected = book.getSheet(name).getTable();
+      Table actual = read.getSheet(name).getTable();
+      assertEquals(name, expected.getColumns(), actual.getColumns());
+      assertEquals(name, expected.getData(), actual.getData());
+    }
+    assertEquals(0, read.getSheet("empty").getTable().size());
+
+    SnapshotGrid payments = (SnapshotGrid) ((Spreadsheet) read.getSheet("payments").getTable()).getTabular();
+    assertEquals(grid.getData(), payments.getData());
+    assertEquals(3, payments.getColumnCount());
+    assertEquals("CHF", payments.getColumn(1).get(3));
+    assertSame(payments.getValue(3, 1), payments.getValue(5, 1));
+    assertNull(payments.getValue(0, 1));
+  }
+
+  /** check that single sheets can be opened with other parameters and damaged files are rejected */
+  @Test
+  public void testSheet() throws IOException {
+    Grid grid = new Grid();
+    grid.add(Arrays.asList("a", "b"));
+    grid.add(Arrays.asList("1", "2"));
+    File file = folder.newFile("grid.snapshot");
+    assertTrue(new SnapshotWriter(file).write(grid));
+
+    Map<String, String> arguments = new HashMap<String, String>();
+    arguments.put("header", "1");
+    Sheet sheet = new SnapshotReader(file).readSheet("", arguments);
+    assertEquals(Arrays.asList("1", "2"), sheet.getTable().getColumns());
+    assertNull(new SnapshotReader(file).readSheet("missing", null));
+
+    RandomAccessFile damaged = new RandomAccessFile(file, "rw");
+    try {
+      damaged.setLength(damaged.length() - 1);
+    } finally {
+      damaged.close();
+    }
+    assertNull(new SnapshotReader(file).read());
+    assertNull(new SnapshotReader(new File(SIMPLE)).read());
+    assertNull(new SnapshotReader(new File(folder.getRoot(), "missing")).read());
+  }
+}
@@ -0,0 +1,98 @@
+package org.jcommons.io.text.writer.csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.jcommons.io.text.Grid;
+import org.jcommons.io.text.Spreadsheet;
+import org.jcommons.io.text.reader.csv.CsvGridReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Check that grids are written into CSV files the reader reads back */
+public class CsvGridWriterTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /** check which cells are quoted and how */
+  @Test
+  public void testQuoting() throws IOException {
+    Grid grid = new Grid();
+    grid.add(Arrays.asList("plain", "a,b", "say \"hi\"", " padded", null, "two\nlines", ""));
+    File file = folder.newFile("quoted.csv");
+
+    CsvGridWriter writer = new CsvGridWriter(file).setLineSeparator("\n").setCharset(StandardCharsets.UTF_8);
+    assertTrue(writer.write(grid));
+    assertEquals("plain,\"a,b\",\"say \"\"hi\"\"\",\" padded\",,\"two\nlines\",\n",
+        FileUtils.readFileToString(file, StandardCharsets.UTF_8));
+
+    assertTrue(writer.setQuoting(CsvGridWriter.QUOTE_ALL).setDelimiter(";").write(grid));
+    assertEquals("\"plain\";\"a,b\";\"say \"\"hi\"\"\";\" padded\";;\"two\nlines\";\n",
+        FileUtils.readFileToString(file, StandardCharsets.UTF_8));
+
+    assertTrue(writer.setQuotedEmpty(true).write(grid));
+    assertEquals("\"plain\";\"a,b\";\"say \"\"hi\"\"\";\" padded\";;\"two\nlines\";\"\"\n",
+        FileUtils.readFileToString(file, StandardCharsets.UTF_8));
+
+    assertTrue(writer.setQuoting(CsvGridWriter.QUOTE_NONE).setDelimiter("|").write(grid));
+    assertEquals("plain|a,b|say \"hi\"| padded||two\nlines|\n", FileUtils.readFileToString(file,
+        StandardCharsets.UTF_8));
+
+    assertFalse(new CsvGridWriter(folder.getRoot()).write(grid));
+  }
+
+  /** check that large grids and tables are read back as they have been written */
+  @Test
+  public void testRoundTrip() throws IOException {
+    Grid grid = new Grid();
+    grid.add(Arrays.asList("id", "text", "amount"));
+    for (int row = 0; row < 20000; ++row) {
+      grid.add(Arrays.asList(Integer.toString(row), row % 3 == 0 ? "Grüße, 😀 \"quoted\"" : "x" + row,
+          row % 5 == 0 ? null : "10." + row));
+    }
+
+    for (Charset charset : Arrays.asList(StandardCharsets.UTF_8, StandardCharsets.UTF_16LE)) {
+      File file = folder.newFile();
+      assertTrue(new CsvGridWriter(file).setCharset(charset).setBufferSize(1000).write(grid));
+      assertEquals(grid.getData(), new CsvGridReader(file).setCharset(charset).read().getData());
+    }
+
+    File table = folder.newFile();
+    CsvGridWriter writer = new CsvGridWriter(table).setCharset(StandardCharsets.UTF_8);
+    assertTrue(writer.setDelimiter(";").write(new Spreadsheet(grid)));
+    File copy = folder.newFile();
+    CsvGridReader reader = new CsvGridReader(table).setCharset(StandardCharsets.UTF_8).setDelimiter(";");
+    assertTrue(writer.setFile(copy).setDelimiter(null).write(reader.iterator()));
+    assertEquals(grid.getData(), new CsvGridReader(copy).setCharset(StandardCharsets.UTF_8).read().getData());
+  }
+
+  /** check that empty and missing cells are read back apart in the format of a reader */
+  @Test
+  public void testEmptyCells() throws IOException {
+    Grid grid = new Grid();
+    grid.add(Arrays.asList("id", "empty", "missing", "text"));
+    grid.add(Arrays.asList("1", "", null, "a;b"));
+    grid.add(Arrays.asList("2", null, "", " 'padded' "));
+    File file = folder.newFile("empty.csv");
+
+    CsvGridReader reader = new CsvGridReader(file).setCharset(StandardCharsets.UTF_8).setDelimiter(";")
+        .setEscape("'\"").setQuotedEmptyAsEmpty(true);
+    assertTrue(new CsvGridWriter(file).setFormat(reader).write(grid));
+    assertEquals(grid.getData(), reader.read().getData());
+    assertEquals("2;;'';' ''padded'' '", FileUtils.readLines(file, StandardCharsets.UTF_8).get(2));
+
+    assertTrue(new CsvGridWriter(file).setFormat(reader.setQuotedEmptyAsEmpty(false)).write(grid));
+    assertEquals("2;;;' ''padded'' '", FileUtils.readLines(file, StandardCharsets.UTF_8).get(2));
+    assertEquals(Arrays.asList("1", null, null, "a;b"), reader.read().getRow(1));
+  }
+}
@@ -0,0 +1,180 @@
+package org.jcommons.io.text.writer.xlsx;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.IOUtils;
+import org.jcommons.io.sheet.Book;
+import org.jcommons.io.sheet.Sheet;
+import org.jcommons.io.text.Grid;
+import org.jcommons.io.text.Spreadsheet;
+import org.jcommons.io.text.Table;
+import org.jcommons.io.text.Tabular;
+import org.jcommons.io.text.reader.xlsx.XlsxBookReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Check that books are written into Excel workbooks */
+public class XlsxBookWriterTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /** check that a written workbook is read back with the same cells */
+  @Test
+  public void testWrite() throws IOException {
+    Grid grid = new Grid();
+    grid.add(Arrays.asList("id", "name", "amount"));
+    grid.add(Arrays.asList("1", "<Tom & \"Jerry\">", "10.5"));
+    grid.add(Arrays.asList("007", null, "1.50"));
+    grid.add(Arrays.asList("-3", " padded ", "12345678901234567890"));
+    Grid large = new Grid();
+    large.add(Arrays.asList("row"));
+    for (int row = 0; row < 50000; ++row) {
+      large.add(Arrays.asList(Integer.toString(row)));
+    }
+
+    Book book = new Book();
+    book.add(new Sheet().setTable(new Spreadsheet(grid)).setName("Payments: 2024/[Q1]"));
+    book.add(new Sheet().setTable(new Spreadsheet(large)).setName("payments: 2024/[q1]"));
+    book.add(new Sheet().setName(""));
+    File file = folder.newFile("book.xlsx");
+    assertTrue(new XlsxBookWriter(file).setCompressionLevel(1).write(book));
+
+    Book read = new XlsxBookReader(file).read();
+    assertEquals(3, read.getSheets().size());
+    assertEquals("Payments_ 2024__Q1_", read.getSheets().get(0).getName());
+    assertEquals("payments_ 2024__q1_ (2)", read.getSheets().get(1).getName());
+    assertEquals("Sheet3", read.getSheets().get(2).getName());
+
+    Table table = read.getSheets().get(0).getTable();
+    assertEquals(Arrays.asList("id", "name", "amount"), table.getColumns());
+    assertEquals(grid.getData().subList(1, 4), table.getData());
+    assertEquals(50000, read.getSheets().get(1).getTable().size());
+    assertEquals("49999", read.getSheets().get(1).getTable().getValue(49999, 0));
+
+    ZipFile archive = new ZipFile(file);
+    try {
+      String xml = IOUtils.toString(archive.getInputStream(archive.getEntry("xl/worksheets/sheet1.xml")), "UTF-8");
+      assertTrue(xml.contains("<c r=\"C2\"><v>10.5</v></c>"));
+      assertTrue(xml.contains("<c r=\"A3\" t=\"inlineStr\"><is><t>007</t></is></c>"));
+      assertTrue(xml.contains("<c r=\"C3\" t=\"inlineStr\"><is><t>1.50</t></is></c>"));
+      assertTrue(xml.contains("&lt;Tom &amp; \"Jerry\"&gt;"));
+    } finally {
+      archive.close();
+    }
+  }
+
+  /** check that numbers can be written as text and unwritable files are reported */
+  @Test
+  public void testOptions() throws IOException {
+    Grid grid = new Grid();
+    grid.add(Arrays.asList("id"));
+    grid.add(Arrays.asList("42"));
+    Book book = new Book().add(new Sheet().setTable(new Spreadsheet(grid)).setName("numbers"));
+
+    File file = folder.newFile("text.xlsx");
+    assertTrue(new XlsxBookWriter(file).setNumbers(false).write(book));
+    ZipFile archive = new ZipFile(file);
+    try {
+      String xml = IOUtils.toString(archive.getInputStream(archive.getEntry("xl/worksheets/sheet1.xml")), "UTF-8");
+      assertTrue(xml.contains("<c r=\"A2\" t=\"inlineStr\"><is><t>42</t></is></c>"));
+    } finally {
+      archive.close();
+    }
+
+    assertFalse(new XlsxBookWriter(folder.getRoot()).write(book));
+  }
+
+  /** check that rows beyond the limit of Excel continue on further worksheets */
+  @Test
+  public void testRowLimit() throws IOException {
+    Table table = new Spreadsheet(new Rows(XlsxBookWriter.MAX_ROWS + 1, 1));
+    Book book = new Book().add(new Sheet().setTable(table).setName("rows"));
+    book.add(new Sheet().setTable(new Spreadsheet(new Rows(2, 1))).setName("rows (2)"));
+    File file = folder.newFile("rows.xlsx");
+    assertTrue(new XlsxBookWriter(file).setCompressionLevel(1).write(book));
+
+    ZipFile archive = new ZipFile(file);
+    try {
+      String xml = IOUtils.toString(archive.getInputStream(archive.getEntry("xl/workbook.xml")), "UTF-8");
+      assertTrue(xml.contains("<sheet name=\"rows\" sheetId=\"1\""));
+      assertTrue(xml.contains("<sheet name=\"rows (2)\" sheetId=\"2\""));
+      assertTrue(xml.contains("<sheet name=\"rows (2) (2)\" sheetId=\"3\""));
+      xml = IOUtils.toString(archive.getInputStream(archive.getEntry("xl/worksheets/sheet2.xml")), "UTF-8");
+      assertTrue(xml.contains("<row r=\"1\"><c r=\"A1\" t=\"inlineStr\"><is><t>column 0</t></is></c></row>"));
+      assertTrue(xml.contains("<row r=\"2\"><c r=\"A2\"><v>1048576</v></c></row></sheetData>"));
+    } finally {
+      archive.close();
+    }
+  }
+
+  /** check that tables with more columns than Excel allows are rejected */
+  @Test
+  public void testColumnLimit() throws IOException {
+    Table table = new Spreadsheet(new Rows(2, XlsxBookWriter.MAX_COLUMNS + 1));
+    File file = new File(folder.getRoot(), "columns.xlsx");
+    assertFalse(new XlsxBookWriter(file).write(new Book().add(new Sheet().setTable(table).setName("columns"))));
+    assertFalse(file.exists());
+  }
+
+  /** A grid with a column row and numbered rows that are created when they are accessed. */
+  private static final class Rows
+    implements Tabular
+  {
+    private final int size;
+    private final int columns;
+
+    /**
+     * @param size the number of rows including the column row
+     * @param columns the number of columns
+     */
+    Rows(final int size, final int columns) {
+      this.size = size;
+      this.columns = columns;
+    }
+
+    @Override
+    public List<List<String>> getData() {
+      return new AbstractList<List<String>>() {
+        @Override
+        public List<String> get(final int index) {
+          return getRow(index);
+        }
+
+        @Override
+        public int size() {
+          return size;
+        }
+      };
+    }
+
+    @Override
+    public List<String> getRow(final int index) {
+      String[] cells = new String[columns];
+      for (int column = 0; column < columns; ++column) {
+        cells[column] = getValue(index, column);
+      }
+      return Arrays.asList(cells);
+    }
+
+    @Override
+    public String getValue(final int row, final int column) {
+      return row == 0 ? "column " + column : Integer.toString(row);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}